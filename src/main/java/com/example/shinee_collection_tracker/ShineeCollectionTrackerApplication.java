@@ -2,14 +2,17 @@ package com.example.shinee_collection_tracker;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 /**
  * SHINee Collection Tracker アプリケーションの起動クラス。
  * * このクラスを実行することで、内蔵されたTomcatサーバが立ち上がり、
  * フロントエンド(JS)からのリクエストを受け付けられるようになります。
+ * * @EnableScheduling により、所持状態の索引の定期照合などの @Scheduled ジョブが動きます。
  */
 @SpringBootApplication
+@EnableScheduling
 public class ShineeCollectionTrackerApplication {
 
 	/**
@@ -0,0 +1,21 @@
+package com.example.shinee_collection_tracker.config;
+
+import com.example.shinee_collection_tracker.controller.CurrentUserArgumentResolver;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * コントローラーの @CurrentUser 引数を解決できるように、CurrentUserArgumentResolver を登録する設定。
+ */
+@Configuration
+public class CurrentUserConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new CurrentUserArgumentResolver());
+    }
+}
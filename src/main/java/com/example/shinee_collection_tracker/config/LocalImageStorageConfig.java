@@ -0,0 +1,42 @@
+package com.example.shinee_collection_tracker.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * ローカルディスクに保存した画像（LocalImageStorage）を、/images/** のURLで配信する設定。
+ * * [ポイント]
+ * Spring の静的リソース配信（ResourceHttpRequestHandler）を使うため、
+ * Range リクエスト（部分取得）や Last-Modified / If-Modified-Since による再検証に自動で対応します。
+ * ファイル名はUUIDで内容が変わらないため、ブラウザには長期間キャッシュさせます。
+ */
+@Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalImageStorageConfig implements WebMvcConfigurer {
+
+    private final Path root;
+    private final String publicBaseUrl;
+
+    public LocalImageStorageConfig(
+            @Value("${storage.local.root:./data/images}") Path root,
+            @Value("${storage.local.public-base-url:/images}") String publicBaseUrl) {
+        this.root = root.toAbsolutePath().normalize();
+        this.publicBaseUrl = publicBaseUrl.endsWith("/")
+                ? publicBaseUrl.substring(0, publicBaseUrl.length() - 1)
+                : publicBaseUrl;
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler(publicBaseUrl + "/**")
+                .addResourceLocations(root.toUri().toString())
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable());
+    }
+}
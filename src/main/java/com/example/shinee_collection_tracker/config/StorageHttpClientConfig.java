@@ -0,0 +1,65 @@
+package com.example.shinee_collection_tracker.config;
+
+import jakarta.annotation.PreDestroy;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Supabase Storage との通信に使う OkHttpClient を、アプリ全体で1つだけ作る設定クラス。
+ * * [ポイント]
+ * OkHttpClient を呼び出しのたびに new すると、接続の再利用（コネクションプール）や
+ * TLSセッションの再利用、HTTP/2 の多重化が効かず、毎回ハンドシェイクからやり直しになります。
+ * 共有の1インスタンスにすることで、連続アップロード時の接続コストを大きく減らします。
+ */
+@Configuration
+public class StorageHttpClientConfig {
+
+    private OkHttpClient storageHttpClient;
+
+    @Bean
+    public OkHttpClient storageHttpClient(
+            @Value("${storage.http.connect-timeout:PT5S}") Duration connectTimeout,
+            @Value("${storage.http.read-timeout:PT30S}") Duration readTimeout,
+            @Value("${storage.http.write-timeout:PT30S}") Duration writeTimeout,
+            @Value("${storage.http.max-idle-connections:8}") int maxIdleConnections,
+            @Value("${storage.http.keep-alive:PT5M}") Duration keepAlive,
+            @Value("${storage.http.max-concurrent-requests:8}") int maxConcurrentRequests) {
+
+        // 非同期呼び出し時の同時実行数の上限（同期呼び出しは dbStorageService 側で制限）
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConcurrentRequests);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+
+        storageHttpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .writeTimeout(writeTimeout)
+                // 再試行は dbStorageService でバックオフ付きで行うため、OkHttp自身の自動再試行は切る
+                .retryOnConnectionFailure(false)
+                .build();
+        return storageHttpClient;
+    }
+
+    // アプリ停止時に、プール中の接続と Dispatcher のスレッドを片付ける
+    @PreDestroy
+    public void closeStorageHttpClient() {
+        if (storageHttpClient != null) {
+            storageHttpClient.dispatcher().executorService().shutdown();
+            storageHttpClient.connectionPool().evictAll();
+        }
+    }
+}
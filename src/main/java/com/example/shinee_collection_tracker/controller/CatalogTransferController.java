@@ -0,0 +1,87 @@
+package com.example.shinee_collection_tracker.controller;
+
+import com.example.shinee_collection_tracker.model.CatalogImportReport;
+import com.example.shinee_collection_tracker.service.CatalogTransferService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * カタログ（アルバム・形態・曲目・特典など）の一括取り込み・書き出しを担当するコントローラー。
+ * 夜間の同期などで、数千件のエディションをDBへ手作業で入れずに済むようにするためのAPIです。
+ * 列の形式は CatalogTransferService を参照してください。
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/catalog")
+public class CatalogTransferController {
+
+    private final CatalogTransferService transferService;
+
+    /**
+     * CSV / JSON Lines のカタログを取り込みます（リクエストの本文をそのまま読みながら処理します）。
+     * * [使い方の例]
+     * curl -X POST --data-binary @catalog.csv -H "Content-Type: text/csv" http://localhost:8080/api/catalog/import
+     * * @param format "csv" / "jsonl"（省略時は Content-Type から判定し、分からなければ csv）
+     * @return 取り込み結果。失敗した行は行番号と理由が errors に入ります（形式の誤りは400）。
+     *         反映（キャッシュなどの作り直し）の進み具合は refreshJobId で GET /api/jobs/{id} から確認できます
+     */
+    @PostMapping("/import")
+    public CatalogImportReport importCatalog(@RequestParam(required = false) String format,
+            HttpServletRequest request) throws IOException {
+
+        String resolvedFormat = format != null ? format : formatOf(request.getContentType());
+        // 取り込んだ内容のキャッシュ・スナップショット・検索索引・プルダウンへの反映は、Service側でジョブとして登録する
+        try (InputStream body = request.getInputStream()) {
+            return transferService.importCatalog(body, resolvedFormat);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * カタログ全件を、指定ユーザーの所持・欲しいものフラグ付きで書き出します。
+     * DBから少しずつ読みながら送るため、件数が多くてもサーバーのメモリに全件を載せません。
+     * * @param format "csv"（既定）または "jsonl"
+     * @return ファイルとしてダウンロードされるレスポンス（catalog.csv / catalog.jsonl）
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCatalog(@RequestParam(defaultValue = "csv") String format,
+            @CurrentUser String userId) {
+
+        boolean jsonl = "jsonl".equalsIgnoreCase(format) || "ndjson".equalsIgnoreCase(format);
+        StreamingResponseBody body = output -> transferService.exportCatalog(userId, format, output);
+
+        return ResponseEntity.ok()
+                .contentType(jsonl ? MediaType.parseMediaType("application/x-ndjson;charset=UTF-8")
+                        : MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(jsonl ? "catalog.jsonl" : "catalog.csv").build().toString())
+                .body(body);
+    }
+
+    // Content-Type が JSON 系なら jsonl、それ以外は csv として扱う
+    private static String formatOf(String contentType) {
+        if (contentType != null && (contentType.contains("json") || contentType.contains("ndjson"))) {
+            return "jsonl";
+        }
+        return "csv";
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.shinee_collection_tracker.controller;
+
+import com.example.shinee_collection_tracker.service.CollectionEventBroadcaster;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+/**
+ * コレクションの変更をリアルタイムに受け取るための、Server-Sent Events（SSE）の窓口。
+ * * [届くイベント]
+ * - connected    : 接続直後に1回。{"stats": /api/stats と同じ形式}
+ * - status       : 所持・欲しいものフラグの変更（StatusChangedEvent。変更後の購入率を含む）
+ * - random-items : ランダムアイテムの新規登録（RandomItemsAddedEvent。全ユーザー共通）
+ */
+@RestController
+@RequiredArgsConstructor
+public class CollectionEventController {
+
+    private final CollectionEventBroadcaster eventBroadcaster;
+
+    /**
+     * 指定ユーザーのイベントを受け取る接続を開きます。
+     * ユーザーは他のAPIと同じく X-User-Id ヘッダーで指定します（ブラウザの EventSource はヘッダーを付けられないため、
+     * 画面からの接続は既定のユーザーになります）。
+     * * @return イベントの接続（同時接続数が上限に達している場合は503）
+     */
+    @GetMapping(value = "/api/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@CurrentUser String userId) {
+        return eventBroadcaster.subscribe(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "同時接続数の上限に達しています"));
+    }
+
+    /**
+     * イベント配信の接続数・配信待ち・送信数などを取得します。
+     * * @return connections / users / queued / sending / published / dropped / evicted を含むMap
+     */
+    @GetMapping("/api/events/stats")
+    public Map<String, Object> getStats() {
+        return eventBroadcaster.getStats();
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.shinee_collection_tracker.controller;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * コントローラーの引数（String）に、リクエストしたユーザーのIDを受け取るための目印。
+ * * [値の決まり方]
+ * X-User-Id ヘッダーの値を UserIdHeader のルールで検証して渡します（省略時は "default"、不正なら400）。
+ * ヘッダーはクライアントが自由に付けられるため、これは「誰の分を扱うか」の指定であって、本人確認ではありません。
+ * 実際の解決は CurrentUserArgumentResolver が行います。
+ */
+@Documented
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CurrentUser {
+}
@@ -0,0 +1,27 @@
+package com.example.shinee_collection_tracker.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * @CurrentUser の付いた String 引数に、X-User-Id ヘッダーのユーザーIDを渡すリゾルバー。
+ * ユーザーIDの取り出しと検証をここ1か所にまとめ、各APIでヘッダーの指定や UserIdHeader.validate を繰り返さないようにします。
+ * 登録は config.CurrentUserConfig で行います。
+ */
+public final class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class) && parameter.getParameterType() == String.class;
+    }
+
+    @Override
+    public String resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+            NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        String userId = webRequest.getHeader(UserIdHeader.NAME);
+        return UserIdHeader.validate(userId != null ? userId : UserIdHeader.DEFAULT);
+    }
+}
@@ -1,17 +1,37 @@
 package com.example.shinee_collection_tracker.controller;
 
+import com.example.shinee_collection_tracker.model.BulkStatusUpdateRequest;
+import com.example.shinee_collection_tracker.model.CatalogStatusFlags;
+import com.example.shinee_collection_tracker.model.CollectionHistory;
 import com.example.shinee_collection_tracker.model.Discography; 
-import com.example.shinee_collection_tracker.repository.DiscographyRepository; 
+import com.example.shinee_collection_tracker.model.DiscographyPage;
+import com.example.shinee_collection_tracker.model.DiscographySummary;
+import com.example.shinee_collection_tracker.model.EditionDetail;
+import com.example.shinee_collection_tracker.model.EditionStatusBits;
+import com.example.shinee_collection_tracker.model.JobStatus;
+import com.example.shinee_collection_tracker.model.SearchResult;
+import com.example.shinee_collection_tracker.service.DiscographyCatalogSnapshot;
 import com.example.shinee_collection_tracker.service.DiscographyService;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -19,24 +39,212 @@ import java.util.Map;
  * @RestController:
  *                  このクラスが「Webからのリクエストを受け取る窓口」であることをSpringに伝えます。
  *                  実行結果は自動的にJSON形式（ブラウザで見やすい形）に変換されます。
+ * * 所持・欲しいものフラグを読み書きするAPIは、@CurrentUser の引数（X-User-Id ヘッダーのユーザー）の分だけを扱います
+ * （省略時は "default"。詳しくは UserIdHeader を参照）。
  */
 @RestController
 @RequiredArgsConstructor
 public class DiscographyRestController {
 
     // Finalをつけて、後から変更されないように
-    private final DiscographyRepository discographyRepository;
     private final DiscographyService discographyService;
 
     /**
      * @GetMapping("/api/shinee/discography"):
      * ブラウザで「http://localhost:8080/api/shinee/discography」に
      * アクセスした時に、このメソッドが呼び出されます。
+     * * [スナップショットモード（catalog.snapshot.enabled=true）]
+     * 1. あらかじめ作っておいたJSON（所持・欲しいものフラグを除く）のバイト列を、そのまま返却。
+     * 2. ブラウザが gzip を受け付けるなら（Accept-Encoding で q=0 になっていなければ）、圧縮済みのバイト列を Content-Encoding: gzip で返却。
+     * 3. 内容のハッシュ値を ETag にし、If-None-Match が一致すれば 304 を返却。
+     * フラグは /api/shinee/discography/flags から、配列の並び順に対応したビット列として取得します。
      */
     @GetMapping("/api/shinee/discography")
-    public List<Discography> getDiscographyList() {
-        // Repositoryの標準機能「findAll()」を使って、DBの全レコードをリストにして返します
-        return discographyRepository.findAllCustomOrder();
+    public ResponseEntity<?> getDiscographyList(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @CurrentUser String userId,
+            WebRequest request) {
+
+        if (!discographyService.isCatalogSnapshotEnabled()) {
+            // Service経由で取得（カタログキャッシュが有効なら、DBへは問い合わせずメモリから返します）
+            List<Discography> list = discographyService.getDiscographyList(userId);
+            return ResponseEntity.ok(list);
+        }
+
+        DiscographyCatalogSnapshot.Snapshot snapshot = discographyService.getCatalogSnapshot();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        // 圧縮の有無で中身のバイト列が違うため、ETag も分けておく
+        String etag = "\"" + snapshot.version() + (gzip ? "-gzip" : "") + "\"";
+
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        return response.body(snapshot.json());
+    }
+
+    /**
+     * Accept-Encoding で gzip が受け付けられるかを判定します。
+     * * [判定のルール]
+     * 1. "gzip"（古い "x-gzip" を含む）の q値が0より大きければ受け付ける。"gzip;q=0" は「gzipは不可」の意味。
+     * 2. gzip が書かれていなければ、"*" の q値に従う。どちらも無ければ受け付けない。
+     * 3. q値が読めない項目は q=0 として扱う（非圧縮で返しておけば、どのクライアントでも読めるため）。
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].strip().toLowerCase();
+            double q = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].strip();
+                if (param.length() > 2 && param.substring(0, 2).equalsIgnoreCase("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).strip());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip == null ? q : Math.max(gzip, q);
+            } else if (coding.equals("*")) {
+                wildcard = q;
+            }
+        }
+        Double effective = gzip != null ? gzip : wildcard;
+        return effective != null && effective > 0;
+    }
+
+    /**
+     * /api/shinee/discography（スナップショット）に対応する、指定ユーザーの所持・欲しいものフラグのビット列を取得します。
+     * 読み方は CatalogStatusFlags を参照してください。
+     */
+    @GetMapping("/api/shinee/discography/flags")
+    public CatalogStatusFlags getStatusFlags(@CurrentUser String userId) {
+        return discographyService.getStatusFlags(userId);
+    }
+
+    /**
+     * 一覧（グリッド）表示用の軽量なディスコグラフィを取得します。
+     * 曲目・特典などの大きなTEXT項目を含まないため、初回表示の通信量を大きく減らせます。
+     * 詳細は /api/editions/{id}/detail から必要な時にだけ取得してください。
+     */
+    @GetMapping("/api/shinee/discography/summary")
+    public List<DiscographySummary> getDiscographySummaries(@CurrentUser String userId) {
+        return discographyService.getDiscographySummaries(userId);
+    }
+
+    /**
+     * エディションの詳細情報（曲目・特典・映像内容・備考）を取得します。
+     * * [キャッシュの仕組み]
+     * 1. 内容から強いETag（MD5のハッシュ値）を生成してレスポンスヘッダーに付与。
+     * 2. ブラウザが If-None-Match で同じETagを送ってきた場合は、本文なしの 304 Not Modified を返却。
+     * 3. Cache-Control: no-cache により、ブラウザは毎回ETagで再検証しつつキャッシュを再利用します。
+     * * @param editionId 対象のエディションID
+     * @param request   If-None-Match ヘッダーの判定に使用
+     * @return 詳細情報（未変更なら304、存在しなければ404）
+     */
+    @GetMapping("/api/editions/{id}/detail")
+    public ResponseEntity<EditionDetail> getEditionDetail(
+            @PathVariable("id") String editionId,
+            WebRequest request) {
+
+        EditionDetail detail = discographyService.getEditionDetail(editionId).orElse(null);
+        if (detail == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String etag = "\"" + DigestUtils.md5DigestAsHex(detailFingerprint(detail)) + "\"";
+
+        // ブラウザのキャッシュと同じ内容なら、本文を送らずに304を返す
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(detail);
+    }
+
+    // ETag計算用に、詳細情報の各項目を区切り文字付きで連結したバイト列を作る
+    private byte[] detailFingerprint(EditionDetail detail) {
+        String joined = String.join("\u0000",
+                String.valueOf(detail.getEditionId()),
+                String.valueOf(detail.getTracklist()),
+                String.valueOf(detail.getBenefit()),
+                String.valueOf(detail.getVideoContent()),
+                String.valueOf(detail.getRemarks()));
+        return joined.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * フィルタ・並び替え・ページングをサーバー側で行うディスコグラフィ検索API。
+     * * [用途]
+     * トラッカー画面のセレクトボックスと同じ条件を受け取り、DBで絞り込んだ1ページ分だけを返します。
+     * 全件をJSに送ってから絞り込む /api/shinee/discography に比べ、通信量とサーバーのメモリ使用量を抑えられます。
+     * * @param artist    アーティスト名（"All" で全件）
+     * @param country   国コード（"All" で全件）
+     * @param category  カテゴリー（"All" で全件）
+     * @param purchased 所持状態（"Purchased" / "NotPurchased" / "all"）
+     * @param sort      "desc"（新しい順）または "asc"（古い順）
+     * @param afterDate 前ページの nextReleaseDate（1ページ目は省略）
+     * @param afterId   前ページの nextEditionId（1ページ目は省略）
+     * @param size      1ページあたりの件数（省略時50、最大200）
+     * @return 1ページ分の結果と次ページ用カーソル
+     */
+    @GetMapping("/api/shinee/discography/query")
+    public DiscographyPage queryDiscography(
+            @RequestParam(required = false) String artist,
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String purchased,
+            @RequestParam(defaultValue = "desc") String sort,
+            @RequestParam(required = false) String afterDate,
+            @RequestParam(required = false) String afterId,
+            @RequestParam(required = false) Integer size,
+            @CurrentUser String userId) {
+
+        return discographyService.findDiscographyPage(userId,
+                artist, country, category, purchased, sort, afterDate, afterId, size);
+    }
+
+    /**
+     * タイトル・サブタイトル・形態名・曲目・特典をキーワードで検索します（入力途中の候補表示にも使えます）。
+     * * [検索のルール]
+     * - 1文字から検索でき、文字列の途中にも一致します（日本語・韓国語も可）。
+     * - 空白で区切ると、すべての語を含むものだけに絞り込みます。
+     * - 大文字/小文字、全角/半角、カタカナ/ひらがなの違いは区別しません。
+     * * @param q    キーワード
+     * @param page ページ番号（0始まり）
+     * @param size 1ページあたりの件数（省略時20、最大50）
+     * @return スコアの高い順の結果と、項目ごとの一致位置（highlights）
+     */
+    @GetMapping("/api/search")
+    public SearchResult search(@RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        return discographyService.search(q, page, size);
     }
 
     /**
@@ -51,31 +259,94 @@ public class DiscographyRestController {
     @PatchMapping("/api/editions/{id}/purchase")
     public ResponseEntity<Void> updatePurchaseStatus(
             @PathVariable("id") String editionId,
-            @RequestBody Map<String, Boolean> payload) {
-
-        System.out.println("★Javaにリクエストが届きました！ ID: " + editionId);
+            @RequestBody Map<String, Boolean> payload,
+            @CurrentUser String userId) {
 
         // JSから送られてくる { "isPurchased": true } というデータを受け取る
         Boolean isPurchased = payload.get("isPurchased");
 
         // Serviceに「このエディションを更新して！」と頼む
-        discographyService.updatePurchaseStatus(editionId, isPurchased);
+        discographyService.updatePurchaseStatus(userId, editionId, isPurchased);
 
         // 「OK、できたよ！」という空の返事を返す
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * 複数エディションの所持・欲しいものフラグを一括で更新します。
+     * * [用途]
+     * アルバムを丸ごと「所持済み」にする場合や、コレクションの一括取り込みなど、
+     * エディションごとに PATCH を繰り返すと時間がかかる操作に使用します。
+     * * @param request 対象（editionIds / discId）と変更後の値（isPurchased / isWishlist）
+     * @return 更新件数 { "updated": n }。対象や変更内容が無い場合は400
+     */
+    @PatchMapping("/api/editions/bulk")
+    public ResponseEntity<Map<String, Integer>> bulkUpdateStatus(@RequestBody BulkStatusUpdateRequest request,
+            @CurrentUser String userId) {
+        boolean hasTarget = (request.getEditionIds() != null && !request.getEditionIds().isEmpty())
+                || (request.getDiscId() != null && !request.getDiscId().isEmpty());
+        boolean hasChange = request.getIsPurchased() != null || request.getIsWishlist() != null;
+        if (!hasTarget || !hasChange) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        int updated = discographyService.bulkUpdateStatus(userId, request.getEditionIds(), request.getDiscId(),
+                request.getIsPurchased(), request.getIsWishlist());
+        return ResponseEntity.ok(Map.of("updated", updated));
+    }
+
     /**
      * マイページ表示用の統計データを取得します。
      * * [用途]
-     * コレクション全体の総数、メンバー別、国別の進捗率を計算した結果を返します。
+     * 指定ユーザーのコレクション全体の総数、メンバー別、国別の進捗率を計算した結果を返します。
      * 円形進捗バーなどのUI描画に使用されます。
      * * @return 統計情報が格納されたMapオブジェクト
      */
     @GetMapping("/api/stats")
-    public Map<String, Object> getStats() {
+    public Map<String, Object> getStats(@CurrentUser String userId) {
         // Serviceのメソッドを呼び出す
-        return discographyService.getCollectionStats();
+        return discographyService.getCollectionStats(userId);
+    }
+
+    /**
+     * 全体・アーティスト別・国別・カテゴリー別の詳しい進捗を取得します。
+     * * @return 各グループの所持数(owned)・総数(count)・購入率(rate)・欲しいもの数(wishlist)
+     */
+    @GetMapping("/api/stats/breakdown")
+    public Map<String, Object> getStatsBreakdown(@CurrentUser String userId) {
+        return discographyService.getCollectionBreakdown(userId);
+    }
+
+    /**
+     * 購入数・欲しいもの数・支出の推移を取得します（マイページのグラフ用）。
+     * 切り替えの履歴を毎回数え直すのではなく、記録のたびに更新している月別の集計から作るため、
+     * 履歴が何年分に増えても応答時間はほとんど変わりません。
+     * * @param groupBy month（月ごと・既定）/ artist（アーティストごと）/ country（国ごと）
+     * @param artist  groupBy=month の場合に、このアーティストだけに絞る（任意）
+     * @param country groupBy=month の場合に、この国だけに絞る（任意。artist と同時には指定できません）
+     * @param from    集計期間の最初の月（YYYY-MM。任意）
+     * @param to      集計期間の最後の月（YYYY-MM。任意）
+     * @return バケットごとの増減（purchased / wishlisted / 通貨ごとの spend）と累計
+     */
+    @GetMapping("/api/stats/history")
+    public CollectionHistory getStatsHistory(@RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String artist,
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @CurrentUser String userId) {
+        return discographyService.getCollectionHistory(userId, groupBy, artist, country, from, to);
+    }
+
+    /**
+     * 全エディションの所持・欲しいものフラグを、ビット列のまま取得します。
+     * 前回の結果と比べて差分だけを画面に反映したい場合に使います（読み方は EditionStatusBits を参照）。
+     * * @param layout 前回受け取った layoutVersion（一致すれば editionIds の一覧を省略して返します）
+     */
+    @GetMapping("/api/editions/status/bits")
+    public EditionStatusBits getStatusBits(@RequestParam(required = false) String layout,
+            @CurrentUser String userId) {
+        return discographyService.getStatusBits(userId, layout);
     }
 
     /**
@@ -88,19 +359,92 @@ public class DiscographyRestController {
     @PatchMapping("/api/editions/{id}/wishlist")
     public ResponseEntity<Void> toggleWishlist(
             @PathVariable String id,
-            @RequestBody Map<String, Boolean> request) {
+            @RequestBody Map<String, Boolean> request,
+            @CurrentUser String userId) {
 
         boolean isWishlist = request.get("isWishlist");
 
-        // Repositoryのメソッドを呼び出してDBを更新
-        discographyRepository.updateWishlistStatus(id, isWishlist);
+        // Serviceを通してDBを更新（所持状態の索引も、このユーザーの該当エディションだけ書き換わる）
+        discographyService.updateWishlistStatus(userId, id, isWishlist);
 
         return ResponseEntity.ok().build();
     }
 
-    // 欲しいものリストだけの情報を取得するためのエンドポイント
+    // 指定ユーザーの欲しいものリストだけの情報を取得するためのエンドポイント
     @GetMapping("/api/editions/wishlist")
-    public List<Discography> getWishlist() {
-        return discographyRepository.findByIsWishlistTrue();
+    public List<Discography> getWishlist(@CurrentUser String userId) {
+        return discographyService.getWishlist(userId);
+    }
+
+    /**
+     * ディスコグラフィのカタログキャッシュの利用状況を取得します。
+     * ヒット率が低い場合は catalog.cache.ttl の見直しを検討してください。
+     * * @return ヒット数・ミス数・保持件数などを含むMap
+     */
+    @GetMapping("/api/cache/discography")
+    public Map<String, Object> getCatalogCacheStats() {
+        return discographyService.getCatalogCacheStats();
+    }
+
+    /**
+     * ユーザーごとの所持状態の索引（user-state.cache.max-users 人まで保持）の利用状況を取得します。
+     * 追い出し(evictions)が多い場合は上限の見直しを検討してください。
+     * * @return 保持ユーザー数・読み込み回数・追い出し回数などを含むMap
+     */
+    @GetMapping("/api/cache/user-state")
+    public Map<String, Object> getUserStateCacheStats() {
+        return discographyService.getUserStateCacheStats();
+    }
+
+    /**
+     * 検索索引（/api/search）の状態を取得します。
+     * * @return 件数(editions)・索引の語数(grams)・作成からの経過秒数(ageSeconds)
+     */
+    @GetMapping("/api/search/stats")
+    public Map<String, Object> getSearchIndexStats() {
+        return discographyService.getSearchIndexStats();
+    }
+
+    /**
+     * DB上のカタログ（タイトル・曲目など）を直接修正した後に呼び出し、キャッシュ・スナップショット・検索索引・マスタデータを作り直します。
+     * 作り直しはジョブとして裏で実行し、すぐに 202 Accepted を返します。
+     * * @param idempotencyKey 同じ依頼の送り直しを見分けるキー（任意）
+     * @return ジョブの状態。完了すると result に作り直したスナップショットの version（例: {"version": "3f2a..."}）が入ります
+     */
+    @PostMapping("/api/cache/discography/refresh")
+    public ResponseEntity<JobStatus> refreshCatalog(
+            @RequestHeader(name = JobResponses.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return JobResponses.accepted(discographyService.refreshCatalogAsync(
+                JobResponses.idempotencyKey("catalog-refresh", idempotencyKey)));
+    }
+
+    /**
+     * 所持状態の索引（/api/stats の計算に使う連番・ビット列）を、DBのエディション一覧から作り直します。
+     * 定期照合（stats.reconcile.interval）を待たずに反映したい場合に使います。ジョブとして裏で実行し、202 Accepted を返します。
+     * * @param idempotencyKey 同じ依頼の送り直しを見分けるキー（任意）
+     */
+    @PostMapping("/api/cache/user-state/reconcile")
+    public ResponseEntity<JobStatus> reconcileStatusIndex(
+            @RequestHeader(name = JobResponses.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return JobResponses.accepted(discographyService.reconcileStatusIndexAsync(
+                JobResponses.idempotencyKey("status-reconcile", idempotencyKey)));
+    }
+
+    /**
+     * 所持・欲しいもの更新の後書きキュー（status.write-behind.enabled）の状態を取得します。
+     * * @return 滞留件数(queueDepth)、まとめ率(coalescingRatio)、書き込み時間などを含むMap
+     */
+    @GetMapping("/api/write-behind/stats")
+    public Map<String, Object> getWriteBehindStats() {
+        return discographyService.getWriteBehindStats();
+    }
+
+    /**
+     * 購入履歴（/api/stats/history の元になる切り替えの記録）の書き込み状況を取得します。
+     * * @return 未書き込み件数(queueDepth)、記録・書き込み・破棄した件数、書き込みの失敗数などを含むMap
+     */
+    @GetMapping("/api/stats/history/writer")
+    public Map<String, Object> getCollectionHistoryStats() {
+        return discographyService.getCollectionHistoryStats();
     }
 }
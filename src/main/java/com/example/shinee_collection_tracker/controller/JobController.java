@@ -0,0 +1,46 @@
+package com.example.shinee_collection_tracker.controller;
+
+import com.example.shinee_collection_tracker.model.JobStatus;
+import com.example.shinee_collection_tracker.service.JobService;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+/**
+ * 裏で実行しているジョブ（画像の登録・カタログの作り直しなど）の進み具合を確認するコントローラー。
+ * ジョブを受け付けたAPIは 202 Accepted と Location: /api/jobs/{id} を返すので、画面はここを数秒おきに確認します。
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final JobService jobService;
+
+    /**
+     * ジョブの状態を取得します。
+     * * @param id ジョブID
+     * @return status（QUEUED / RUNNING / RETRYING / SUCCEEDED / FAILED）・progress（%）・result など。見つからなければ404
+     */
+    @GetMapping("/{id}")
+    public JobStatus getJob(@PathVariable String id) {
+        return jobService.find(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "ジョブが見つかりません"));
+    }
+
+    /**
+     * ワーカーごとの実行中・待ち件数と、ジョブの累計件数を取得します。
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        return jobService.getStats();
+    }
+}
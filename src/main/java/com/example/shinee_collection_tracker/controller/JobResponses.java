@@ -0,0 +1,43 @@
+package com.example.shinee_collection_tracker.controller;
+
+import com.example.shinee_collection_tracker.model.JobStatus;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.util.regex.Pattern;
+
+/**
+ * 時間のかかる処理をジョブとして受け付けたAPIの、共通のレスポンスと Idempotency-Key ヘッダーの定義。
+ * * [ルール]
+ * 1. 受け付けたら 202 Accepted と、進み具合を確認する URL（Location: /api/jobs/{id}）を返します。
+ * 2. Idempotency-Key ヘッダーを付けて同じ依頼を送り直した場合は、新しく実行せず最初のジョブを返します。
+ *    英数字・ハイフン・アンダースコア・コロンの1〜100文字だけを受け付け、それ以外は400を返します。
+ */
+final class JobResponses {
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9_:-]{1,100}");
+
+    private JobResponses() {
+    }
+
+    // 202 Accepted（Location に進み具合の確認先）
+    static ResponseEntity<JobStatus> accepted(JobStatus job) {
+        return ResponseEntity.accepted().location(URI.create("/api/jobs/" + job.getJobId())).body(job);
+    }
+
+    // Idempotency-Key ヘッダーの値を検証し、処理の種類ごとの接頭辞を付けて返す（未指定なら null）
+    static String idempotencyKey(String prefix, String key) {
+        if (key == null) {
+            return null;
+        }
+        if (!VALID_KEY.matcher(key).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, IDEMPOTENCY_KEY + " が不正です");
+        }
+        return prefix + ":" + key;
+    }
+}
@@ -1,28 +1,43 @@
 package com.example.shinee_collection_tracker.controller;
 
-import lombok.RequiredArgsConstructor;
 import com.example.shinee_collection_tracker.model.Disc;
+import com.example.shinee_collection_tracker.model.DiscWithEditions;
 import com.example.shinee_collection_tracker.model.Edition;
-import com.example.shinee_collection_tracker.repository.DiscRepository;
-import com.example.shinee_collection_tracker.repository.EditionRepository;
+import com.example.shinee_collection_tracker.service.MasterDataCache;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
 import java.util.List;
 
 /**
  * マスタデータ（Disc情報、Edition情報）を提供するためのコントローラー。
  * 主にランダムアイテム管理画面などの、セレクトボックス（ドロップダウン）の選択肢を取得するために使用します。
+ * * [キャッシュの仕組み]
+ * 1. どのAPIも、メモリ上のマスタデータ（MasterDataCache）から返し、DBへは問い合わせません。
+ * 2. マスタデータの version を ETag にし、If-None-Match が一致すれば本文なしの 304 を返却。
+ * 3. Cache-Control: max-age（master-data.max-age）の間は、ブラウザは問い合わせずに手元のキャッシュを使います。
  */
 @RestController
 @RequestMapping("/api/master")
-@RequiredArgsConstructor // finalフィールドのコンストラクタを自動生成（Lombok）
 public class MasterDataController {
 
-    private final DiscRepository discRepository;
-    private final EditionRepository editionRepository;
+    private final MasterDataCache masterData;
+    private final CacheControl cacheControl;
+
+    public MasterDataController(MasterDataCache masterData,
+            @Value("${master-data.max-age:PT1M}") Duration maxAge) {
+        this.masterData = masterData;
+        this.cacheControl = CacheControl.maxAge(maxAge).mustRevalidate();
+    }
 
     /**
      * 全てのアルバム（Disc）情報を取得します。
@@ -30,9 +45,9 @@ public class MasterDataController {
      * * @return アルバム情報のリスト（disc_id, titleなど）
      */
     @GetMapping("/discs")
-    public List<Disc> getAllDiscs() {
-        // 全てのアルバムデータをDBから取得して返却
-        return discRepository.findAll();
+    public ResponseEntity<List<Disc>> getAllDiscs(WebRequest request) {
+        MasterDataCache.Snapshot snapshot = masterData.get();
+        return respond(snapshot, request, snapshot.discs());
     }
 
 
@@ -45,8 +60,29 @@ public class MasterDataController {
      * @return 該当するアルバムに所属するエディションのリスト
      */
     @GetMapping("/editions")
-    public List<Edition> getEditions(@RequestParam String discId) {
-        // クエリパラメータ (?discId=xxx) を受け取り、Repositoryで絞り込み検索を実行
-        return editionRepository.findByDiscId(discId);
+    public ResponseEntity<List<Edition>> getEditions(@RequestParam String discId, WebRequest request) {
+        MasterDataCache.Snapshot snapshot = masterData.get();
+        return respond(snapshot, request, snapshot.editions(discId));
+    }
+
+    /**
+     * 全アルバムと、それぞれの形態一覧をまとめて取得します。
+     * 画面側はこれを1回取得しておけば、アルバムを選び直すたびにAPIを呼ぶ必要がありません。
+     * * @return アルバムごとに形態（editions）をまとめたリスト
+     */
+    @GetMapping("/tree")
+    public ResponseEntity<List<DiscWithEditions>> getTree(WebRequest request) {
+        MasterDataCache.Snapshot snapshot = masterData.get();
+        return respond(snapshot, request, snapshot.tree());
+    }
+
+    // ETag が一致すれば 304、そうでなければ本文を返す（どちらにも同じキャッシュ指定を付ける）
+    private <T> ResponseEntity<T> respond(MasterDataCache.Snapshot snapshot, WebRequest request, T body) {
+        String etag = "\"" + snapshot.version() + "\"";
+        if (request.checkNotModified(etag)) {
+            // ETag ヘッダーは checkNotModified が付けている
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(body);
     }
-}
\ No newline at end of file
+}
@@ -1,98 +1,206 @@
 package com.example.shinee_collection_tracker.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.example.shinee_collection_tracker.model.RandomItem;
-import com.example.shinee_collection_tracker.repository.RandomItemRepository;
-import com.example.shinee_collection_tracker.service.dbStorageService;
+import com.example.shinee_collection_tracker.model.ChunkedUploadRequest;
+import com.example.shinee_collection_tracker.model.ChunkedUploadStatus;
+import com.example.shinee_collection_tracker.model.JobStatus;
+import com.example.shinee_collection_tracker.model.RandomItemFacets;
+import com.example.shinee_collection_tracker.model.RandomItemPage;
+import com.example.shinee_collection_tracker.model.UploadReport;
+import com.example.shinee_collection_tracker.service.ChunkedUploadService;
+import com.example.shinee_collection_tracker.service.RandomItemGalleryService;
+import com.example.shinee_collection_tracker.service.RandomItemUploadService;
+import com.example.shinee_collection_tracker.service.ImageDedupIndex;
+import com.example.shinee_collection_tracker.service.ImageStorage;
+import com.example.shinee_collection_tracker.service.JobService;
+import com.example.shinee_collection_tracker.service.JobType;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * ランダムアイテム（トレカ・ポストカード等）の管理を担当するコントローラー。
- * 画像ファイルのアップロード処理と、そのメタデータのDB保存を同期して行います。
+ * 画像ファイルのアップロード処理と、そのメタデータのDB保存を受け付けます。
  */
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/random")
 public class RandomItemController {
 
-    private final RandomItemRepository randomItemRepository;
-    private final dbStorageService dbStorageService;
+    private final RandomItemGalleryService galleryService;
+    private final RandomItemUploadService randomItemUploadService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final ImageStorage imageStorage;
+    private final ImageDedupIndex imageDedupIndex;
+    private final JobService jobService;
 
     /**
      * ランダムアイテムを画像と一緒に一括登録します。
      * * [処理の流れ]
-     * 1. サーバー内の保存先パス(static/uploads/random)を決定。
-     * 2. フォルダが存在しない場合は自動作成。
-     * 3. 画像ファイルを1枚ずつループで処理し、サーバーへ物理保存。
-     * 4. 同時に、画像のURLやアイテム情報をDB(random_itemsマスタ)に保存。
+     * 1. 画像をストレージ（既定はSupabase Storage）へ並列にアップロード（同時実行数は random-item.upload.concurrency）。
+     * 2. 画像はストリームのまま転送するため、サーバーのメモリに丸ごと載せません。
+     *    内容が同じ画像が保存済みの場合は転送せず、そのURLを使い回します（items[].deduplicated）。
+     * 3. アップロードに成功したアイテムを、最後にまとめてDB(random_itemsマスタ)に保存。
+     * 4. スロットごとの成否をJSONで返却。
      * * @param discId アルバムID
      * 
      * @param editionId   形態ID
      * @param names       アイテム種別（トレカ等）のリスト
      * @param memberNames メンバー名のリスト
      * @param images      画像ファイルのリスト
-     * @return 実行結果メッセージ
+     * @return スロットごとの処理結果（全件失敗した場合はHTTP 500）
      */
     @PostMapping("/upload")
-    public ResponseEntity<String> upload(
+    public ResponseEntity<UploadReport> upload(
             @RequestParam("discId") String discId,
             @RequestParam("editionId") String editionId,
             @RequestParam("names") List<String> names,
             @RequestParam("memberNames") List<String> memberNames, // JSから届く！
-            @RequestParam("images") List<MultipartFile> images) {
+            @RequestParam(value = "images", required = false) List<MultipartFile> images) {
 
-        try {
+        return respond(randomItemUploadService.upload(editionId, names, memberNames, images));
+    }
 
-            for (int i = 0; i < names.size(); i++) {
-                MultipartFile file = images.get(i);
-                if (file.isEmpty())
-                    continue;
+    /**
+     * 分割アップロードを開始します（1リクエストの上限 10MB を超える一括登録用）。
+     * * [使い方]
+     * 1. POST /api/random/uploads でアイテムと各画像のサイズを送り、sessionId を受け取る。
+     * 2. 画像ごとに PUT /api/random/uploads/{sessionId}/items/{index}?offset=... で、本文に画像の一部分をそのまま送る
+     *    （1回あたり maxChunkSize まで）。
+     * 3. 通信が切れたら GET /api/random/uploads/{sessionId} で received を確認し、その位置から送り直す。
+     * 4. すべて送ったら POST /api/random/uploads/{sessionId}/commit で登録を依頼し、
+     *    返ってきたジョブを GET /api/jobs/{id} で確認する（完了後の result は /upload と同じ形式）。
+     * * @param request 登録するアイテムと、各画像のファイル名・サイズ
+     * @return セッションIDと受け取り状況
+     */
+    @PostMapping("/uploads")
+    public ChunkedUploadStatus startUpload(@RequestBody ChunkedUploadRequest request) throws IOException {
+        return chunkedUploadService.start(request);
+    }
 
-                // --- 変更点：Supabase Storageへアップロード ---
-                // 内部でUUIDを使ってユニークなファイル名にして、https://... のURLを返す
-                String publicUrl = dbStorageService.uploadImage(file);
+    /**
+     * 分割アップロードの受け取り状況を取得します（再開する位置の確認用）。
+     */
+    @GetMapping("/uploads/{sessionId}")
+    public ChunkedUploadStatus getUpload(@PathVariable String sessionId) {
+        return chunkedUploadService.status(sessionId);
+    }
 
-                // --- EntityにセットしてDB保存 ---
-                RandomItem item = new RandomItem();
-                item.setEditionId(editionId);
-                item.setItemType(names.get(i));
-                item.setMemberName(memberNames.get(i));
+    /**
+     * 画像の一部分（チャンク）を受け取ります。本文は画像のバイト列そのものです（application/octet-stream）。
+     * * @param index  スロット番号
+     * @param offset このチャンクが画像の先頭から何バイト目か（受け取り済みの位置以下。先を飛ばすと409）
+     * @return この画像の受け取り状況
+     */
+    @PutMapping("/uploads/{sessionId}/items/{index}")
+    public ChunkedUploadStatus.ItemProgress putUploadChunk(@PathVariable String sessionId,
+            @PathVariable int index,
+            @RequestParam long offset,
+            HttpServletRequest request) throws IOException {
+        try (InputStream body = request.getInputStream()) {
+            return chunkedUploadService.write(sessionId, index, offset, body);
+        }
+    }
 
-                // ★重要：以前の相対パス "/uploads/..." ではなく、
-                // Supabaseから返ってきた「フルURL」をそのままDBに保存する
-                item.setImageUrl(publicUrl);
+    /**
+     * 分割アップロードの登録（サムネイル作成・ストレージへの保存・DBへの一括保存）を、ジョブとして受け付けます。
+     * 画像が揃っているかだけをその場で確認し、登録そのものは裏で実行するため、すぐに 202 Accepted を返します。
+     * 同じセッションの commit を送り直した場合は、最初に受け付けたジョブを返します。
+     * * @return ジョブの状態（完了すると result にスロットごとの処理結果が入る。画像が揃っていない場合は409）
+     */
+    @PostMapping("/uploads/{sessionId}/commit")
+    public ResponseEntity<JobStatus> commitUpload(@PathVariable String sessionId) {
+        JobStatus job = jobService.submit(JobType.RANDOM_ITEM_UPLOAD, "random-upload:" + sessionId, () -> {
+            ChunkedUploadService.PreparedCommit commit = chunkedUploadService.prepareCommit(sessionId);
+            return new JobService.Task() {
+                @Override
+                public Object run(JobService.Context context) {
+                    return commit.upload((done, total) ->
+                            context.progress(done * 90 / total, "画像を保存中（" + done + " / " + total + "）"));
+                }
 
-                randomItemRepository.save(item); // ここでDBに刻まれる！
-            }
+                // ジョブが受け付けられなかった場合は、セッションを送り直せる状態に戻す
+                @Override
+                public void discard() {
+                    commit.release();
+                }
+            };
+        });
+        return JobResponses.accepted(job);
+    }
 
-            return ResponseEntity.ok("Supabase Storage & DBへの保存成功！画像数: " + images.size());
+    /**
+     * 分割アップロードを取り消し、受け取り済みの画像を破棄します。
+     */
+    @DeleteMapping("/uploads/{sessionId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String sessionId) {
+        chunkedUploadService.abort(sessionId);
+        return ResponseEntity.noContent().build();
+    }
 
-        } catch (Exception e) {
-            // 失敗時は原因を特定できるようスタックトレースを出力
-            e.printStackTrace();
-            return ResponseEntity.status(500).body("保存中にエラー: " + e.getMessage());
+    // 1件も保存できず失敗だけがある場合は、JS側でエラーとして扱えるよう500を返す
+    private static ResponseEntity<UploadReport> respond(UploadReport report) {
+        if (report.getSaved() == 0 && report.getFailed() > 0) {
+            return ResponseEntity.status(500).body(report);
         }
+        return ResponseEntity.ok(report);
     }
 
     /**
-     * 登録済みのランダムアイテム一覧を取得します。
-     * 特定のエディションで絞り込むことも可能です。
-     * * @param editionId 絞り込みたいエディションID（未指定や"undefined"の場合は全件取得）
-     * 
-     * @return アイテムリスト
+     * 登録済みのランダムアイテムを、新しい順に1ページ分取得します（ギャラリー表示用）。
+     * * [絞り込み]
+     * editionId / memberName / itemType は、それぞれ複数指定できます（?memberName=KEY&memberName=ONEW または カンマ区切り）。
+     * 同じ項目の中ではどれかに一致、項目同士はすべてに一致するものを返します。
+     * * @param editionId      形態IDの条件（未指定や"undefined"の場合は全件）
+     * @param memberName     メンバー名の条件
+     * @param itemType       種別（トレカ等）の条件
+     * @param afterCreatedAt 前ページの nextCreatedAt（1ページ目は省略）
+     * @param afterId        前ページの nextItemId（1ページ目は省略）
+     * @param size           1ページあたりの件数（省略時60、最大200）
+     * @return 1ページ分のアイテムと次ページ用カーソル
      */
     @GetMapping("/items")
-    public List<RandomItem> getItems(@RequestParam(required = false) String editionId) {
-        // JS側から "undefined" という文字列が送られてくる可能性を考慮した安全なガード節
-        if (editionId == null || editionId.isEmpty() || editionId.equals("undefined")) {
-            return randomItemRepository.findAll();
-        }
-        // 特定のエディションに紐づくアイテムだけを抽出
-        return randomItemRepository.findByEditionId(editionId);
+    public RandomItemPage getItems(
+            @RequestParam(required = false) List<String> editionId,
+            @RequestParam(required = false) List<String> memberName,
+            @RequestParam(required = false) List<String> itemType,
+            @RequestParam(required = false) String afterCreatedAt,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer size) {
+        return galleryService.findPage(editionId, memberName, itemType, afterCreatedAt, afterId, size);
+    }
+
+    /**
+     * ギャラリーの絞り込みボタンに添える、メンバー別・種別ごとの件数を取得します。
+     * 条件の指定方法は /api/random/items と同じです（数え方は RandomItemFacets を参照）。
+     */
+    @GetMapping("/items/facets")
+    public RandomItemFacets getItemFacets(
+            @RequestParam(required = false) List<String> editionId,
+            @RequestParam(required = false) List<String> memberName,
+            @RequestParam(required = false) List<String> itemType) {
+        return galleryService.countFacets(editionId, memberName, itemType);
+    }
+
+    /**
+     * 画像ストレージ（Supabase Storage またはローカルディスク）の利用状況を取得します。
+     * 保存回数・失敗数・所要時間などの統計と、同じ画像の使い回し（dedup）の状況が含まれます。
+     * * @return 通信統計のMap
+     */
+    @GetMapping("/storage/stats")
+    public Map<String, Object> getStorageStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(imageStorage.getStats());
+        stats.put("dedup", imageDedupIndex.getStats());
+        stats.put("chunked", chunkedUploadService.getStats());
+        return stats;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package com.example.shinee_collection_tracker.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.regex.Pattern;
+
+/**
+ * ユーザーごとの所持・欲しいもの状態を扱うAPIで使う、X-User-Id ヘッダーの定義と検証。
+ * 各APIは直接使わず、@CurrentUser の引数で受け取ります（CurrentUserArgumentResolver）。
+ * * [ルール]
+ * 1. ヘッダーを送らない場合は "default" ユーザーとして扱います（V3移行時に既存のフラグを移した先）。
+ * 2. 英数字・ハイフン・アンダースコアの1〜64文字だけを受け付け、それ以外は400を返します。
+ * 3. 値はクライアントが自由に決められるため、ユーザー同士のデータの分離（認証）にはなりません。
+ */
+final class UserIdHeader {
+
+    static final String NAME = "X-User-Id";
+    static final String DEFAULT = "default";
+
+    private static final Pattern VALID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private UserIdHeader() {
+    }
+
+    // ヘッダーの値を検証し、そのままユーザーIDとして返す
+    static String validate(String userId) {
+        if (userId == null || !VALID.matcher(userId).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "X-User-Id が不正です");
+        }
+        return userId;
+    }
+}
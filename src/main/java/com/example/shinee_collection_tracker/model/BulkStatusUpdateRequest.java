@@ -0,0 +1,26 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 所持・欲しいものフラグの一括更新リクエスト（PATCH /api/editions/bulk のJSON本文）。
+ * * [使い方]
+ * - editionIds: 更新したいエディションIDのリスト
+ * - discId: 指定するとそのアルバムの全エディションが対象（editionIds と併用可）
+ * - isPurchased / isWishlist: 変更後の値。null（未指定）の項目は変更しません
+ * * 例: { "discId": "D001", "isPurchased": true } → アルバムD001を丸ごと「所持済み」にする
+ */
+@Data
+@NoArgsConstructor
+public class BulkStatusUpdateRequest {
+
+    private List<String> editionIds;
+    private String discId;
+
+    // Boolean（ラッパー型）なので Lombok の Getter は getIsPurchased() となり、JSONキーは "isPurchased" のまま
+    private Boolean isPurchased;
+    private Boolean isWishlist;
+}
@@ -0,0 +1,28 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * カタログの一括取り込み（/api/catalog/import）の結果。
+ * * [メモ]
+ * 失敗した行があっても、他の行の取り込みは続けます。errors には行番号と理由を
+ * 先頭から最大 catalog.import.max-reported-errors 件まで入れ、それを超えた場合は errorsTruncated が true になります。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogImportReport {
+
+    private String format;     // csv / jsonl
+    private int rowsRead;      // 読み込んだ行数（見出し行・空行を除く）
+    private int upserted;      // 登録・更新できたエディション数
+    private int failed;        // 失敗した行数
+    private long elapsedMillis;
+    private List<ImportRowError> errors;
+    private boolean errorsTruncated;
+    private String refreshJobId; // 取り込み後の、キャッシュ・検索索引などの作り直しジョブ（GET /api/jobs/{id}。更新が無ければ null）
+}
@@ -0,0 +1,24 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * カタログのスナップショット（/api/shinee/discography）に対応する、所持・欲しいものフラグのビット列。
+ * * [読み方]
+ * purchased / wishlist は、ビット列を Base64 にした文字列です。
+ * スナップショットのJSON配列で i 番目のエディションは、デコードしたバイト列の
+ * (i / 8) バイト目の (i % 8) ビット目（下位ビットから数える）が 1 なら「所持（欲しい）」です。
+ * version がスナップショットの version（ETag）と違う場合は、並び順がずれているので一覧から取り直してください。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogStatusFlags {
+
+    private String version; // 対応するスナップショットの version
+    private int size;       // エディション数（ビット列の長さ）
+    private String purchased;
+    private String wishlist;
+}
@@ -0,0 +1,34 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 分割アップロードの開始リクエスト（POST /api/random/uploads の本文）。
+ * 登録するアイテムの内容と、各画像のファイル名・サイズを先に伝え、画像の中身は後から少しずつ送ります。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkedUploadRequest {
+
+    private String editionId; // 登録先の形態ID
+    private List<Item> items; // スロット順のアイテム
+
+    /**
+     * 1アイテム（1スロット）分の内容。画像が無いスロットは size を 0 にします（登録時は SKIPPED）。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private String itemType;    // アイテム種別（トレカ等）
+        private String memberName;  // メンバー名
+        private String fileName;    // 元のファイル名（拡張子を保存先の名前に引き継ぐ）
+        private String contentType; // 画像のMIMEタイプ（image/jpeg など）
+        private long size;          // 画像のバイト数
+    }
+}
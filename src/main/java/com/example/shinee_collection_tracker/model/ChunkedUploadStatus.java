@@ -0,0 +1,36 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 分割アップロードの進み具合（開始時と GET /api/random/uploads/{sessionId} のレスポンス）。
+ * 通信が切れた場合は、ここで返す received の位置から続きを送れば再開できます。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkedUploadStatus {
+
+    private String sessionId;
+    private String editionId;
+    private long maxChunkSize;   // 1回の PUT で送れる最大バイト数
+    private String expiresAt;    // このまま何も送らなかった場合に破棄される日時（ISO-8601）
+    private boolean complete;    // すべての画像を受け取り済みか（commit できるか）
+    private List<ItemProgress> items;
+
+    /**
+     * 1画像分の受け取り状況。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemProgress {
+        private int index;     // スロット番号（0始まり）
+        private long size;     // 画像のバイト数
+        private long received; // 先頭から途切れずに受け取ったバイト数（次に送る offset）
+    }
+}
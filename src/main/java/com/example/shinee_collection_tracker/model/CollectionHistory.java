@@ -0,0 +1,42 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * マイページのグラフ用の、購入・欲しいもの・支出の推移（GET /api/stats/history の戻り値）。
+ * * [メモ]
+ * groupBy=month の場合は月ごと、artist / country の場合はアーティスト・国ごとのバケットが並びます。
+ * purchased / wishlisted / spend はそのバケットの期間（from〜to）の増減、
+ * cumulative〜 は記録の開始からそのバケットの終わり（groupBy=month ならその月末、それ以外は to）までの累計です。
+ * 金額は通貨ごとに分けて返します（例: {"jpy": 3300, "krw": 25000}）。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CollectionHistory {
+
+    private String groupBy;
+    private String artist;   // 絞り込み（groupBy=month の場合のみ。null なら全体）
+    private String country;
+    private String from;     // YYYY-MM（null なら記録の最初から）
+    private String to;       // YYYY-MM（null なら最新まで）
+    private List<Bucket> buckets;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        private String key; // 2025-03 / Key / kr など
+        private long purchased;
+        private long wishlisted;
+        private Map<String, Long> spend;
+        private long cumulativePurchased;
+        private long cumulativeWishlisted;
+        private Map<String, Long> cumulativeSpend;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * /api/master/tree で返す、アルバム1件とその形態（エディション）一覧。
+ * 画面側はこれを1回取得すれば、アルバム・形態のプルダウンをAPIを呼ばずに切り替えられます。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscWithEditions {
+
+    private String discId;
+    private String artist;
+    private String title;
+    private List<Edition> editions;
+}
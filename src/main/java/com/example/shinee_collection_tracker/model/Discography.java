@@ -3,6 +3,7 @@ package com.example.shinee_collection_tracker.model;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import jakarta.persistence.*;
 
 /**
@@ -12,6 +13,7 @@ import jakarta.persistence.*;
  * @Data : これを書くだけで、全てのGetter/Setter、toString等を自動生成します。
  * @NoArgsConstructor : 引数なしのコンストラクタを自動生成（JPAでの動作に必要）。
  * @AllArgsConstructor : 全ての項目を引数に持つコンストラクタを生成。
+ * @Builder(toBuilder = true) : 既存のインスタンスから一部の項目だけ変えたコピーを作れるようにします（共有カタログにユーザーのフラグを重ねる時に使用）。
  * @Entity : このクラスをデータベースのテーブル（またはビュー）として扱う宣言です。
  * @Table : 対応するDB側の名前を指定します。
  */
@@ -19,6 +21,7 @@ import jakarta.persistence.*;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Builder(toBuilder = true)
 @Entity
 @Table(name = "v_discography")
 
@@ -0,0 +1,27 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * ディスコグラフィのページング結果（1ページ分）を保持するクラス。
+ * * [メモ]
+ * キーセット方式のページングのため、「何ページ目か」ではなく
+ * 最後の行の (releaseDate, editionId) を次ページのカーソルとして返します。
+ * JS側は nextReleaseDate / nextEditionId をそのまま afterDate / afterId に渡せば続きを取得できます。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscographyPage {
+
+    private List<Discography> items; // このページに含まれるエディション
+
+    private String nextReleaseDate; // 次ページ用カーソル（発売日）。最終ページの場合はnull
+    private String nextEditionId;   // 次ページ用カーソル（エディションID）。最終ページの場合はnull
+
+    private boolean hasNext; // 続きのページが存在するか
+}
@@ -0,0 +1,43 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一覧（グリッド）表示用に項目を絞ったディスコグラフィ情報。
+ * * [ポイント]
+ * トラッカー画面のカードやフィルタで使う項目だけを持ち、
+ * tracklist / benefit / videoContent / remarks といった大きなTEXT項目は含めません。
+ * それらはエディションを開いた時に /api/editions/{id}/detail から個別に取得します（EditionDetail）。
+ * JSONのキー名は Discography と揃えているため、JS側はどちらのAPIでも同じように扱えます。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscographySummary {
+
+    private String editionId;
+    private String discId;
+    private String artist;
+    private String title;
+    private String titleSub;
+    private String category;
+    private String country;
+    private String releaseDate;
+    private String editionName;
+    private String displayName;
+    private Integer price;
+    private String currency;
+
+    // Lombokが isPurchased() / isWishlist() を生成するため、JSONでは "purchased" / "wishlist" になる
+    private boolean purchased;
+    private boolean wishlist;
+
+    // キャッシュ済みの Discography から一覧表示用の項目だけを取り出す
+    public static DiscographySummary from(Discography d) {
+        return new DiscographySummary(d.getEditionId(), d.getDiscId(), d.getArtist(), d.getTitle(),
+                d.getTitleSub(), d.getCategory(), d.getCountry(), d.getReleaseDate(), d.getEditionName(),
+                d.getDisplayName(), d.getPrice(), d.getCurrency(), d.isPurchased(), d.isWishlist());
+    }
+}
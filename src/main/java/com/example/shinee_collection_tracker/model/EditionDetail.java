@@ -0,0 +1,27 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * エディションの詳細情報（曲目・特典・映像内容・備考）だけを保持するクラス。
+ * 一覧表示では使わない大きなTEXT項目を、モーダルで開かれた時にだけ取得するために使います。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EditionDetail {
+
+    private String editionId;
+    private String tracklist;    // 曲目リスト
+    private String benefit;      // 特典一覧
+    private String videoContent; // DVDなどの映像特典内容
+    private String remarks;      // 備考欄
+
+    // キャッシュ済みの Discography から詳細項目だけを取り出す
+    public static EditionDetail from(Discography d) {
+        return new EditionDetail(d.getEditionId(), d.getTracklist(), d.getBenefit(),
+                d.getVideoContent(), d.getRemarks());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 全エディションの所持・欲しいものフラグを、ビット列のまま返すためのデータ。
+ * * [読み方]
+ * editionIds の i 番目のエディションは、purchased（wishlist）を Base64 デコードしたバイト列の
+ * (i / 8) バイト目の (i % 8) ビット目（下位ビットから数える）が 1 なら「所持（欲しい）」です。
+ * 前回取得したビット列と XOR を取れば、変わったエディションだけが分かります。
+ * * editionIds は、リクエストで送った layout が layoutVersion と同じ場合は省略（null）されます。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EditionStatusBits {
+
+    private String layoutVersion;   // editionId と番号の対応のバージョン
+    private int size;               // エディション数（ビット列の長さ）
+    private List<String> editionIds; // 番号順の editionId（layout が一致すれば null）
+    private String purchased;
+    private String wishlist;
+}
@@ -0,0 +1,18 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 絞り込みの選択肢1つ分と、その件数（例: {"value": "KEY", "count": 12}）。
+ * value が null の場合は「未設定」のアイテムの件数です。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCount {
+
+    private String value;
+    private long count;
+}
@@ -0,0 +1,39 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * アップロード済みの画像1つ分（元画像とその縮小版）の保存先を、画像の内容のハッシュで引けるようにするEntity。
+ * DBの "image_objects" テーブルと対応します（db/migration/V5 を参照）。
+ * * [メモ]
+ * 同じトレカを撮り直さずに再スキャンした画像などは内容が完全に一致するため、
+ * ここにあるハッシュと一致した場合はストレージへ送らず、記録済みのURLを使い回します。
+ */
+@Entity
+@Table(name = "image_objects")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageObject {
+
+    @Id
+    @Column(name = "content_hash")
+    private String contentHash; // 元画像の SHA-256（16進数64文字）
+
+    private String imageUrl;
+    private String thumbnailUrl;
+
+    @Column(columnDefinition = "TEXT")
+    private String imageSrcset;
+
+    private long sizeBytes; // 元画像のバイト数
+
+    @Column(updatable = false)
+    private OffsetDateTime createdAt;
+}
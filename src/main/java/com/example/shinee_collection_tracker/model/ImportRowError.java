@@ -0,0 +1,19 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 取り込みに失敗した1行分の情報。
+ * line はファイル上の行番号（1始まり。CSVの見出し行は1行目）です。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowError {
+
+    private int line;
+    private String editionId;
+    private String message;
+}
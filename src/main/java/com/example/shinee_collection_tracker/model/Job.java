@@ -0,0 +1,51 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 裏で実行するジョブ1件分の記録を保持するEntity。
+ * DBの "jobs" テーブルと対応します（db/migration/V6 を参照）。
+ * * [メモ]
+ * 実行中の進み具合は JobService がメモリ上で管理し、状態が変わった時（開始・再試行・完了）だけDBに書き込みます。
+ * アプリの再起動などでメモリから消えた後も、GET /api/jobs/{id} でこの記録から結果を確認できます。
+ */
+@Entity
+@Table(name = "jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Job {
+
+    @Id
+    private String jobId;
+
+    @Column(nullable = false)
+    private String type;          // JobType の名前
+
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private String status;        // QUEUED / RUNNING / RETRYING / SUCCEEDED / FAILED
+
+    private int attempts;         // 実行した回数（再試行を含む）
+    private int maxAttempts;
+    private int progress;         // 0〜100（%）
+    private String message;       // 今何をしているか（画面表示用）
+
+    @Column(columnDefinition = "TEXT")
+    private String result;        // 成功時の結果（JSON）
+
+    @Column(columnDefinition = "TEXT")
+    private String error;         // 最後に失敗した理由
+
+    @Column(updatable = false)
+    private OffsetDateTime createdAt;
+    private OffsetDateTime startedAt;
+    private OffsetDateTime finishedAt;
+}
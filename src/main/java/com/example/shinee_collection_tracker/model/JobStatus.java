@@ -0,0 +1,33 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ジョブの状態（GET /api/jobs/{id} と、202 Accepted で返すレスポンス）。
+ * status が SUCCEEDED になったら result に結果が入ります（形はジョブの種類ごとに異なります）。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatus {
+
+    private String jobId;
+    private String type;
+    private String status;      // QUEUED / RUNNING / RETRYING / SUCCEEDED / FAILED
+    private int progress;       // 0〜100（%）
+    private String message;
+    private int attempts;
+    private int maxAttempts;
+    private Object result;      // 成功時の結果
+    private String error;       // 失敗時（再試行待ちを含む）の理由
+    private String createdAt;   // ISO-8601
+    private String startedAt;
+    private String finishedAt;
+
+    // 終わった（これ以上状態が変わらない）ジョブか
+    public boolean isDone() {
+        return "SUCCEEDED".equals(status) || "FAILED".equals(status);
+    }
+}
@@ -25,10 +25,14 @@ public class RandomItem {
     /**
      * アイテムごとの一意なID。
      * @Id: 主キーであることを示します。
-     * @GeneratedValue: DB側で「1, 2, 3...」と自動で番号を振る設定（MySQLのAUTO_INCREMENT等に対応）。
+     * @GeneratedValue: DBのシーケンス（random_items_item_id_seq）から番号を振る設定。
+     * @SequenceGenerator: allocationSize=50 で、1回の問い合わせで50件分の番号をまとめて確保します。
+     * （IDENTITY だと1件INSERTするたびに採番のための往復が必要で、まとめてINSERT（バッチ）ができないため）
+     * ※ シーケンス側の INCREMENT BY も50に合わせる必要があります（db/migration/V2 を参照）。
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "random_items_seq")
+    @SequenceGenerator(name = "random_items_seq", sequenceName = "random_items_item_id_seq", allocationSize = 50)
     private Long itemId;
 
     /**
@@ -42,6 +46,19 @@ public class RandomItem {
     private String memberName; // メンバー名（ONEW, KEYなど）
     private String imageUrl;   // サーバーに保存した写真の参照用URL
 
+    /**
+     * 一覧表示用のサムネイル画像のURL（最も小さい幅の縮小版）。
+     * 縮小版を作れなかった場合（元画像が小さい・読めない形式など）は null で、imageUrl をそのまま使います。
+     */
+    private String thumbnailUrl;
+
+    /**
+     * 幅ごとの縮小版をまとめた img 要素の srcset 形式の文字列。
+     * 例: "https://.../xxx_w160.jpg 160w, https://.../xxx_w320.jpg 320w"
+     */
+    @Column(columnDefinition = "TEXT")
+    private String imageSrcset;
+
     /**
      * 登録日時。
      * @Column(updatable = false): 一度登録したら、後から更新されないようにロックをかけます。
@@ -0,0 +1,24 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * ランダムアイテムのギャラリーの絞り込みボタンに添える件数（/api/random/items/facets）。
+ * * [数え方]
+ * members はメンバー以外の条件（形態・種別）だけを、itemTypes は種別以外の条件だけを適用した件数です。
+ * そのため、あるメンバーを選んでいる間も、他のメンバーに切り替えた時の件数が分かります。
+ * total はすべての条件を適用した件数（ギャラリーに表示される件数）です。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RandomItemFacets {
+
+    private long total;
+    private List<FacetCount> members;
+    private List<FacetCount> itemTypes;
+}
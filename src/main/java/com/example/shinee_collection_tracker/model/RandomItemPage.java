@@ -0,0 +1,26 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * ランダムアイテムのギャラリー（/api/random/items）の1ページ分。
+ * * [メモ]
+ * DiscographyPage と同じキーセット方式で、最後の行の (createdAt, itemId) を次ページのカーソルとして返します。
+ * JS側は nextCreatedAt / nextItemId をそのまま afterCreatedAt / afterId に渡せば続きを取得できます。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RandomItemPage {
+
+    private List<RandomItem> items; // このページに含まれるアイテム（新しい順）
+
+    private String nextCreatedAt; // 次ページ用カーソル（登録日時）。最終ページの場合はnull
+    private Long nextItemId;      // 次ページ用カーソル（アイテムID）。最終ページの場合はnull
+
+    private boolean hasNext; // 続きのページが存在するか
+}
@@ -0,0 +1,20 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * /api/events（SSE）の "random-items" イベントで送る、新しく登録されたランダムアイテムの情報。
+ * ランダムアイテムは全ユーザー共通のカタログなので、接続中の全員に届きます。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RandomItemsAddedEvent {
+
+    private String editionId;
+    private List<Long> itemIds;
+}
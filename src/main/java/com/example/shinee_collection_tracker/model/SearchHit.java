@@ -0,0 +1,30 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /api/search の検索結果1件分（エディション単位）。
+ * * [highlights の読み方]
+ * 項目名（title / titleSub / displayName / tracklist / benefit）→ 一致した範囲 [開始, 終了) のリスト。
+ * 位置は元の文字列（JavaScript の String と同じUTF-16の位置）なので、slice でそのまま強調表示できます。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchHit {
+
+    private String editionId;
+    private String discId;
+    private String artist;
+    private String title;
+    private String titleSub;
+    private String displayName;
+    private String releaseDate;
+    private double score;
+    private Map<String, List<int[]>> highlights;
+}
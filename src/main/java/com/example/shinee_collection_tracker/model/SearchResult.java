@@ -0,0 +1,23 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * /api/search のレスポンス。スコアの高い順に並べた結果のうち、指定ページの分だけを持ちます。
+ * * total は一致した全件数なので、hasNext は (page + 1) * size < total で判定できます。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResult {
+
+    private String query;
+    private int total;
+    private int page;
+    private int size;
+    private List<SearchHit> hits;
+}
@@ -0,0 +1,25 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /api/events（SSE）の "status" イベントで送る、所持・欲しいものフラグの変更内容。
+ * * [読み方]
+ * editionIds の各エディションについて、purchased / wishlist が null でなければその値に変わったことを表します。
+ * stats は変更後の /api/stats と同じ形式の購入率なので、受け取った側は /api/stats を取り直す必要はありません。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatusChangedEvent {
+
+    private List<String> editionIds;
+    private Boolean purchased;
+    private Boolean wishlist;
+    private Map<String, Object> stats;
+}
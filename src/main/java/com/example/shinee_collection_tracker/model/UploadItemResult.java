@@ -0,0 +1,27 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ランダムアイテム一括登録における、1アイテム（1スロット）ごとの処理結果。
+ * * status の値:
+ * - "SAVED"   : 画像のアップロードとDB保存に成功
+ * - "FAILED"  : アップロードまたはDB保存に失敗（error に理由）
+ * - "SKIPPED" : 画像が添付されていなかったため登録しなかった
+ * * deduplicated が true の場合、画像はストレージへ送らず、保存済みの同じ画像のURLを imageUrl に使っています。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadItemResult {
+
+    private int index;         // フォーム上のスロット番号（0始まり）
+    private String fileName;   // 元のファイル名
+    private String status;     // SAVED / FAILED / SKIPPED
+    private Long itemId;       // 保存されたアイテムのID（SAVED の場合のみ）
+    private String imageUrl;   // 保存された画像の公開URL（SAVED の場合のみ）
+    private String error;      // 失敗理由（FAILED の場合のみ）
+    private boolean deduplicated; // 同じ内容の画像が保存済みだったため、アップロードせずにそのURLを使い回した
+}
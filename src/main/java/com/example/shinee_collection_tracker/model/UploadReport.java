@@ -0,0 +1,24 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * ランダムアイテム一括登録の結果まとめ（POST /api/random/upload のレスポンス）。
+ * 一部のアイテムだけが失敗した場合も、どのアイテムが保存されたかを items で確認できます。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadReport {
+
+    private int saved;   // 保存に成功した件数
+    private int failed;  // 失敗した件数
+    private int skipped; // 画像なしでスキップした件数
+    private int deduplicated; // 保存済みの同じ画像を使い回した件数（saved の内数）
+
+    private List<UploadItemResult> items; // スロット順の個別結果
+}
@@ -0,0 +1,55 @@
+package com.example.shinee_collection_tracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/**
+ * ユーザーごとの所持・欲しいもの状態を保持するEntity。
+ * DBの "user_edition_status" テーブル（主キーは user_id と edition_id の組み合わせ）と対応します。
+ * * [メモ]
+ * カタログ（editions / v_discography）は全ユーザー共通で読み取り専用とし、
+ * ユーザーの操作で変わる値だけをこのテーブルに持たせることで、書き込みがカタログの行を奪い合わないようにしています。
+ * 行が無いエディションは「未所持・欲しいものでもない」として扱います。
+ */
+@Entity
+@Table(name = "user_edition_status")
+@IdClass(UserEditionStatus.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserEditionStatus {
+
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Id
+    @Column(name = "edition_id")
+    private String editionId;
+
+    @Column(name = "is_purchased")
+    private boolean purchased;
+
+    @Column(name = "is_wishlist")
+    private boolean wishlist;
+
+    @Column(name = "updated_at")
+    private OffsetDateTime updatedAt;
+
+    /**
+     * 複合主キー（user_id, edition_id）。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String userId;
+        private String editionId;
+    }
+}
@@ -1,19 +1,22 @@
 package com.example.shinee_collection_tracker.repository;
 
 import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.model.DiscographySummary;
+import com.example.shinee_collection_tracker.model.EditionDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * ディスコグラフィ情報のDB操作を担当するリポジトリ。
  * JpaRepositoryを継承し、標準的なCRUD操作に加え、
- * 統計集計やステータス更新のためのカスタムネイティブクエリを定義しています。
+ * 一覧・検索・統計のためのカスタムクエリを定義しています。
+ * ※ 所持・欲しいものフラグの更新は、ユーザーごとのテーブルを扱う UserEditionStatusRepository が担当します。
  */
 @Repository
 public interface DiscographyRepository extends JpaRepository<Discography, String> {
@@ -21,52 +24,133 @@ public interface DiscographyRepository extends JpaRepository<Discography, String
     @Query(value = "SELECT * FROM v_discography ORDER BY release_date DESC, edition_id ASC", nativeQuery = true)
     List<Discography> findAllCustomOrder();
 
-    @Modifying // 更新処理であることを伝える
-    @Transactional // トランザクション（失敗したら戻す）をかける
-    @Query(value = "UPDATE editions SET is_purchased = :isPurchased WHERE edition_id = :editionId", nativeQuery = true)
-    void updatePurchaseStatusNative(String editionId, boolean isPurchased);
-
     /**
-     * コレクション全体の購入率（％）を算出します。
-     * * [SQL解説]
-     * 1. CASE WHENで購入済み(true)のレコードのみを「1」としてカウント。
-     * 2. 全レコード数(COUNT(*))で割り、100を掛けてパーセンテージを算出。
-     * 3. 小数点以下を含めた精度で計算し、Service層に返却します。
+     * 一覧表示用の軽量なディスコグラフィを取得します（並び順は findAllCustomOrder と同じ）。
+     * * [ポイント]
+     * JPQLのコンストラクタ式で必要な項目だけをSELECTするため、
+     * 大きなTEXT項目の転送やEntityの生成（Hibernateの管理コスト）が発生しません。
      */
-    @Query(value = "SELECT COUNT(CASE WHEN is_purchased = true THEN 1 END) * 100.0 / COUNT(*) FROM editions", nativeQuery = true)
-    double getTotalPurchaseRate();
+    @Query("SELECT new com.example.shinee_collection_tracker.model.DiscographySummary(" +
+            "d.editionId, d.discId, d.artist, d.title, d.titleSub, d.category, d.country, d.releaseDate, " +
+            "d.editionName, d.displayName, d.price, d.currency, d.isPurchased, d.isWishlist) " +
+            "FROM Discography d ORDER BY d.releaseDate DESC, d.editionId ASC")
+    List<DiscographySummary> findAllSummaries();
+
+    // 指定エディションの詳細情報（大きなTEXT項目）だけを取得します
+    @Query("SELECT new com.example.shinee_collection_tracker.model.EditionDetail(" +
+            "d.editionId, d.tracklist, d.benefit, d.videoContent, d.remarks) " +
+            "FROM Discography d WHERE d.editionId = :editionId")
+    Optional<EditionDetail> findDetailById(@Param("editionId") String editionId);
+
+    // ページ取得（findPage...）で共通の SELECT 句
+    String PAGE_SELECT = "SELECT " +
+            "v.edition_id, v.disc_id, v.artist, v.title, v.title_sub, v.category, v.country, v.release_date, " +
+            "v.edition_name, v.display_name, v.price, v.currency, v.remarks, v.tracklist, v.benefit, v.video_content, " +
+            "COALESCE(s.is_purchased, false) AS is_purchased, COALESCE(s.is_wishlist, false) AS is_wishlist " +
+            "FROM v_discography v " +
+            "LEFT JOIN user_edition_status s ON s.edition_id = v.edition_id AND s.user_id = :userId ";
+
+    // ページ取得で共通の絞り込み条件（空文字は「条件なし」）
+    String PAGE_FILTERS = "WHERE (:artist = '' OR v.artist = :artist) " +
+            "AND (:country = '' OR v.country = :country) " +
+            "AND (:category = '' OR v.category LIKE CONCAT('%', :category, '%')) " +
+            "AND (:purchased = '' OR CAST(COALESCE(s.is_purchased, false) AS text) = :purchased) ";
+
+    // 新しい順。発売日が未登録の行は最後
+    String NEWEST_FIRST = "ORDER BY v.release_date DESC NULLS LAST, v.edition_id DESC LIMIT :limit";
+
+    // 古い順（NEWEST_FIRST のちょうど逆順）。発売日が未登録の行は最初
+    String OLDEST_FIRST = "ORDER BY v.release_date ASC NULLS FIRST, v.edition_id ASC LIMIT :limit";
 
     /**
-     * アーティスト（メンバー）ごとの購入率を算出します。
+     * トラッカー画面のフィルタ条件をSQL側で適用し、キーセット方式で1ページ目を取得します（新しい順）。
      * * [SQL解説]
-     * 1. discsマスタとeditionsマスタを disc_id で内部結合(JOIN)。
-     * 2. アーティスト名ごとにグループ化(GROUP BY)し、それぞれの購入率を計算。
-     * 3. 結果はMapのリストとして取得し、Service層で整形します。
+     * 1. 所持・欲しいものフラグは、指定ユーザーの user_edition_status を LEFT JOIN して取得します（行が無ければ false）。
+     * 2. 各フィルタは空文字('')のとき「条件なし」として扱います（NULLバインドの型推論問題を避けるため）。
+     * 3. 並び替えは発売日（DATE のまま）とエディションIDを同じ向きに揃え、発売日が未登録の行は最後に置きます。
+     *    古い順はこのちょうど逆順です。発売日（discs）とエディションID（editions）は別のテーブルの列なので、
+     *    絞り込み後の行はDB側でソートされます（V8 のインデックスは、カーソルの発売日での絞り込みと結合に使います）。
+     * 4. 2ページ目以降は、カーソルの位置で ...After（発売日あり）/ ...AfterUndated（発売日なし）を使い分けます。
+     * 5. LIMIT は「次ページの有無」を判定するため、Service側で1件多く指定します。
      */
-    @Query(value = "SELECT d.artist, COUNT(CASE WHEN e.is_purchased = true THEN 1 END) * 100.0 / COUNT(*) as rate " +
-            "FROM discs d JOIN editions e ON d.disc_id = e.disc_id " +
-            "GROUP BY d.artist", nativeQuery = true)
-    List<Map<String, Object>> getPurchaseRateByArtist();
+    @Query(value = PAGE_SELECT + PAGE_FILTERS + NEWEST_FIRST, nativeQuery = true)
+    List<Discography> findPageNewestFirst(@Param("userId") String userId,
+            @Param("artist") String artist,
+            @Param("country") String country,
+            @Param("category") String category,
+            @Param("purchased") String purchased,
+            @Param("limit") int limit);
+
+    // 新しい順の続き。カーソル (afterDate, afterId) より後ろの行を、行値の比較で絞り込む（その後ろに発売日なしの行が続く）
+    @Query(value = PAGE_SELECT + PAGE_FILTERS +
+            "AND ((v.release_date, v.edition_id) < (:afterDate, :afterId) OR v.release_date IS NULL) " +
+            NEWEST_FIRST, nativeQuery = true)
+    List<Discography> findPageNewestFirstAfter(@Param("userId") String userId,
+            @Param("artist") String artist,
+            @Param("country") String country,
+            @Param("category") String category,
+            @Param("purchased") String purchased,
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterId") String afterId,
+            @Param("limit") int limit);
+
+    // 新しい順の続き。カーソルが発売日なしの行の場合（残りも発売日なしの行だけ）
+    @Query(value = PAGE_SELECT + PAGE_FILTERS +
+            "AND v.release_date IS NULL AND v.edition_id < :afterId " +
+            NEWEST_FIRST, nativeQuery = true)
+    List<Discography> findPageNewestFirstAfterUndated(@Param("userId") String userId,
+            @Param("artist") String artist,
+            @Param("country") String country,
+            @Param("category") String category,
+            @Param("purchased") String purchased,
+            @Param("afterId") String afterId,
+            @Param("limit") int limit);
 
-    // 国別の購入率
-    @Query(value = "SELECT d.country, COUNT(CASE WHEN e.is_purchased = true THEN 1 END) * 100.0 / COUNT(*) as rate " +
-            "FROM discs d JOIN editions e ON d.disc_id = e.disc_id " +
-            "GROUP BY d.country", nativeQuery = true)
-    List<Map<String, Object>> getPurchaseRateByCountry();
+    // findPageNewestFirst の「古い順」版。並び順とカーソルの比較方向だけが異なります
+    @Query(value = PAGE_SELECT + PAGE_FILTERS + OLDEST_FIRST, nativeQuery = true)
+    List<Discography> findPageOldestFirst(@Param("userId") String userId,
+            @Param("artist") String artist,
+            @Param("country") String country,
+            @Param("category") String category,
+            @Param("purchased") String purchased,
+            @Param("limit") int limit);
+
+    // 古い順の続き。カーソルが発売日ありの行の場合（発売日なしの行は既に返し終えている）
+    @Query(value = PAGE_SELECT + PAGE_FILTERS +
+            "AND (v.release_date, v.edition_id) > (:afterDate, :afterId) " +
+            OLDEST_FIRST, nativeQuery = true)
+    List<Discography> findPageOldestFirstAfter(@Param("userId") String userId,
+            @Param("artist") String artist,
+            @Param("country") String country,
+            @Param("category") String category,
+            @Param("purchased") String purchased,
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterId") String afterId,
+            @Param("limit") int limit);
+
+    // 古い順の続き。カーソルが発売日なしの行の場合（残りの発売日なしの行と、発売日ありの行すべて）
+    @Query(value = PAGE_SELECT + PAGE_FILTERS +
+            "AND ((v.release_date IS NULL AND v.edition_id > :afterId) OR v.release_date IS NOT NULL) " +
+            OLDEST_FIRST, nativeQuery = true)
+    List<Discography> findPageOldestFirstAfterUndated(@Param("userId") String userId,
+            @Param("artist") String artist,
+            @Param("country") String country,
+            @Param("category") String category,
+            @Param("purchased") String purchased,
+            @Param("afterId") String afterId,
+            @Param("limit") int limit);
 
     /**
-     * 欲しいものリストの状態を更新します。
-     * * @Modifying: SELECT以外の操作（UPDATE/DELETE）を行う場合に必須。
-     * @Transactional: DB操作の整合性を保つためのアノテーション。
+     * 所持状態の索引（EditionStatusIndex）の作成用に、全エディションと所属グループを取得します。
+     * * [SQL解説]
+     * 1. 全体の件数は editions 全件が対象のため、discs が無いエディションも落とさないよう LEFT JOIN しています。
+     *    （その場合 artist / country / category は null になり、グループ別の集計からは除外されます）
+     * 2. 索引の番号（ビットの位置）が毎回同じになるよう、edition_id 順で返します。
      */
-    @Modifying
-    @Transactional
-    @Query(value = "UPDATE editions SET is_wishlist = :isWishlist WHERE edition_id = :editionId", nativeQuery = true)
-    void updateWishlistStatus(@Param("editionId") String editionId, @Param("isWishlist") boolean isWishlist);
-
-    // 欲しいものリストだけの情報取得
-    // nativeQueryではなくJPQL（Javaのオブジェクトを対象にしたクエリ）で書く例
-    @Query(value = "SELECT * FROM v_discography WHERE is_Wishlist = true", nativeQuery = true)
-    List<Discography> findByIsWishlistTrue();
+    @Query(value = "SELECT e.edition_id AS edition_id, d.artist AS artist, d.country AS country, " +
+            "d.category AS category " +
+            "FROM editions e LEFT JOIN discs d ON d.disc_id = e.disc_id " +
+            "ORDER BY e.edition_id", nativeQuery = true)
+    List<Map<String, Object>> findEditionGroups();
 
 }
\ No newline at end of file
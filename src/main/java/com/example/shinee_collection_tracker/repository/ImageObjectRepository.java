@@ -0,0 +1,33 @@
+package com.example.shinee_collection_tracker.repository;
+
+import com.example.shinee_collection_tracker.model.ImageObject;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * アップロード済み画像の「ハッシュ → URL」の対応表（image_objects）のDB操作を担当するリポジトリ。
+ */
+@Repository
+public interface ImageObjectRepository extends JpaRepository<ImageObject, String> {
+
+    /**
+     * 対応を1件記録します。同じハッシュが既にある場合は何もしません（先に記録された方を残す）。
+     * save() は主キーを自分で決めるEntityだと事前の SELECT が走るため、INSERT 1回で済むよう直接書いています。
+     * * @return 追加された行数（既にあった場合は 0）
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO image_objects (content_hash, image_url, thumbnail_url, image_srcset, size_bytes) " +
+            "VALUES (:contentHash, :imageUrl, :thumbnailUrl, :imageSrcset, :sizeBytes) " +
+            "ON CONFLICT (content_hash) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("contentHash") String contentHash,
+            @Param("imageUrl") String imageUrl,
+            @Param("thumbnailUrl") String thumbnailUrl,
+            @Param("imageSrcset") String imageSrcset,
+            @Param("sizeBytes") long sizeBytes);
+}
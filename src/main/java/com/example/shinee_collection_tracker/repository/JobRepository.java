@@ -0,0 +1,40 @@
+package com.example.shinee_collection_tracker.repository;
+
+import com.example.shinee_collection_tracker.model.Job;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * ジョブの記録（jobs）のDB操作を担当するリポジトリ。
+ */
+@Repository
+public interface JobRepository extends JpaRepository<Job, String> {
+
+    Optional<Job> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * 終わっていないジョブを失敗扱いにします（アプリの起動時に、前回の停止で中断されたジョブを片付ける）。
+     * * @return 失敗扱いにした件数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Job j SET j.status = 'FAILED', j.error = :error, j.finishedAt = :now " +
+            "WHERE j.status IN ('QUEUED', 'RUNNING', 'RETRYING')")
+    int failUnfinished(@Param("error") String error, @Param("now") OffsetDateTime now);
+
+    /**
+     * 指定日時より前に終わったジョブの記録を削除します。
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Job j WHERE j.finishedAt < :before")
+    int deleteFinishedBefore(@Param("before") OffsetDateTime before);
+}
@@ -0,0 +1,42 @@
+package com.example.shinee_collection_tracker.repository;
+
+import com.example.shinee_collection_tracker.model.RandomItem;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ランダムアイテムのギャラリー用のクエリ（RandomItemRepository に組み込まれます）。
+ * * [絞り込み条件の渡し方]
+ * 複数値の条件（editionIds など）は IN で絞り込みます。空のコレクションを渡した条件はクエリに含めません
+ * （「条件なし」のために OR で無効化した条件を残すと、プランナーがインデックスを選べなくなるため）。
+ */
+public interface RandomItemGalleryQueries {
+
+    /**
+     * ギャラリー表示用に、条件に合うアイテムを新しい順に1ページ分だけ取得します。
+     * * [SQL解説]
+     * 1. 並び順は (created_at, item_id) の降順。同じ登録日時のアイテムも item_id で順番が一意に決まります。
+     * 2. カーソルがある時は (created_at, item_id) &lt; (afterCreatedAt, afterId) の行値の比較で続きを取得します
+     *    （OFFSETを使わず、V4 の複合インデックスの範囲としてそのまま辿れます）。
+     * 3. limit は「次ページの有無」を判定するため、Service側で1件多く指定します。
+     * * @param afterCreatedAt 前ページ最後の登録日時（1ページ目は null）
+     * @param afterId        前ページ最後のアイテムID（1ページ目は null）
+     */
+    List<RandomItem> findGalleryPage(Collection<String> editionIds, Collection<String> memberNames,
+            Collection<String> itemTypes, LocalDateTime afterCreatedAt, Long afterId, int limit);
+
+    /**
+     * メンバー別の件数を数えます（ギャラリーの絞り込みボタンに件数を添えるため）。
+     * メンバー自体の条件は掛けず、形態・種別の条件だけを適用します（他のメンバーに切り替えた時の件数が分かるように）。
+     * * @return [メンバー名, 件数] の配列のリスト
+     */
+    List<Object[]> countByMember(Collection<String> editionIds, Collection<String> itemTypes);
+
+    /**
+     * 種別（トレカ・ポストカード等）ごとの件数を数えます。countByMember と同じく、種別自体の条件は掛けません。
+     * * @return [種別, 件数] の配列のリスト
+     */
+    List<Object[]> countByItemType(Collection<String> editionIds, Collection<String> memberNames);
+}
@@ -0,0 +1,96 @@
+package com.example.shinee_collection_tracker.repository;
+
+import com.example.shinee_collection_tracker.model.RandomItem;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RandomItemGalleryQueries の実装。指定された条件だけを WHERE に並べたJPQLを組み立てます。
+ * 条件の組み合わせは高々 2^3 × カーソル有無 通りなので、Hibernate のクエリプランキャッシュにも収まります。
+ */
+class RandomItemGalleryQueriesImpl implements RandomItemGalleryQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<RandomItem> findGalleryPage(Collection<String> editionIds, Collection<String> memberNames,
+            Collection<String> itemTypes, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        Where where = new Where()
+                .in("r.editionId", "editionIds", editionIds)
+                .in("r.memberName", "memberNames", memberNames)
+                .in("r.itemType", "itemTypes", itemTypes);
+        if (afterCreatedAt != null && afterId != null) {
+            where.add("(r.createdAt, r.itemId) < (:afterCreatedAt, :afterId)")
+                    .bind("afterCreatedAt", afterCreatedAt)
+                    .bind("afterId", afterId);
+        }
+        TypedQuery<RandomItem> query = entityManager.createQuery(
+                "SELECT r FROM RandomItem r" + where + " ORDER BY r.createdAt DESC, r.itemId DESC", RandomItem.class);
+        where.bindTo(query);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<Object[]> countByMember(Collection<String> editionIds, Collection<String> itemTypes) {
+        Where where = new Where()
+                .in("r.editionId", "editionIds", editionIds)
+                .in("r.itemType", "itemTypes", itemTypes);
+        TypedQuery<Object[]> query = entityManager.createQuery("SELECT r.memberName, COUNT(r) FROM RandomItem r"
+                + where + " GROUP BY r.memberName ORDER BY COUNT(r) DESC, r.memberName", Object[].class);
+        where.bindTo(query);
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Object[]> countByItemType(Collection<String> editionIds, Collection<String> memberNames) {
+        Where where = new Where()
+                .in("r.editionId", "editionIds", editionIds)
+                .in("r.memberName", "memberNames", memberNames);
+        TypedQuery<Object[]> query = entityManager.createQuery("SELECT r.itemType, COUNT(r) FROM RandomItem r"
+                + where + " GROUP BY r.itemType ORDER BY COUNT(r) DESC, r.itemType", Object[].class);
+        where.bindTo(query);
+        return query.getResultList();
+    }
+
+    // 指定された条件だけを AND でつないだ WHERE 句と、そのパラメータ
+    private static final class Where {
+        private final List<String> conditions = new ArrayList<>();
+        private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+        Where in(String path, String name, Collection<String> values) {
+            if (values != null && !values.isEmpty()) {
+                add(path + " IN :" + name).bind(name, values);
+            }
+            return this;
+        }
+
+        Where add(String condition) {
+            conditions.add(condition);
+            return this;
+        }
+
+        Where bind(String name, Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        void bindTo(TypedQuery<?> query) {
+            parameters.forEach(query::setParameter);
+        }
+
+        @Override
+        public String toString() {
+            return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        }
+    }
+}
@@ -2,15 +2,16 @@ package com.example.shinee_collection_tracker.repository;
 
 import com.example.shinee_collection_tracker.model.RandomItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+
 import java.util.List;
 
 /**
  * ランダムアイテム情報(random_itemsテーブル)にアクセスするためのリポジトリ。
+ * ギャラリーのページング・件数集計は、条件に応じてクエリを組み立てる RandomItemGalleryQueries に分けています。
  */
-public interface RandomItemRepository extends JpaRepository<RandomItem, Long> {
+public interface RandomItemRepository extends JpaRepository<RandomItem, Long>, RandomItemGalleryQueries {
     /**
      * 指定したエディションIDに属するアイテムのみを抽出します。
-     * 未選択(undefined)の場合は、Controller側でfindAllを呼び出すよう制御しています。
      */
     List<RandomItem> findByEditionId(String editionId);
-}
\ No newline at end of file
+}
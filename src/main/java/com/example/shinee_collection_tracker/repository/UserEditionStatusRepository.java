@@ -0,0 +1,61 @@
+package com.example.shinee_collection_tracker.repository;
+
+import com.example.shinee_collection_tracker.model.UserEditionStatus;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ユーザーごとの所持・欲しいもの状態（user_edition_status）のDB操作を担当するリポジトリ。
+ */
+@Repository
+public interface UserEditionStatusRepository extends JpaRepository<UserEditionStatus, UserEditionStatus.Key> {
+
+    /**
+     * 指定ユーザーの、フラグが立っているエディションだけを取得します（所持状態の索引の読み込み用）。
+     * * @return edition_id / is_purchased / is_wishlist を含むMapのリスト
+     */
+    @Query(value = "SELECT edition_id, is_purchased, is_wishlist FROM user_edition_status " +
+            "WHERE user_id = :userId AND (is_purchased OR is_wishlist)", nativeQuery = true)
+    List<Map<String, Object>> findFlaggedByUserId(@Param("userId") String userId);
+
+    /**
+     * 複数ユーザーの、フラグが立っているエディションをまとめて取得します（所持状態の索引とDBの照合用）。
+     * * @return user_id / edition_id / is_purchased / is_wishlist を含むMapのリスト
+     */
+    @Query(value = "SELECT user_id, edition_id, is_purchased, is_wishlist FROM user_edition_status " +
+            "WHERE user_id IN (:userIds) AND (is_purchased OR is_wishlist)", nativeQuery = true)
+    List<Map<String, Object>> findFlaggedByUserIds(@Param("userIds") Collection<String> userIds);
+
+    /**
+     * 指定ユーザーの、複数エディションの所持・欲しいものフラグを1本のSQLでまとめて更新します。
+     * * [SQL解説]
+     * 1. editions に存在するエディションだけを対象に、ユーザーの行を INSERT します。
+     * 2. 既に行がある場合は ON CONFLICT で UPDATE に切り替えます（UPSERT）。
+     * 3. setPurchased / setWishlist が false の項目は、既存の行では現在値を維持し、新しい行では false にします。
+     * * @return 追加・更新された行数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO user_edition_status AS s (user_id, edition_id, is_purchased, is_wishlist, updated_at) " +
+            "SELECT :userId, e.edition_id, (:setPurchased AND :isPurchased), (:setWishlist AND :isWishlist), now() " +
+            "FROM editions e WHERE e.edition_id IN (:editionIds) " +
+            "ON CONFLICT (user_id, edition_id) DO UPDATE SET " +
+            "is_purchased = CASE WHEN :setPurchased THEN EXCLUDED.is_purchased ELSE s.is_purchased END, " +
+            "is_wishlist = CASE WHEN :setWishlist THEN EXCLUDED.is_wishlist ELSE s.is_wishlist END, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int upsertStatus(@Param("userId") String userId,
+            @Param("editionIds") List<String> editionIds,
+            @Param("setPurchased") boolean setPurchased,
+            @Param("isPurchased") boolean isPurchased,
+            @Param("setWishlist") boolean setWishlist,
+            @Param("isWishlist") boolean isWishlist);
+}
@@ -0,0 +1,508 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.CatalogImportReport;
+import com.example.shinee_collection_tracker.model.ImportRowError;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * カタログ（discs / editions）の一括取り込み・書き出しを担当するサービス。
+ * * [取り込みの流れ]
+ * 1. CSV（1行目が見出し）または JSON Lines（1行に1つのJSONオブジェクト）を、1行ずつ読みながら処理します。
+ *    ファイル全体をメモリには載せません。
+ * 2. 1行 = 1エディション（v_discography と同じ列名。アルバムの項目も同じ行に書きます）。
+ *    ファイルに無い列は、DB上の値をそのまま残します（曲目だけ、価格だけの更新もできます）。
+ * 3. catalog.import.batch-size 行ごとに、discs → editions の順で JDBC バッチの UPSERT を1トランザクションで実行。
+ *    バッチが失敗した場合は、その分だけ1行ずつやり直し、失敗した行を行番号付きで報告します。
+ * 4. 最後に DiscographyService.refreshCatalogAsync() でキャッシュ・検索索引などを作り直します（ジョブとして裏で実行）。
+ *    途中で読み込めなくなった場合も、それまでのバッチはコミット済みのため、1件でも書き込んでいれば必ず実行します。
+ * * [書き出し]
+ * v_discography の全件を、指定ユーザーの所持・欲しいものフラグ付きで、DBのカーソルから読みながら書き出します。
+ * 書き出した CSV / JSON Lines はそのまま取り込みにも使えます（フラグの列は取り込み時には無視されます）。
+ */
+@Service
+public class CatalogTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogTransferService.class);
+
+    // 取り込める列（ファイル上の列名 = DBの列名）。disc_id / edition_id は必須
+    private static final List<String> DISC_COLUMNS =
+            List.of("artist", "title", "title_sub", "category", "country", "release_date");
+    private static final List<String> EDITION_COLUMNS =
+            List.of("edition_name", "display_name", "price", "currency", "remarks", "tracklist", "benefit", "video_content");
+
+    // 書き出す列（取り込みの列 + 所持・欲しいものフラグ）
+    private static final List<String> EXPORT_COLUMNS;
+
+    static {
+        List<String> columns = new ArrayList<>(List.of("disc_id"));
+        columns.addAll(DISC_COLUMNS);
+        columns.add("edition_id");
+        columns.addAll(EDITION_COLUMNS);
+        columns.addAll(List.of("is_purchased", "is_wishlist"));
+        EXPORT_COLUMNS = List.copyOf(columns);
+    }
+
+    private static final String EXPORT_SQL = "SELECT " +
+            "v.disc_id, v.artist, v.title, v.title_sub, v.category, v.country, " +
+            "CAST(v.release_date AS text) AS release_date, " +
+            "v.edition_id, v.edition_name, v.display_name, v.price, v.currency, v.remarks, " +
+            "v.tracklist, v.benefit, v.video_content, " +
+            "COALESCE(s.is_purchased, false) AS is_purchased, COALESCE(s.is_wishlist, false) AS is_wishlist " +
+            "FROM v_discography v " +
+            "LEFT JOIN user_edition_status s ON s.edition_id = v.edition_id AND s.user_id = ? " +
+            "ORDER BY v.disc_id, v.edition_id";
+
+    // JSON Lines の1行分（列の順番を保つ）
+    private static final TypeReference<LinkedHashMap<String, Object>> JSON_ROW = new TypeReference<>() {};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DiscographyService discographyService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final JsonMapper jsonMapper;
+    private final int batchSize;
+    private final int maxReportedErrors;
+    private final int exportFetchSize;
+
+    public CatalogTransferService(JdbcTemplate jdbcTemplate,
+            DiscographyService discographyService,
+            PlatformTransactionManager transactionManager,
+            JsonMapper jsonMapper,
+            @Value("${catalog.import.batch-size:500}") int batchSize,
+            @Value("${catalog.import.max-reported-errors:100}") int maxReportedErrors,
+            @Value("${catalog.export.fetch-size:500}") int exportFetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.discographyService = discographyService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.jsonMapper = jsonMapper;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxReportedErrors = maxReportedErrors;
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    /**
+     * CSV / JSON Lines のカタログを取り込みます。
+     * * @param input  ファイルの内容（UTF-8。呼び出し側で close してください）
+     * @param format "csv" または "jsonl"
+     * @return 取り込み結果（行ごとのエラーと、キャッシュなどの作り直しジョブのIDを含む）
+     * @throws IllegalArgumentException 形式が不明な場合や、CSVの見出しに disc_id / edition_id が無い場合
+     */
+    public CatalogImportReport importCatalog(InputStream input, String format) throws IOException {
+        long start = System.nanoTime();
+        String normalizedFormat = format == null ? "csv" : format.toLowerCase(Locale.ROOT);
+        Import state = new Import();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String refreshJobId = null;
+
+        try {
+            switch (normalizedFormat) {
+                case "csv" -> readCsv(reader, state);
+                case "jsonl", "ndjson" -> readJsonLines(reader, state);
+                default -> throw new IllegalArgumentException("format は csv または jsonl を指定してください: " + format);
+            }
+            state.flush();
+        } finally {
+            // 途中で例外になっても、それまでのバッチはコミット済みなので、キャッシュ・スナップショット・検索索引・
+            // プルダウンへの反映は必ず行う（しないと、それぞれの再読み込みの間隔まで古い内容のままになる）
+            if (state.upserted > 0) {
+                refreshJobId = refreshCatalog();
+            }
+        }
+
+        CatalogImportReport report = new CatalogImportReport(normalizedFormat, state.rowsRead, state.upserted,
+                state.failed, (System.nanoTime() - start) / 1_000_000, state.errors, state.errorsTruncated, refreshJobId);
+        log.info("カタログを取り込みました（{}: {}行, 登録・更新{}件, 失敗{}件, {}ms）", normalizedFormat,
+                report.getRowsRead(), report.getUpserted(), report.getFailed(), report.getElapsedMillis());
+        return report;
+    }
+
+    /**
+     * カタログ全件を、指定ユーザーの所持・欲しいものフラグ付きで書き出します。
+     * DBからは catalog.export.fetch-size 行ずつ読み込み、読んだそばから書き出すため、件数が多くてもメモリは増えません。
+     * * @param userId ユーザーID（フラグの列に使用）
+     * @param format "csv" または "jsonl"
+     * @param output 書き出し先（close はしません）
+     */
+    public void exportCatalog(String userId, String format, OutputStream output) {
+        boolean csv = !"jsonl".equalsIgnoreCase(format) && !"ndjson".equalsIgnoreCase(format);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+        // PostgreSQL はトランザクション内でないとカーソルで少しずつ読まない（fetchSize が効かない）ため、読み取り専用で開始する
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try {
+                if (csv) {
+                    writeCsvRow(writer, EXPORT_COLUMNS);
+                }
+                jdbcTemplate.query(connection -> {
+                    var statement = connection.prepareStatement(EXPORT_SQL);
+                    statement.setFetchSize(exportFetchSize);
+                    statement.setString(1, userId);
+                    return statement;
+                }, (ResultSet rs) -> {
+                    try {
+                        if (csv) {
+                            writeCsvRow(writer, exportValues(rs));
+                        } else {
+                            writer.write(jsonMapper.writeValueAsString(exportObject(rs)));
+                            writer.write('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // 取り込んだ内容を反映するジョブを登録する。登録できなくても取り込み自体は済んでいるため、ログだけ残す
+    private String refreshCatalog() {
+        try {
+            return discographyService.refreshCatalogAsync(null).getJobId();
+        } catch (RuntimeException e) {
+            log.warn("カタログ取り込み後の作り直しジョブを登録できませんでした: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void readCsv(BufferedReader reader, Import state) throws IOException {
+        CsvRowReader csv = new CsvRowReader(reader);
+        List<String> header;
+        try {
+            header = csv.readRow();
+        } catch (CsvRowReader.MalformedRowException e) {
+            throw new IllegalArgumentException("CSVの見出し行を読み込めません: " + e.getMessage());
+        }
+        if (header == null) {
+            return;
+        }
+        List<String> columns = header.stream().map(name -> name.strip().toLowerCase(Locale.ROOT)).toList();
+        if (!columns.contains("disc_id") || !columns.contains("edition_id")) {
+            throw new IllegalArgumentException("CSVの見出し行に disc_id と edition_id の列が必要です");
+        }
+
+        List<String> row;
+        while ((row = readCsvRow(csv, state)) != null) {
+            if (row.size() == 1 && row.get(0).isBlank()) {
+                continue; // 空行
+            }
+            int line = csv.rowStartLine();
+            if (row.size() != columns.size()) {
+                state.reject(line, null, "列の数が見出し行と一致しません（" + row.size() + " / " + columns.size() + "）");
+                continue;
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                // CSVでは空欄を「値なし（NULL）」として扱う
+                String value = row.get(i);
+                values.put(columns.get(i), value.isEmpty() ? null : value);
+            }
+            state.add(line, values);
+        }
+    }
+
+    // 読めない行は失敗として数える。閉じられない「"」はファイルの終わりまで続くため、そこで読み込みを終える
+    private static List<String> readCsvRow(CsvRowReader csv, Import state) throws IOException {
+        try {
+            return csv.readRow();
+        } catch (CsvRowReader.MalformedRowException e) {
+            state.reject(e.line(), null, e.getMessage());
+            return null;
+        }
+    }
+
+    private void readJsonLines(BufferedReader reader, Import state) throws IOException {
+        String text;
+        int line = 0;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            Map<String, Object> values;
+            try {
+                values = jsonMapper.readValue(text, JSON_ROW);
+            } catch (JacksonException e) {
+                state.reject(line, null, "JSONとして読み込めません: " + e.getOriginalMessage());
+                continue;
+            }
+            Map<String, Object> normalized = new LinkedHashMap<>();
+            values.forEach((key, value) -> normalized.put(key.toLowerCase(Locale.ROOT), value));
+            state.add(line, normalized);
+        }
+    }
+
+    // 1行分の値を検証・変換する（不正な値はここで弾き、DBへは送らない）
+    private static Row toRow(int line, Map<String, Object> values) {
+        String discId = text(values.get("disc_id"));
+        String editionId = text(values.get("edition_id"));
+        if (discId == null || editionId == null) {
+            throw new RowException(editionId, "disc_id と edition_id は必須です");
+        }
+
+        List<String> discColumns = new ArrayList<>();
+        List<Object> discValues = new ArrayList<>();
+        for (String column : DISC_COLUMNS) {
+            if (values.containsKey(column)) {
+                discColumns.add(column);
+                discValues.add(convert(editionId, column, values.get(column)));
+            }
+        }
+        List<String> editionColumns = new ArrayList<>();
+        List<Object> editionValues = new ArrayList<>();
+        for (String column : EDITION_COLUMNS) {
+            if (values.containsKey(column)) {
+                editionColumns.add(column);
+                editionValues.add(convert(editionId, column, values.get(column)));
+            }
+        }
+        return new Row(line, discId, editionId, new Columns(List.copyOf(discColumns), List.copyOf(editionColumns)),
+                discValues, editionValues);
+    }
+
+    private static Object convert(String editionId, String column, Object value) {
+        String text = text(value);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return switch (column) {
+                case "release_date" -> Date.valueOf(LocalDate.parse(text));
+                case "price" -> Integer.valueOf(text);
+                default -> text;
+            };
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new RowException(editionId, column + " の値が正しくありません: " + text);
+        }
+    }
+
+    private static String text(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().strip();
+        return text.isEmpty() ? null : text;
+    }
+
+    // 列の組み合わせごとの UPSERT 文（ファイルに無い列は SET に含めず、DB上の値を残す）
+    private static String discUpsertSql(Columns columns) {
+        return upsertSql("discs", "disc_id", columns.disc());
+    }
+
+    private static String editionUpsertSql(Columns columns) {
+        List<String> all = new ArrayList<>(List.of("disc_id"));
+        all.addAll(columns.edition());
+        return upsertSql("editions", "edition_id", all);
+    }
+
+    private static String upsertSql(String table, String key, List<String> columns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (").append(key);
+        columns.forEach(column -> sql.append(", ").append(column));
+        sql.append(") VALUES (?").append(", ?".repeat(columns.size())).append(") ON CONFLICT (").append(key).append(") ");
+        if (columns.isEmpty()) {
+            return sql.append("DO NOTHING").toString();
+        }
+        sql.append("DO UPDATE SET ");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(columns.get(i)).append(" = EXCLUDED.").append(columns.get(i));
+        }
+        return sql.toString();
+    }
+
+    private static List<Object> exportValues(ResultSet rs) throws SQLException {
+        List<Object> values = new ArrayList<>(EXPORT_COLUMNS.size());
+        for (String column : EXPORT_COLUMNS) {
+            values.add(rs.getObject(column));
+        }
+        return values;
+    }
+
+    private static Map<String, Object> exportObject(ResultSet rs) throws SQLException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        for (String column : EXPORT_COLUMNS) {
+            object.put(column, rs.getObject(column));
+        }
+        return object;
+    }
+
+    // 「,」「"」改行を含む値だけを「"」で囲む（中の「"」は「""」にする）
+    private static void writeCsvRow(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            String text = value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(text);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    // ファイル上の列の組み合わせ（同じ組み合わせの行だけを1つのバッチにまとめる）
+    private record Columns(List<String> disc, List<String> edition) {
+    }
+
+    // 検証・変換済みの1行分
+    private record Row(int line, String discId, String editionId, Columns columns,
+            List<Object> discValues, List<Object> editionValues) {
+
+        Object[] discArgs() {
+            List<Object> args = new ArrayList<>(discValues.size() + 1);
+            args.add(discId);
+            args.addAll(discValues);
+            return args.toArray();
+        }
+
+        Object[] editionArgs() {
+            List<Object> args = new ArrayList<>(editionValues.size() + 2);
+            args.add(editionId);
+            args.add(discId);
+            args.addAll(editionValues);
+            return args.toArray();
+        }
+    }
+
+    // 1行分の値が不正な場合の例外（取り込み全体は止めずに、その行だけを失敗として報告する）
+    private static final class RowException extends RuntimeException {
+        final String editionId;
+
+        RowException(String editionId, String message) {
+            super(message);
+            this.editionId = editionId;
+        }
+    }
+
+    /**
+     * 1回の取り込みの途中経過（溜まっているバッチと、件数・エラー）。
+     */
+    private final class Import {
+        final List<Row> batch = new ArrayList<>();
+        final List<ImportRowError> errors = new ArrayList<>();
+        Columns batchColumns;
+        int rowsRead;
+        int upserted;
+        int failed;
+        boolean errorsTruncated;
+
+        void add(int line, Map<String, Object> values) {
+            rowsRead++;
+            Row row;
+            try {
+                row = toRow(line, values);
+            } catch (RowException e) {
+                failed++;
+                report(line, e.editionId, e.getMessage());
+                return;
+            }
+            if (batchColumns != null && !batchColumns.equals(row.columns())) {
+                flush();
+            }
+            batchColumns = row.columns();
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        // 読み込めなかった行（列の数が合わない・JSONでない）を失敗として数える
+        void reject(int line, String editionId, String message) {
+            rowsRead++;
+            failed++;
+            report(line, editionId, message);
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            String discSql = discUpsertSql(batchColumns);
+            String editionSql = editionUpsertSql(batchColumns);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // 同じアルバムの行が続くため、discs はバッチ内で1回にまとめる（後の行の値を優先）
+                    Map<String, Object[]> discs = new LinkedHashMap<>();
+                    batch.forEach(row -> discs.put(row.discId(), row.discArgs()));
+                    jdbcTemplate.batchUpdate(discSql, new ArrayList<>(discs.values()));
+                    // editions も同じIDが重なれば後の行を優先する（reWriteBatchedInserts で1文にまとめられた
+                    // ON CONFLICT が同じ行を2回更新しようとすると、バッチ全体がエラーになるため）
+                    Map<String, Object[]> editions = new LinkedHashMap<>();
+                    batch.forEach(row -> editions.put(row.editionId(), row.editionArgs()));
+                    jdbcTemplate.batchUpdate(editionSql, new ArrayList<>(editions.values()));
+                });
+                upserted += batch.size();
+            } catch (DataAccessException e) {
+                // どの行が原因か分からないため、このバッチだけ1行ずつやり直して失敗した行を特定する
+                log.warn("カタログ取り込みのバッチ（{}行）が失敗したため、1行ずつやり直します: {}",
+                        batch.size(), e.getMostSpecificCause().getMessage());
+                for (Row row : batch) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            jdbcTemplate.update(discSql, row.discArgs());
+                            jdbcTemplate.update(editionSql, row.editionArgs());
+                        });
+                        upserted++;
+                    } catch (DataAccessException rowError) {
+                        failed++;
+                        report(row.line(), row.editionId(), rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+
+        private void report(int line, String editionId, String message) {
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportRowError(line, editionId, message));
+            } else {
+                errorsTruncated = true;
+            }
+        }
+    }
+}
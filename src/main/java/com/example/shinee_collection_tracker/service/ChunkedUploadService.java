@@ -0,0 +1,419 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.ChunkedUploadRequest;
+import com.example.shinee_collection_tracker.model.ChunkedUploadStatus;
+import com.example.shinee_collection_tracker.model.UploadReport;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 大量・大きな画像のランダムアイテム登録を、小分けにして送れるようにする「分割アップロード」を担当するサービス。
+ * * [処理の流れ]
+ * 1. start  : 登録するアイテムと各画像のサイズを受け取り、セッション（ID）を発行します。
+ * 2. write  : 画像ごとに、offset を指定して一部分（チャンク）ずつ受け取り、NIO の FileChannel で
+ *             サーバーのディスク（upload.chunked.spool-dir）の所定の位置へ書き込みます。ヒープに画像全体は載りません。
+ *             通信が途中で切れても、そこまでに書けた分は残るため、status で received を確認して続きから送れば再開できます。
+ * 3. commit : すべて揃ったら、RandomItemUploadService に渡してストレージへの保存とDBへの一括保存を行い、
+ *             ディスク上の一時ファイルを削除します。
+ * * 1リクエストは最大 upload.chunked.max-chunk-size なので、spring.servlet.multipart の上限（10MB）に関係なく、
+ * 合計サイズの大きな一括登録ができます。放置されたセッションは upload.chunked.session-ttl 後に破棄されます。
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private final RandomItemUploadService uploadService;
+    private final Path spoolDir;
+    private final long maxChunkSize;
+    private final long maxFileSize;
+    private final long maxSessionSize;
+    private final int maxItems;
+    private final Duration sessionTtl;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public ChunkedUploadService(RandomItemUploadService uploadService,
+            @Value("${upload.chunked.spool-dir:${java.io.tmpdir}/shinee-uploads}") Path spoolDir,
+            @Value("${upload.chunked.max-chunk-size:8MB}") DataSize maxChunkSize,
+            @Value("${upload.chunked.max-file-size:50MB}") DataSize maxFileSize,
+            @Value("${upload.chunked.max-session-size:1GB}") DataSize maxSessionSize,
+            @Value("${upload.chunked.max-items:200}") int maxItems,
+            @Value("${upload.chunked.session-ttl:PT1H}") Duration sessionTtl) throws IOException {
+        this.uploadService = uploadService;
+        this.spoolDir = spoolDir.toAbsolutePath().normalize();
+        this.maxChunkSize = maxChunkSize.toBytes();
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxSessionSize = maxSessionSize.toBytes();
+        this.maxItems = maxItems;
+        this.sessionTtl = sessionTtl;
+        Files.createDirectories(this.spoolDir);
+        removeLeftovers();
+    }
+
+    /**
+     * 分割アップロードを開始します。
+     * * @param request 登録するアイテムと、各画像のファイル名・サイズ
+     * @return セッションIDと、各画像の受け取り状況（すべて 0）
+     */
+    public ChunkedUploadStatus start(ChunkedUploadRequest request) throws IOException {
+        List<ChunkedUploadRequest.Item> items = request.getItems();
+        if (request.getEditionId() == null || request.getEditionId().isBlank()) {
+            throw badRequest("editionId を指定してください");
+        }
+        if (items == null || items.isEmpty() || items.size() > maxItems) {
+            throw badRequest("items は1〜" + maxItems + "件で指定してください");
+        }
+        long total = 0;
+        for (ChunkedUploadRequest.Item item : items) {
+            if (item.getSize() < 0 || item.getSize() > maxFileSize) {
+                throw badRequest("画像1つのサイズは " + maxFileSize + " バイトまでです: " + item.getFileName());
+            }
+            total += item.getSize();
+        }
+        if (total > maxSessionSize) {
+            throw badRequest("画像の合計サイズは " + maxSessionSize + " バイトまでです");
+        }
+
+        String sessionId = UUID.randomUUID().toString();
+        Path directory = Files.createDirectory(spoolDir.resolve(sessionId));
+        List<Slot> slots = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            slots.add(new Slot(i, items.get(i), directory.resolve(i + ".part")));
+        }
+        Session session = new Session(sessionId, request.getEditionId(), directory, slots);
+        sessions.put(sessionId, session);
+        log.debug("分割アップロードを開始しました（{}: {}件, {}バイト）", sessionId, items.size(), total);
+        return status(session);
+    }
+
+    /**
+     * 分割アップロードの受け取り状況を返します（通信が切れた後、どこから送り直すかの確認用）。
+     */
+    public ChunkedUploadStatus status(String sessionId) {
+        Session session = session(sessionId);
+        session.touch();
+        return status(session);
+    }
+
+    /**
+     * 画像の一部分（チャンク）を受け取り、ディスク上の offset の位置へ書き込みます。
+     * * [ルール]
+     * - offset は、それまでに受け取った位置（received）以下であること（先を飛ばして送ることはできません）。
+     *   既に受け取った範囲を送り直した場合は、同じ内容で上書きされるだけです。
+     * - 1回に送れるのは upload.chunked.max-chunk-size まで、かつ宣言した画像のサイズを超えないこと。
+     * - 途中で通信が切れた場合も、そこまでに書き込めた分は received に反映されます。
+     * * @param sessionId セッションID
+     * @param index     スロット番号
+     * @param offset    このチャンクが画像の先頭から何バイト目か
+     * @param body      チャンクの内容（close はしません）
+     * @return この画像の受け取り状況
+     */
+    public ChunkedUploadStatus.ItemProgress write(String sessionId, int index, long offset, InputStream body)
+            throws IOException {
+        Session session = session(sessionId);
+        if (index < 0 || index >= session.slots.size()) {
+            throw badRequest("スロット番号が範囲外です: " + index);
+        }
+        Slot slot = session.slots.get(index);
+        // 同じ画像へ同時に書き込まない（切れた接続の書き込みが終わる前に再開された場合など）
+        if (!slot.lock.tryLock()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "このスロットには別のリクエストが書き込み中です");
+        }
+        try {
+            if (session.state.get() != State.OPEN) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "このセッションは登録処理中または登録済みです");
+            }
+            if (offset < 0 || offset > slot.received) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "offset は受け取り済みの位置（" + slot.received + "）以下を指定してください");
+            }
+            session.touch();
+            receive(slot, offset, body);
+            return progress(slot);
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    /**
+     * 登録できる状態か（すべての画像が揃っているか）をその場で確認し、登録処理を返します。
+     * 登録処理そのものは、ジョブ（JobService）として後から別のスレッドで実行できます。
+     * 確認が済んだセッションには、以後チャンクを書き込めません。
+     * 登録処理が実行されないまま（ジョブが受け付けられなかった場合など）になったら release で元に戻してください。
+     * 実行も release もされないまま upload.chunked.session-ttl が過ぎたセッションは破棄されます。
+     * * @throws ResponseStatusException 画像が揃っていない・登録処理中または登録済みの場合は409
+     */
+    public PreparedCommit prepareCommit(String sessionId) {
+        Session session = session(sessionId);
+        if (!session.state.compareAndSet(State.OPEN, State.PREPARED)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "このセッションは登録処理中または登録済みです");
+        }
+        session.touch();
+
+        List<String> names = new ArrayList<>();
+        List<String> memberNames = new ArrayList<>();
+        List<MultipartFile> files = new ArrayList<>();
+        for (Slot slot : session.slots) {
+            // 書き込み中のリクエストが終わるのを待ってから確認する（以後の書き込みは状態が OPEN でないため断られる）
+            slot.lock.lock();
+            try {
+                if (slot.received < slot.item.getSize()) {
+                    session.state.set(State.OPEN);
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "スロット" + slot.index
+                            + "の画像が揃っていません（" + slot.received + " / " + slot.item.getSize() + "）");
+                }
+            } finally {
+                slot.lock.unlock();
+            }
+            names.add(slot.item.getItemType());
+            memberNames.add(slot.item.getMemberName());
+            files.add(slot.item.getSize() == 0 ? null : new SpooledImageFile(slot.path,
+                    slot.item.getFileName(), slot.item.getContentType(), slot.item.getSize()));
+        }
+
+        return new PreparedCommit() {
+            @Override
+            public UploadReport upload(RandomItemUploadService.ProgressListener progress) {
+                if (!session.state.compareAndSet(State.PREPARED, State.COMMITTING)) {
+                    throw new ResponseStatusException(HttpStatus.GONE, "分割アップロードのセッションは期限切れで破棄されました");
+                }
+                try {
+                    return uploadService.upload(session.editionId, names, memberNames, files, progress);
+                } finally {
+                    discard(session);
+                }
+            }
+
+            @Override
+            public void release() {
+                if (session.state.compareAndSet(State.PREPARED, State.OPEN)) {
+                    session.touch();
+                }
+            }
+        };
+    }
+
+    /**
+     * セッションを取り消し、受け取り済みの一時ファイルを削除します。
+     */
+    public void abort(String sessionId) {
+        Session session = session(sessionId);
+        if (session.state.compareAndSet(State.OPEN, State.COMMITTING)) {
+            discard(session);
+        }
+    }
+
+    /**
+     * 分割アップロードの状態を返します。
+     * * @return sessions（進行中のセッション数）/ spooledBytes（ディスクに溜まっているバイト数）を含むMap
+     */
+    public Map<String, Object> getStats() {
+        long spooled = 0;
+        for (Session session : sessions.values()) {
+            for (Slot slot : session.slots) {
+                spooled += slot.received;
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("spooledBytes", spooled);
+        stats.put("spoolDir", spoolDir.toString());
+        return stats;
+    }
+
+    // 一定時間なにも送られていないセッションを破棄する（ブラウザを閉じた場合など）。
+    // 登録の確認だけ済んで、登録処理が始まらないままのセッション（ジョブが失われた場合など）も対象
+    @Scheduled(fixedDelayString = "${upload.chunked.cleanup-interval:PT5M}",
+            initialDelayString = "${upload.chunked.cleanup-interval:PT5M}")
+    public void removeExpired() {
+        Instant now = Instant.now();
+        for (Session session : sessions.values()) {
+            if (session.expiresAt().isBefore(now) && (session.state.compareAndSet(State.OPEN, State.COMMITTING)
+                    || session.state.compareAndSet(State.PREPARED, State.COMMITTING))) {
+                log.info("期限切れの分割アップロードを破棄しました（{}）", session.id);
+                discard(session);
+            }
+        }
+    }
+
+    // アプリ停止時に一時ファイルを片付ける（セッションはメモリ上にしかないため、再起動後は再開できない）
+    @PreDestroy
+    public void shutdown() {
+        sessions.values().forEach(this::discard);
+    }
+
+    // チャンクを、ディスク上のファイルの offset の位置から書き込む
+    private void receive(Slot slot, long offset, InputStream body) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = offset;
+        try (ReadableByteChannel source = Channels.newChannel(body);
+                FileChannel channel = FileChannel.open(slot.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            while (true) {
+                buffer.clear();
+                int read = source.read(buffer);
+                if (read < 0) {
+                    break;
+                }
+                if (position + read > slot.item.getSize()) {
+                    throw badRequest("宣言したサイズ（" + slot.item.getSize() + "バイト）を超えています");
+                }
+                if (position + read - offset > maxChunkSize) {
+                    throw new ResponseStatusException(HttpStatus.CONTENT_TOO_LARGE,
+                            "1回に送れるのは " + maxChunkSize + " バイトまでです");
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                // 書き込めた分はすぐに反映し、途中で切れても続きから再開できるようにする
+                if (position > slot.received) {
+                    slot.received = position;
+                }
+            }
+        }
+    }
+
+    private Session session(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "分割アップロードのセッションが見つかりません（期限切れの可能性があります）");
+        }
+        return session;
+    }
+
+    private void discard(Session session) {
+        sessions.remove(session.id, session);
+        try {
+            FileSystemUtils.deleteRecursively(session.directory);
+        } catch (IOException e) {
+            log.warn("分割アップロードの一時ファイルを削除できませんでした（{}）: {}", session.directory, e.getMessage());
+        }
+    }
+
+    // 前回の起動時に残った一時ファイルを削除する（セッションIDの名前のフォルダだけが対象）
+    private void removeLeftovers() throws IOException {
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(spoolDir)) {
+            for (Path child : children) {
+                if (Files.isDirectory(child) && isSessionId(child.getFileName().toString())) {
+                    FileSystemUtils.deleteRecursively(child);
+                }
+            }
+        }
+    }
+
+    private static boolean isSessionId(String name) {
+        try {
+            return UUID.fromString(name).toString().equals(name);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private ChunkedUploadStatus status(Session session) {
+        List<ChunkedUploadStatus.ItemProgress> items = session.slots.stream().map(ChunkedUploadService::progress).toList();
+        boolean complete = session.slots.stream().allMatch(slot -> slot.received == slot.item.getSize());
+        return new ChunkedUploadStatus(session.id, session.editionId, maxChunkSize, session.expiresAt().toString(),
+                complete, items);
+    }
+
+    private static ChunkedUploadStatus.ItemProgress progress(Slot slot) {
+        return new ChunkedUploadStatus.ItemProgress(slot.index, slot.item.getSize(), slot.received);
+    }
+
+    private static ResponseStatusException badRequest(String message) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+    }
+
+    /**
+     * 確認済みの登録処理（prepareCommit の戻り値）。
+     */
+    public interface PreparedCommit {
+
+        /**
+         * 登録処理を実行します。最後に一時ファイルを削除します。
+         * * @throws ResponseStatusException 実行前にセッションが期限切れで破棄されていた場合は410
+         */
+        UploadReport upload(RandomItemUploadService.ProgressListener progress);
+
+        /**
+         * 登録処理を実行しないまま、セッションをチャンクを受け取れる状態に戻します（実行後は何もしません）。
+         */
+        void release();
+    }
+
+    // OPEN: チャンクを受け取れる / PREPARED: 登録の確認済みで実行待ち / COMMITTING: 登録中または破棄済み
+    private enum State { OPEN, PREPARED, COMMITTING }
+
+    // 1回の分割アップロード
+    private final class Session {
+        final String id;
+        final String editionId;
+        final Path directory;
+        final List<Slot> slots;
+        final AtomicReference<State> state = new AtomicReference<>(State.OPEN);
+        volatile Instant lastAccess = Instant.now();
+
+        Session(String id, String editionId, Path directory, List<Slot> slots) {
+            this.id = id;
+            this.editionId = editionId;
+            this.directory = directory;
+            this.slots = slots;
+        }
+
+        void touch() {
+            lastAccess = Instant.now();
+        }
+
+        Instant expiresAt() {
+            return lastAccess.plus(sessionTtl);
+        }
+    }
+
+    // 1画像分の一時ファイルと、先頭から途切れずに受け取ったバイト数
+    private static final class Slot {
+        final int index;
+        final ChunkedUploadRequest.Item item;
+        final Path path;
+        final ReentrantLock lock = new ReentrantLock();
+        volatile long received;
+
+        Slot(int index, ChunkedUploadRequest.Item item, Path path) {
+            this.index = index;
+            this.item = item;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.RandomItemsAddedEvent;
+import com.example.shinee_collection_tracker.model.StatusChangedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 所持・欲しいものフラグの変更やランダムアイテムの登録を、/api/events（Server-Sent Events）で
+ * 接続中のブラウザへ届ける配信役。
+ * * [仕組み]
+ * 1. 接続（SseEmitter）は userId ごとにまとめて保持します。サーブレットの非同期処理で待機するため、
+ *    何もイベントが無い間はリクエスト処理用のスレッドを占有しません（数千の待機接続でもスレッドは増えません）。
+ * 2. 送るイベントの組み立て（購入率の計算など）は専用の配信スレッド1本（sse-dispatch）が行い、
+ *    更新APIのスレッドは待ちません。配信待ちが events.sse.queue-capacity を超えた分は捨て、dropped として数えます。
+ * 3. 組み立てたイベントは接続ごとの送信待ち（events.sse.outbox-capacity 件まで）に積み、送信スレッド
+ *    （sse-send、events.sse.send-threads 本）が接続ごとに順番に送ります。受け取りの遅いブラウザがあっても、
+ *    待たされるのはその接続の送信だけで、他のユーザーへの配信は止まりません。
+ *    送信待ちが溢れた接続と、1回の送信が events.sse.send-timeout を超えて終わらない接続は閉じて外し（evicted）、
+ *    以後のイベントを積みません（ブラウザの EventSource は自動で再接続し、connected から受け取り直します）。
+ *    送信が止まったまま外した接続は、その送信スレッドを数から外して代わりのスレッドを足すため、
+ *    受け取りの止まったブラウザが send-threads 本を超えても、他の接続への送信は止まりません
+ *    （止まっている書き込みそのものは、サーバーの書き込みタイムアウトで失敗した時点でスレッドごと片付きます）。
+ * 4. "status" イベントには変更後の購入率（/api/stats と同じ形式）を含めるため、画面側はポーリング不要です。
+ *    購入率は、そのユーザーの接続がある時だけ配信スレッドで計算します。
+ * 5. 一定間隔（events.sse.heartbeat）でコメント行を送り、切断済みの接続を見つけて片付けます。
+ *    送信が止まったままの接続の確認も、このタイミングで行います。
+ */
+@Component
+public class CollectionEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(CollectionEventBroadcaster.class);
+
+    private final EditionStatusIndex statusIndex;
+    private final Duration timeout;
+    private final int maxConnections;
+    private final int outboxCapacity;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor dispatcher;
+    private final ThreadPoolExecutor senders;
+
+    // userId → そのユーザーの接続（タブ・端末ごとに1つ）
+    private final ConcurrentHashMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong eventIds = new AtomicLong();
+    // 送信が止まったまま外した接続の数（その送信スレッドは、送信が終わるまで send-threads の数に含めない）
+    private final AtomicInteger stalled = new AtomicInteger();
+
+    private final Counter published;
+    private final Counter dropped;
+    private final Counter evicted;
+
+    public CollectionEventBroadcaster(EditionStatusIndex statusIndex,
+            MeterRegistry meterRegistry,
+            @Value("${events.sse.timeout:PT30M}") Duration timeout,
+            @Value("${events.sse.max-connections:5000}") int maxConnections,
+            @Value("${events.sse.queue-capacity:10000}") int queueCapacity,
+            @Value("${events.sse.outbox-capacity:64}") int outboxCapacity,
+            @Value("${events.sse.send-threads:8}") int sendThreads,
+            @Value("${events.sse.send-timeout:PT10S}") Duration sendTimeout) {
+        this.statusIndex = statusIndex;
+        this.timeout = timeout;
+        this.maxConnections = maxConnections;
+        this.outboxCapacity = Math.max(1, outboxCapacity);
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory("sse-dispatch"),
+                (task, executor) -> droppedEvent());
+        // 送信の依頼は1接続につき多くても1つなので、待ち行列は接続数を超えない
+        this.senders = new ThreadPoolExecutor(Math.max(1, sendThreads), Math.max(1, sendThreads), 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory("sse-send"));
+        this.published = Counter.builder("events.sse.published").register(meterRegistry);
+        this.dropped = Counter.builder("events.sse.dropped").register(meterRegistry);
+        this.evicted = Counter.builder("events.sse.evicted").register(meterRegistry);
+        Gauge.builder("events.sse.connections", connections, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("events.sse.stalled", stalled, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * 指定ユーザーの接続を登録します。
+     * 登録直後に "connected" イベントとして現在の購入率を送ります。画面側は初回表示を /api/stats で行い、
+     * このイベントは再接続までの間に変わった分を反映するために使います。
+     * * @param userId ユーザーID
+     * @return 接続。同時接続数が上限（events.sse.max-connections）に達している場合は空
+     */
+    public Optional<SseEmitter> subscribe(String userId) {
+        return subscribe(userId, new SseEmitter(timeout.toMillis()));
+    }
+
+    // 接続を登録する（テストでは送信の遅い SseEmitter を渡す）
+    Optional<SseEmitter> subscribe(String userId, SseEmitter emitter) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return Optional.empty();
+        }
+        Subscriber subscriber = new Subscriber(userId, emitter, outboxCapacity);
+        // remove() の「空になったら外す」と競合しないよう、追加も compute の中で行う
+        subscribers.compute(userId, (k, set) -> {
+            Set<Subscriber> target = set != null ? set : ConcurrentHashMap.newKeySet();
+            target.add(subscriber);
+            return target;
+        });
+
+        // 切断・タイムアウト・送信失敗のいずれでも、接続の一覧から外す
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> remove(subscriber));
+
+        dispatch(() -> offer(subscriber, event("connected", Map.of("stats", statusIndex.snapshot(userId)))));
+        return Optional.of(emitter);
+    }
+
+    /**
+     * 所持・欲しいものフラグの変更を、そのユーザーの全接続へ送ります。
+     * 接続が無いユーザーの場合は何もしません（購入率の計算も行いません）。
+     * * @param userId     ユーザーID
+     * @param editionIds 変更されたエディションのID
+     * @param purchased  変更後の所持フラグ（変更なしなら null）
+     * @param wishlist   変更後の欲しいものフラグ（変更なしなら null）
+     */
+    public void statusChanged(String userId, List<String> editionIds, Boolean purchased, Boolean wishlist) {
+        if (!subscribers.containsKey(userId)) {
+            return;
+        }
+        List<String> ids = List.copyOf(editionIds);
+        dispatch(() -> {
+            StatusChangedEvent event = new StatusChangedEvent(ids, purchased, wishlist, statusIndex.snapshot(userId));
+            offerToUser(userId, "status", event);
+        });
+    }
+
+    /**
+     * 新しく登録されたランダムアイテムを、接続中の全員へ送ります（ランダムアイテムは全ユーザー共通）。
+     * * @param editionId 登録先の形態ID
+     * @param itemIds   登録されたアイテムのID
+     */
+    public void randomItemsAdded(String editionId, List<Long> itemIds) {
+        if (subscribers.isEmpty() || itemIds.isEmpty()) {
+            return;
+        }
+        RandomItemsAddedEvent event = new RandomItemsAddedEvent(editionId, List.copyOf(itemIds));
+        dispatch(() -> subscribers.keySet().forEach(userId -> offerToUser(userId, "random-items", event)));
+    }
+
+    // 無通信の接続がプロキシに切られないよう、また切断済みの接続を見つけるためにコメント行を送る。
+    // 送信が止まったままの接続は、ここで外す
+    @Scheduled(fixedRateString = "${events.sse.heartbeat:PT25S}",
+            initialDelayString = "${events.sse.heartbeat:PT25S}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> {
+            if (detachIfStalled(subscriber, now)) {
+                evict(subscriber, "送信が終わらない");
+            } else {
+                offer(subscriber, Outgoing.PING);
+            }
+        }));
+    }
+
+    /**
+     * 配信の状態を返します。
+     * * @return connections（接続数）/ users（接続中のユーザー数）/ queued（配信待ち）/ sending（送信待ちの接続数）/
+     *         published / dropped / evicted を含むMap
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", connections.get());
+        stats.put("users", subscribers.size());
+        stats.put("maxConnections", maxConnections);
+        stats.put("queued", dispatcher.getQueue().size());
+        stats.put("sending", senders.getQueue().size() + senders.getActiveCount() - stalled.get());
+        stats.put("stalled", stalled.get());
+        stats.put("published", (long) published.count());
+        stats.put("dropped", (long) dropped.count());
+        stats.put("evicted", (long) evicted.count());
+        return stats;
+    }
+
+    // アプリ停止時に、接続を閉じて配信スレッドを片付ける（ブラウザの EventSource は自動で再接続します）
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void dispatch(Runnable task) {
+        dispatcher.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // 購入率の計算（DB読み込み）に失敗しても、配信スレッドは止めない
+                log.warn("イベントの配信に失敗しました: {}", e.getMessage());
+            }
+        });
+    }
+
+    private Outgoing event(String name, Object data) {
+        return new Outgoing(Long.toString(eventIds.incrementAndGet()), name, data);
+    }
+
+    private void offerToUser(String userId, String name, Object data) {
+        Set<Subscriber> set = subscribers.get(userId);
+        if (set == null) {
+            return;
+        }
+        Outgoing outgoing = event(name, data);
+        for (Subscriber subscriber : set) {
+            offer(subscriber, outgoing);
+        }
+    }
+
+    // 接続の送信待ちに積み、送信スレッドに送らせる（その接続を送信中のスレッドが無ければ）
+    private void offer(Subscriber subscriber, Outgoing outgoing) {
+        if (subscriber.closed) {
+            return;
+        }
+        if (!subscriber.outbox.offer(outgoing)) {
+            evict(subscriber, "送信待ちが上限に達した");
+            return;
+        }
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.scheduled.set(false); // 停止中
+            }
+        }
+    }
+
+    // 1つの接続の送信待ちを、順番に送る（同じ接続を同時に2つのスレッドが送ることはない）
+    private void drain(Subscriber subscriber) {
+        try {
+            Outgoing outgoing;
+            while (!subscriber.closed && (outgoing = subscriber.outbox.poll()) != null) {
+                subscriber.sendingSince = System.nanoTime();
+                try {
+                    subscriber.emitter.send(outgoing.build());
+                    if (outgoing != Outgoing.PING) {
+                        published.increment();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // ブラウザ側で閉じられた接続
+                    remove(subscriber);
+                    return;
+                } finally {
+                    sendFinished(subscriber);
+                }
+            }
+            if (subscriber.closed) {
+                subscriber.emitter.complete(); // 送信中に外された接続は、送信が終わってから閉じる
+            }
+        } finally {
+            subscriber.scheduled.set(false);
+            // 送り終えてから外れるまでの間に積まれた分
+            if (!subscriber.closed && !subscriber.outbox.isEmpty()) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    // 送信が send-timeout を超えて止まっていれば、その送信スレッドを数から外し、代わりのスレッドを足す。
+    // 止まっている emitter.send は SseEmitter の書き込みロックを持ったままなので、ここから
+    // completeWithError などで閉じることはできない（このスレッドまで止まる）
+    private boolean detachIfStalled(Subscriber subscriber, long now) {
+        synchronized (subscriber) {
+            long since = subscriber.sendingSince;
+            if (since == 0 || now - since <= sendTimeoutNanos || subscriber.detached) {
+                return false;
+            }
+            subscriber.detached = true;
+        }
+        stalled.incrementAndGet();
+        resizeSenders(1);
+        return true;
+    }
+
+    // 送信が終わった（止まっていた送信なら、足したスレッドの分を戻す）
+    private void sendFinished(Subscriber subscriber) {
+        synchronized (subscriber) {
+            subscriber.sendingSince = 0;
+            if (!subscriber.detached) {
+                return;
+            }
+        }
+        stalled.decrementAndGet();
+        resizeSenders(-1);
+    }
+
+    // 送信スレッドの数を増減する。増やした時は、待ち行列の送信がすぐに新しいスレッドで始まる
+    private synchronized void resizeSenders(int delta) {
+        if (delta > 0) {
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+        } else {
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+        }
+    }
+
+    // 受け取りの遅い接続を外す。送信中でなければここで閉じ、送信中なら送信スレッドが終わった後に閉じる
+    private void evict(Subscriber subscriber, String reason) {
+        if (subscriber.closed) {
+            return;
+        }
+        subscriber.closed = true;
+        subscriber.outbox.clear();
+        remove(subscriber);
+        evicted.increment();
+        log.info("受け取りの遅い接続を外しました（{}: {}）", subscriber.userId, reason);
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        Set<Subscriber> set = subscribers.get(subscriber.userId);
+        if (set != null && set.remove(subscriber)) {
+            connections.decrementAndGet();
+            // 最後の接続が切れたユーザーは一覧から外す（その間に増えた接続は残す）
+            subscribers.computeIfPresent(subscriber.userId, (k, current) -> current.isEmpty() ? null : current);
+        }
+    }
+
+    private void droppedEvent() {
+        dropped.increment();
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // 送るイベント。SseEventBuilder は送ると中身が書き換わるため、接続ごとに送る直前に組み立てる
+    private record Outgoing(String id, String name, Object data) {
+
+        // コメント行（published には数えない）
+        static final Outgoing PING = new Outgoing(null, null, null);
+
+        SseEmitter.SseEventBuilder build() {
+            if (this == PING) {
+                return SseEmitter.event().comment("ping");
+            }
+            return SseEmitter.event().id(id).name(name).data(data);
+        }
+    }
+
+    // 1つの接続と、その送信待ち
+    private static final class Subscriber {
+        final String userId;
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<Outgoing> outbox;
+        // 送信スレッドに送らせている間は true
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // 送信を始めた時刻（System.nanoTime。送信中でなければ 0）
+        volatile long sendingSince;
+        // 送信が止まったまま外され、その送信スレッドを send-threads の数から外した
+        boolean detached;
+        volatile boolean closed;
+
+        Subscriber(String userId, SseEmitter emitter, int outboxCapacity) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.outbox = new ArrayBlockingQueue<>(outboxCapacity);
+        }
+    }
+}
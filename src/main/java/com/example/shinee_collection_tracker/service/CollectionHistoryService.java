@@ -0,0 +1,481 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.CollectionHistory;
+import com.example.shinee_collection_tracker.model.Discography;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 所持・欲しいもののフラグが切り替わった履歴を記録し、購入数・支出の推移（月別・アーティスト別・国別）を返すサービス。
+ * * [仕組み]
+ * 1. 切り替えは追記のみの collection_events に、その時点のアーティスト・国・価格・通貨と一緒に記録します。
+ *    同じ値での送り直し（既に所持しているものを所持にする等）は記録しません（EditionStatusIndex.switchPurchased で判定）。
+ * 2. 記録と同時に、月・集計軸（total / artist / country）・通貨ごとの増減を collection_rollups に足し込みます。
+ *    /api/stats/history はこの集計だけを読むため、履歴が何年分に増えても、読む行数は「月数 × アーティスト・国の数」で済みます。
+ * 3. 記録はリクエストを待たせないようメモリに溜め、一定間隔（collection-history.flush-interval）で
+ *    1つのトランザクションにまとめて書き込みます（同じ集計行への増減は、書き込む前に足し合わせます）。
+ * 4. 所持にしたものは、その時点の価格・通貨・アーティスト・国を collection_holdings に控えておきます。
+ *    所持を外した場合は、外した月の購入数・支出から、控えておいた価格を差し引きます（後でカタログの価格が
+ *    直されても、累計は「今持っているものを買った時の価格の合計」と一致します）。控えの無い所持は、
+ *    記録を始める前のものとして集計を変えません。
+ * 5. 記録を始める前からの所持・欲しいものは、V7 のマイグレーションで、最後に更新された月の分として
+ *    collection_rollups / collection_holdings に積んであります（開始時点の残高）。
+ */
+@Service
+public class CollectionHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(CollectionHistoryService.class);
+
+    private static final String INSERT_EVENT_SQL = "INSERT INTO collection_events "
+            + "(user_id, edition_id, kind, new_value, artist, country, price, currency, occurred_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // 既にある集計行には、今回の増減を足し込む
+    private static final String UPSERT_ROLLUP_SQL = "INSERT INTO collection_rollups AS r "
+            + "(user_id, dimension, dim_key, activity_month, currency, purchased, wishlisted, spend) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (user_id, dimension, dim_key, activity_month, currency) DO UPDATE SET "
+            + "purchased = r.purchased + EXCLUDED.purchased, "
+            + "wishlisted = r.wishlisted + EXCLUDED.wishlisted, "
+            + "spend = r.spend + EXCLUDED.spend";
+
+    private static final String UPSERT_HOLDING_SQL = "INSERT INTO collection_holdings "
+            + "(user_id, edition_id, artist, country, price, currency) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (user_id, edition_id) DO UPDATE SET artist = EXCLUDED.artist, country = EXCLUDED.country, "
+            + "price = EXCLUDED.price, currency = EXCLUDED.currency";
+
+    private static final String DELETE_HOLDING_SQL = "DELETE FROM collection_holdings WHERE user_id = ? AND edition_id = ?";
+
+    private static final String SELECT_HOLDINGS_SQL = "SELECT edition_id, artist, country, price, currency "
+            + "FROM collection_holdings WHERE user_id = ? AND edition_id IN ";
+
+    // 控えを読む時に、1回の IN に並べるエディション数の上限
+    private static final int HOLDINGS_CHUNK = 500;
+
+    private static final String SELECT_ROLLUPS_SQL = "SELECT dim_key, activity_month, currency, purchased, wishlisted, spend "
+            + "FROM collection_rollups WHERE user_id = ? AND dimension = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DiscographyCatalogCache catalogCache;
+    private final boolean enabled;
+    private final ZoneId zone;
+
+    // まだDBに書いていない切り替え（上限を超えた分は捨てて dropped に数える）
+    private final LinkedBlockingDeque<Event> pending;
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong unmatchedRemovals = new AtomicLong(); // 控えの無い所持を外した数（集計は変えていない）
+
+    public CollectionHistoryService(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            DiscographyCatalogCache catalogCache,
+            @Value("${collection-history.enabled:true}") boolean enabled,
+            @Value("${collection-history.zone:Asia/Tokyo}") ZoneId zone,
+            @Value("${collection-history.max-pending:100000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.catalogCache = catalogCache;
+        this.enabled = enabled;
+        this.zone = zone;
+        this.pending = new LinkedBlockingDeque<>(Math.max(1, maxPending));
+    }
+
+    // 所持フラグの切り替えを記録する（DBへの書き込みは後でまとめて行う）
+    public void recordPurchase(String userId, String editionId, boolean isPurchased) {
+        record(userId, editionId, Kind.PURCHASE, isPurchased);
+    }
+
+    // 欲しいものフラグの切り替えを記録する
+    public void recordWishlist(String userId, String editionId, boolean isWishlist) {
+        record(userId, editionId, Kind.WISHLIST, isWishlist);
+    }
+
+    /**
+     * 溜まっている切り替えを、履歴と集計にまとめて書き込みます。
+     * 書き込めなかった場合は、次回に再試行します（履歴と集計は同じトランザクションなので、片方だけ反映されることはありません）。
+     */
+    @Scheduled(fixedDelayString = "${collection-history.flush-interval:PT1S}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Event> batch = new ArrayList<>(pending.size());
+        pending.drainTo(batch);
+
+        try {
+            int unmatched = transactionTemplate.execute(status -> write(batch));
+            written.addAndGet(batch.size());
+            unmatchedRemovals.addAndGet(unmatched);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            // 先頭に戻し、記録の順番を保ったまま次回に再試行する
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                if (!pending.offerFirst(batch.get(i))) {
+                    dropped.incrementAndGet();
+                }
+            }
+            log.warn("購入履歴の書き込みに失敗しました。{}件を次回に再試行します: {}", batch.size(), e.getMessage());
+        } finally {
+            flushes.incrementAndGet();
+        }
+    }
+
+    // アプリ停止時に、残っている切り替えを書き込む
+    @PreDestroy
+    public void drain() {
+        if (!pending.isEmpty()) {
+            log.info("アプリ停止前に購入履歴の残り{}件を書き込みます", pending.size());
+            flush();
+        }
+    }
+
+    /**
+     * 指定ユーザーの購入・欲しいもの・支出の推移を、集計（collection_rollups）から作ります。
+     * 直前の切り替えも含めるため、溜まっている分を書き込んでから読みます。
+     * * @param userId  ユーザーID
+     * @param groupBy month（月ごと）/ artist（アーティストごと）/ country（国ごと）
+     * @param artist  groupBy=month の場合に、このアーティストの分だけに絞る（null 可）
+     * @param country groupBy=month の場合に、この国の分だけに絞る（null 可。artist と同時には指定できません）
+     * @param from    集計期間の最初の月（YYYY-MM。null なら記録の最初から）
+     * @param to      集計期間の最後の月（YYYY-MM。null なら最新まで）
+     */
+    public CollectionHistory history(String userId, String groupBy, String artist, String country,
+            String from, String to) {
+        String group = groupBy == null ? "month" : groupBy;
+        if (!group.equals("month") && !group.equals("artist") && !group.equals("country")) {
+            throw badRequest("groupBy は month / artist / country のいずれかを指定してください");
+        }
+        if (artist != null && country != null) {
+            throw badRequest("artist と country は同時に指定できません");
+        }
+        if (!group.equals("month") && (artist != null || country != null)) {
+            throw badRequest("artist / country での絞り込みは groupBy=month の場合のみ指定できます");
+        }
+        YearMonth fromMonth = parseMonth("from", from);
+        YearMonth toMonth = parseMonth("to", to);
+        if (fromMonth != null && toMonth != null && fromMonth.isAfter(toMonth)) {
+            throw badRequest("from は to 以前の月を指定してください");
+        }
+
+        flush();
+        List<CollectionHistory.Bucket> buckets;
+        if (group.equals("month")) {
+            String dimension = artist != null ? "artist" : country != null ? "country" : "total";
+            String dimKey = artist != null ? artist : country != null ? country : "";
+            buckets = byMonth(queryRollups(userId, dimension, dimKey), fromMonth, toMonth);
+        } else {
+            buckets = byKey(queryRollups(userId, group, null), fromMonth, toMonth);
+        }
+        return new CollectionHistory(group, artist, country, from, to, buckets);
+    }
+
+    /**
+     * 履歴の書き込み状況を返します。
+     * * @return queueDepth（未書き込み件数）/ recorded / written / dropped / flushes / failures /
+     *         unmatchedRemovals（控えが無く、集計から差し引けなかった所持の解除）を含むMap
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("zone", zone.getId());
+        stats.put("queueDepth", pending.size());
+        stats.put("recorded", recorded.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("flushes", flushes.get());
+        stats.put("failures", failures.get());
+        stats.put("unmatchedRemovals", unmatchedRemovals.get());
+        return stats;
+    }
+
+    private void record(String userId, String editionId, Kind kind, boolean value) {
+        if (!enabled) {
+            return;
+        }
+        // 価格などは、切り替えた時点のカタログの値を写しておく（後でカタログが直されても履歴は変わらない）
+        Optional<Discography> edition = catalogCache.findEdition(editionId);
+        if (edition.isEmpty()) {
+            return; // 存在しないエディション（user_edition_status にも書き込まれない）
+        }
+        Discography d = edition.get();
+        Event event = new Event(userId, editionId, kind, value, d.getArtist(), d.getCountry(), d.getPrice(),
+                d.getCurrency(), OffsetDateTime.now(zone));
+        recorded.incrementAndGet();
+        if (!pending.offerLast(event)) {
+            dropped.incrementAndGet();
+            log.warn("購入履歴の未書き込み分が上限を超えたため、記録を捨てました（{} / {}）", userId, editionId);
+        }
+    }
+
+    // 履歴・集計・所持の控えを書き込む（トランザクションの中で呼ぶ）。戻り値は控えの無い所持を外した数
+    private int write(List<Event> batch) {
+        int unmatched = 0;
+        Map<HoldingKey, Holding> holdings = loadHoldings(batch);
+        Map<HoldingKey, Holding> changed = new LinkedHashMap<>(); // 値が null なら控えを消す
+        List<Object[]> events = new ArrayList<>(batch.size());
+        Map<RollupKey, long[]> deltas = new LinkedHashMap<>();
+        for (Event event : batch) {
+            Event resolved = event;
+            if (event.kind == Kind.PURCHASE) {
+                HoldingKey key = new HoldingKey(event.userId, event.editionId);
+                if (event.value) {
+                    Holding holding = new Holding(event.artist, event.country, event.price, event.currency);
+                    holdings.put(key, holding);
+                    changed.put(key, holding);
+                } else {
+                    // 外した分は、所持にした時点の内容で差し引く
+                    Holding holding = holdings.remove(key);
+                    changed.put(key, null);
+                    resolved = holding == null ? null : new Event(event.userId, event.editionId, event.kind, false,
+                            holding.artist, holding.country, holding.price, holding.currency, event.occurredAt);
+                }
+            }
+            if (resolved == null) {
+                // 控えの無い所持（記録を始める前のもの）を外した場合は、履歴だけ残して集計は変えない
+                unmatched++;
+                log.debug("所持の控えが無いため、集計から差し引かずに履歴だけ記録します（{} / {}）",
+                        event.userId, event.editionId);
+                events.add(new Object[] { event.userId, event.editionId, event.kind.name(), event.value,
+                        event.artist, event.country, null, event.currency, event.occurredAt });
+                continue;
+            }
+            events.add(new Object[] { resolved.userId, resolved.editionId, resolved.kind.name(), resolved.value,
+                    resolved.artist, resolved.country, resolved.price, resolved.currency, resolved.occurredAt });
+            addDeltas(deltas, resolved);
+        }
+        List<Object[]> rollups = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> rollups.add(new Object[] { key.userId, key.dimension, key.dimKey, key.month,
+                key.currency, delta[0], delta[1], delta[2] }));
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        changed.forEach((key, holding) -> {
+            if (holding == null) {
+                deletes.add(new Object[] { key.userId, key.editionId });
+            } else {
+                upserts.add(new Object[] { key.userId, key.editionId, holding.artist, holding.country, holding.price,
+                        holding.currency });
+            }
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, events);
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP_SQL, rollups);
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_HOLDING_SQL, upserts);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_HOLDING_SQL, deletes);
+        }
+        return unmatched;
+    }
+
+    // このバッチで所持を外すエディションの控えを、ユーザーごとにまとめて読む
+    private Map<HoldingKey, Holding> loadHoldings(List<Event> batch) {
+        Map<String, Set<String>> removed = new LinkedHashMap<>();
+        for (Event event : batch) {
+            if (event.kind == Kind.PURCHASE && !event.value) {
+                removed.computeIfAbsent(event.userId, k -> new LinkedHashSet<>()).add(event.editionId);
+            }
+        }
+        Map<HoldingKey, Holding> holdings = new HashMap<>();
+        removed.forEach((userId, editionIds) -> {
+            List<String> ids = new ArrayList<>(editionIds);
+            for (int from = 0; from < ids.size(); from += HOLDINGS_CHUNK) {
+                List<String> chunk = ids.subList(from, Math.min(ids.size(), from + HOLDINGS_CHUNK));
+                Object[] args = new Object[chunk.size() + 1];
+                args[0] = userId;
+                for (int i = 0; i < chunk.size(); i++) {
+                    args[i + 1] = chunk.get(i);
+                }
+                String sql = SELECT_HOLDINGS_SQL + "(" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                jdbcTemplate.query(sql, rs -> {
+                    holdings.put(new HoldingKey(userId, rs.getString("edition_id")), new Holding(rs.getString("artist"),
+                            rs.getString("country"), rs.getObject("price", Integer.class), rs.getString("currency")));
+                }, args);
+            }
+        });
+        return holdings;
+    }
+
+    // 1件の切り替えを、total・アーティスト・国の3つの集計行の増減（購入数・欲しいもの数・支出）に足す
+    private void addDeltas(Map<RollupKey, long[]> deltas, Event event) {
+        String month = YearMonth.from(event.occurredAt).toString();
+        String currency = event.currency == null ? "" : event.currency;
+        int sign = event.value ? 1 : -1;
+        long[] delta = event.kind == Kind.PURCHASE
+                ? new long[] { sign, 0, event.price == null ? 0 : (long) sign * event.price }
+                : new long[] { 0, sign, 0 };
+        for (RollupKey key : List.of(
+                new RollupKey(event.userId, "total", "", month, currency),
+                new RollupKey(event.userId, "artist", nullToEmpty(event.artist), month, currency),
+                new RollupKey(event.userId, "country", nullToEmpty(event.country), month, currency))) {
+            long[] sum = deltas.computeIfAbsent(key, k -> new long[3]);
+            for (int i = 0; i < 3; i++) {
+                sum[i] += delta[i];
+            }
+        }
+    }
+
+    private List<Rollup> queryRollups(String userId, String dimension, String dimKey) {
+        String sql = dimKey == null ? SELECT_ROLLUPS_SQL : SELECT_ROLLUPS_SQL + " AND dim_key = ?";
+        Object[] args = dimKey == null ? new Object[] { userId, dimension } : new Object[] { userId, dimension, dimKey };
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Rollup(rs.getString("dim_key"), rs.getString("activity_month"),
+                rs.getString("currency"), rs.getLong("purchased"), rs.getLong("wishlisted"), rs.getLong("spend")), args);
+    }
+
+    // 月ごとのバケット。記録の無い月も 0 で埋め、累計は期間より前の月の分も含める
+    private List<CollectionHistory.Bucket> byMonth(List<Rollup> rows, YearMonth from, YearMonth to) {
+        TreeMap<YearMonth, Totals> months = new TreeMap<>();
+        for (Rollup row : rows) {
+            months.computeIfAbsent(YearMonth.parse(row.month), k -> new Totals()).add(row);
+        }
+        if (months.isEmpty()) {
+            return List.of();
+        }
+        // 空の月を埋める範囲は、記録のある月から今月までに限る（極端な from / to で巨大な配列を作らない）
+        YearMonth first = months.firstKey();
+        YearMonth last = months.lastKey();
+        YearMonth start = from == null || from.isBefore(first) ? first : from;
+        YearMonth end = to == null ? last : min(to, max(last, YearMonth.now(zone)));
+
+        List<CollectionHistory.Bucket> buckets = new ArrayList<>();
+        Totals cumulative = new Totals();
+        for (Totals totals : months.headMap(start).values()) {
+            cumulative.add(totals);
+        }
+        for (YearMonth month = start; !month.isAfter(end); month = month.plusMonths(1)) {
+            Totals totals = months.getOrDefault(month, new Totals());
+            cumulative.add(totals);
+            buckets.add(totals.toBucket(month.toString(), cumulative));
+        }
+        return buckets;
+    }
+
+    // アーティスト・国ごとのバケット。期間内の増減と、to までの累計
+    private static List<CollectionHistory.Bucket> byKey(List<Rollup> rows, YearMonth from, YearMonth to) {
+        TreeMap<String, Totals> period = new TreeMap<>();
+        Map<String, Totals> cumulative = new LinkedHashMap<>();
+        for (Rollup row : rows) {
+            YearMonth month = YearMonth.parse(row.month);
+            if (to != null && month.isAfter(to)) {
+                continue;
+            }
+            cumulative.computeIfAbsent(row.key, k -> new Totals()).add(row);
+            Totals inPeriod = period.computeIfAbsent(row.key, k -> new Totals());
+            if (from == null || !month.isBefore(from)) {
+                inPeriod.add(row);
+            }
+        }
+        List<CollectionHistory.Bucket> buckets = new ArrayList<>(period.size());
+        period.forEach((key, totals) -> buckets.add(totals.toBucket(key, cumulative.get(key))));
+        return buckets;
+    }
+
+    private static YearMonth parseMonth(String name, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(value);
+        } catch (DateTimeParseException e) {
+            throw badRequest(name + " は YYYY-MM 形式で指定してください: " + value);
+        }
+    }
+
+    private static YearMonth min(YearMonth a, YearMonth b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static YearMonth max(YearMonth a, YearMonth b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static ResponseStatusException badRequest(String message) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+    }
+
+    private enum Kind { PURCHASE, WISHLIST }
+
+    // 1件の切り替え
+    private record Event(String userId, String editionId, Kind kind, boolean value, String artist, String country,
+            Integer price, String currency, OffsetDateTime occurredAt) {
+    }
+
+    // collection_holdings の主キー
+    private record HoldingKey(String userId, String editionId) {
+    }
+
+    // 所持にした時点のアーティスト・国・価格・通貨
+    private record Holding(String artist, String country, Integer price, String currency) {
+    }
+
+    // collection_rollups の主キー
+    private record RollupKey(String userId, String dimension, String dimKey, String month, String currency) {
+    }
+
+    // collection_rollups の1行（通貨が空の行は、支出には数えない）
+    record Rollup(String key, String month, String currency, long purchased, long wishlisted, long spend) {
+    }
+
+    // バケット1つ分の合計（支出は通貨ごと）
+    private static final class Totals {
+        long purchased;
+        long wishlisted;
+        final Map<String, Long> spend = new TreeMap<>();
+
+        void add(Rollup row) {
+            purchased += row.purchased;
+            wishlisted += row.wishlisted;
+            if (!row.currency.isEmpty()) {
+                spend.merge(row.currency, row.spend, Long::sum);
+            }
+        }
+
+        void add(Totals other) {
+            purchased += other.purchased;
+            wishlisted += other.wishlisted;
+            other.spend.forEach((currency, amount) -> spend.merge(currency, amount, Long::sum));
+        }
+
+        CollectionHistory.Bucket toBucket(String key, Totals cumulative) {
+            return new CollectionHistory.Bucket(key, purchased, wishlisted, new TreeMap<>(spend),
+                    cumulative.purchased, cumulative.wishlisted, new TreeMap<>(cumulative.spend));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.shinee_collection_tracker.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV（RFC 4180）を1行ずつ読み出す、最小限のストリーム読み取り。
+ * ファイル全体をメモリに読み込まず、曲目リストのように「"」で囲まれた改行入りの値も1つの項目として扱います。
+ */
+final class CsvRowReader {
+
+    private final Reader reader;
+    private int peeked = -2;
+    private int line = 1;
+    private int rowStartLine = 1;
+
+    CsvRowReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 次の1行を読み出します。
+     * * @return 項目のリスト。ファイルの終わりなら null
+     * @throws MalformedRowException 「"」が閉じられないままファイルが終わった場合（残りはすべてその行の中身になるため、続きは読めません）
+     */
+    List<String> readRow() throws IOException {
+        int c = next();
+        if (c == '﻿' && line == 1) {
+            c = next(); // Excel が付ける BOM は読み飛ばす
+        }
+        if (c == -1) {
+            return null;
+        }
+        rowStartLine = line;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new MalformedRowException(rowStartLine, "「\"」が閉じられていません");
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        next();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r' && peek() == '\n') {
+                    next();
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = next();
+        }
+    }
+
+    // 直前に readRow() で読んだ行が始まった行番号（1始まり。引用符の中の改行も数える）
+    int rowStartLine() {
+        return rowStartLine;
+    }
+
+    /**
+     * CSVとして読めない行。行番号（rowStartLine と同じ数え方）を持ちます。
+     */
+    static final class MalformedRowException extends IOException {
+        private final int line;
+
+        MalformedRowException(int line, String message) {
+            super(message);
+            this.line = line;
+        }
+
+        int line() {
+            return line;
+        }
+    }
+
+    private int next() throws IOException {
+        int c;
+        if (peeked != -2) {
+            c = peeked;
+            peeked = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+}
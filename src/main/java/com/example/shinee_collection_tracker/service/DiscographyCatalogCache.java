@@ -0,0 +1,174 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ディスコグラフィ（v_discography）全体をメモリ上に保持する読み取りキャッシュ。
+ * * [仕組み]
+ * 1. 初回アクセス時、またはTTL（有効期限）切れの時にだけDBから全件を読み込みます（read-through）。
+ * 2. 全ユーザー共通のカタログとして扱い、所持・欲しいものフラグはここでは持ちません。
+ *    （ユーザーごとのフラグは EditionStatusIndex が持ち、DiscographyService が返却時に重ねます）
+ * 3. 件数が上限（max-editions）を超える場合はメモリを守るため保持せず、毎回DBから取得します。
+ * 4. ヒット数・ミス数を数えており、getStats() で確認できます。
+ * * [スレッド安全性]
+ * 読み込み済みの一覧は Snapshot としてまとめて volatile 参照で公開し、以後は書き換えないため、
+ * 読み取り側でロックは不要です。
+ */
+@Component
+public class DiscographyCatalogCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DiscographyCatalogCache.class);
+
+    private final DiscographyRepository repository;
+    private final Duration ttl;
+    private final int maxEditions;
+
+    private volatile Snapshot snapshot;
+
+    // 読み込み中に invalidate() が呼ばれたかを検知するためのバージョン
+    private final AtomicLong writeVersion = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DiscographyCatalogCache(DiscographyRepository repository,
+            @Value("${catalog.cache.ttl:PT10M}") Duration ttl,
+            @Value("${catalog.cache.max-editions:20000}") int maxEditions) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.maxEditions = maxEditions;
+    }
+
+    /**
+     * キャッシュ済みのディスコグラフィ全件を、findAllCustomOrder と同じ並び順で返します。
+     * キャッシュが空または期限切れの場合はDBから読み込み直します。
+     */
+    public List<Discography> getCatalog() {
+        Snapshot current = snapshot;
+        if (current != null && !current.isExpired(ttl)) {
+            hits.incrementAndGet();
+            return current.toList();
+        }
+        misses.incrementAndGet();
+        return load().toList();
+    }
+
+    /**
+     * 指定エディションをキャッシュから探します。
+     * キャッシュが空または期限切れの場合は、全件を読み込んでから探します。
+     */
+    public Optional<Discography> findEdition(String editionId) {
+        Snapshot current = snapshot;
+        if (current == null || current.isExpired(ttl)) {
+            misses.incrementAndGet();
+            current = load();
+        } else {
+            hits.incrementAndGet();
+        }
+        return current.find(editionId);
+    }
+
+    // カタログ自体（タイトルや曲目など）が変わった時に、次回アクセスで全件を読み込み直させます
+    public void invalidate() {
+        writeVersion.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * キャッシュの利用状況を返します。
+     * * @return hits / misses / hitRate / size / ageSeconds を含むMap
+     */
+    public Map<String, Object> getStats() {
+        long h = hits.get();
+        long m = misses.get();
+        Snapshot current = snapshot;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRate", (h + m) == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("size", current == null ? 0 : current.editions.size());
+        stats.put("ageSeconds", current == null ? null : current.age().toSeconds());
+        stats.put("ttlSeconds", ttl.toSeconds());
+        stats.put("maxEditions", maxEditions);
+        return stats;
+    }
+
+    // 同時に複数のリクエストが期限切れを検知しても、DBへの問い合わせは1回にまとめる
+    private synchronized Snapshot load() {
+        Snapshot current = snapshot;
+        if (current != null && !current.isExpired(ttl)) {
+            return current;
+        }
+
+        long versionBefore = writeVersion.get();
+        Snapshot loaded = new Snapshot(repository.findAllCustomOrder());
+
+        if (loaded.editions.size() > maxEditions) {
+            log.warn("ディスコグラフィ件数({})がキャッシュ上限({})を超えたため、キャッシュせずに返します",
+                    loaded.editions.size(), maxEditions);
+            snapshot = null;
+            return loaded;
+        }
+
+        // 読み込み中にカタログが変更された場合、その変更を取りこぼしている可能性があるため
+        // 今回の結果は返しつつ、次回アクセスで読み込み直す
+        if (writeVersion.get() != versionBefore) {
+            snapshot = null;
+            return loaded;
+        }
+
+        snapshot = loaded;
+        return loaded;
+    }
+
+    /**
+     * ある時点で読み込んだディスコグラフィ一覧と、editionId → 位置 の索引。
+     */
+    private static final class Snapshot {
+        final List<Discography> editions;
+        final Map<String, Integer> positions;
+        final long loadedAtNanos = System.nanoTime();
+
+        Snapshot(List<Discography> rows) {
+            this.editions = List.copyOf(rows);
+            Map<String, Integer> index = new HashMap<>(rows.size() * 2);
+            for (int i = 0; i < rows.size(); i++) {
+                index.put(rows.get(i).getEditionId(), i);
+            }
+            this.positions = Map.copyOf(index);
+        }
+
+        boolean isExpired(Duration ttl) {
+            return age().compareTo(ttl) > 0;
+        }
+
+        Duration age() {
+            return Duration.ofNanos(System.nanoTime() - loadedAtNanos);
+        }
+
+        Optional<Discography> find(String editionId) {
+            Integer index = positions.get(editionId);
+            return index == null ? Optional.empty() : Optional.of(editions.get(index));
+        }
+
+        List<Discography> toList() {
+            return new ArrayList<>(editions);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ディスコグラフィ全件のJSONを、あらかじめ作って（gzip圧縮も済ませて）保持しておくスナップショット。
+ * * [仕組み]
+ * 1. 起動直後と、一定間隔（catalog.snapshot.refresh-interval）ごとに v_discography から作り直します。
+ *    カタログを書き換えた場合は rebuild() を呼ぶと、すぐに作り直されます。
+ * 2. JSONの内容からハッシュ値（version）を計算し、ETag として使います。
+ *    作り直しても内容が同じなら version は変わらないため、ブラウザのキャッシュはそのまま使えます。
+ * 3. 所持・欲しいものフラグはユーザー操作で頻繁に変わるため、スナップショットには含めません。
+ *    JSON配列の並び順（エディションの番号）をキーにしたビット列として、別途返します。
+ * * これにより /api/shinee/discography は、リクエストのたびにJSON変換・圧縮をせず、保持したバイト列を返すだけになります。
+ */
+@Component
+public class DiscographyCatalogSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(DiscographyCatalogSnapshot.class);
+
+    private final DiscographyRepository repository;
+    private final JsonMapper jsonMapper;
+    private final boolean enabled;
+
+    private volatile Snapshot snapshot;
+
+    public DiscographyCatalogSnapshot(DiscographyRepository repository,
+            JsonMapper jsonMapper,
+            @Value("${catalog.snapshot.enabled:true}") boolean enabled) {
+        this.repository = repository;
+        // フラグ項目（purchased / wishlist）だけを出力しない設定を、アプリ共通のJSON設定に追加する
+        this.jsonMapper = jsonMapper.rebuild().addMixIn(Discography.class, WithoutStatusFlags.class).build();
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 現在のスナップショットを返します。まだ作られていない場合は、ここで作ります。
+     */
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        return current != null ? current : rebuild();
+    }
+
+    /**
+     * v_discography を読み込み直して、スナップショットを作り直します。
+     * 内容が前回と同じ場合は、前回のスナップショットをそのまま使い続けます。
+     */
+    public synchronized Snapshot rebuild() {
+        List<Discography> rows = repository.findAllCustomOrder();
+        byte[] json = jsonMapper.writeValueAsBytes(rows);
+        String version = DigestUtils.md5DigestAsHex(json);
+
+        Snapshot current = snapshot;
+        if (current != null && current.version().equals(version)) {
+            return current;
+        }
+
+        Map<String, Integer> positions = new HashMap<>(rows.size() * 2);
+        for (int i = 0; i < rows.size(); i++) {
+            positions.put(rows.get(i).getEditionId(), i);
+        }
+        Snapshot built = new Snapshot(version, json, gzip(json), Map.copyOf(positions));
+        snapshot = built;
+        log.info("カタログのスナップショットを作成しました（{}件, JSON {}バイト → gzip {}バイト, version={}）",
+                rows.size(), json.length, built.gzip().length, version);
+        return built;
+    }
+
+    // 起動完了後に作っておき、最初のリクエストを待たせないようにする
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refreshQuietly();
+    }
+
+    // 手作業でのDB修正などにも追従できるよう、定期的に作り直す（内容が同じなら version は変わらない）
+    @Scheduled(fixedDelayString = "${catalog.snapshot.refresh-interval:PT10M}",
+            initialDelayString = "${catalog.snapshot.refresh-interval:PT10M}")
+    public void scheduledRefresh() {
+        refreshQuietly();
+    }
+
+    private void refreshQuietly() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // DBに繋がらない場合でも、次回の実行（または最初のリクエスト）で作り直せばよいのでログだけ残す
+            log.warn("カタログのスナップショットを作成できませんでした: {}", e.getMessage());
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        // 圧縮は作成時の1回だけなので、時間がかかっても最も小さくなる設定にする
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * ある時点のカタログのJSON（未圧縮・gzip）と、editionId → JSON配列内の位置 の索引。
+     * * @param version   JSONの内容のハッシュ値（ETag として使用）
+     * @param json      UTF-8 のJSONバイト列
+     * @param gzip      json を gzip 圧縮したもの
+     * @param positions editionId → 位置（フラグのビット列の番号と同じ）
+     */
+    public record Snapshot(String version, byte[] json, byte[] gzip, Map<String, Integer> positions) {
+
+        public int size() {
+            return positions.size();
+        }
+    }
+
+    // スナップショットのJSONから所持・欲しいものフラグを除くための設定（Jackson の MixIn）
+    @JsonIgnoreProperties({ "purchased", "wishlist" })
+    private abstract static class WithoutStatusFlags {
+    }
+}
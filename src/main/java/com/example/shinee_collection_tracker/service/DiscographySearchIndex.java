@@ -0,0 +1,433 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.model.SearchHit;
+import com.example.shinee_collection_tracker.model.SearchResult;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * タイトル・サブタイトル・形態名・曲目・特典を対象にした、メモリ上の全文検索索引（/api/search）。
+ * * [仕組み]
+ * 1. カタログキャッシュ（DiscographyCatalogCache）の全件から、1文字・2文字の n-gram → エディション番号 の
+ *    転置索引を作ります。単語の区切りが無い日本語・韓国語でも、文字列の途中から一致させられます。
+ * 2. 検索時は、入力を空白で区切った語ごとに n-gram の索引を突き合わせて候補を絞り、
+ *    最後に実際の文字列で一致を確かめてからスコアを付けます（n-gram の偶然の一致を除くため）。
+ * 3. 比較の前に、大文字 → 小文字、全角英数記号 → 半角、カタカナ → ひらがな にそろえます。
+ *    どれも1文字 → 1文字の変換なので、一致位置（highlights）は元の文字列の位置としてそのまま使えます。
+ * 4. 検索時にDBへは問い合わせません。カタログの作り直し（refreshCatalog）と、
+ *    一定間隔（search.index.refresh-interval）の確認で索引を作り直します。
+ * * [スレッド安全性]
+ * 作った索引は Index としてまとめて volatile 参照で公開し、以後は書き換えないため、検索側でロックは不要です。
+ */
+@Component
+public class DiscographySearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(DiscographySearchIndex.class);
+
+    // 検索対象の項目と、その項目で一致した時の重み（タイトルでの一致を最も高く評価する。重みの大きい順に並べること）
+    private static final List<Field> FIELDS = List.of(
+            new Field("title", Discography::getTitle, 5.0),
+            new Field("titleSub", Discography::getTitleSub, 3.0),
+            new Field("displayName", Discography::getDisplayName, 3.0),
+            new Field("benefit", Discography::getBenefit, 1.0),
+            new Field("tracklist", Discography::getTracklist, 1.0));
+
+    // 1項目あたりに返す一致位置の上限（曲目に同じ語が何度も出る場合の肥大化を防ぐ）
+    private static final int MAX_HIGHLIGHTS_PER_FIELD = 5;
+    // 1回の検索で扱う語数の上限
+    private static final int MAX_TERMS = 8;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    // 1項目で取れる点数の上限（重み × (1 + 前方一致 1.0 + 完全一致 1.0 + 一致部分の割合 1.0)）
+    private static final double MAX_FIELD_FACTOR = 4.0;
+
+    private final DiscographyCatalogCache catalogCache;
+    private final int maxPageSize;
+    private final int maxQueryLength;
+
+    private volatile Index index;
+
+    public DiscographySearchIndex(DiscographyCatalogCache catalogCache,
+            @Value("${search.max-page-size:50}") int maxPageSize,
+            @Value("${search.max-query-length:100}") int maxQueryLength) {
+        this.catalogCache = catalogCache;
+        this.maxPageSize = maxPageSize;
+        this.maxQueryLength = maxQueryLength;
+    }
+
+    /**
+     * キーワードに一致するエディションを、スコアの高い順に1ページ分返します。
+     * 同じスコアの場合は発売日の新しい順です。
+     * * @param query キーワード（空白区切りで複数指定するとすべてを含むものだけ。1文字から検索できます）
+     * @param page  ページ番号（0始まり）
+     * @param size  1ページあたりの件数（省略時20、最大 search.max-page-size）
+     * @return 検索結果。キーワードが空の場合は0件
+     */
+    public SearchResult search(String query, Integer page, Integer size) {
+        int pageNumber = page == null ? 0 : Math.max(0, page);
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(1, size), maxPageSize);
+        String trimmed = query == null ? "" : query.strip();
+        if (trimmed.length() > maxQueryLength) {
+            trimmed = trimmed.substring(0, maxQueryLength);
+        }
+
+        List<String> terms = terms(trimmed);
+        if (terms.isEmpty()) {
+            return new SearchResult(trimmed, 0, pageNumber, pageSize, List.of());
+        }
+
+        Index current = currentIndex();
+        Comparator<Match> ranking = Comparator.comparingDouble(Match::score).reversed()
+                .thenComparing(match -> current.docs[match.doc()].getReleaseDate(),
+                        Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(match -> current.docs[match.doc()].getEditionId());
+
+        // 全件を並べ替えず、返すページの末尾までの上位だけを残す（最も順位の低いものが先頭に来るヒープ）
+        long from = (long) pageNumber * pageSize;
+        int limit = (int) Math.min(from + pageSize, Integer.MAX_VALUE);
+        PriorityQueue<Match> top = new PriorityQueue<>(ranking.reversed());
+        int total = 0;
+        for (int doc : current.candidates(terms)) {
+            Match match = current.score(doc, terms);
+            if (match == null) {
+                continue;
+            }
+            total++;
+            top.add(match);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Match> ranked = new ArrayList<>(top);
+        ranked.sort(ranking);
+
+        // ハイライト位置の組み立ては、返すページの分だけ行う
+        List<SearchHit> hits = new ArrayList<>();
+        for (long i = from; i < ranked.size(); i++) {
+            hits.add(current.toHit(ranked.get((int) i), terms));
+        }
+        return new SearchResult(trimmed, total, pageNumber, pageSize, hits);
+    }
+
+    /**
+     * カタログキャッシュから索引を作り直します（refreshCatalog の後や、定期確認で呼ばれます）。
+     * カタログの中身が前回から変わっていなければ、作り直さずにそのまま使います。
+     */
+    public synchronized void rebuild() {
+        List<Discography> catalog = catalogCache.getCatalog();
+        Index current = index;
+        if (current != null && current.isBuiltFrom(catalog)) {
+            return;
+        }
+        long start = System.nanoTime();
+        Index built = new Index(catalog);
+        index = built;
+        log.info("検索索引を作成しました（{}件, {}語, {}ms）", built.docs.length, built.postings.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // アプリ起動直後に作っておき、最初の検索を待たせない
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuildQuietly();
+    }
+
+    // カタログキャッシュがTTL切れで読み込み直された場合にも追従できるよう、定期的に確認する
+    @Scheduled(fixedDelayString = "${search.index.refresh-interval:PT10M}",
+            initialDelayString = "${search.index.refresh-interval:PT10M}")
+    public void scheduledRefresh() {
+        rebuildQuietly();
+    }
+
+    /**
+     * 索引の状態を返します。
+     * * @return editions（件数）/ grams（索引の語数）/ ageSeconds を含むMap
+     */
+    public Map<String, Object> getStats() {
+        Index current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("editions", current == null ? 0 : current.docs.length);
+        stats.put("grams", current == null ? 0 : current.postings.size());
+        stats.put("ageSeconds", current == null ? null : (System.nanoTime() - current.builtAtNanos) / 1_000_000_000L);
+        return stats;
+    }
+
+    private Index currentIndex() {
+        Index current = index;
+        if (current == null) {
+            rebuild();
+            current = index;
+        }
+        return current;
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // DBに繋がらない場合でも、最初の検索（または次回の確認）で作り直せばよいのでログだけ残す
+            log.warn("検索索引を作成できませんでした: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 比較用に文字をそろえます。1文字 → 1文字の変換だけを行うため、長さと位置は元の文字列と同じです。
+     */
+    static String normalize(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c >= '！' && c <= '～') {
+                c = (char) (c - 0xFEE0);          // 全角英数記号 → 半角（Ｖｅｒ． → Ver.）
+            } else if (c == '　') {
+                c = ' ';                          // 全角スペース → 半角
+            } else if (c >= 'ァ' && c <= 'ヶ') {
+                c = (char) (c - 0x60);            // カタカナ → ひらがな（ラブ → らぶ）
+            }
+            chars[i] = Character.toLowerCase(c);
+        }
+        return new String(chars);
+    }
+
+    // そろえたキーワードを空白で区切り、重複を除いた語のリストにする
+    private static List<String> terms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : normalize(query).split("\\s+")) {
+            if (!term.isEmpty() && terms.size() < MAX_TERMS) {
+                terms.add(term);
+            }
+        }
+        return List.copyOf(terms);
+    }
+
+    // 語を索引の n-gram に分解する（2文字の組を使い、1文字しかない語は1文字で引く）
+    private static Set<String> queryGrams(String term) {
+        Set<String> grams = new LinkedHashSet<>();
+        addGrams(term, grams, false);
+        if (grams.isEmpty()) {
+            addGrams(term, grams, true);
+        }
+        return grams;
+    }
+
+    // 文字・数字が続く部分から n-gram を取り出す（記号や空白をまたぐ組は作らない）
+    private static void addGrams(String text, Set<String> grams, boolean unigrams) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                continue;
+            }
+            if (unigrams) {
+                grams.add(String.valueOf(c));
+            } else if (i + 1 < text.length() && Character.isLetterOrDigit(text.charAt(i + 1))) {
+                grams.add(text.substring(i, i + 2));
+            }
+        }
+    }
+
+    // 語の先頭が、単語の先頭（文字列の先頭、または空白・記号の直後）にあるか
+    private static boolean isWordStart(String text, int position) {
+        return position == 0 || !Character.isLetterOrDigit(text.charAt(position - 1));
+    }
+
+    private record Field(String name, Function<Discography, String> getter, double weight) {
+    }
+
+    // 候補1件のスコア（doc は Index.docs の位置）
+    private record Match(int doc, double score) {
+    }
+
+    /**
+     * ある時点のカタログから作った、読み取り専用の索引。
+     */
+    private static final class Index {
+        final Discography[] docs;
+        // docs[i] の各項目をそろえた文字列（項目が空なら null）
+        final String[][] normalized;
+        // n-gram → その n-gram を含むエディション番号（昇順）
+        final Map<String, int[]> postings;
+        final long builtAtNanos = System.nanoTime();
+
+        Index(List<Discography> catalog) {
+            this.docs = catalog.toArray(new Discography[0]);
+            this.normalized = new String[docs.length][FIELDS.size()];
+
+            Map<String, IntList> lists = new HashMap<>();
+            Set<String> grams = new HashSet<>();
+            for (int doc = 0; doc < docs.length; doc++) {
+                grams.clear();
+                for (int f = 0; f < FIELDS.size(); f++) {
+                    String value = FIELDS.get(f).getter().apply(docs[doc]);
+                    if (value == null || value.isEmpty()) {
+                        continue;
+                    }
+                    String text = normalize(value);
+                    normalized[doc][f] = text;
+                    addGrams(text, grams, true);
+                    addGrams(text, grams, false);
+                }
+                // エディション番号の昇順に追加するので、各リストは自然に並んだ状態になる
+                for (String gram : grams) {
+                    lists.computeIfAbsent(gram, g -> new IntList()).add(doc);
+                }
+            }
+
+            Map<String, int[]> built = new HashMap<>(lists.size() * 2);
+            lists.forEach((gram, list) -> built.put(gram, list.toArray()));
+            this.postings = built;
+        }
+
+        // 同じカタログ（キャッシュが読み込み直されていない）から作った索引か
+        boolean isBuiltFrom(List<Discography> catalog) {
+            if (catalog.size() != docs.length) {
+                return false;
+            }
+            for (int i = 0; i < docs.length; i++) {
+                if (catalog.get(i) != docs[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // すべての語の n-gram を含むエディション番号（件数の少ないリストから順に突き合わせる）
+        int[] candidates(List<String> terms) {
+            List<int[]> lists = new ArrayList<>();
+            for (String term : terms) {
+                for (String gram : queryGrams(term)) {
+                    int[] list = postings.get(gram);
+                    if (list == null) {
+                        return new int[0];
+                    }
+                    lists.add(list);
+                }
+            }
+            if (lists.isEmpty()) {
+                return new int[0];
+            }
+            lists.sort(Comparator.comparingInt(list -> list.length));
+
+            int[] result = lists.get(0);
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                result = intersect(result, lists.get(i));
+            }
+            return result;
+        }
+
+        /**
+         * すべての語が実際に含まれているかを確かめ、スコアを付けます（どれか1語でも無ければ null）。
+         * 語ごとに最も高く評価できた項目の点数を足し合わせます。
+         * 項目の重みに加えて、項目の先頭で一致（前方一致）・単語の先頭で一致・項目全体と完全一致 の場合に加点し、
+         * 短い項目ほど一致部分の割合が大きくなるため高く評価します。
+         */
+        Match score(int doc, List<String> terms) {
+            double total = 0;
+            for (String term : terms) {
+                double best = 0;
+                for (int f = 0; f < FIELDS.size(); f++) {
+                    // 項目は重みの大きい順なので、残りの項目で満点を取っても超えられなければ調べない
+                    if (best >= FIELDS.get(f).weight() * MAX_FIELD_FACTOR) {
+                        break;
+                    }
+                    String text = normalized[doc][f];
+                    int position = text == null ? -1 : text.indexOf(term);
+                    if (position < 0) {
+                        continue;
+                    }
+                    double bonus = position == 0 ? 1.0 : isWordStart(text, position) ? 0.5 : 0.0;
+                    if (text.length() == term.length()) {
+                        bonus += 1.0;
+                    }
+                    double coverage = (double) term.length() / text.length();
+                    best = Math.max(best, FIELDS.get(f).weight() * (1.0 + bonus + coverage));
+                }
+                if (best == 0) {
+                    return null;
+                }
+                total += best;
+            }
+            return new Match(doc, Math.round(total * 1000) / 1000.0);
+        }
+
+        // 返却用の1件を組み立てる（一致した項目ごとに、元の文字列での一致位置を添える）
+        SearchHit toHit(Match match, List<String> terms) {
+            Discography d = docs[match.doc()];
+            Map<String, List<int[]>> highlights = new LinkedHashMap<>();
+            for (int f = 0; f < FIELDS.size(); f++) {
+                String text = normalized[match.doc()][f];
+                if (text == null) {
+                    continue;
+                }
+                List<int[]> ranges = new ArrayList<>();
+                for (String term : terms) {
+                    int position = text.indexOf(term);
+                    while (position >= 0 && ranges.size() < MAX_HIGHLIGHTS_PER_FIELD) {
+                        ranges.add(new int[] { position, position + term.length() });
+                        position = text.indexOf(term, position + term.length());
+                    }
+                }
+                if (!ranges.isEmpty()) {
+                    ranges.sort(Comparator.comparingInt(range -> range[0]));
+                    highlights.put(FIELDS.get(f).name(), ranges);
+                }
+            }
+            return new SearchHit(d.getEditionId(), d.getDiscId(), d.getArtist(), d.getTitle(), d.getTitleSub(),
+                    d.getDisplayName(), d.getReleaseDate(), match.score(), highlights);
+        }
+
+        private static int[] intersect(int[] a, int[] b) {
+            int[] out = new int[Math.min(a.length, b.length)];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    out[n++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+    }
+
+    // int を箱に入れずに貯めるための、伸長可能な配列
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
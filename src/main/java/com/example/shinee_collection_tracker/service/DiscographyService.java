@@ -1,74 +1,563 @@
 package com.example.shinee_collection_tracker.service;
 
+import com.example.shinee_collection_tracker.model.CatalogStatusFlags;
+import com.example.shinee_collection_tracker.model.CollectionHistory;
 import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.model.DiscographyPage;
+import com.example.shinee_collection_tracker.model.DiscographySummary;
+import com.example.shinee_collection_tracker.model.Edition;
+import com.example.shinee_collection_tracker.model.EditionDetail;
+import com.example.shinee_collection_tracker.model.EditionStatusBits;
+import com.example.shinee_collection_tracker.model.JobStatus;
+import com.example.shinee_collection_tracker.model.SearchResult;
 import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+import com.example.shinee_collection_tracker.repository.EditionRepository;
+import com.example.shinee_collection_tracker.repository.UserEditionStatusRepository;
 import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.HashMap;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 /**
  * ディスコグラフィに関するビジネスロジックを担当するサービス。
  * DBから取得したデータをフロントエンドの表示形式に合わせて加工する役割を持ちます。
+ * * [ユーザーごとの状態]
+ * カタログ（タイトル・曲目など）は全ユーザー共通・読み取り専用としてキャッシュし、
+ * 所持・欲しいものフラグは userId ごとに user_edition_status へ書き込みます。
+ * 返却時は、共有カタログのコピーにそのユーザーのフラグ（EditionStatusIndex）を重ねます。
+ * * [フラグ更新の順番]
+ * 同じユーザー・同じエディションの更新は、(userId, editionId) ごとのロックを持ったまま
+ * 「DBへの書き込み（または後書きキューへの追加）・索引の切り替え・購入履歴への記録」を行います。
+ * 連打された2つの更新が途中で入れ替わり、DB・索引・購入履歴の最後の値が食い違うことはありません。
  */
 @Service
 public class DiscographyService {
 
     private final DiscographyRepository repository;
+    private final EditionRepository editionRepository;
+    private final UserEditionStatusRepository userStatusRepository;
+    private final DiscographyCatalogCache catalogCache;
+    private final DiscographyCatalogSnapshot catalogSnapshot;
+    private final EditionStatusIndex statusIndex;
+    private final StatusWriteBehindQueue writeBehindQueue;
+    private final CollectionEventBroadcaster eventBroadcaster;
+    private final DiscographySearchIndex searchIndex;
+    private final MasterDataCache masterData;
+    private final JobService jobService;
+    private final CollectionHistoryService collectionHistory;
+
+    // false の場合はキャッシュを使わず、毎回DBに問い合わせる（障害調査用）
+    private final boolean catalogCacheEnabled;
 
-    // Repository（DBとの橋渡し）を読み込みます
-    public DiscographyService(DiscographyRepository repository) {
+    // フラグ更新用のロックの数。(userId, editionId) のハッシュで振り分ける（別のエディション同士は、まず待ち合わない）
+    private static final int STATUS_LOCK_STRIPES = 64;
+    private final ReentrantLock[] statusLocks = new ReentrantLock[STATUS_LOCK_STRIPES];
+
+    // Repository（DBとの橋渡し）、カタログキャッシュ、所持状態の索引を読み込みます
+    public DiscographyService(DiscographyRepository repository,
+            EditionRepository editionRepository,
+            UserEditionStatusRepository userStatusRepository,
+            DiscographyCatalogCache catalogCache,
+            DiscographyCatalogSnapshot catalogSnapshot,
+            EditionStatusIndex statusIndex,
+            StatusWriteBehindQueue writeBehindQueue,
+            CollectionEventBroadcaster eventBroadcaster,
+            DiscographySearchIndex searchIndex,
+            MasterDataCache masterData,
+            JobService jobService,
+            CollectionHistoryService collectionHistory,
+            @Value("${catalog.cache.enabled:true}") boolean catalogCacheEnabled) {
         this.repository = repository;
+        this.editionRepository = editionRepository;
+        this.userStatusRepository = userStatusRepository;
+        this.catalogCache = catalogCache;
+        this.catalogSnapshot = catalogSnapshot;
+        this.statusIndex = statusIndex;
+        this.writeBehindQueue = writeBehindQueue;
+        this.eventBroadcaster = eventBroadcaster;
+        this.searchIndex = searchIndex;
+        this.masterData = masterData;
+        this.jobService = jobService;
+        this.collectionHistory = collectionHistory;
+        this.catalogCacheEnabled = catalogCacheEnabled;
+        for (int i = 0; i < statusLocks.length; i++) {
+            statusLocks[i] = new ReentrantLock();
+        }
     }
 
+    // 1ページあたりの既定件数と上限（巨大なページ指定でヒープを圧迫しないためのガード）
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     public List<Discography> getAllAlbums() {
         return repository.findAll();
     }
 
+    // 指定ユーザーのフラグを重ねたディスコグラフィ全件を取得（発売日の新しい順）
+    public List<Discography> getDiscographyList(String userId) {
+        EditionStatusIndex.View flags = statusIndex.view(userId);
+        return getCatalog().stream().map(d -> withFlags(d, flags)).toList();
+    }
+
+    // 全ユーザー共通のカタログを取得。キャッシュが有効ならDBへは問い合わせない
+    private List<Discography> getCatalog() {
+        if (catalogCacheEnabled) {
+            return catalogCache.getCatalog();
+        }
+        return repository.findAllCustomOrder();
+    }
+
+    // 共有カタログのインスタンスは書き換えず、ユーザーのフラグを入れたコピーを返す
+    private static Discography withFlags(Discography d, EditionStatusIndex.View flags) {
+        return d.toBuilder()
+                .isPurchased(flags.isPurchased(d.getEditionId()))
+                .isWishlist(flags.isWishlist(d.getEditionId()))
+                .build();
+    }
+
+    // true の場合、/api/shinee/discography は作成済みのスナップショット（JSON・gzip）をそのまま返す
+    public boolean isCatalogSnapshotEnabled() {
+        return catalogSnapshot.isEnabled();
+    }
+
+    // フラグを除いたディスコグラフィ全件の、作成済みJSON（スナップショット）を取得
+    public DiscographyCatalogSnapshot.Snapshot getCatalogSnapshot() {
+        return catalogSnapshot.get();
+    }
+
+    /**
+     * スナップショットと同じ並び順で、指定ユーザーの所持・欲しいものフラグをビット列にして返します。
+     * * [処理の流れ]
+     * 1. スナップショットの editionId → 位置 の索引を取得。
+     * 2. ユーザーのフラグ（EditionStatusIndex）を、位置に対応するビットへ立てる。
+     *    （スナップショット作成後に追加されたエディションは、次回の作り直しで反映されます）
+     * 3. Base64 文字列にして、スナップショットの version と一緒に返却。
+     * * @param userId ユーザーID
+     */
+    public CatalogStatusFlags getStatusFlags(String userId) {
+        DiscographyCatalogSnapshot.Snapshot snapshot = catalogSnapshot.get();
+        EditionStatusIndex.View flags = statusIndex.view(userId);
+        BitSet purchased = new BitSet(snapshot.size());
+        BitSet wishlist = new BitSet(snapshot.size());
+        snapshot.positions().forEach((editionId, index) -> {
+            purchased.set(index, flags.isPurchased(editionId));
+            wishlist.set(index, flags.isWishlist(editionId));
+        });
+        Base64.Encoder base64 = Base64.getEncoder();
+        return new CatalogStatusFlags(snapshot.version(), snapshot.size(),
+                base64.encodeToString(purchased.toByteArray()),
+                base64.encodeToString(wishlist.toByteArray()));
+    }
+
+    /**
+     * カタログ（タイトル・曲目など）がDB上で変更された後に呼び出し、
+     * キャッシュ・スナップショット・検索索引・マスタデータ（/api/master）を作り直します。
+     * エディションが増減した場合に備えて、所持状態の索引の連番も作り直します。
+     * * @return 作り直したスナップショットの version
+     */
+    public String refreshCatalog() {
+        catalogCache.invalidate();
+        String version = catalogSnapshot.rebuild().version();
+        searchIndex.rebuild();
+        masterData.rebuild();
+        statusIndex.reconcile();
+        return version;
+    }
+
+    /**
+     * refreshCatalog をジョブとして裏で実行します（呼び出し元はすぐに戻ります）。
+     * * @param idempotencyKey 同じ依頼を見分けるキー（不要なら null）
+     * @return ジョブの状態。完了すると result に {"version": ...} が入ります
+     */
+    public JobStatus refreshCatalogAsync(String idempotencyKey) {
+        return jobService.submit(JobType.CATALOG_REFRESH, idempotencyKey, () -> context -> {
+            context.progress(0, "カタログを読み込み中");
+            return Map.of("version", refreshCatalog());
+        });
+    }
+
+    /**
+     * 所持状態の索引の照合（DBのエディション一覧からの作り直しと、メモリ上のユーザーの状態とDBの突き合わせ）を、
+     * ジョブとして裏で実行します。
+     * * @param idempotencyKey 同じ依頼を見分けるキー（不要なら null）
+     */
+    public JobStatus reconcileStatusIndexAsync(String idempotencyKey) {
+        return jobService.submit(JobType.STATUS_RECONCILE, idempotencyKey, () -> context -> {
+            statusIndex.reconcile();
+            statusIndex.verifyCachedUsers();
+            return statusIndex.getStats();
+        });
+    }
+
+    // タイトル・曲目・特典などのキーワード検索（メモリ上の索引だけで答え、DBには問い合わせない）
+    public SearchResult search(String query, Integer page, Integer size) {
+        return searchIndex.search(query, page, size);
+    }
+
+    public Map<String, Object> getSearchIndexStats() {
+        return searchIndex.getStats();
+    }
+
+    // 一覧表示用（大きなTEXT項目を除いた）ディスコグラフィを、指定ユーザーのフラグ付きで取得
+    public List<DiscographySummary> getDiscographySummaries(String userId) {
+        EditionStatusIndex.View flags = statusIndex.view(userId);
+        List<DiscographySummary> summaries = catalogCacheEnabled
+                ? catalogCache.getCatalog().stream().map(DiscographySummary::from).toList()
+                : repository.findAllSummaries();
+        for (DiscographySummary summary : summaries) {
+            summary.setPurchased(flags.isPurchased(summary.getEditionId()));
+            summary.setWishlist(flags.isWishlist(summary.getEditionId()));
+        }
+        return summaries;
+    }
+
+    // モーダルで開かれたエディションの詳細情報を取得
+    public Optional<EditionDetail> getEditionDetail(String editionId) {
+        if (catalogCacheEnabled) {
+            return catalogCache.findEdition(editionId).map(EditionDetail::from);
+        }
+        return repository.findDetailById(editionId);
+    }
+
+    // 指定ユーザーの欲しいものリストに入っているエディションだけを取得
+    public List<Discography> getWishlist(String userId) {
+        EditionStatusIndex.View flags = statusIndex.view(userId);
+        return getCatalog().stream()
+                .filter(d -> flags.isWishlist(d.getEditionId()))
+                .map(d -> withFlags(d, flags))
+                .toList();
+    }
+
+    // ユーザーごとの所持状態の索引の、保持ユーザー数・読み込み回数・追い出し回数などを取得
+    public Map<String, Object> getUserStateCacheStats() {
+        return statusIndex.getStats();
+    }
+
+    // カタログキャッシュのヒット数・ミス数などを取得
+    public Map<String, Object> getCatalogCacheStats() {
+        return catalogCache.getStats();
+    }
+
+    // 後書きキューの滞留件数・まとめ率・書き込み時間などを取得
+    public Map<String, Object> getWriteBehindStats() {
+        return writeBehindQueue.getStats();
+    }
+
     /**
-     * マイページの進捗バー（全体・メンバー別・国別）に必要な統計データを集計します。
+     * トラッカー画面のフィルタ・並び替えをDB側で適用し、1ページ分のディスコグラフィを返します。
      * * [処理の流れ]
-     * 1. Repositoryから各カテゴリーの購入率（％）を計算したリストを取得。
-     * 2. 四捨五入(Math.round)を行い、整数値に整形。
-     * 3. JS側でキー名から直接値を参照できるように、Map形式に詰め直して返却。
-     * * @return 統計データを含むMap（例: {"total": 80, "Onew": 75, "JP": 90}）
+     * 1. 画面のセレクトボックスの値（"All" など）を、SQLが「条件なし」と解釈する空文字に正規化。
+     * 2. 次ページの有無を判定するため、指定件数 + 1 件を取得。
+     * 3. 余分な1件を取り除き、最後の行を次ページのカーソルとして返却。
+     * * @param userId    所持・欲しいものフラグ（と所持状態の絞り込み）の対象ユーザー
+     * @param artist    アーティスト名（"All" で全件）
+     * @param country   国コード（"All" で全件）
+     * @param category  カテゴリー（"All" で全件。部分一致）
+     * @param purchased 所持状態（"Purchased" / "NotPurchased" / それ以外は全件）
+     * @param sort      "asc" なら古い順、それ以外は新しい順
+     * @param afterDate 前ページ最後の発売日（1ページ目は未指定）
+     * @param afterId   前ページ最後のエディションID（1ページ目は未指定）
+     * @param size      1ページあたりの件数
+     * @return 1ページ分の結果と次ページ用カーソル
      */
-    public Map<String, Object> getCollectionStats() {
-        Map<String, Object> stats = new HashMap<>();
+    public DiscographyPage findDiscographyPage(String userId, String artist, String country, String category,
+            String purchased, String sort, String afterDate, String afterId, Integer size) {
+
+        int pageSize = (size == null || size <= 0) ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
 
-        // 1. 全体の購入率を集計
-        // DB側で計算済みの浮動小数点数を取得し、フロント表示用に四捨五入する
-        double totalRate = repository.getTotalPurchaseRate();
-        stats.put("total", Math.round(totalRate));
+        // JSのセレクトボックスは「全件」を "All"/"all" で表すため、空文字に揃える
+        String artistParam = normalizeFilter(artist);
+        String countryParam = normalizeFilter(country);
+        String categoryParam = normalizeFilter(category);
+        String purchasedParam = "Purchased".equals(purchased) ? "true"
+                : "NotPurchased".equals(purchased) ? "false" : "";
+        boolean oldestFirst = "asc".equalsIgnoreCase(sort);
+        int limit = pageSize + 1;
 
-        // 2. メンバー別の購入率を集計
-        // アーティスト名（Key）と進捗率（Value）のペアをMapに格納。
-        // これにより、JS側で stats['Key'] のようにアクセス可能になる。
-        List<Map<String, Object>> memberRates = repository.getPurchaseRateByArtist();
-        for (Map<String, Object> row : memberRates) {
-            stats.put((String) row.get("artist"), Math.round(((Number) row.get("rate")).doubleValue()));
+        List<Discography> rows;
+        if (afterId == null || afterId.isEmpty()) {
+            rows = oldestFirst
+                    ? repository.findPageOldestFirst(userId, artistParam, countryParam, categoryParam, purchasedParam, limit)
+                    : repository.findPageNewestFirst(userId, artistParam, countryParam, categoryParam, purchasedParam, limit);
+        } else if (afterDate == null || afterDate.isEmpty()) {
+            // 発売日が未登録の行がカーソル
+            rows = oldestFirst
+                    ? repository.findPageOldestFirstAfterUndated(userId, artistParam, countryParam, categoryParam,
+                            purchasedParam, afterId, limit)
+                    : repository.findPageNewestFirstAfterUndated(userId, artistParam, countryParam, categoryParam,
+                            purchasedParam, afterId, limit);
+        } else {
+            LocalDate cursorDate = parseCursorDate(afterDate);
+            rows = oldestFirst
+                    ? repository.findPageOldestFirstAfter(userId, artistParam, countryParam, categoryParam,
+                            purchasedParam, cursorDate, afterId, limit)
+                    : repository.findPageNewestFirstAfter(userId, artistParam, countryParam, categoryParam,
+                            purchasedParam, cursorDate, afterId, limit);
         }
 
-        // 3. 国別の購入率を集計
-        // メンバー別と同様に、国コードをキーにしてMapに変換。
-        List<Map<String, Object>> countryRates = repository.getPurchaseRateByCountry();
-        for (Map<String, Object> row : countryRates) {
-            stats.put((String) row.get("country"), Math.round(((Number) row.get("rate")).doubleValue()));
+        boolean hasNext = rows.size() > pageSize;
+        List<Discography> items = hasNext ? rows.subList(0, pageSize) : rows;
+
+        if (!hasNext || items.isEmpty()) {
+            return new DiscographyPage(items, null, null, false);
         }
 
-        return stats;
+        // 発売日がnullの行は、空文字をカーソルにする（次のページは発売日なしの続きから）
+        Discography last = items.get(items.size() - 1);
+        String nextDate = last.getReleaseDate() == null ? "" : last.getReleaseDate();
+        return new DiscographyPage(items, nextDate, last.getEditionId(), true);
+    }
+
+    // カーソルの発売日（YYYY-MM-DD）。不正な値は400
+    private static LocalDate parseCursorDate(String afterDate) {
+        try {
+            return LocalDate.parse(afterDate);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "afterDate は YYYY-MM-DD 形式で指定してください: " + afterDate);
+        }
+    }
+
+    // "All"、"all"、未指定、JSから届く "undefined" はすべて「条件なし」として扱う
+    private String normalizeFilter(String value) {
+        if (value == null || value.isEmpty() || value.equalsIgnoreCase("all") || value.equals("undefined")) {
+            return "";
+        }
+        return value;
+    }
+
+    /**
+     * マイページの進捗バー（全体・メンバー別・国別）に必要な統計データを、指定ユーザーの分だけ返します。
+     * * [処理の流れ]
+     * 1. 所持フラグをユーザーごとのビット列で保持している EditionStatusIndex から、ビット数を数えて算出。
+     *    （毎回3本の集計クエリを流さないため、ユーザーの初回アクセス以外はDBへの問い合わせは発生しません）
+     * 2. 各購入率は四捨五入(Math.round)済みの整数値。
+     * 3. JS側でキー名から直接値を参照できるMap形式で返却。
+     * * @param userId ユーザーID
+     * @return 統計データを含むMap（例: {"total": 80, "Onew": 75, "JP": 90}）
+     */
+    public Map<String, Object> getCollectionStats(String userId) {
+        return statusIndex.snapshot(userId);
+    }
+
+    // 指定ユーザーの全体・アーティスト別・国別・カテゴリー別の所持数・総数・購入率・欲しいもの数を取得
+    public Map<String, Object> getCollectionBreakdown(String userId) {
+        return statusIndex.breakdown(userId);
+    }
+
+    // 指定ユーザーの購入・欲しいもの・支出の推移（月別・アーティスト別・国別）を、履歴の集計から取得
+    public CollectionHistory getCollectionHistory(String userId, String groupBy, String artist, String country,
+            String from, String to) {
+        return collectionHistory.history(userId, groupBy, artist, country, from, to);
+    }
+
+    // 購入履歴の未書き込み件数・書き込み回数などを取得
+    public Map<String, Object> getCollectionHistoryStats() {
+        return collectionHistory.getStats();
+    }
+
+    // 指定ユーザーの所持・欲しいもののビット列を取得（layout はクライアントが保持している layoutVersion）
+    public EditionStatusBits getStatusBits(String userId, String layout) {
+        return statusIndex.bits(userId, layout);
     }
 
     /**
-     * 指定されたエディションの所持状況を更新します。
-     * Supabase（DB）に対して直接UPDATEクエリを発行するRepositoryメソッドを呼び出します。
-     * * @param editionId 対象エディションのID
+     * 指定ユーザーの、指定されたエディションの所持状況を更新します。
+     * user_edition_status にユーザーの行を UPSERT し、共有カタログ（editions）には書き込みません。
+     * * @param userId ユーザーID
+     * @param editionId 対象エディションのID（存在しなければ404）
      * @param isPurchased 購入済みならtrue、未購入ならfalse
      */
-    public void updatePurchaseStatus(String editionId, boolean isPurchased) {
+    public void updatePurchaseStatus(String userId, String editionId, boolean isPurchased) {
+        requireEdition(editionId);
+
+        ReentrantLock lock = statusLock(userId, editionId);
+        lock.lock();
+        try {
+            // 所持状態の索引は、このユーザー・このエディションのビットだけ書き換える
+            boolean flipped;
+            if (writeBehindQueue.isEnabled()) {
+                // 後書きモード：DBを待たずに受け付け、連打された分はまとめて後で書き込む
+                // 索引は先に書き換えて判定する（キューに入れた後だと、ユーザーの読み込み時にキューの値が重なり、
+                // 切り替わっていないと判定されてしまうため）
+                flipped = statusIndex.switchPurchased(userId, editionId, isPurchased);
+                writeBehindQueue.enqueuePurchase(userId, editionId, isPurchased);
+            } else {
+                // 更新前の値は、DBに書き込む前に索引から取っておく（索引に居ないユーザーは、書き込んだ後に
+                // DBから読み込むと新しい値が見えてしまい、切り替わっていないと判定されるため）
+                boolean before = statusIndex.view(userId).isPurchased(editionId);
+                // 保存する（これでSupabaseのデータが書き換わります）
+                userStatusRepository.upsertStatus(userId, List.of(editionId), true, isPurchased, false, false);
+                statusIndex.switchPurchased(userId, editionId, isPurchased);
+                flipped = before != isPurchased;
+            }
+
+            // 実際に切り替わった場合だけ、購入履歴（月別・アーティスト別・国別の集計）に記録する
+            if (flipped) {
+                collectionHistory.recordPurchase(userId, editionId, isPurchased);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // 同じユーザーが開いている他のタブ・端末へ、変更と最新の購入率を送る
+        eventBroadcaster.statusChanged(userId, List.of(editionId), isPurchased, null);
+    }
+
+    /**
+     * 指定ユーザーの、指定されたエディションの欲しいものリスト状態を更新します。
+     * * @param userId ユーザーID
+     * @param editionId 対象エディションのID
+     * @param isWishlist 欲しいものリストに入れるならtrue
+     */
+    public void updateWishlistStatus(String userId, String editionId, boolean isWishlist) {
+        requireEdition(editionId);
+        ReentrantLock lock = statusLock(userId, editionId);
+        lock.lock();
+        try {
+            boolean flipped;
+            if (writeBehindQueue.isEnabled()) {
+                flipped = statusIndex.switchWishlist(userId, editionId, isWishlist);
+                writeBehindQueue.enqueueWishlist(userId, editionId, isWishlist);
+            } else {
+                boolean before = statusIndex.view(userId).isWishlist(editionId);
+                userStatusRepository.upsertStatus(userId, List.of(editionId), false, false, true, isWishlist);
+                statusIndex.switchWishlist(userId, editionId, isWishlist);
+                flipped = before != isWishlist;
+            }
+            if (flipped) {
+                collectionHistory.recordWishlist(userId, editionId, isWishlist);
+            }
+        } finally {
+            lock.unlock();
+        }
+        eventBroadcaster.statusChanged(userId, List.of(editionId), null, isWishlist);
+    }
+
+    /**
+     * 指定ユーザーの、複数エディションの所持・欲しいものフラグをまとめて更新します。
+     * * [処理の流れ]
+     * 1. editionIds と、discId（アルバム丸ごと指定）に属するエディション（マスタデータのキャッシュから取得）を合わせて対象を決定。
+     * 2. 1本のUPSERT文で一括更新（エディションごとの往復・トランザクションが発生しない）。
+     * 3. 所持状態の索引には、このユーザーの対象エディションの分だけ反映（実際に切り替わった分は購入履歴にも記録）。
+     * 4. 他のタブ・端末へは、対象エディションをまとめた1件のイベントとして送信。
+     *    存在しないエディションIDは、索引・購入履歴・イベントに渡す前に取り除きます。
+     * * @param userId      ユーザーID
+     * @param editionIds  更新対象のエディションID（null可。存在しないIDは無視）
+     * @param discId      アルバム丸ごと対象にする場合のアルバムID（null可）
+     * @param isPurchased 変更後の所持フラグ（nullなら変更しない）
+     * @param isWishlist  変更後の欲しいものフラグ（nullなら変更しない）
+     * @return DB上で更新された行数
+     */
+    public int bulkUpdateStatus(String userId, List<String> editionIds, String discId, Boolean isPurchased, Boolean isWishlist) {
+        // 重複を除きつつ、指定された順番を保つ
+        Set<String> targets = new LinkedHashSet<>();
+        if (editionIds != null) {
+            targets.addAll(editionIds);
+        }
+        if (discId != null && !discId.isEmpty()) {
+            // アルバムの形態一覧はマスタデータのキャッシュから引く（DBへの往復を増やさない）
+            for (Edition edition : masterData.get().editions(discId)) {
+                targets.add(edition.getEditionId());
+            }
+        }
+        if (isPurchased == null && isWishlist == null) {
+            return 0;
+        }
+        targets = existingEditions(targets);
+        if (targets.isEmpty()) {
+            return 0;
+        }
+
+        // 対象エディションのロックを、番号の小さい順にすべて取る（1件ずつの更新と同じロックなので、
+        // 一括更新の途中に1件の切り替えが割り込むことはない。取る順番が決まっているため、一括更新同士でも詰まらない）
+        Set<Integer> stripes = new TreeSet<>();
+        for (String editionId : targets) {
+            stripes.add(stripe(userId, editionId));
+        }
+        List<ReentrantLock> held = new ArrayList<>(stripes.size());
+        int updated;
+        try {
+            for (int stripe : stripes) {
+                statusLocks[stripe].lock();
+                held.add(statusLocks[stripe]);
+            }
+
+            // 後書きキューに古い切り替えが残っていると一括更新を上書きしてしまうため、先に書き込んでおく
+            if (writeBehindQueue.isEnabled()) {
+                writeBehindQueue.flush();
+            }
+
+            // 更新前のフラグは、UPSERTの前に取っておく（1件ずつの同期モードと同じ理由）
+            EditionStatusIndex.View before = statusIndex.view(userId);
+            updated = userStatusRepository.upsertStatus(userId, new ArrayList<>(targets),
+                    isPurchased != null, Boolean.TRUE.equals(isPurchased),
+                    isWishlist != null, Boolean.TRUE.equals(isWishlist));
+
+            for (String editionId : targets) {
+                if (isPurchased != null) {
+                    statusIndex.switchPurchased(userId, editionId, isPurchased);
+                    if (before.isPurchased(editionId) != isPurchased) {
+                        collectionHistory.recordPurchase(userId, editionId, isPurchased);
+                    }
+                }
+                if (isWishlist != null) {
+                    statusIndex.switchWishlist(userId, editionId, isWishlist);
+                    if (before.isWishlist(editionId) != isWishlist) {
+                        collectionHistory.recordWishlist(userId, editionId, isWishlist);
+                    }
+                }
+            }
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).unlock();
+            }
+        }
+        eventBroadcaster.statusChanged(userId, new ArrayList<>(targets), isPurchased, isWishlist);
+        return updated;
+    }
+
+    // (userId, editionId) のフラグ更新用のロック
+    private ReentrantLock statusLock(String userId, String editionId) {
+        return statusLocks[stripe(userId, editionId)];
+    }
+
+    private static int stripe(String userId, String editionId) {
+        return Math.floorMod(31 * userId.hashCode() + editionId.hashCode(), STATUS_LOCK_STRIPES);
+    }
+
+    // 存在しないエディションなら404（索引の作り直しや、存在しないエディションのイベント送信を起こさないため）
+    private void requireEdition(String editionId) {
+        if (existingEditions(List.of(editionId)).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "エディションが見つかりません: " + editionId);
+        }
+    }
 
-        // 保存する（これでSupabaseのデータが書き換わります）
-        repository.updatePurchaseStatusNative(editionId, isPurchased);
+    // 存在するエディションだけを、指定された順番のまま返す。マスタデータのキャッシュに無いIDだけ、
+    // その後にDBへ追加された可能性があるため、まとめてDBでも確かめる
+    private Set<String> existingEditions(Collection<String> editionIds) {
+        Set<String> known = masterData.get().editionIds();
+        List<String> unknown = editionIds.stream().filter(id -> !known.contains(id)).toList();
+        Set<String> added = unknown.isEmpty() ? Set.of() : editionRepository.findAllById(unknown).stream()
+                .map(Edition::getEditionId)
+                .collect(Collectors.toSet());
+        return editionIds.stream()
+                .filter(id -> known.contains(id) || added.contains(id))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
-}
\ No newline at end of file
+}
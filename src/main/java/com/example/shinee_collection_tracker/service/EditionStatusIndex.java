@@ -0,0 +1,642 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.EditionStatusBits;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+import com.example.shinee_collection_tracker.repository.UserEditionStatusRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ユーザーごとの所持・欲しいものフラグを、ビット列（long配列）としてメモリ上に持つ索引。
+ * * [仕組み]
+ * 1. 全ユーザー共通の「エディション一覧（Layout）」をDBから1回だけ読み込み、editionId ごとに 0, 1, 2... の連番を振ります。
+ *    アーティスト・国・カテゴリーごとの「該当エディションのビットが立ったマスク」もここで作っておきます。
+ * 2. 所持・欲しいものフラグは、ユーザーごとに「連番のビット」として long 配列に保持します。
+ *    初めてアクセスされたユーザーの分だけ user_edition_status から読み込み、切り替え時は1ビットだけ書き換えます。
+ * 3. 進捗率は (所持ビット AND マスク) の立っているビット数（popcount）で数えます。
+ *    集計のたびにオブジェクトを作らないため、数千件でも数マイクロ秒で終わります。
+ * 4. メモリ上に置くユーザー数は user-state.cache.max-users で上限を決め、
+ *    超えた場合は最も長く使われていないユーザーから捨てます（LRU。次回アクセス時にDBから読み直します）。
+ * 5. エディションの追加・削除に備えて、定期的にエディション一覧を作り直します。一覧が変わらなければユーザーの状態は
+ *    そのまま使い、変わった場合は editionId を手がかりに新しい連番へ付け替えます（DBから読み直しません）。
+ *    索引に無いエディションが更新されたユーザーだけは、一覧を作り直した後にDBから読み直します。
+ * 6. 同じ照合ジョブで、メモリ上のユーザーのビット列をDBの実データと突き合わせ、ズレていれば置き換えます
+ *    （同期モードでの同時の切り替えや、DBを直接書き換えた場合のズレは、これをしないとLRUに残る間ずっと直りません）。
+ * * /api/stats（マイページの進捗バー）、/api/stats/breakdown、/api/editions/status/bits がこの索引を使います。
+ */
+@Component
+public class EditionStatusIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(EditionStatusIndex.class);
+
+    private final DiscographyRepository repository;
+    private final UserEditionStatusRepository userStatusRepository;
+    private final StatusWriteBehindQueue writeBehindQueue;
+    private final int maxUsers;
+    private final int verifyBatchSize;
+
+    // 以下のフィールドはすべて this のロックで保護する
+    private Layout layout;
+    private boolean stale;
+    private final LinkedHashMap<String, UserBits> users;
+    private final Map<String, Loading> loading = new HashMap<>();
+    private long userLoads;
+    private long evictions;
+    private long driftCorrections;
+
+    public EditionStatusIndex(DiscographyRepository repository,
+            UserEditionStatusRepository userStatusRepository,
+            StatusWriteBehindQueue writeBehindQueue,
+            @Value("${user-state.cache.max-users:1000}") int maxUsers,
+            @Value("${stats.reconcile.batch-size:200}") int verifyBatchSize) {
+        this.repository = repository;
+        this.userStatusRepository = userStatusRepository;
+        this.writeBehindQueue = writeBehindQueue;
+        this.maxUsers = Math.max(1, maxUsers);
+        this.verifyBatchSize = Math.max(1, verifyBatchSize);
+        // accessOrder=true で「最後に使われた順」に並べ、上限を超えたら最も古いユーザーを捨てる
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserBits> eldest) {
+                if (size() > EditionStatusIndex.this.maxUsers) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 指定ユーザーの購入率を、従来の /api/stats と同じ形式（四捨五入した整数％）で返します。
+     * * @param userId ユーザーID
+     * @return 統計データを含むMap（例: {"total": 80, "Onew": 75, "jp": 90}）
+     */
+    public Map<String, Object> snapshot(String userId) {
+        UserBits bits = userBits(userId);
+        synchronized (this) {
+            Layout layout = bits.layout;
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("total", roundedRate(countAnd(bits.purchased, layout.all), layout.all.count));
+            layout.byArtist.forEach((artist, mask) -> stats.put(artist,
+                    roundedRate(countAnd(bits.purchased, mask), mask.count)));
+            layout.byCountry.forEach((country, mask) -> stats.put(country,
+                    roundedRate(countAnd(bits.purchased, mask), mask.count)));
+            return stats;
+        }
+    }
+
+    /**
+     * 指定ユーザーの全体・アーティスト別・国別・カテゴリー別の所持数・総数・購入率・欲しいもの数を返します。
+     * * @param userId ユーザーID
+     * @return {"total": {...}, "artist": {"Onew": {...}}, "country": {...}, "category": {...}}
+     */
+    public Map<String, Object> breakdown(String userId) {
+        UserBits bits = userBits(userId);
+        synchronized (this) {
+            Layout layout = bits.layout;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("total", progress(bits, layout.all));
+            result.put("artist", progressByGroup(bits, layout.byArtist));
+            result.put("country", progressByGroup(bits, layout.byCountry));
+            result.put("category", progressByGroup(bits, layout.byCategory));
+            return result;
+        }
+    }
+
+    /**
+     * 指定ユーザーの所持・欲しいもののビット列をそのまま返します（クライアント側で前回との差分を取る用途）。
+     * * @param userId      ユーザーID
+     * @param knownLayout クライアントが保持している layoutVersion。一致すれば editionIds の一覧を省略します
+     * @return ビット列（Base64）と、ビットの番号に対応する editionId の一覧
+     */
+    public EditionStatusBits bits(String userId, String knownLayout) {
+        UserBits bits = userBits(userId);
+        synchronized (this) {
+            Layout layout = bits.layout;
+            Base64.Encoder base64 = Base64.getEncoder();
+            boolean sameLayout = layout.version.equals(knownLayout);
+            return new EditionStatusBits(layout.version, layout.editionIds.length,
+                    sameLayout ? null : List.of(layout.editionIds),
+                    base64.encodeToString(BitSet.valueOf(bits.purchased).toByteArray()),
+                    base64.encodeToString(BitSet.valueOf(bits.wishlist).toByteArray()));
+        }
+    }
+
+    /**
+     * 指定ユーザーのフラグを、共有カタログに重ねるための読み取り専用のコピーとして返します。
+     * コピーなので、受け取った側はロックなしで参照できます。
+     * * @param userId ユーザーID
+     */
+    public View view(String userId) {
+        UserBits bits = userBits(userId);
+        synchronized (this) {
+            return new View(bits.layout.positions, bits.purchased.clone(), bits.wishlist.clone());
+        }
+    }
+
+    /**
+     * 所持フラグの更新を索引に反映し、実際に切り替わったか（更新前と値が違ったか）を返します。
+     * 購入履歴（CollectionHistoryService）に、同じ値での送り直しを記録しないために使います。
+     * メモリ上に無いユーザーは、先にDBから読み込んでから判定します（DBに書き込んだ後に呼ぶと、読み込んだ値が
+     * 更新後の値になり切り替わっていないと判定されるため、その場合は書き込む前に {@link #view} で更新前の値を取っておいてください）。
+     * editionId は、呼び出し元でDBに存在することを確かめておいてください。索引に無いエディションは
+     * 「索引の作成後に追加されたもの」とみなし、次回アクセス時に一覧を作り直すためです。
+     * * @return 切り替わった場合は true（索引に無いエディションは判定できないため true）
+     */
+    public boolean switchPurchased(String userId, String editionId, boolean isPurchased) {
+        return switchFlag(userId, editionId, isPurchased, true);
+    }
+
+    /**
+     * 欲しいものフラグの更新を索引に反映し、実際に切り替わったかを返します（switchPurchased と同じ）。
+     */
+    public boolean switchWishlist(String userId, String editionId, boolean isWishlist) {
+        return switchFlag(userId, editionId, isWishlist, false);
+    }
+
+    /**
+     * 索引の利用状況を返します。
+     * * @return cachedUsers / maxUsers / userLoads / evictions / driftCorrections / editions を含むMap
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedUsers", users.size());
+        stats.put("maxUsers", maxUsers);
+        stats.put("userLoads", userLoads);
+        stats.put("evictions", evictions);
+        stats.put("driftCorrections", driftCorrections);
+        stats.put("editions", layout == null ? 0 : layout.editionIds.length);
+        return stats;
+    }
+
+    /**
+     * DBの実データからエディション一覧を作り直し、メモリ上のユーザーの状態をDBと照合します（照合ジョブ）。
+     * ユーザーの状態は新しい一覧の連番に付け替えて使い続け、DBとズレていた分だけ置き換えます。
+     * 間隔は stats.reconcile.interval で変更できます（既定15分）。
+     */
+    @Scheduled(fixedDelayString = "${stats.reconcile.interval:PT15M}",
+            initialDelayString = "${stats.reconcile.interval:PT15M}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+            verifyCachedUsers();
+        } catch (RuntimeException e) {
+            // DBに繋がらない場合でも、次回の実行で再試行すればよいのでログだけ残す
+            log.warn("所持状態の索引の照合に失敗しました: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * メモリ上の各ユーザーのビット列を、DBの実データ（と後書きキューのまだ書き込まれていない更新）と照合し、
+     * ズレていれば置き換えます。
+     * * [仕組み]
+     * 1. DBへは stats.reconcile.batch-size 人ずつ、1本のSQLでまとめて問い合わせます（問い合わせ中はロックを持ちません）。
+     * 2. 問い合わせ中に切り替えがあったユーザーは、読み込んだデータがそれを含むか判断できないため今回は見送ります
+     *    （通常の読み込みと同じく Loading.writes で検知します）。
+     * 3. 照合してもアクセス順（LRU）は変えません。
+     * * @return ズレていたユーザー数
+     */
+    public int verifyCachedUsers() {
+        ensureLoaded();
+        List<String> userIds;
+        synchronized (this) {
+            userIds = new ArrayList<>(users.keySet()); // keySet の走査ではアクセス順は変わらない
+        }
+        int mismatched = 0;
+        for (int from = 0; from < userIds.size(); from += verifyBatchSize) {
+            mismatched += verifyBatch(userIds.subList(from, Math.min(from + verifyBatchSize, userIds.size())));
+        }
+        if (mismatched > 0) {
+            log.warn("所持状態の索引がDBとズレていたため、{}人分を置き換えました（照合したユーザー: {}人）",
+                    mismatched, userIds.size());
+        }
+        return mismatched;
+    }
+
+    private int verifyBatch(List<String> userIds) {
+        Layout target;
+        Map<String, Loading> states = new HashMap<>();
+        Map<String, Long> writesBefore = new HashMap<>();
+        synchronized (this) {
+            target = layout;
+            for (String userId : userIds) {
+                Loading state = loading.computeIfAbsent(userId, k -> new Loading());
+                state.loaders++;
+                states.put(userId, state);
+                writesBefore.put(userId, state.writes);
+            }
+        }
+
+        try {
+            // 後書きキューの更新は、loadUser と同じく問い合わせの前後で2回重ねる
+            Map<String, Map<String, StatusWriteBehindQueue.PendingStatus>> queuedBefore = new HashMap<>();
+            Map<String, UserBits> fresh = new HashMap<>();
+            int size = target.editionIds.length;
+            for (String userId : userIds) {
+                queuedBefore.put(userId, writeBehindQueue.pendingFor(userId));
+                fresh.put(userId, new UserBits(target, new long[words(size)], new long[words(size)]));
+            }
+            for (Map<String, Object> row : userStatusRepository.findFlaggedByUserIds(userIds)) {
+                UserBits bits = fresh.get((String) row.get("user_id"));
+                if (bits != null) {
+                    apply(bits, row);
+                }
+            }
+            fresh.forEach((userId, bits) -> {
+                overlay(bits, queuedBefore.get(userId));
+                overlay(bits, writeBehindQueue.pendingFor(userId));
+            });
+
+            synchronized (this) {
+                int mismatched = 0;
+                // users.get() はアクセス順を変えてしまうため、エントリを走査して探す
+                for (Map.Entry<String, UserBits> entry : users.entrySet()) {
+                    UserBits loaded = fresh.get(entry.getKey());
+                    UserBits cached = entry.getValue();
+                    if (loaded == null || cached.layout != target
+                            || states.get(entry.getKey()).writes != writesBefore.get(entry.getKey())) {
+                        continue;
+                    }
+                    if (!Arrays.equals(cached.purchased, loaded.purchased)
+                            || !Arrays.equals(cached.wishlist, loaded.wishlist)) {
+                        // 同じ連番なので、配列の中身だけ書き換える（参照は常にロック内なので、そのまま置き換えてよい）
+                        System.arraycopy(loaded.purchased, 0, cached.purchased, 0, cached.purchased.length);
+                        System.arraycopy(loaded.wishlist, 0, cached.wishlist, 0, cached.wishlist.length);
+                        mismatched++;
+                    }
+                }
+                driftCorrections += mismatched;
+                return mismatched;
+            }
+        } finally {
+            synchronized (this) {
+                states.forEach((userId, state) -> {
+                    if (--state.loaders == 0) {
+                        loading.remove(userId);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 指定ユーザーのビット列を返します（メモリ上に無ければDBから読み込みます）。
+     * 返したビット列は更新で書き換わるため、参照する時は this のロックを取得してください。
+     */
+    private UserBits userBits(String userId) {
+        ensureLoaded();
+        Layout target;
+        Loading state;
+        long writesBefore;
+        synchronized (this) {
+            UserBits cached = users.get(userId);
+            if (cached != null) {
+                return cached;
+            }
+            target = layout;
+            state = loading.computeIfAbsent(userId, k -> new Loading());
+            state.loaders++;
+            writesBefore = state.writes;
+        }
+
+        // DBへの問い合わせ中はロックを持たない（その間の更新は Loading.writes で検知する）
+        UserBits loaded = null;
+        try {
+            loaded = loadUser(userId, target);
+            return loaded;
+        } finally {
+            synchronized (this) {
+                if (--state.loaders == 0) {
+                    loading.remove(userId);
+                }
+                if (loaded != null) {
+                    userLoads++;
+                    // 読み込み中に更新やエディション一覧の作り直しが入った場合、読み込んだデータが
+                    // それを含むか判断できないため、今回の結果はその場限りにして次回アクセスで読み直す
+                    if (state.writes == writesBefore && target == layout && !users.containsKey(userId)) {
+                        users.put(userId, loaded);
+                    }
+                }
+            }
+        }
+    }
+
+    private UserBits loadUser(String userId, Layout target) {
+        int size = target.editionIds.length;
+        UserBits bits = new UserBits(target, new long[words(size)], new long[words(size)]);
+        // 後書きキューの更新は、問い合わせの前後で2回重ねる（問い合わせ中に書き込みが終わった分は前の方に含まれる）
+        Map<String, StatusWriteBehindQueue.PendingStatus> queuedBefore = writeBehindQueue.pendingFor(userId);
+        for (Map<String, Object> row : userStatusRepository.findFlaggedByUserId(userId)) {
+            apply(bits, row);
+        }
+        overlay(bits, queuedBefore);
+        overlay(bits, writeBehindQueue.pendingFor(userId));
+        return bits;
+    }
+
+    // user_edition_status の1行分のフラグを、ビット列に立てる
+    private static void apply(UserBits bits, Map<String, Object> row) {
+        Integer index = bits.layout.positions.get((String) row.get("edition_id"));
+        if (index == null) {
+            return; // 一覧の作成後に追加されたエディション。次回の照合で取り込まれる
+        }
+        if (Boolean.TRUE.equals(row.get("is_purchased"))) {
+            set(bits.purchased, index, true);
+        }
+        if (Boolean.TRUE.equals(row.get("is_wishlist"))) {
+            set(bits.wishlist, index, true);
+        }
+    }
+
+    // まだDBに届いていない後書きキューの更新を、読み込んだビット列に重ねる
+    private static void overlay(UserBits bits, Map<String, StatusWriteBehindQueue.PendingStatus> queued) {
+        queued.forEach((editionId, status) -> {
+            Integer index = bits.layout.positions.get(editionId);
+            if (index == null) {
+                return;
+            }
+            if (status.purchased() != null) {
+                set(bits.purchased, index, status.purchased());
+            }
+            if (status.wishlist() != null) {
+                set(bits.wishlist, index, status.wishlist());
+            }
+        });
+    }
+
+    private boolean switchFlag(String userId, String editionId, boolean value, boolean purchasedFlag) {
+        // DBからの読み込みはロックの外で行う
+        UserBits loaded = userBits(userId);
+        synchronized (this) {
+            UserBits cached = beforeWrite(userId);
+            // 読み込み中の更新などでキャッシュされなかった場合は、読み込んだ時点の値と比べる
+            UserBits current = cached != null ? cached : loaded;
+            Integer index = current.layout.positions.get(editionId);
+            boolean changed = index == null || get(purchasedFlag ? current.purchased : current.wishlist, index) != value;
+            if (cached != null) {
+                setBit(userId, cached, purchasedFlag, editionId, value);
+            }
+            return changed;
+        }
+    }
+
+    // 呼び出し元で this のロックを取得していること。メモリ上に無いユーザーなら null（次回アクセス時にDBから読む）
+    private UserBits beforeWrite(String userId) {
+        Loading state = loading.get(userId);
+        if (state != null) {
+            state.writes++;
+        }
+        return users.get(userId);
+    }
+
+    // 未初期化、または未知のエディションが更新された場合はDBから作り直す
+    private void ensureLoaded() {
+        synchronized (this) {
+            if (layout != null && !stale) {
+                return;
+            }
+        }
+        reconcile();
+    }
+
+    // DBからエディション一覧を読み込んで連番・マスクを作り直し、ユーザーの状態を新しい連番に付け替える
+    void reconcile() {
+        // DBへの問い合わせ中はロックを持たない
+        List<Map<String, Object>> rows = repository.findEditionGroups();
+
+        int size = rows.size();
+        String[] editionIds = new String[size];
+        Map<String, long[]> artistBits = new TreeMap<>();
+        Map<String, long[]> countryBits = new TreeMap<>();
+        Map<String, long[]> categoryBits = new TreeMap<>();
+
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> row = rows.get(i);
+            editionIds[i] = (String) row.get("edition_id");
+            addToGroup(artistBits, (String) row.get("artist"), i, size);
+            addToGroup(countryBits, (String) row.get("country"), i, size);
+            addToGroup(categoryBits, (String) row.get("category"), i, size);
+        }
+        Layout fresh = new Layout(editionIds, artistBits, countryBits, categoryBits);
+
+        synchronized (this) {
+            boolean sameIds = layout != null && layout.version.equals(fresh.version);
+            if (layout != null && !sameIds) {
+                log.info("エディション一覧が変わったため、所持状態の索引を作り直しました（{} → {}件）",
+                        layout.editionIds.length, size);
+            }
+            layout = fresh;
+            stale = false;
+            // 連番が同じならビット列はそのまま（アーティスト・国などのマスクだけ新しくする）、
+            // 変わった場合は editionId で新しい連番へ移す。アクセス順（LRU）は変えない
+            users.replaceAll((userId, bits) -> sameIds
+                    ? new UserBits(fresh, bits.purchased, bits.wishlist)
+                    : remap(bits, fresh));
+        }
+    }
+
+    // ビット列を、別の一覧の連番へ editionId で付け替える（新しい一覧に無いエディションは落とす）
+    private static UserBits remap(UserBits bits, Layout target) {
+        return new UserBits(target, remap(bits.purchased, bits.layout, target), remap(bits.wishlist, bits.layout, target));
+    }
+
+    private static long[] remap(long[] bits, Layout from, Layout to) {
+        long[] moved = new long[words(to.editionIds.length)];
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1; // 一番下の立っているビットを消す
+                Integer position = to.positions.get(from.editionIds[index]);
+                if (position != null) {
+                    set(moved, position, true);
+                }
+            }
+        }
+        return moved;
+    }
+
+    // 呼び出し元で this のロックを取得していること
+    private void setBit(String userId, UserBits bits, boolean purchasedFlag, String editionId, boolean value) {
+        Integer index = bits.layout.positions.get(editionId);
+        if (index == null) {
+            // 索引作成後に追加されたエディション。次回アクセス時に一覧を作り直し、このユーザーはDBから読み直す
+            stale = true;
+            users.remove(userId);
+            return;
+        }
+        set(purchasedFlag ? bits.purchased : bits.wishlist, index, value);
+    }
+
+    private static Map<String, Object> progressByGroup(UserBits bits, Map<String, Mask> masks) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        masks.forEach((key, mask) -> result.put(key, progress(bits, mask)));
+        return result;
+    }
+
+    private static Map<String, Object> progress(UserBits bits, Mask mask) {
+        long owned = countAnd(bits.purchased, mask);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("owned", owned);
+        result.put("count", mask.count);
+        result.put("rate", roundedRate(owned, mask.count));
+        result.put("wishlist", countAnd(bits.wishlist, mask));
+        return result;
+    }
+
+    // (ビット列 AND マスク) の立っているビット数を数える
+    private static long countAnd(long[] bits, Mask mask) {
+        long count = 0;
+        for (int i = 0; i < mask.words.length; i++) {
+            count += Long.bitCount(bits[i] & mask.words[i]);
+        }
+        return count;
+    }
+
+    private static long popcount(long[] bits) {
+        long count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // 旧来の集計クエリ（COUNT(...) * 100.0 / COUNT(*)）と同じく、四捨五入した整数％を返す
+    private static long roundedRate(long owned, long count) {
+        return count == 0 ? 0 : Math.round(owned * 100.0 / count);
+    }
+
+    private static void addToGroup(Map<String, long[]> groups, String key, int index, int size) {
+        if (key != null) {
+            set(groups.computeIfAbsent(key, k -> new long[words(size)]), index, true);
+        }
+    }
+
+    private static void set(long[] bits, int index, boolean value) {
+        long bit = 1L << (index & 63); // index % 64 番目のビット
+        if (value) {
+            bits[index >>> 6] |= bit;
+        } else {
+            bits[index >>> 6] &= ~bit;
+        }
+    }
+
+    private static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << (index & 63))) != 0;
+    }
+
+    private static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * ある時点のエディション一覧と、連番・グループ別マスクの対応。作成後は変更しません。
+     */
+    private static final class Layout {
+        final String version; // editionId の並びのハッシュ値（並びが変われば番号の意味も変わる）
+        final String[] editionIds;
+        final Map<String, Integer> positions;
+        final Mask all;
+        final Map<String, Mask> byArtist;
+        final Map<String, Mask> byCountry;
+        final Map<String, Mask> byCategory;
+
+        Layout(String[] editionIds, Map<String, long[]> artistBits, Map<String, long[]> countryBits,
+                Map<String, long[]> categoryBits) {
+            this.editionIds = editionIds;
+            this.version = DigestUtils.md5DigestAsHex(String.join("\n", editionIds).getBytes(StandardCharsets.UTF_8));
+            Map<String, Integer> index = new HashMap<>(editionIds.length * 2);
+            long[] allBits = new long[words(editionIds.length)];
+            for (int i = 0; i < editionIds.length; i++) {
+                index.put(editionIds[i], i);
+                set(allBits, i, true);
+            }
+            this.positions = Map.copyOf(index);
+            this.all = new Mask(allBits);
+            this.byArtist = toMasks(artistBits);
+            this.byCountry = toMasks(countryBits);
+            this.byCategory = toMasks(categoryBits);
+        }
+
+        private static Map<String, Mask> toMasks(Map<String, long[]> groups) {
+            Map<String, Mask> masks = new LinkedHashMap<>();
+            groups.forEach((key, bits) -> masks.put(key, new Mask(bits)));
+            return masks;
+        }
+    }
+
+    // 1ユーザー分の所持・欲しいもののビット列。どの Layout の連番に対応するかも持つ
+    private static final class UserBits {
+        final Layout layout;
+        final long[] purchased;
+        final long[] wishlist;
+
+        UserBits(Layout layout, long[] purchased, long[] wishlist) {
+            this.layout = layout;
+            this.purchased = purchased;
+            this.wishlist = wishlist;
+        }
+    }
+
+    // DBから読み込み中のユーザーについて、読み込み中の人数と、その間に届いた更新の数
+    private static final class Loading {
+        int loaders;
+        long writes;
+    }
+
+    /**
+     * 1ユーザー分のフラグのコピー。共有カタログの各エディションにフラグを重ねる時に使います。
+     */
+    public static final class View {
+        private final Map<String, Integer> positions;
+        private final long[] purchased;
+        private final long[] wishlist;
+
+        View(Map<String, Integer> positions, long[] purchased, long[] wishlist) {
+            this.positions = positions;
+            this.purchased = purchased;
+            this.wishlist = wishlist;
+        }
+
+        public boolean isPurchased(String editionId) {
+            return test(purchased, editionId);
+        }
+
+        public boolean isWishlist(String editionId) {
+            return test(wishlist, editionId);
+        }
+
+        private boolean test(long[] bits, String editionId) {
+            Integer index = positions.get(editionId);
+            return index != null && (bits[index >>> 6] & (1L << (index & 63))) != 0;
+        }
+    }
+
+    // グループに属するエディションのビットが立ったマスクと、その件数
+    private static final class Mask {
+        final long[] words;
+        final long count;
+
+        Mask(long[] words) {
+            this.words = words;
+            this.count = popcount(words);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.repository.ImageObjectRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * アップロードされた画像を内容のハッシュ（SHA-256）で見分け、同じ画像を二度ストレージへ送らないための索引。
+ * * [仕組み]
+ * 1. 「ハッシュ → 保存済みのURL」の対応は image_objects テーブルに記録し、アプリを再起動しても引き継ぎます。
+ * 2. 最近使った対応は image-dedup.cache.max-entries 件までメモリにも置き、DBへの問い合わせも省きます
+ *    （上限を超えたら最も長く使われていないものから捨てます。LRU）。
+ * 3. 同じ画像が同時に届いた場合（1回の一括登録に同じ画像が複数ある場合など）は、最初の1つだけがアップロードし、
+ *    残りはその完了を待って同じURLを使います。
+ * 4. 索引の読み書きに失敗しても登録は止めず、通常どおりアップロードします（重複を防げないだけで、結果は同じです）。
+ */
+@Component
+public class ImageDedupIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDedupIndex.class);
+
+    private final ImageObjectRepository repository;
+    private final int maxEntries;
+
+    // this のロックで保護する。accessOrder=true で「最後に使われた順」に並べる
+    private final LinkedHashMap<String, StoredImage> recent;
+    // ハッシュ → アップロード中の処理（完了すると保存先のURL。失敗した場合は null）
+    private final ConcurrentHashMap<String, CompletableFuture<StoredImage>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    public ImageDedupIndex(ImageObjectRepository repository,
+            @Value("${image-dedup.cache.max-entries:10000}") int maxEntries) {
+        this.repository = repository;
+        this.maxEntries = Math.max(0, maxEntries);
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredImage> eldest) {
+                return size() > ImageDedupIndex.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 画像の内容から、索引のキーにするハッシュ（SHA-256の16進数）を求めます。
+     * 少しずつ読みながら計算するため、画像全体をメモリに載せません。
+     * * @param input 画像の内容（close はしません）
+     */
+    public static String contentHash(InputStream input) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // すべてのJava実行環境に必ずあるアルゴリズム
+        }
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 同じ内容の画像が保存済みならそのURLを、無ければ upload で保存してそのURLを返します。
+     * * @param contentHash 画像のハッシュ（contentHash で求めたもの）
+     * @param size        画像のバイト数（統計用）
+     * @param upload      保存済みでなかった場合に実行するアップロード処理
+     * @return 保存先のURLと、既存の画像を使い回したかどうか
+     */
+    Resolved resolve(String contentHash, long size, Upload upload) throws IOException {
+        StoredImage cached = cached(contentHash);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            bytesSaved.addAndGet(size);
+            return new Resolved(cached, true);
+        }
+
+        CompletableFuture<StoredImage> mine = new CompletableFuture<>();
+        CompletableFuture<StoredImage> running = inFlight.putIfAbsent(contentHash, mine);
+        if (running != null) {
+            StoredImage shared = await(running);
+            if (shared != null) {
+                coalesced.incrementAndGet();
+                bytesSaved.addAndGet(size);
+                return new Resolved(shared, true);
+            }
+            // 先にアップロードを始めた方が失敗した場合は、こちらで改めてアップロードする
+            return resolve(contentHash, size, upload);
+        }
+
+        StoredImage stored = null;
+        try {
+            stored = find(contentHash);
+            if (stored != null) {
+                databaseHits.incrementAndGet();
+                bytesSaved.addAndGet(size);
+                remember(contentHash, stored);
+                return new Resolved(stored, true);
+            }
+            misses.incrementAndGet();
+            stored = upload.store();
+            remember(contentHash, stored);
+            record(contentHash, size, stored);
+            return new Resolved(stored, false);
+        } finally {
+            inFlight.remove(contentHash, mine);
+            mine.complete(stored);
+        }
+    }
+
+    /**
+     * 索引の利用状況を返します。
+     * * @return cachedEntries / memoryHits / databaseHits / coalesced / misses / bytesSaved を含むMap
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("cachedEntries", recent.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("databaseHits", databaseHits.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("misses", misses.get());
+        stats.put("bytesSaved", bytesSaved.get());
+        return stats;
+    }
+
+    private synchronized StoredImage cached(String contentHash) {
+        return recent.get(contentHash);
+    }
+
+    private synchronized void remember(String contentHash, StoredImage stored) {
+        recent.put(contentHash, stored);
+    }
+
+    private StoredImage find(String contentHash) {
+        try {
+            return repository.findById(contentHash)
+                    .map(object -> new StoredImage(object.getImageUrl(), object.getThumbnailUrl(), object.getImageSrcset()))
+                    .orElse(null);
+        } catch (RuntimeException e) {
+            log.warn("画像の索引を読み込めなかったため、そのままアップロードします: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void record(String contentHash, long size, StoredImage stored) {
+        try {
+            repository.insertIfAbsent(contentHash, stored.imageUrl(), stored.thumbnailUrl(), stored.srcset(), size);
+        } catch (RuntimeException e) {
+            // 記録できなくてもアップロード自体は成功している。次回同じ画像が来た時に重複して保存されるだけ
+            log.warn("画像の索引に記録できませんでした: {}", e.getMessage());
+        }
+    }
+
+    private static StoredImage await(CompletableFuture<StoredImage> running) throws InterruptedIOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("同じ画像のアップロード待ちの間に中断されました");
+        } catch (ExecutionException e) {
+            return null; // complete(null) でしか完了させないため、ここには来ない
+        }
+    }
+
+    /**
+     * 保存済みでなかった場合に実行する、ストレージへのアップロード処理。
+     */
+    @FunctionalInterface
+    interface Upload {
+        StoredImage store() throws IOException;
+    }
+
+    /**
+     * resolve の結果（保存先のURLと、既存の画像を使い回したかどうか）。
+     */
+    record Resolved(StoredImage image, boolean deduplicated) {
+    }
+}
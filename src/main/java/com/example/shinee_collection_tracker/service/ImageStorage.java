@@ -0,0 +1,49 @@
+package com.example.shinee_collection_tracker.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 画像の保存先（ストレージ）を差し替えられるようにするためのインターフェース。
+ * * [実装]
+ * - dbStorageService    : Supabase Storage にHTTPでアップロード（storage.backend=supabase、既定）
+ * - LocalImageStorage   : サーバーのローカルディスクに保存（storage.backend=local）
+ * * 呼び出し側（RandomItemUploadService など）はこのインターフェースだけに依存するため、
+ * 設定を変えるだけで保存先を切り替えられ、オフラインでのテストも可能になります。
+ */
+public interface ImageStorage {
+
+    /**
+     * 画像を保存し、ブラウザから参照できるURLを返します。
+     * * @param file       アップロードされた画像
+     * @param objectName 保存先のファイル名（newObjectName で生成したもの）
+     * @return 画像のURL
+     */
+    String uploadImage(MultipartFile file, String objectName) throws IOException;
+
+    /**
+     * メモリ上で作った画像（サムネイルなど）を保存し、URLを返します。
+     */
+    String uploadBytes(byte[] data, String contentType, String objectName) throws IOException;
+
+    /**
+     * 保存処理の回数・失敗数・所要時間などの統計を返します。
+     */
+    Map<String, Object> getStats();
+
+    // ファイル名を自動で決めて保存する
+    default String uploadImage(MultipartFile file) throws IOException {
+        return uploadImage(file, newObjectName(file.getOriginalFilename()));
+    }
+
+    // 元のファイル名の拡張子を引き継いだ、UUIDのファイル名を作る
+    static String newObjectName(String originalFilename) {
+        String extension = (originalFilename != null && originalFilename.contains("."))
+                ? originalFilename.substring(originalFilename.lastIndexOf("."))
+                : "";
+        return UUID.randomUUID().toString() + extension;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.shinee_collection_tracker.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * アップロードされた画像から、一覧表示用の縮小画像（サムネイル）を作るサービス。
+ * * [ポイント]
+ * 1. random-item.thumbnail.widths で指定した幅（例: 160, 320, 640px）ごとにJPEGで書き出します。
+ * 2. 元画像より大きい幅は作りません（拡大はしない）。
+ * 3. 巨大な写真でもメモリを圧迫しないよう、読み込み時点で間引いて（サブサンプリング）デコードします。
+ * 4. ImageIO が読めない形式（HEICなど）の場合は空のリストを返し、元画像だけを使います。
+ */
+@Service
+public class ImageThumbnailService {
+
+    private final List<Integer> widths;
+    private final float quality;
+
+    public ImageThumbnailService(
+            @Value("${random-item.thumbnail.widths:160,320,640}") List<Integer> widths,
+            @Value("${random-item.thumbnail.quality:0.8}") float quality) {
+        this.widths = List.copyOf(new TreeSet<>(widths));
+        this.quality = quality;
+    }
+
+    /**
+     * 画像から縮小版を作ります。
+     * * @param input 元画像のデータ（呼び出し側で close してください）
+     * @return 幅の小さい順の縮小画像。画像として読めない場合は空のリスト
+     */
+    public List<Thumbnail> createThumbnails(InputStream input) throws IOException {
+        BufferedImage source = readDownsampled(input);
+        if (source == null) {
+            return List.of();
+        }
+
+        List<Thumbnail> thumbnails = new ArrayList<>();
+        for (int width : widths) {
+            if (width >= source.getWidth()) {
+                break; // これ以上は拡大になるので作らない
+            }
+            int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+            thumbnails.add(new Thumbnail(width, encodeJpeg(resize(source, width, height))));
+        }
+        return thumbnails;
+    }
+
+    /**
+     * 縮小画像1枚分のデータ。
+     * * @param width 画像の幅(px)
+     * @param jpeg  JPEG形式のバイト列
+     */
+    public record Thumbnail(int width, byte[] jpeg) {
+    }
+
+    // 最大のサムネイル幅を下回らない範囲で、読み込み時に画素を間引いてデコードする
+    private BufferedImage readDownsampled(InputStream input) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            if (stream == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int largest = widths.isEmpty() ? sourceWidth : widths.get(widths.size() - 1);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, sourceWidth / Math.max(1, largest * 2));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // 半分ずつ縮めてから目的のサイズに合わせることで、一気に縮めるよりジャギーを抑える
+    private static BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        while (w / 2 >= width) {
+            w /= 2;
+            h = Math.max(1, h / 2);
+            current = draw(current, w, h);
+        }
+        return draw(current, width, height);
+    }
+
+    // 透過PNGでもJPEGにできるよう、白背景のRGB画像に描き直す
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,476 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Job;
+import com.example.shinee_collection_tracker.model.JobStatus;
+import com.example.shinee_collection_tracker.repository.JobRepository;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 時間のかかる処理（画像の登録・カタログの作り直し・所持状態の照合）を、リクエスト処理用のスレッドとは別に
+ * 裏で実行するジョブの仕組み。呼び出し側はすぐに 202 Accepted を返し、画面は GET /api/jobs/{id} で進み具合を確認します。
+ * * [仕組み]
+ * 1. ワーカーは JobType.Worker ごとの上限付きスレッドプールです（Java 17 のため仮想スレッドではなく通常のスレッド）。
+ *    待ち行列が jobs.queue-capacity を超えた場合は、依頼を 503 で断ります。
+ * 2. 失敗したジョブは、JobType の回数まで待ち時間を倍々に延ばしながら（jobs.retry-backoff）やり直します。
+ * 3. 同じ idempotency key の依頼は、新しく実行せず既存のジョブを返します（通信が切れて再送された場合の二重実行を防ぐ）。
+ *    キーは処理を作る前に予約するため、同時に届いた場合も後の方は先の方のジョブを受け取ります。
+ *    待ち行列がいっぱいで断った依頼は、キーも記録も残しません（後で送り直せば実行されます）。
+ * 4. ジョブの記録は jobs テーブルに残します。進み具合（progress）はメモリ上だけで更新し、
+ *    DBへは状態が変わった時（登録・開始・再試行・完了）だけ書き込みます。
+ * 5. アプリの停止で中断されたジョブは、次回起動時に失敗扱いにします（処理の内容はメモリ上にしかないため、再開はしません）。
+ */
+@Service
+public class JobService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobService.class);
+
+    private final JobRepository repository;
+    private final JsonMapper jsonMapper;
+    private final Duration retryBackoff;
+    private final Duration memoryRetention;
+    private final Duration retention;
+
+    private final Map<JobType.Worker, ThreadPoolExecutor> workers = new EnumMap<>(JobType.Worker.class);
+    private final ScheduledExecutorService retryScheduler;
+
+    // jobId → 実行中・最近終わったジョブ
+    private final ConcurrentHashMap<String, Running> jobs = new ConcurrentHashMap<>();
+    // idempotency key → jobId（登録中の依頼は未完了の予約。メモリ上に無ければDBを確認する）
+    private final ConcurrentHashMap<String, CompletableFuture<String>> idempotencyKeys = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public JobService(JobRepository repository,
+            JsonMapper jsonMapper,
+            @Value("${jobs.io.concurrency:4}") int ioConcurrency,
+            @Value("${jobs.maintenance.concurrency:1}") int maintenanceConcurrency,
+            @Value("${jobs.queue-capacity:1000}") int queueCapacity,
+            @Value("${jobs.retry-backoff:PT2S}") Duration retryBackoff,
+            @Value("${jobs.memory-retention:PT1H}") Duration memoryRetention,
+            @Value("${jobs.retention:P7D}") Duration retention) {
+        this.repository = repository;
+        this.jsonMapper = jsonMapper;
+        this.retryBackoff = retryBackoff;
+        this.memoryRetention = memoryRetention;
+        this.retention = retention;
+        workers.put(JobType.Worker.IO, worker("job-io-", ioConcurrency, queueCapacity));
+        workers.put(JobType.Worker.MAINTENANCE, worker("job-maintenance-", maintenanceConcurrency, queueCapacity));
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("job-retry-"));
+    }
+
+    /**
+     * ジョブを登録し、ワーカーで実行させます（すぐに戻ります）。
+     * * @param type           ジョブの種類
+     * @param idempotencyKey 同じ依頼を見分けるキー（不要なら null）。同じキーのジョブがあれば、それを返します
+     * @param factory        実行する処理を作る関数。新しくジョブを登録する場合だけ、この場で呼び出します
+     *                       （依頼の内容の確認もここで行い、問題があれば ResponseStatusException などを投げてください）
+     * @return 登録した（または既存の）ジョブの状態
+     */
+    public JobStatus submit(JobType type, String idempotencyKey, Supplier<Task> factory) {
+        if (idempotencyKey == null) {
+            return start(type, null, UUID.randomUUID().toString(), factory);
+        }
+        while (true) {
+            // 処理を作る前にキーを予約する（同じキーの依頼が同時に届いた場合、後の方は先の方の登録を待つ）
+            CompletableFuture<String> reservation = new CompletableFuture<>();
+            CompletableFuture<String> existing = idempotencyKeys.putIfAbsent(idempotencyKey, reservation);
+            if (existing != null) {
+                Optional<JobStatus> status = awaitReservation(idempotencyKey, existing);
+                if (status.isPresent()) {
+                    return status.get();
+                }
+                continue; // 先の依頼は登録に失敗した。改めてこちらで登録する
+            }
+
+            try {
+                // メモリに無くても、DBに記録があればそれを返す（再起動前に受け付けた依頼など）
+                JobStatus persisted = findPersisted(idempotencyKey);
+                if (persisted != null) {
+                    reservation.complete(persisted.getJobId());
+                    return persisted;
+                }
+                JobStatus status = start(type, idempotencyKey, UUID.randomUUID().toString(), factory);
+                reservation.complete(status.getJobId());
+                return status;
+            } catch (RuntimeException e) {
+                // 登録できなかったキーは残さない（同じキーで送り直せば、改めて登録を試みる）
+                idempotencyKeys.remove(idempotencyKey, reservation);
+                reservation.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    // 処理を作り、ジョブとして記録してワーカーの待ち行列に入れる
+    private JobStatus start(JobType type, String idempotencyKey, String jobId, Supplier<Task> factory) {
+        Task task = factory.get();
+        Job job = new Job(jobId, type.name(), idempotencyKey, "QUEUED", 0, type.maxAttempts(),
+                0, "順番待ち", null, null, OffsetDateTime.now(), null, null);
+        Running running = new Running(job, type, task);
+        jobs.put(jobId, running);
+        persist(running);
+
+        if (!enqueue(running)) {
+            // 待ち行列がいっぱいで受け付けられなかった依頼は、記録ごと無かったことにする
+            rejected.incrementAndGet();
+            jobs.remove(jobId, running);
+            try {
+                repository.deleteById(jobId);
+            } catch (RuntimeException e) {
+                log.warn("受け付けられなかったジョブの記録を削除できませんでした（{}）: {}", jobId, e.getMessage());
+            }
+            task.discard();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "処理待ちのジョブが多いため、しばらくしてから試してください");
+        }
+        submitted.incrementAndGet();
+        return status(running);
+    }
+
+    // 同じキーで先に届いた依頼の登録を待ち、そのジョブを返す（先の依頼が失敗した場合は空）
+    private Optional<JobStatus> awaitReservation(String idempotencyKey, CompletableFuture<String> reservation) {
+        String jobId;
+        try {
+            jobId = reservation.join();
+        } catch (CompletionException | CancellationException e) {
+            return Optional.empty();
+        }
+        Optional<JobStatus> status = find(jobId);
+        if (status.isEmpty()) {
+            idempotencyKeys.remove(idempotencyKey, reservation); // 記録が片付けられた後のキー
+        }
+        return status;
+    }
+
+    /**
+     * 同じ依頼を見分ける必要のないジョブを登録します。
+     */
+    public JobStatus submit(JobType type, Task task) {
+        return submit(type, null, () -> task);
+    }
+
+    /**
+     * ジョブの状態を返します（メモリ上に無ければDBの記録から）。
+     */
+    public Optional<JobStatus> find(String jobId) {
+        Running running = jobs.get(jobId);
+        if (running != null) {
+            return Optional.of(status(running));
+        }
+        try {
+            return repository.findById(jobId).map(job -> toStatus(job, parseResult(job.getResult())));
+        } catch (RuntimeException e) {
+            log.warn("ジョブの記録を読み込めませんでした: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * ジョブの実行状況を返します。
+     * * @return ワーカーごとの実行中・待ち件数と、登録・成功・失敗・再試行・拒否の累計を含むMap
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        workers.forEach((worker, executor) -> {
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("concurrency", executor.getMaximumPoolSize());
+            pool.put("active", executor.getActiveCount());
+            pool.put("queued", executor.getQueue().size());
+            stats.put(worker.name().toLowerCase(), pool);
+        });
+        stats.put("inMemory", jobs.size());
+        stats.put("submitted", submitted.get());
+        stats.put("succeeded", succeeded.get());
+        stats.put("failed", failed.get());
+        stats.put("retried", retried.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    // 前回の停止で中断されたジョブ（メモリ上の処理ごと失われている）を失敗扱いにする
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterrupted() {
+        try {
+            int count = repository.failUnfinished("アプリの再起動により中断されました", OffsetDateTime.now());
+            if (count > 0) {
+                log.info("中断されていたジョブ{}件を失敗扱いにしました", count);
+            }
+        } catch (RuntimeException e) {
+            log.warn("中断されたジョブを片付けられませんでした: {}", e.getMessage());
+        }
+    }
+
+    // 終わったジョブをメモリから外し（jobs.memory-retention）、古い記録をDBから削除する（jobs.retention）
+    @Scheduled(fixedDelayString = "${jobs.cleanup-interval:PT10M}", initialDelayString = "${jobs.cleanup-interval:PT10M}")
+    public void cleanup() {
+        OffsetDateTime memoryCutoff = OffsetDateTime.now().minus(memoryRetention);
+        jobs.values().removeIf(running -> {
+            synchronized (running) {
+                OffsetDateTime finishedAt = running.job.getFinishedAt();
+                if (finishedAt == null || !finishedAt.isBefore(memoryCutoff)) {
+                    return false;
+                }
+            }
+            if (running.job.getIdempotencyKey() != null) {
+                idempotencyKeys.computeIfPresent(running.job.getIdempotencyKey(), (key, reservation) ->
+                        running.job.getJobId().equals(reservation.getNow(null)) ? null : reservation);
+            }
+            return true;
+        });
+        try {
+            repository.deleteFinishedBefore(OffsetDateTime.now().minus(retention));
+        } catch (RuntimeException e) {
+            log.warn("古いジョブの記録を削除できませんでした: {}", e.getMessage());
+        }
+    }
+
+    // アプリ停止時にワーカーを止める（実行中のジョブは次回起動時に失敗扱いになる）
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        workers.values().forEach(ThreadPoolExecutor::shutdownNow);
+    }
+
+    // ワーカーの待ち行列に入れる。いっぱいで入らなければ false
+    private boolean enqueue(Running running) {
+        try {
+            workers.get(running.type.worker()).execute(() -> execute(running));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void execute(Running running) {
+        int attempt;
+        synchronized (running) {
+            Job job = running.job;
+            attempt = job.getAttempts() + 1;
+            job.setStatus("RUNNING");
+            job.setAttempts(attempt);
+            job.setMessage("実行中");
+            if (job.getStartedAt() == null) {
+                job.setStartedAt(OffsetDateTime.now());
+            }
+        }
+        persist(running);
+
+        try {
+            Object result = running.task.run(running);
+            finish(running, "SUCCEEDED", result, null);
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            } else if (attempt < running.type.maxAttempts()) {
+                retryLater(running, attempt, error);
+                return;
+            }
+            log.warn("ジョブ {}（{}）が失敗しました: {}", running.job.getJobId(), running.type, error);
+            finish(running, "FAILED", null, error);
+        }
+    }
+
+    // 待ち時間を 1倍 → 2倍 → 4倍… と延ばしてから、もう一度ワーカーの待ち行列に入れる（指数バックオフ）
+    private void retryLater(Running running, int attempt, String error) {
+        long delayMillis = retryBackoff.toMillis() << Math.min(attempt - 1, 10);
+        synchronized (running) {
+            running.job.setStatus("RETRYING");
+            running.job.setError(error);
+            running.job.setMessage((delayMillis / 1000.0) + "秒後に再試行します");
+        }
+        retried.incrementAndGet();
+        persist(running);
+        try {
+            retryScheduler.schedule(() -> {
+                if (!enqueue(running)) {
+                    rejected.incrementAndGet();
+                    finish(running, "FAILED", null, "ワーカーが混雑しているため再試行できませんでした");
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            finish(running, "FAILED", null, error); // アプリの停止中
+        }
+    }
+
+    private void finish(Running running, String status, Object result, String error) {
+        String json = null;
+        if (result != null) {
+            try {
+                json = jsonMapper.writeValueAsString(result);
+            } catch (JacksonException e) {
+                log.warn("ジョブの結果をJSONにできませんでした: {}", e.getOriginalMessage());
+            }
+        }
+        synchronized (running) {
+            Job job = running.job;
+            job.setStatus(status);
+            job.setResult(json);
+            job.setError(error);
+            job.setFinishedAt(OffsetDateTime.now());
+            if ("SUCCEEDED".equals(status)) {
+                job.setProgress(100);
+                job.setMessage("完了");
+            } else {
+                job.setMessage("失敗");
+            }
+            running.result = result;
+        }
+        ("SUCCEEDED".equals(status) ? succeeded : failed).incrementAndGet();
+        persist(running);
+    }
+
+    // 今の状態をDBに書き込む（書き込めなくてもジョブは続ける。メモリ上の状態は GET /api/jobs/{id} で確認できる）
+    private void persist(Running running) {
+        Job copy;
+        synchronized (running) {
+            Job job = running.job;
+            copy = new Job(job.getJobId(), job.getType(), job.getIdempotencyKey(), job.getStatus(), job.getAttempts(),
+                    job.getMaxAttempts(), job.getProgress(), job.getMessage(), job.getResult(), job.getError(),
+                    job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt());
+        }
+        try {
+            repository.save(copy);
+        } catch (RuntimeException e) {
+            log.warn("ジョブの記録を保存できませんでした（{}）: {}", copy.getJobId(), e.getMessage());
+        }
+    }
+
+    private JobStatus findPersisted(String idempotencyKey) {
+        try {
+            return repository.findByIdempotencyKey(idempotencyKey)
+                    .map(job -> toStatus(job, parseResult(job.getResult())))
+                    .orElse(null);
+        } catch (RuntimeException e) {
+            log.warn("ジョブの記録を読み込めませんでした: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private JobStatus status(Running running) {
+        synchronized (running) {
+            return toStatus(running.job, running.result);
+        }
+    }
+
+    private static JobStatus toStatus(Job job, Object result) {
+        return new JobStatus(job.getJobId(), job.getType(), job.getStatus(), job.getProgress(), job.getMessage(),
+                job.getAttempts(), job.getMaxAttempts(), result, job.getError(), text(job.getCreatedAt()),
+                text(job.getStartedAt()), text(job.getFinishedAt()));
+    }
+
+    private Object parseResult(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return jsonMapper.readTree(json);
+        } catch (JacksonException e) {
+            return json;
+        }
+    }
+
+    private static String text(OffsetDateTime time) {
+        return time == null ? null : time.toString();
+    }
+
+    private static ThreadPoolExecutor worker(String prefix, int concurrency, int queueCapacity) {
+        int threads = Math.max(1, concurrency);
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory(prefix));
+    }
+
+    // スレッドダンプで見分けられるよう、名前付きのデーモンスレッドを作る
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * ジョブとして実行する処理。戻り値は JSON にしてジョブの result に保存されます。
+     */
+    @FunctionalInterface
+    public interface Task {
+        Object run(Context context) throws Exception;
+
+        /**
+         * 待ち行列がいっぱいで、一度も実行されずに捨てられた時に呼ばれます（確保していたものを手放す用）。
+         */
+        default void discard() {
+        }
+    }
+
+    /**
+     * 実行中のジョブから、進み具合を知らせるためのもの。
+     */
+    public interface Context {
+        /**
+         * @param percent 0〜100（%）
+         * @param message 今何をしているか（画面表示用）
+         */
+        void progress(int percent, String message);
+    }
+
+    // 実行中・最近終わったジョブ（job と result は this のロックで保護する）
+    private static final class Running implements Context {
+        final Job job;
+        final JobType type;
+        final Task task;
+        Object result;
+
+        Running(Job job, JobType type, Task task) {
+            this.job = job;
+            this.type = type;
+            this.task = task;
+        }
+
+        @Override
+        public synchronized void progress(int percent, String message) {
+            job.setProgress(Math.max(0, Math.min(100, percent)));
+            job.setMessage(message);
+        }
+    }
+}
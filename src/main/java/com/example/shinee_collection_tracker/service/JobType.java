@@ -0,0 +1,41 @@
+package com.example.shinee_collection_tracker.service;
+
+/**
+ * JobService で実行するジョブの種類。
+ * 種類ごとに、どのワーカー（スレッドプール）で動かすかと、失敗した時に何回まで実行するかを決めています。
+ */
+public enum JobType {
+
+    // ランダムアイテムの一括登録（サムネイル作成・ストレージへのアップロード・DB保存）。
+    // 一部のアイテムが保存済みの状態でやり直すと二重登録になるため、再試行はしない（失敗はスロットごとに報告される）
+    RANDOM_ITEM_UPLOAD(Worker.IO, 1),
+
+    // カタログのキャッシュ・スナップショット・検索索引・マスタデータの作り直し（何度やり直しても結果は同じ）
+    CATALOG_REFRESH(Worker.MAINTENANCE, 3),
+
+    // 所持状態の索引の照合（何度やり直しても結果は同じ）
+    STATUS_RECONCILE(Worker.MAINTENANCE, 3);
+
+    /**
+     * ジョブを動かすワーカー。
+     * - IO          : ストレージなど外部との通信待ちが中心の処理（jobs.io.concurrency 本まで同時に実行）
+     * - MAINTENANCE : DBの読み込みとメモリ上の作り直しが中心の処理（jobs.maintenance.concurrency 本まで）
+     */
+    public enum Worker { IO, MAINTENANCE }
+
+    private final Worker worker;
+    private final int maxAttempts;
+
+    JobType(Worker worker, int maxAttempts) {
+        this.worker = worker;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Worker worker() {
+        return worker;
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.shinee_collection_tracker.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 画像をサーバーのローカルディスクに保存する ImageStorage の実装（storage.backend=local）。
+ * * [ポイント]
+ * 1. 書き込みは NIO の FileChannel.transferFrom で行います。分割アップロードでディスクに溜めた画像（SpooledImageFile）は
+ *    FileChannel 同士の転送になるため、ヒープを経由せずに保存先へコピーします。
+ *    通常のアップロード（MultipartFile）は getInputStream() から読むため小さなバッファを経由しますが、
+ *    画像全体をヒープに載せることはありません（元の一時ファイルは、この後のサムネイル作成で読み直すため動かしません）。
+ * 2. 書き込み途中のファイルが配信されないよう、root と同じ階層の一時フォルダ（"<root のフォルダ名>.uploading"。
+ *    /images/** の配信対象外）に書いてから、名前を変えて root へ移します（同じファイルシステム上なので一瞬で置き換わります）。
+ * 3. 保存した画像は LocalImageStorageConfig が /images/** として配信します
+ *    （Range リクエストや Last-Modified による再検証に対応）。
+ * 4. 書き込みの所要時間は Micrometer の storage.upload（backend=local）として記録します。
+ * * オフライン開発・テストや、オブジェクトストレージの手前に置くノード内の画像層として使えます。
+ */
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalImageStorage implements ImageStorage {
+
+    private final Path root;
+    // 書き込み途中のファイルを置くフォルダ（root の外で、同じファイルシステム上）
+    private final Path uploading;
+    private final String publicBaseUrl;
+
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final Timer uploadSuccess;
+    private final Timer uploadError;
+
+    public LocalImageStorage(
+            MeterRegistry meterRegistry,
+            @Value("${storage.local.root:./data/images}") Path root,
+            @Value("${storage.local.public-base-url:/images}") String publicBaseUrl) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.publicBaseUrl = publicBaseUrl.endsWith("/")
+                ? publicBaseUrl.substring(0, publicBaseUrl.length() - 1)
+                : publicBaseUrl;
+        this.uploading = this.root.resolveSibling(this.root.getFileName() + ".uploading");
+        Files.createDirectories(this.root);
+        Files.createDirectories(this.uploading);
+        this.uploadSuccess = uploadTimer(meterRegistry, "success");
+        this.uploadError = uploadTimer(meterRegistry, "error");
+    }
+
+    private static Timer uploadTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("storage.upload")
+                .description("画像1ファイルをストレージへ保存するまでの時間")
+                .tag("backend", "local")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String uploadImage(MultipartFile file, String objectName) throws IOException {
+        if (file instanceof SpooledImageFile spooled) {
+            try (FileChannel source = FileChannel.open(spooled.path(), StandardOpenOption.READ)) {
+                return write(objectName, source, file.getSize());
+            }
+        }
+        try (InputStream input = file.getInputStream();
+                ReadableByteChannel source = Channels.newChannel(input)) {
+            return write(objectName, source, file.getSize());
+        }
+    }
+
+    @Override
+    public String uploadBytes(byte[] data, String contentType, String objectName) throws IOException {
+        long start = System.nanoTime();
+        Path target = resolve(objectName);
+        Path temp = Files.createTempFile(uploading, ".upload-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            publish(temp, target);
+            record(start, data.length);
+            return publicBaseUrl + "/" + objectName;
+        } catch (IOException | RuntimeException e) {
+            errors.incrementAndGet();
+            uploadError.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long writeCount = writes.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", "local");
+        stats.put("root", root.toString());
+        stats.put("writes", writeCount);
+        stats.put("errors", errors.get());
+        stats.put("bytesWritten", bytesWritten.get());
+        stats.put("avgMillis", writeCount == 0 ? 0.0 : totalNanos.get() / 1_000_000.0 / writeCount);
+        return stats;
+    }
+
+    // 読み込み元チャネルの内容を、FileChannel.transferFrom でまとめて保存先へ書き込む
+    private String write(String objectName, ReadableByteChannel source, long size) throws IOException {
+        long start = System.nanoTime();
+        Path target = resolve(objectName);
+        Path temp = Files.createTempFile(uploading, ".upload-", ".tmp");
+        try {
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                // transferFrom は一度で全部を転送するとは限らないため、終わるまで繰り返す
+                while (true) {
+                    long chunk = channel.transferFrom(source, written, Math.max(size - written, 1 << 20));
+                    if (chunk <= 0) {
+                        break;
+                    }
+                    written += chunk;
+                }
+                channel.force(false);
+            }
+            publish(temp, target);
+            record(start, written);
+            return publicBaseUrl + "/" + objectName;
+        } catch (IOException | RuntimeException e) {
+            errors.incrementAndGet();
+            uploadError.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    // 書き終わった一時ファイルを、正式なファイル名に一瞬で置き換える
+    private static void publish(Path temp, Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // "../" などで保存先フォルダの外に書き込まれないようにチェックする
+    private Path resolve(String objectName) throws IOException {
+        Path target = root.resolve(objectName).normalize();
+        if (!target.getParent().equals(root)) {
+            throw new IOException("不正なファイル名です: " + objectName);
+        }
+        return target;
+    }
+
+    private void record(long startNanos, long bytes) {
+        long elapsed = System.nanoTime() - startNanos;
+        writes.incrementAndGet();
+        bytesWritten.addAndGet(bytes);
+        totalNanos.addAndGet(elapsed);
+        uploadSuccess.record(elapsed, TimeUnit.NANOSECONDS);
+    }
+}
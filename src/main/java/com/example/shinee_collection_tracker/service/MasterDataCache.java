@@ -0,0 +1,139 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Disc;
+import com.example.shinee_collection_tracker.model.DiscWithEditions;
+import com.example.shinee_collection_tracker.model.Edition;
+import com.example.shinee_collection_tracker.repository.DiscRepository;
+import com.example.shinee_collection_tracker.repository.EditionRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * アルバム（discs）と形態（editions）のマスタデータを、メモリ上に読み取り専用で保持するキャッシュ。
+ * ランダムアイテム管理画面のプルダウン（/api/master/**）は、DBへ問い合わせずにここから返します。
+ * * [仕組み]
+ * 1. 起動完了時と一定間隔（master-data.refresh-interval）で、2つのテーブルを全件読み込み直します。
+ * 2. disc_id → 形態一覧 の対応表と、アルバムごとに形態をまとめた一覧（tree）を作り、
+ *    内容のハッシュ値（version）と一緒に Snapshot としてまとめて公開します。ETag にはこの version を使います。
+ * 3. 内容が前回と同じ場合は、前回の Snapshot をそのまま使い続けます（ETag も変わりません）。
+ * * [スレッド安全性]
+ * Snapshot の一覧・対応表はすべて変更不可のコピーで、volatile 参照の差し替えだけで更新するため、
+ * 読み取り側でロックは不要です。
+ */
+@Component
+public class MasterDataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MasterDataCache.class);
+
+    private final DiscRepository discRepository;
+    private final EditionRepository editionRepository;
+    private final JsonMapper jsonMapper;
+
+    private volatile Snapshot snapshot;
+
+    public MasterDataCache(DiscRepository discRepository, EditionRepository editionRepository, JsonMapper jsonMapper) {
+        this.discRepository = discRepository;
+        this.editionRepository = editionRepository;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * 現在のマスタデータを返します。まだ読み込まれていない場合は、ここで読み込みます。
+     */
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        return current != null ? current : rebuild();
+    }
+
+    /**
+     * discs / editions を読み込み直して、Snapshot を作り直します。
+     * 内容が前回と同じ場合は、前回の Snapshot をそのまま使い続けます。
+     */
+    public synchronized Snapshot rebuild() {
+        List<Disc> discs = discRepository.findAll(Sort.by("discId"));
+        List<Edition> editions = editionRepository.findAll(Sort.by("editionId"));
+
+        Map<String, List<Edition>> grouped = new LinkedHashMap<>();
+        for (Disc disc : discs) {
+            grouped.put(disc.getDiscId(), new ArrayList<>());
+        }
+        for (Edition edition : editions) {
+            // 親のアルバムが無い形態も、disc_id での絞り込みでは従来どおり返す
+            grouped.computeIfAbsent(edition.getDiscId(), k -> new ArrayList<>()).add(edition);
+        }
+
+        List<DiscWithEditions> tree = new ArrayList<>(discs.size());
+        Map<String, List<Edition>> editionsByDisc = new LinkedHashMap<>();
+        grouped.forEach((discId, list) -> editionsByDisc.put(discId, List.copyOf(list)));
+        for (Disc disc : discs) {
+            tree.add(new DiscWithEditions(disc.getDiscId(), disc.getArtist(), disc.getTitle(),
+                    editionsByDisc.get(disc.getDiscId())));
+        }
+
+        String version = DigestUtils.md5DigestAsHex(jsonMapper.writeValueAsBytes(tree));
+        Snapshot current = snapshot;
+        if (current != null && current.version().equals(version)) {
+            return current;
+        }
+
+        Set<String> editionIds = editions.stream().map(Edition::getEditionId).collect(Collectors.toUnmodifiableSet());
+        Snapshot built = new Snapshot(version, List.copyOf(discs), Map.copyOf(editionsByDisc), List.copyOf(tree), editionIds);
+        snapshot = built;
+        log.info("マスタデータを読み込みました（アルバム{}件, 形態{}件, version={}）", discs.size(), editions.size(), version);
+        return built;
+    }
+
+    // 起動完了後に読み込んでおき、最初のプルダウン表示を待たせないようにする
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refreshQuietly();
+    }
+
+    // DBを直接修正した場合にも追従できるよう、定期的に読み込み直す
+    @Scheduled(fixedDelayString = "${master-data.refresh-interval:PT10M}",
+            initialDelayString = "${master-data.refresh-interval:PT10M}")
+    public void scheduledRefresh() {
+        refreshQuietly();
+    }
+
+    private void refreshQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // DBに繋がらない場合でも、次回の実行（または最初のリクエスト）で読み込めばよいのでログだけ残す
+            log.warn("マスタデータを読み込めませんでした: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * ある時点のマスタデータ。
+     * * @param version        内容のハッシュ値（ETag として使用）
+     * @param discs          アルバム一覧（disc_id 順）
+     * @param editionsByDisc disc_id → 形態一覧（edition_id 順）
+     * @param tree           アルバムごとに形態をまとめた一覧（disc_id 順）
+     * @param editionIds     全形態の edition_id（存在確認用）
+     */
+    public record Snapshot(String version, List<Disc> discs, Map<String, List<Edition>> editionsByDisc,
+            List<DiscWithEditions> tree, Set<String> editionIds) {
+
+        public List<Edition> editions(String discId) {
+            return editionsByDisc.getOrDefault(discId, List.of());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.FacetCount;
+import com.example.shinee_collection_tracker.model.RandomItem;
+import com.example.shinee_collection_tracker.model.RandomItemFacets;
+import com.example.shinee_collection_tracker.model.RandomItemPage;
+import com.example.shinee_collection_tracker.repository.RandomItemRepository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * ランダムアイテムのギャラリー表示（ページング・絞り込み・件数集計）を担当するサービス。
+ * * [処理の流れ]
+ * 1. 形態・メンバー・種別の条件は、それぞれ複数指定できます（どれかに一致すれば表示）。
+ * 2. 一覧は新しい順に、キーセット方式で1ページ分だけDBから取得します（全件は読み込みません）。
+ * 3. 絞り込みボタン用の件数は、メンバー別・種別ごとの GROUP BY 2本で数えます。
+ */
+@Service
+public class RandomItemGalleryService {
+
+    // 1ページあたりの既定件数と上限（巨大なページ指定でヒープを圧迫しないためのガード）
+    private static final int DEFAULT_PAGE_SIZE = 60;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final RandomItemRepository repository;
+
+    public RandomItemGalleryService(RandomItemRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * 条件に合うランダムアイテムを、新しい順に1ページ分返します。
+     * * @param editionIds     形態IDの条件（未指定なら全件）
+     * @param memberNames    メンバー名の条件（未指定なら全件）
+     * @param itemTypes      種別の条件（未指定なら全件）
+     * @param afterCreatedAt 前ページの nextCreatedAt（1ページ目は省略）
+     * @param afterId        前ページの nextItemId（1ページ目は省略）
+     * @param size           1ページあたりの件数（省略時60、最大200）
+     * @return 1ページ分の結果と次ページ用カーソル
+     */
+    public RandomItemPage findPage(List<String> editionIds, List<String> memberNames, List<String> itemTypes,
+            String afterCreatedAt, Long afterId, Integer size) {
+
+        int pageSize = (size == null || size <= 0) ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        Set<String> editions = normalizeFilter(editionIds);
+        Set<String> members = normalizeFilter(memberNames);
+        Set<String> types = normalizeFilter(itemTypes);
+        boolean first = afterId == null || afterCreatedAt == null || afterCreatedAt.isEmpty();
+
+        // 空の条件はクエリに含まれない（RandomItemGalleryQueries 参照）
+        List<RandomItem> rows = repository.findGalleryPage(editions, members, types,
+                first ? null : parseCursor(afterCreatedAt), first ? null : afterId, pageSize + 1);
+
+        boolean hasNext = rows.size() > pageSize;
+        List<RandomItem> items = hasNext ? rows.subList(0, pageSize) : rows;
+        if (!hasNext || items.isEmpty()) {
+            return new RandomItemPage(items, null, null, false);
+        }
+        RandomItem last = items.get(items.size() - 1);
+        return new RandomItemPage(items, last.getCreatedAt().toString(), last.getItemId(), true);
+    }
+
+    /**
+     * 絞り込みボタンに添える、メンバー別・種別ごとの件数を返します（数え方は RandomItemFacets を参照）。
+     */
+    public RandomItemFacets countFacets(List<String> editionIds, List<String> memberNames, List<String> itemTypes) {
+        Set<String> editions = normalizeFilter(editionIds);
+        Set<String> members = normalizeFilter(memberNames);
+        Set<String> types = normalizeFilter(itemTypes);
+
+        List<FacetCount> memberCounts = toFacets(repository.countByMember(editions, types));
+        List<FacetCount> typeCounts = toFacets(repository.countByItemType(editions, members));
+
+        // メンバー別の件数は種別の条件を適用済みなので、選択中のメンバーの分を足せば全条件での件数になる
+        long total = memberCounts.stream()
+                .filter(facet -> members.isEmpty() || members.contains(facet.getValue()))
+                .mapToLong(FacetCount::getCount)
+                .sum();
+        return new RandomItemFacets(total, memberCounts, typeCounts);
+    }
+
+    // "All"、"all"、空文字、JSから届く "undefined" を除き、重複をまとめる（残らなければ「条件なし」）
+    private static Set<String> normalizeFilter(List<String> values) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (values != null) {
+            for (String value : values) {
+                if (value != null && !value.isBlank() && !value.equalsIgnoreCase("all") && !value.equals("undefined")) {
+                    normalized.add(value.strip());
+                }
+            }
+        }
+        return normalized;
+    }
+
+    private static LocalDateTime parseCursor(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "afterCreatedAt の形式が正しくありません");
+        }
+    }
+
+    private static List<FacetCount> toFacets(List<Object[]> rows) {
+        return rows.stream()
+                .map(row -> new FacetCount((String) row[0], ((Number) Objects.requireNonNull(row[1])).longValue()))
+                .toList();
+    }
+}
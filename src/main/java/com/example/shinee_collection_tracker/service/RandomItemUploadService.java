@@ -0,0 +1,248 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.RandomItem;
+import com.example.shinee_collection_tracker.model.UploadItemResult;
+import com.example.shinee_collection_tracker.model.UploadReport;
+import com.example.shinee_collection_tracker.repository.RandomItemRepository;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ランダムアイテムの一括登録（画像アップロード → DB保存）を担当するサービス。
+ * * [処理の流れ]
+ * 1. 画像ごとのストレージへのアップロードを、上限付きのスレッドプールで並列に実行。
+ *    （random-item.upload.concurrency で同時アップロード数を変更できます）
+ * 2. 画像の内容のハッシュ（SHA-256）を求め、同じ画像が保存済みなら（ImageDedupIndex）アップロードせずにそのURLを使い回します。
+ *    保存済みでなければ、ImageStorage の実装がストリームのまま保存するため、ヒープに丸ごと載りません。
+ *    同じタスクの中で一覧表示用の縮小版（サムネイル）も作ってアップロードします。
+ * 3. アップロードに成功したアイテムだけを、最後に saveAll でまとめてDBに保存。
+ * 4. 保存できたアイテムを /api/events の "random-items" イベントで接続中の画面へ知らせる。
+ * 5. スロットごとの成否（使い回したかどうかを含む）を UploadReport として返却。
+ */
+@Service
+public class RandomItemUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(RandomItemUploadService.class);
+
+    private final RandomItemRepository randomItemRepository;
+    private final ImageStorage imageStorage;
+    private final ImageThumbnailService thumbnailService;
+    private final ImageDedupIndex dedupIndex;
+    private final CollectionEventBroadcaster eventBroadcaster;
+    private final ExecutorService uploadExecutor;
+
+    public RandomItemUploadService(RandomItemRepository randomItemRepository,
+            ImageStorage imageStorage,
+            ImageThumbnailService thumbnailService,
+            ImageDedupIndex dedupIndex,
+            CollectionEventBroadcaster eventBroadcaster,
+            @Value("${random-item.upload.concurrency:4}") int concurrency) {
+        this.randomItemRepository = randomItemRepository;
+        this.imageStorage = imageStorage;
+        this.thumbnailService = thumbnailService;
+        this.dedupIndex = dedupIndex;
+        this.eventBroadcaster = eventBroadcaster;
+        this.uploadExecutor = Executors.newFixedThreadPool(Math.max(1, concurrency), uploadThreadFactory());
+    }
+
+    /**
+     * ランダムアイテムを画像と一緒に一括登録します。
+     * 画像は names / memberNames と同じ番号（スロット順）で対応付けます。
+     * * @param editionId   形態ID
+     * @param names       アイテム種別（トレカ等）のリスト
+     * @param memberNames メンバー名のリスト
+     * @param images      画像ファイルのリスト
+     * @return スロットごとの処理結果
+     */
+    public UploadReport upload(String editionId, List<String> names, List<String> memberNames,
+            List<MultipartFile> images) {
+        return upload(editionId, names, memberNames, images, (done, total) -> {
+        });
+    }
+
+    /**
+     * ランダムアイテムを画像と一緒に一括登録し、画像の保存が1つ終わるたびに progress へ知らせます（ジョブでの実行用）。
+     * * @param progress 保存が終わった画像の数と、画像の総数を受け取る関数
+     */
+    public UploadReport upload(String editionId, List<String> names, List<String> memberNames,
+            List<MultipartFile> images, ProgressListener progress) {
+
+        List<UploadItemResult> results = new ArrayList<>();
+        List<Future<ImageDedupIndex.Resolved>> uploads = new ArrayList<>();
+
+        // 1. 画像のアップロードを並列に開始（画像のないスロットはスキップ）
+        for (int i = 0; i < names.size(); i++) {
+            MultipartFile file = (images != null && i < images.size()) ? images.get(i) : null;
+            if (file == null || file.isEmpty()) {
+                results.add(new UploadItemResult(i, null, "SKIPPED", null, null, null, false));
+                uploads.add(null);
+                continue;
+            }
+            results.add(new UploadItemResult(i, file.getOriginalFilename(), null, null, null, null, false));
+            uploads.add(uploadExecutor.submit(() -> storeOnce(file)));
+        }
+
+        // 2. アップロード結果を待ち、成功したものだけEntityを組み立てる
+        List<RandomItem> toSave = new ArrayList<>();
+        List<UploadItemResult> pendingSave = new ArrayList<>();
+        int total = (int) uploads.stream().filter(upload -> upload != null).count();
+        int done = 0;
+        for (int i = 0; i < uploads.size(); i++) {
+            Future<ImageDedupIndex.Resolved> upload = uploads.get(i);
+            if (upload == null) {
+                continue;
+            }
+            UploadItemResult result = results.get(i);
+            try {
+                ImageDedupIndex.Resolved resolved = upload.get();
+                StoredImage stored = resolved.image();
+
+                RandomItem item = new RandomItem();
+                item.setEditionId(editionId);
+                item.setItemType(names.get(i));
+                item.setMemberName(i < memberNames.size() ? memberNames.get(i) : null);
+                item.setImageUrl(stored.imageUrl());
+                item.setThumbnailUrl(stored.thumbnailUrl());
+                item.setImageSrcset(stored.srcset());
+
+                toSave.add(item);
+                pendingSave.add(result);
+                result.setImageUrl(stored.imageUrl());
+                result.setDeduplicated(resolved.deduplicated());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                markFailed(result, "アップロードが中断されました");
+            } catch (ExecutionException e) {
+                log.warn("画像のアップロードに失敗しました（スロット{}）", i, e.getCause());
+                markFailed(result, e.getCause().getMessage());
+            }
+            progress.onProgress(++done, total);
+        }
+
+        // 3. DBへはまとめて1回で保存
+        if (!toSave.isEmpty()) {
+            try {
+                List<RandomItem> saved = randomItemRepository.saveAll(toSave);
+                for (int i = 0; i < saved.size(); i++) {
+                    UploadItemResult result = pendingSave.get(i);
+                    result.setStatus("SAVED");
+                    result.setItemId(saved.get(i).getItemId());
+                }
+                eventBroadcaster.randomItemsAdded(editionId, saved.stream().map(RandomItem::getItemId).toList());
+            } catch (RuntimeException e) {
+                log.error("ランダムアイテムのDB保存に失敗しました", e);
+                for (UploadItemResult result : pendingSave) {
+                    markFailed(result, "DB保存に失敗しました: " + e.getMessage());
+                }
+            }
+        }
+
+        return summarize(results);
+    }
+
+    /**
+     * 同じ内容の画像が保存済みならそのURLを使い、無ければ storeWithThumbnails で保存します（アップロード用スレッドで実行）。
+     * ハッシュの計算は、Tomcat が書き出した一時ファイルを読むだけなので、ストレージへの転送より十分に軽い処理です。
+     */
+    private ImageDedupIndex.Resolved storeOnce(MultipartFile file) throws IOException {
+        String contentHash;
+        try (InputStream input = file.getInputStream()) {
+            contentHash = ImageDedupIndex.contentHash(input);
+        }
+        return dedupIndex.resolve(contentHash, file.getSize(), () -> storeWithThumbnails(file));
+    }
+
+    /**
+     * 元画像と、その縮小版をストレージ（ImageStorage）に保存します（アップロード用スレッドで実行）。
+     * 縮小版の作成に失敗しても、元画像の保存が成功していれば登録は続行します。
+     */
+    private StoredImage storeWithThumbnails(MultipartFile file) throws IOException {
+        String objectName = ImageStorage.newObjectName(file.getOriginalFilename());
+        String imageUrl = imageStorage.uploadImage(file, objectName);
+
+        // 縮小版は元画像と同じ名前に "_w160.jpg" のような幅の接尾辞を付けて保存する
+        String baseName = objectName.contains(".") ? objectName.substring(0, objectName.lastIndexOf('.')) : objectName;
+        List<String> srcset = new ArrayList<>();
+        String thumbnailUrl = null;
+        try (InputStream input = file.getInputStream()) {
+            for (ImageThumbnailService.Thumbnail thumbnail : thumbnailService.createThumbnails(input)) {
+                String url = imageStorage.uploadBytes(thumbnail.jpeg(), "image/jpeg",
+                        baseName + "_w" + thumbnail.width() + ".jpg");
+                if (thumbnailUrl == null) {
+                    thumbnailUrl = url; // 最も小さい幅のものを一覧用サムネイルにする
+                }
+                srcset.add(url + " " + thumbnail.width() + "w");
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("サムネイルの作成に失敗したため、元画像のみで登録します: {}", e.getMessage());
+            return new StoredImage(imageUrl, null, null);
+        }
+        return new StoredImage(imageUrl, thumbnailUrl, srcset.isEmpty() ? null : String.join(", ", srcset));
+    }
+
+    /**
+     * 一括登録の進み具合を受け取る関数。
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int done, int total);
+    }
+
+    // アプリ停止時にアップロード用スレッドを片付ける
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
+    }
+
+    private static void markFailed(UploadItemResult result, String error) {
+        result.setStatus("FAILED");
+        result.setImageUrl(null);
+        result.setDeduplicated(false);
+        result.setError(error);
+    }
+
+    private static UploadReport summarize(List<UploadItemResult> results) {
+        int saved = 0;
+        int failed = 0;
+        int skipped = 0;
+        int deduplicated = 0;
+        for (UploadItemResult result : results) {
+            if (result.isDeduplicated()) {
+                deduplicated++;
+            }
+            switch (result.getStatus()) {
+                case "SAVED" -> saved++;
+                case "FAILED" -> failed++;
+                default -> skipped++;
+            }
+        }
+        return new UploadReport(saved, failed, skipped, deduplicated, results);
+    }
+
+    // スレッドダンプで見分けられるよう、名前付きのデーモンスレッドを作る
+    private static ThreadFactory uploadThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "random-upload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
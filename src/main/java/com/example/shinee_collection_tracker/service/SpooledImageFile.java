@@ -0,0 +1,75 @@
+package com.example.shinee_collection_tracker.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 分割アップロードでディスクに溜めた画像を、通常のアップロード（MultipartFile）と同じように扱うためのラッパー。
+ * これにより、ストレージへの保存・サムネイル作成・重複チェックは RandomItemUploadService の処理をそのまま使えます。
+ * 中身は必要になった時にファイルから少しずつ読むため、ヒープには載りません。
+ */
+final class SpooledImageFile implements MultipartFile {
+
+    private final Path path;
+    private final String originalFilename;
+    private final String contentType;
+    private final long size;
+
+    SpooledImageFile(Path path, String originalFilename, String contentType, long size) {
+        this.path = path;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.size = size;
+    }
+
+    // ディスク上の置き場所（LocalImageStorage が FileChannel で直接読むため）
+    Path path() {
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return "images";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
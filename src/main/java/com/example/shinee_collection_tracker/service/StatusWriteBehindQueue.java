@@ -0,0 +1,281 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.repository.UserEditionStatusRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 所持・欲しいものボタンの連打をまとめてDBへ書き込む「後書き（write-behind）」キュー。
+ * * [仕組み]
+ * 1. 更新リクエストはDBを待たずに受け付け、(userId, editionId) ごとに「最終的な値」だけを保持します。
+ *    （同じエディションを何度切り替えても、DBに書くのは最後の状態の1回だけ）
+ * 2. 一定間隔（status.write-behind.flush-interval）で、溜まった更新をユーザー・値ごとにまとめて一括UPSERTします。
+ * 3. アプリ停止時には、残っている更新をすべて書き込んでから終了します。
+ * 4. 所持状態の索引（EditionStatusIndex）は受付時に更新済みなので、ここからは書き換えません。
+ *    索引がユーザーの状態をDBから読み直す時は、まだDBに届いていない更新を pendingFor で重ねてもらいます。
+ * 5. 未書き込み件数・受け付け数・書き込み数・flush の所要時間は、/actuator/metrics の status.write-behind.* でも確認できます。
+ * * status.write-behind.enabled=true の時だけ DiscographyService から使われます（既定は無効）。
+ */
+@Component
+public class StatusWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusWriteBehindQueue.class);
+
+    private final UserEditionStatusRepository repository;
+    private final boolean enabled;
+
+    // (userId, editionId) → まだDBに書いていない最終状態
+    private final ConcurrentHashMap<Key, Pending> pending = new ConcurrentHashMap<>();
+    // flush で取り出し、DBへ書き込んでいる最中の状態（書き終わるまでは pendingFor から見えるようにする）
+    private final ConcurrentHashMap<Key, Pending> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong accepted = new AtomicLong();   // 受け付けた更新の数
+    private final AtomicLong written = new AtomicLong();    // 実際にDBへ書いたエディション数
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+
+    // 1回の flush（まとめての書き込み）の所要時間
+    private final Timer flushSuccess;
+    private final Timer flushError;
+
+    public StatusWriteBehindQueue(UserEditionStatusRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${status.write-behind.enabled:false}") boolean enabled) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.flushSuccess = flushTimer(meterRegistry, "success");
+        this.flushError = flushTimer(meterRegistry, "error");
+        Gauge.builder("status.write-behind.queue.depth", pending, Map::size)
+                .description("まだDBに書き込んでいない (ユーザー, エディション) の数")
+                .register(meterRegistry);
+        // accepted と written の差が、まとめられて書かずに済んだ更新の数
+        FunctionCounter.builder("status.write-behind.accepted", accepted, AtomicLong::get)
+                .description("受け付けた所持・欲しいものの更新の数")
+                .register(meterRegistry);
+        FunctionCounter.builder("status.write-behind.written", written, AtomicLong::get)
+                .description("実際にDBへ書き込んだエディションの数")
+                .register(meterRegistry);
+    }
+
+    private static Timer flushTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("status.write-behind.flush")
+                .description("溜まった更新をDBへまとめて書き込むまでの時間")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 所持フラグの更新を受け付ける（同じエディションの未書き込み分は上書き）
+    public void enqueuePurchase(String userId, String editionId, boolean isPurchased) {
+        accepted.incrementAndGet();
+        pending.merge(new Key(userId, editionId), new Pending(isPurchased, null), Pending::mergeNewer);
+    }
+
+    // 欲しいものフラグの更新を受け付ける（同じエディションの未書き込み分は上書き）
+    public void enqueueWishlist(String userId, String editionId, boolean isWishlist) {
+        accepted.incrementAndGet();
+        pending.merge(new Key(userId, editionId), new Pending(null, isWishlist), Pending::mergeNewer);
+    }
+
+    /**
+     * 指定ユーザーの、まだDBに書き込まれていない更新を返します（書き込み中のものを含む）。
+     * 所持状態の索引が、DBから読み込んだユーザーの状態に重ねるために使います。
+     * * @return editionId → 未書き込みの状態（null の項目は「変更なし」）
+     */
+    Map<String, PendingStatus> pendingFor(String userId) {
+        Map<String, PendingStatus> result = new LinkedHashMap<>();
+        // 書き込み中 → 未書き込み の順に重ね、新しい方を優先する
+        for (Map<Key, Pending> source : List.of(inFlight, pending)) {
+            source.forEach((key, value) -> {
+                if (key.userId().equals(userId)) {
+                    result.merge(key.editionId(), new PendingStatus(value.purchased, value.wishlist),
+                            (older, newer) -> new PendingStatus(
+                                    newer.purchased() != null ? newer.purchased() : older.purchased(),
+                                    newer.wishlist() != null ? newer.wishlist() : older.wishlist()));
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 溜まっている更新をDBへ書き込みます。
+     * ユーザーと値（true/false）ごとにエディションをまとめるため、発行するSQLは1ユーザーあたり最大4本です。
+     */
+    @Scheduled(fixedDelayString = "${status.write-behind.flush-interval:PT0.5S}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        // 取り出しと同時にキューから外す（取り出し後に届いた更新は次回に回る）
+        // 取り出した分は、DBへ書き終わるまで inFlight に置く（その間に読み込まれたユーザーにも重ねられるように）
+        Map<Key, Pending> batch = new LinkedHashMap<>();
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            Pending value = pending.get(key);
+            if (value != null) {
+                inFlight.put(key, value);
+                if (pending.remove(key, value)) {
+                    batch.put(key, value);
+                } else {
+                    inFlight.remove(key, value); // 取り出す直前に上書きされた。次回に回す
+                }
+            }
+        }
+
+        Map<String, UserBatch> byUser = new LinkedHashMap<>();
+        batch.forEach((key, value) -> byUser.computeIfAbsent(key.userId(), k -> new UserBatch()).add(key.editionId(), value));
+
+        // 書き込みが終わったユーザーの分は、失敗時にキューへ戻さない
+        Map<Key, Pending> unwritten = new LinkedHashMap<>(batch);
+        boolean succeeded = false;
+        try {
+            for (Map.Entry<String, UserBatch> entry : byUser.entrySet()) {
+                String userId = entry.getKey();
+                UserBatch userBatch = entry.getValue();
+                writePurchased(userId, userBatch.purchasedOn, true);
+                writePurchased(userId, userBatch.purchasedOff, false);
+                writeWishlist(userId, userBatch.wishlistOn, true);
+                writeWishlist(userId, userBatch.wishlistOff, false);
+                unwritten.keySet().removeIf(key -> key.userId().equals(userId));
+            }
+            written.addAndGet(batch.size());
+            succeeded = true;
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            written.addAndGet(batch.size() - unwritten.size());
+            // 書き込めなかった分はキューに戻す（その間に届いた新しい値があればそちらを優先）
+            unwritten.forEach((key, value) -> pending.merge(key, value, (newer, older) -> older.mergeNewer(newer)));
+            log.warn("後書きキューの書き込みに失敗しました。{}件を次回に再試行します: {}", unwritten.size(), e.getMessage());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            flushes.incrementAndGet();
+            totalFlushNanos.addAndGet(elapsed);
+            lastFlushNanos = elapsed;
+            maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+            (succeeded ? flushSuccess : flushError).record(elapsed, TimeUnit.NANOSECONDS);
+            // 書き込めた分はDBに、書き込めなかった分は pending に戻っている
+            batch.forEach(inFlight::remove);
+        }
+    }
+
+    // アプリ停止時に、残っている更新をすべて書き込む
+    @PreDestroy
+    public void drain() {
+        if (!pending.isEmpty()) {
+            log.info("アプリ停止前に後書きキューの残り{}件を書き込みます", pending.size());
+            flush();
+        }
+    }
+
+    /**
+     * キューの状態を返します。
+     * * @return queueDepth（未書き込み件数）、coalescingRatio（まとめられて書かずに済んだ割合）、
+     *         flush の回数・失敗数・所要時間（ミリ秒）などを含むMap
+     */
+    public Map<String, Object> getStats() {
+        long acceptedCount = accepted.get();
+        long writtenCount = written.get();
+        long flushCount = flushes.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queueDepth", pending.size());
+        stats.put("accepted", acceptedCount);
+        stats.put("written", writtenCount);
+        stats.put("coalescingRatio", acceptedCount == 0 ? 0.0 : 1.0 - (double) writtenCount / acceptedCount);
+        stats.put("flushes", flushCount);
+        stats.put("failures", failures.get());
+        stats.put("lastFlushMillis", lastFlushNanos / 1_000_000.0);
+        stats.put("maxFlushMillis", maxFlushNanos / 1_000_000.0);
+        stats.put("avgFlushMillis", flushCount == 0 ? 0.0 : totalFlushNanos.get() / 1_000_000.0 / flushCount);
+        return stats;
+    }
+
+    private void writePurchased(String userId, List<String> editionIds, boolean isPurchased) {
+        if (editionIds.isEmpty()) {
+            return;
+        }
+        repository.upsertStatus(userId, editionIds, true, isPurchased, false, false);
+    }
+
+    private void writeWishlist(String userId, List<String> editionIds, boolean isWishlist) {
+        if (editionIds.isEmpty()) {
+            return;
+        }
+        repository.upsertStatus(userId, editionIds, false, false, true, isWishlist);
+    }
+
+    /**
+     * 1エディション分の未書き込みの状態（pendingFor の戻り値）。null の項目は「変更なし」を表します。
+     */
+    record PendingStatus(Boolean purchased, Boolean wishlist) {
+    }
+
+    // キューのキー（どのユーザーの、どのエディションか）
+    private record Key(String userId, String editionId) {
+    }
+
+    // 1ユーザー分の書き込み対象を、値（true/false）ごとに分けたもの
+    private static final class UserBatch {
+        final List<String> purchasedOn = new ArrayList<>();
+        final List<String> purchasedOff = new ArrayList<>();
+        final List<String> wishlistOn = new ArrayList<>();
+        final List<String> wishlistOff = new ArrayList<>();
+
+        void add(String editionId, Pending value) {
+            if (value.purchased != null) {
+                (value.purchased ? purchasedOn : purchasedOff).add(editionId);
+            }
+            if (value.wishlist != null) {
+                (value.wishlist ? wishlistOn : wishlistOff).add(editionId);
+            }
+        }
+    }
+
+    /**
+     * 1エディション分の未書き込みの状態。null の項目は「変更なし」を表します。
+     */
+    private static final class Pending {
+        final Boolean purchased;
+        final Boolean wishlist;
+
+        Pending(Boolean purchased, Boolean wishlist) {
+            this.purchased = purchased;
+            this.wishlist = wishlist;
+        }
+
+        // this（古い値）に newer（新しい値）を重ね、指定された項目だけ上書きする
+        Pending mergeNewer(Pending newer) {
+            return new Pending(
+                    newer.purchased != null ? newer.purchased : purchased,
+                    newer.wishlist != null ? newer.wishlist : wishlist);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.shinee_collection_tracker.service;
+
+/**
+ * ストレージに保存済みの画像1つ分のURL（元画像・一覧用サムネイル・srcset）。
+ * 縮小版を作れなかった場合、thumbnailUrl と srcset は null です。
+ */
+record StoredImage(String imageUrl, String thumbnailUrl, String srcset) {
+}
@@ -1,37 +1,127 @@
 package com.example.shinee_collection_tracker.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import okhttp3.*;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
-import java.util.UUID;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Supabase Storage への画像アップロードを担当するサービス（ImageStorage の既定の実装）。
+ * storage.backend=local の場合は LocalImageStorage が代わりに使われます。
+ * * [通信の設定]
+ * - OkHttpClient は StorageHttpClientConfig で作った共有インスタンスを使い、接続を使い回します。
+ * - 同時に送るリクエスト数は storage.http.max-concurrent-requests で制限します。
+ * - 通信エラーや 429 / 5xx の場合は、待ち時間を倍々に延ばしながら storage.http.max-retries 回まで再試行します。
+ *   再試行は x-upsert: true を付けて送ります（読み取りタイムアウトなどで、前回の送信が実は保存されていた場合に、
+ *   「既に存在する」エラーで失敗させないため。ファイル名は毎回新しく作るので、他の画像を上書きすることはありません）。
+ *   再試行までの待ち時間は同時実行数の枠を返しておき、他のアップロードを待たせません。
+ * - 呼び出し回数・失敗数・所要時間を数えており、getStats() で確認できます。
+ * - 同じ所要時間を Micrometer の storage.upload（backend=supabase）としても記録し、/actuator/metrics から確認できます。
+ */
 @Service
-public class dbStorageService {
-    // Railwayの環境変数から取得
-    private final String SUPABASE_URL = System.getenv("SB_URL");
-    private final String SUPABASE_KEY = System.getenv("SB_KEY");
+@ConditionalOnProperty(name = "storage.backend", havingValue = "supabase", matchIfMissing = true)
+public class dbStorageService implements ImageStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(dbStorageService.class);
+
+    // Railwayの環境変数(SB_URL / SB_KEY)から取得
+    private final String SUPABASE_URL;
+    private final String SUPABASE_KEY;
     private final String BUCKET_NAME = "RandomItem"; // 先ほど作成したバケット名
 
-    public String uploadImage(MultipartFile file) throws IOException {
-        // 1. ファイル名が重複しないよう、UUIDを使って一意のファイル名を生成
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        String fileName = UUID.randomUUID().toString() + extension;
+    private final OkHttpClient client;
+    private final Semaphore concurrency;
+    private final int maxRetries;
+    private final Duration retryBackoff;
 
-        // 2. Supabase StorageのAPIエンドポイントURLを作成
-        // 形式: {URL}/storage/v1/object/{bucket}/{path}
-        String uploadUrl = SUPABASE_URL + "/storage/v1/object/" + BUCKET_NAME + "/" + fileName;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    // 1ファイル分のアップロード（順番待ち・再試行を含む）の所要時間
+    private final Timer uploadSuccess;
+    private final Timer uploadError;
+    private final Counter retryCounter;
+
+    public dbStorageService(OkHttpClient storageHttpClient,
+            MeterRegistry meterRegistry,
+            @Value("${SB_URL:}") String supabaseUrl,
+            @Value("${SB_KEY:}") String supabaseKey,
+            @Value("${storage.http.max-concurrent-requests:8}") int maxConcurrentRequests,
+            @Value("${storage.http.max-retries:2}") int maxRetries,
+            @Value("${storage.http.retry-backoff:PT0.2S}") Duration retryBackoff) {
+        this.client = storageHttpClient;
+        this.SUPABASE_URL = supabaseUrl;
+        this.SUPABASE_KEY = supabaseKey;
+        this.concurrency = new Semaphore(Math.max(1, maxConcurrentRequests));
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoff = retryBackoff;
+        this.uploadSuccess = uploadTimer(meterRegistry, "success");
+        this.uploadError = uploadTimer(meterRegistry, "error");
+        this.retryCounter = Counter.builder("storage.upload.retries")
+                .description("ストレージへの送信の再試行回数")
+                .tag("backend", "supabase")
+                .register(meterRegistry);
+    }
+
+    private static Timer uploadTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("storage.upload")
+                .description("画像1ファイルをストレージへ保存するまでの時間")
+                .tag("backend", "supabase")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 保存先のファイル名を指定して画像をアップロードします。
+     * サムネイルなど、元画像と名前を揃えたい派生画像を保存する場合に使います。
+     * * @param file       アップロードする画像
+     * @param objectName バケット内のファイル名（ImageStorage.newObjectName で生成したもの）
+     * @return 公開URL
+     */
+    @Override
+    public String uploadImage(MultipartFile file, String objectName) throws IOException {
+        // file.getBytes() で丸ごとメモリに載せず、送信しながらファイルから少しずつ読み出す
+        return upload(objectName, streamingBody(file));
+    }
 
-        OkHttpClient client = new OkHttpClient();
+    /**
+     * メモリ上で作った画像（サムネイルなど）をアップロードします。
+     * * @param data        画像データ
+     * @param contentType MIMEタイプ（image/jpeg など）
+     * @param objectName  バケット内のファイル名
+     * @return 公開URL
+     */
+    @Override
+    public String uploadBytes(byte[] data, String contentType, String objectName) throws IOException {
+        return upload(objectName, RequestBody.create(data, MediaType.parse(contentType)));
+    }
 
-        // 3. 画像データをリクエストボディに変換
-        RequestBody body = RequestBody.create(
-            file.getBytes(),
-            MediaType.parse(file.getContentType())
-        );
+    private String upload(String fileName, RequestBody body) throws IOException {
+        // 1. Supabase StorageのAPIエンドポイントURLを作成
+        // 形式: {URL}/storage/v1/object/{bucket}/{path}
+        String uploadUrl = SUPABASE_URL + "/storage/v1/object/" + BUCKET_NAME + "/" + fileName;
 
-        // 4. POSTリクエストを組み立てる
+        // 2. POSTリクエストを組み立てる
         Request request = new Request.Builder()
                 .url(uploadUrl)
                 .header("Authorization", "Bearer " + SUPABASE_KEY) // APIキー（Service Role）
@@ -39,15 +129,133 @@ public class dbStorageService {
                 .post(body)
                 .build();
 
-        // 5. 実行
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Supabaseへのアップロードに失敗しました: " + response);
+        // 3. 実行（失敗時はバックオフ付きで再試行）
+        long start = System.nanoTime();
+        try {
+            execute(request);
+            uploadSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            uploadError.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+
+        // 4. 公開URLを生成して返す
+        // 公開設定（RLS）にしているので、このURLでブラウザから直接閲覧可能
+        return SUPABASE_URL + "/storage/v1/object/public/" + BUCKET_NAME + "/" + fileName;
+    }
+
+    /**
+     * ストレージとの通信状況を返します。
+     * * @return calls / errors / retries / avgMillis / maxMillis / 接続数 を含むMap
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        long callCount = calls.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", callCount);
+        stats.put("errors", errors.get());
+        stats.put("retries", retries.get());
+        stats.put("avgMillis", callCount == 0 ? 0.0 : totalNanos.get() / 1_000_000.0 / callCount);
+        stats.put("maxMillis", maxNanos.get() / 1_000_000.0);
+        stats.put("activeConnections",
+                client.connectionPool().connectionCount() - client.connectionPool().idleConnectionCount());
+        stats.put("idleConnections", client.connectionPool().idleConnectionCount());
+        return stats;
+    }
+
+    // 同時実行数を制限しつつリクエストを送り、一時的なエラーなら待ってから再試行する
+    private void execute(Request request) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            // 再試行は上書きを許可する（前回の送信が保存済みでも、同じファイル名の重複エラーにしない）
+            Request attemptRequest = attempt == 0 ? request : request.newBuilder().header("x-upsert", "true").build();
+            IOException failure;
+            boolean retryable;
+            acquirePermit();
+            long start = System.nanoTime();
+            calls.incrementAndGet();
+            try (Response response = client.newCall(attemptRequest).execute()) {
+                if (response.isSuccessful()) {
+                    return;
+                }
+                failure = new IOException("Supabaseへのアップロードに失敗しました: " + response);
+                retryable = isRetryable(response.code());
+            } catch (IOException e) {
+                // 接続エラーやタイムアウトは再試行する（スレッド自体が中断された場合を除く）
+                failure = e;
+                retryable = !Thread.currentThread().isInterrupted();
+            } finally {
+                record(System.nanoTime() - start);
+                concurrency.release();
             }
 
-            // 6. 公開URLを生成して返す
-            // 公開設定（RLS）にしているので、このURLでブラウザから直接閲覧可能
-            return SUPABASE_URL + "/storage/v1/object/public/" + BUCKET_NAME + "/" + fileName;
+            if (!retryable || attempt >= maxRetries) {
+                errors.incrementAndGet();
+                throw failure;
+            }
+            retries.incrementAndGet();
+            retryCounter.increment();
+            log.debug("ストレージへの送信を再試行します（{}回目）: {}", attempt + 1, failure.getMessage());
+            // 待っている間は枠を返しておく（他のアップロードを止めない）
+            sleepBeforeRetry(attempt);
+        }
+    }
+
+    private void acquirePermit() throws InterruptedIOException {
+        try {
+            concurrency.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("アップロード待ちの間に中断されました");
+        }
+    }
+
+    // 混雑(429)とサーバー側の一時的なエラー(5xx)だけを再試行の対象にする
+    private static boolean isRetryable(int code) {
+        return code == 429 || code >= 500;
+    }
+
+    // 待ち時間を 1倍 → 2倍 → 4倍… と延ばす（指数バックオフ）
+    private void sleepBeforeRetry(int attempt) throws InterruptedIOException {
+        try {
+            Thread.sleep(retryBackoff.toMillis() << Math.min(attempt, 10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("再試行の待機中に中断されました");
         }
     }
+
+    private void record(long elapsedNanos) {
+        totalNanos.addAndGet(elapsedNanos);
+        maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+    }
+
+    /**
+     * MultipartFile の中身をストリームのまま送信するリクエストボディを作ります。
+     * * [ポイント]
+     * アップロードされたファイルはTomcatが一時ファイルに書き出しているため、
+     * getInputStream() から少しずつ読みながら送信すれば、ヒープに画像全体を載せずに済みます。
+     */
+    private RequestBody streamingBody(MultipartFile file) {
+        String contentType = file.getContentType();
+        MediaType mediaType = contentType == null ? null : MediaType.parse(contentType);
+
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return mediaType;
+            }
+
+            @Override
+            public long contentLength() {
+                return file.getSize();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (Source source = Okio.source(file.getInputStream())) {
+                    sink.writeAll(source);
+                }
+            }
+        };
+    }
 }
@@ -0,0 +1,4 @@
+-- ランダムアイテムのサムネイル（縮小版画像）のURLを保存する列を追加します。
+-- Supabase の SQL Editor で実行してください（既存の行は NULL のままで、元画像が表示されます）。
+ALTER TABLE random_items ADD COLUMN IF NOT EXISTS thumbnail_url TEXT;
+ALTER TABLE random_items ADD COLUMN IF NOT EXISTS image_srcset TEXT;
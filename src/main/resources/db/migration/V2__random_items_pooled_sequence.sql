@@ -0,0 +1,9 @@
+-- random_items の採番を、アプリ側で50件ずつまとめて確保する方式（RandomItem の @SequenceGenerator）に合わせます。
+-- Supabase の SQL Editor で、アプリのデプロイ前に実行してください。
+-- （item_id が serial / identity のどちらで作られていても、pg_get_serial_sequence でシーケンス名を取得します）
+DO $$
+DECLARE
+    seq text := pg_get_serial_sequence('random_items', 'item_id');
+BEGIN
+    EXECUTE format('ALTER SEQUENCE %s INCREMENT BY 50', seq);
+END $$;
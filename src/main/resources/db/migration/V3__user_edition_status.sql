@@ -0,0 +1,18 @@
+-- 所持・欲しいものフラグを、ユーザーごとのテーブルに分けます（editions はカタログとして読み取り専用にする）。
+-- Supabase の SQL Editor で、アプリのデプロイ前に実行してください。
+CREATE TABLE IF NOT EXISTS user_edition_status (
+    user_id      TEXT        NOT NULL,
+    edition_id   TEXT        NOT NULL REFERENCES editions (edition_id) ON DELETE CASCADE,
+    is_purchased BOOLEAN     NOT NULL DEFAULT FALSE,
+    is_wishlist  BOOLEAN     NOT NULL DEFAULT FALSE,
+    updated_at   TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (user_id, edition_id)
+);
+
+-- これまでの editions 上のフラグを、既定のユーザー（X-User-Id を送らない場合の 'default'）の分として移します。
+-- editions.is_purchased / is_wishlist はアプリからは更新されなくなります（移行後は参照しません）。
+INSERT INTO user_edition_status (user_id, edition_id, is_purchased, is_wishlist)
+SELECT 'default', edition_id, is_purchased, is_wishlist
+FROM editions
+WHERE is_purchased OR is_wishlist
+ON CONFLICT (user_id, edition_id) DO NOTHING;
@@ -0,0 +1,22 @@
+-- ランダムアイテムのギャラリー（/api/random/items のページング・絞り込み・件数集計）用のインデックス。
+-- Supabase の SQL Editor で、アプリのデプロイ前に実行してください。
+
+-- キーセット方式のページングは created_at で並べるため、未設定の古い行には最も古い日時を入れておく
+-- （最後のページにまとめて表示されます）。以後の登録ではアプリが必ず値を入れます。
+UPDATE random_items SET created_at = TIMESTAMP '2000-01-01 00:00:00' WHERE created_at IS NULL;
+ALTER TABLE random_items ALTER COLUMN created_at SET DEFAULT now();
+ALTER TABLE random_items ALTER COLUMN created_at SET NOT NULL;
+
+-- 条件なしの一覧（新しい順）
+CREATE INDEX IF NOT EXISTS idx_random_items_created
+    ON random_items (created_at DESC, item_id DESC);
+
+-- 形態・メンバーで絞り込んだ一覧（新しい順）
+CREATE INDEX IF NOT EXISTS idx_random_items_edition_created
+    ON random_items (edition_id, created_at DESC, item_id DESC);
+CREATE INDEX IF NOT EXISTS idx_random_items_member_created
+    ON random_items (member_name, created_at DESC, item_id DESC);
+
+-- メンバー別・種別ごとの件数集計（インデックスだけで数えられるよう、集計に使う列をすべて含める）
+CREATE INDEX IF NOT EXISTS idx_random_items_facets
+    ON random_items (edition_id, member_name, item_type);
@@ -0,0 +1,11 @@
+-- アップロード済み画像の「内容のハッシュ → URL」の対応表（同じ画像の二重アップロードを防ぐ）。
+-- Supabase の SQL Editor で、アプリのデプロイ前に実行してください。
+-- 既存の画像は対象外です（このテーブルができた後のアップロードから記録されます）。
+CREATE TABLE IF NOT EXISTS image_objects (
+    content_hash  CHAR(64)    PRIMARY KEY, -- 元画像の SHA-256（16進数）
+    image_url     TEXT        NOT NULL,
+    thumbnail_url TEXT,
+    image_srcset  TEXT,
+    size_bytes    BIGINT      NOT NULL,
+    created_at    TIMESTAMPTZ NOT NULL DEFAULT now()
+);
@@ -0,0 +1,20 @@
+-- 時間のかかる処理（画像の登録・カタログの作り直しなど）を裏で実行するジョブの記録。
+-- Supabase の SQL Editor で、アプリのデプロイ前に実行してください。
+CREATE TABLE IF NOT EXISTS jobs (
+    job_id          TEXT        PRIMARY KEY,
+    type            TEXT        NOT NULL,
+    idempotency_key TEXT        UNIQUE,                  -- 同じキーの依頼は同じジョブとして扱う（二重実行の防止）
+    status          TEXT        NOT NULL,                -- QUEUED / RUNNING / RETRYING / SUCCEEDED / FAILED
+    attempts        INTEGER     NOT NULL DEFAULT 0,
+    max_attempts    INTEGER     NOT NULL,
+    progress        INTEGER     NOT NULL DEFAULT 0,      -- 0〜100（%）
+    message         TEXT,
+    result          TEXT,                                -- 結果（JSON）
+    error           TEXT,
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT now(),
+    started_at      TIMESTAMPTZ,
+    finished_at     TIMESTAMPTZ
+);
+
+-- 古いジョブの削除（jobs.retention）用
+CREATE INDEX IF NOT EXISTS idx_jobs_finished ON jobs (finished_at) WHERE finished_at IS NOT NULL;
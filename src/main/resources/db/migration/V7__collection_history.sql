@@ -0,0 +1,72 @@
+-- 所持・欲しいもののフラグが切り替わった履歴（追記のみ）と、その月別の集計（/api/stats/history）。
+-- Supabase の SQL Editor で、アプリのデプロイ前に実行してください。
+-- 既存の所持・欲しいものは、最後に更新された月（user_edition_status.updated_at）の分として集計に積みます（開始時点の残高）。
+-- 月の区切りは collection-history.zone（既定 Asia/Tokyo）に合わせています。変えている場合は下の 'Asia/Tokyo' も直してください。
+
+-- 切り替えの記録。アーティスト・国・価格・通貨は、切り替えた時点のカタログの値を写しておく
+CREATE TABLE IF NOT EXISTS collection_events (
+    event_id    BIGSERIAL   PRIMARY KEY,
+    user_id     TEXT        NOT NULL,
+    edition_id  TEXT        NOT NULL,
+    kind        TEXT        NOT NULL, -- PURCHASE / WISHLIST
+    new_value   BOOLEAN     NOT NULL, -- 切り替え後の値
+    artist      TEXT,
+    country     TEXT,
+    price       INTEGER,
+    currency    TEXT,
+    occurred_at TIMESTAMPTZ NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_collection_events_user ON collection_events (user_id, occurred_at);
+
+-- 月ごと・集計軸（total / artist / country）ごと・通貨ごとの増減。記録のたびに差分を足し込む
+-- （グラフ表示ではこちらだけを読むため、履歴が何年分に増えても読む行数は変わらない）
+CREATE TABLE IF NOT EXISTS collection_rollups (
+    user_id        TEXT    NOT NULL,
+    dimension      TEXT    NOT NULL, -- total / artist / country
+    dim_key        TEXT    NOT NULL, -- アーティスト名・国名（total の場合は空文字）
+    activity_month CHAR(7) NOT NULL, -- YYYY-MM（collection-history.zone の暦）
+    currency       TEXT    NOT NULL, -- 価格の通貨（不明な場合は空文字）
+    purchased      INTEGER NOT NULL DEFAULT 0, -- 所持にした数 − 外した数
+    wishlisted     INTEGER NOT NULL DEFAULT 0, -- 欲しいものに入れた数 − 外した数
+    spend          BIGINT  NOT NULL DEFAULT 0, -- 所持にした価格の合計 − 外した価格の合計
+    PRIMARY KEY (user_id, dimension, dim_key, activity_month, currency)
+);
+
+-- 今所持しているものの、所持にした時点の価格・通貨・アーティスト・国（外した時に、この価格を支出から差し引く）
+CREATE TABLE IF NOT EXISTS collection_holdings (
+    user_id    TEXT    NOT NULL,
+    edition_id TEXT    NOT NULL,
+    artist     TEXT,
+    country    TEXT,
+    price      INTEGER,
+    currency   TEXT,
+    PRIMARY KEY (user_id, edition_id)
+);
+
+-- 開始時点の残高。集計・控えがまだ空の場合だけ積む（このファイルを再実行しても二重に数えない）
+INSERT INTO collection_rollups (user_id, dimension, dim_key, activity_month, currency, purchased, wishlisted, spend)
+SELECT o.user_id, dims.dimension, dims.dim_key, o.activity_month, o.currency,
+       SUM(o.purchased), SUM(o.wishlisted), SUM(o.spend)
+FROM (
+    SELECT s.user_id,
+           to_char(s.updated_at AT TIME ZONE 'Asia/Tokyo', 'YYYY-MM') AS activity_month,
+           COALESCE(v.currency, '') AS currency,
+           COALESCE(v.artist, '')   AS artist,
+           COALESCE(v.country, '')  AS country,
+           CASE WHEN s.is_purchased THEN 1 ELSE 0 END AS purchased,
+           CASE WHEN s.is_wishlist THEN 1 ELSE 0 END AS wishlisted,
+           CASE WHEN s.is_purchased THEN COALESCE(v.price, 0) ELSE 0 END AS spend
+    FROM user_edition_status s
+    JOIN v_discography v ON v.edition_id = s.edition_id
+    WHERE s.is_purchased OR s.is_wishlist
+) o
+CROSS JOIN LATERAL (VALUES ('total', ''), ('artist', o.artist), ('country', o.country)) AS dims (dimension, dim_key)
+WHERE NOT EXISTS (SELECT 1 FROM collection_rollups)
+GROUP BY o.user_id, dims.dimension, dims.dim_key, o.activity_month, o.currency;
+
+INSERT INTO collection_holdings (user_id, edition_id, artist, country, price, currency)
+SELECT s.user_id, s.edition_id, v.artist, v.country, v.price, v.currency
+FROM user_edition_status s
+JOIN v_discography v ON v.edition_id = s.edition_id
+WHERE s.is_purchased AND NOT EXISTS (SELECT 1 FROM collection_holdings)
+ON CONFLICT (user_id, edition_id) DO NOTHING;
@@ -0,0 +1,13 @@
+-- トラッカー画面のページング（/api/shinee/discography/query）用のインデックス。
+-- Supabase の SQL Editor で、アプリのデプロイ前に実行してください。
+-- 並び順は v_discography の (release_date, edition_id) で、新しい順は DESC NULLS LAST、古い順はそのちょうど逆順です。
+-- 発売日は discs、エディションIDは editions の列で、同じ発売日の別ディスクのエディションは edition_id 順に混ざるため、
+-- どちらのインデックスをたどっても並び順どおりにはなりません（絞り込み後の行は、毎回ソートされます）。
+-- このインデックスは、カーソルより後ろの発売日の範囲で discs を絞り込むためと、
+-- 絞り込んだディスクのエディションを disc_id で結合するために使います。
+
+CREATE INDEX IF NOT EXISTS idx_discs_release_date
+    ON discs (release_date DESC NULLS LAST, disc_id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_editions_disc_edition
+    ON editions (disc_id, edition_id);
@@ -14,88 +14,135 @@ async function updateMyPageStats() {
         if (!response.ok) return;
 
         const stats = await response.json();
-        console.log("統計データ反映中:", stats);
-
-        // --- A. 全体進捗バー（水平バー） ---
-        const mainBar = document.querySelector('#totalBar');
-        const mainText = document.querySelector('.bar-label');
-        if (mainBar) mainBar.style.width = `${stats.total}%`;
-        if (mainText) mainText.textContent = `${stats.total}%`;
-
-        // --- B. メンバー別・円形バー（CSS変数の活用） --- 
-        // メンバー名と、HTML上のクラス名を紐付ける「マップ」を作成
-        const memberMap = {
-            'Onew': '.circle-onew',
-            'Jonghyun': '.circle-jonghyun',
-            'Key': '.circle-key',
-            'Minho': '.circle-minho',
-            'Taemin': '.circle-taemin'
-
-            // 【技術的工夫：CSS変数による宣言的アニメーション】
-            // JSで計算ロジックを回すのではなく、CSS変数 '--percent' を書き換えることで
-            // CSS側の transition や conic-gradient(扇形グラデーション) に描画を任せています。
-            // これにより、JSの負荷を下げつつ、滑らかなアニメーションを実現しています。
-        };
-
-        // ループで一気に円形グラフの角度（パーセント）を更新
-        Object.keys(memberMap).forEach(name => {
-            const circle = document.querySelector(memberMap[name]);
-            // stats[name] が 0 の場合もあるため、undefined かどうかで厳密に判定
-            if (circle && stats[name] !== undefined) {
-                // CSS変数 --percent を書き換える
-                // これにより、CSS側の conic-gradient 等が反応し、アニメーションしながら動く
-                circle.style.setProperty('--percent', `${stats[name]}%`);
-            }
-        });
+        applyMyPageStats(stats);
 
-        // --- C. 国別バー（Japan / Korea） ---
-        // stats.jp や stats.kr の値を使って、それぞれのバーの長さを調整
-        const jpBar = document.querySelector('.bar-jp');
-        const jpText = document.querySelector('.percent-jp');
-        if (jpBar && stats.jp !== undefined) {
-            jpBar.style.width = `${stats.jp}%`;
-            if (jpText) jpText.textContent = `${stats.jp}%`;
-        }
+    } catch (error) {
+        console.error("統計データの取得またはバッジ更新に失敗しました:", error);
+    }
+
+}
 
-        const krBar = document.querySelector('.bar-kr');
-        const krText = document.querySelector('.percent-kr');
-        if (krBar && stats.kr !== undefined) {
-            krBar.style.width = `${stats.kr}%`;
-            if (krText) krText.textContent = `${stats.kr}%`;
+/**
+ * 統計データ（/api/stats と同じ形式）を、各進捗バーとバッジに反映する
+ * /api/events から届いた最新の統計もこの関数で反映する
+ * @param {Object} stats - { total: 85, Onew: 60, jp: 90, ... }
+ */
+function applyMyPageStats(stats) {
+    console.log("統計データ反映中:", stats);
+
+    // --- A. 全体進捗バー（水平バー） ---
+    const mainBar = document.querySelector('#totalBar');
+    const mainText = document.querySelector('.bar-label');
+    if (mainBar) mainBar.style.width = `${stats.total}%`;
+    if (mainText) mainText.textContent = `${stats.total}%`;
+
+    // --- B. メンバー別・円形バー（CSS変数の活用） --- 
+    // メンバー名と、HTML上のクラス名を紐付ける「マップ」を作成
+    const memberMap = {
+        'Onew': '.circle-onew',
+        'Jonghyun': '.circle-jonghyun',
+        'Key': '.circle-key',
+        'Minho': '.circle-minho',
+        'Taemin': '.circle-taemin'
+
+        // 【技術的工夫：CSS変数による宣言的アニメーション】
+        // JSで計算ロジックを回すのではなく、CSS変数 '--percent' を書き換えることで
+        // CSS側の transition や conic-gradient(扇形グラデーション) に描画を任せています。
+        // これにより、JSの負荷を下げつつ、滑らかなアニメーションを実現しています。
+    };
+
+    // ループで一気に円形グラフの角度（パーセント）を更新
+    Object.keys(memberMap).forEach(name => {
+        const circle = document.querySelector(memberMap[name]);
+        // stats[name] が 0 の場合もあるため、undefined かどうかで厳密に判定
+        if (circle && stats[name] !== undefined) {
+            // CSS変数 --percent を書き換える
+            // これにより、CSS側の conic-gradient 等が反応し、アニメーションしながら動く
+            circle.style.setProperty('--percent', `${stats[name]}%`);
         }
+    });
+
+    // --- C. 国別バー（Japan / Korea） ---
+    // stats.jp や stats.kr の値を使って、それぞれのバーの長さを調整
+    const jpBar = document.querySelector('.bar-jp');
+    const jpText = document.querySelector('.percent-jp');
+    if (jpBar && stats.jp !== undefined) {
+        jpBar.style.width = `${stats.jp}%`;
+        if (jpText) jpText.textContent = `${stats.jp}%`;
+    }
 
-        // --- D. バッジ解放ロジック ---
-        // stats（Javaから取得した集計データ）を元に、条件達成を判定する
-        const total = stats.total;
-        const jonghyunPercent = stats.Jonghyun;
+    const krBar = document.querySelector('.bar-kr');
+    const krText = document.querySelector('.percent-kr');
+    if (krBar && stats.kr !== undefined) {
+        krBar.style.width = `${stats.kr}%`;
+        if (krText) krText.textContent = `${stats.kr}%`;
+    }
 
-        // 1. Helloバッジ (収集率5%以上)
-        // 初心者向けの最初のステップ。要素があるか確認してから置換する
-        if (total >= 5) {
-            document.getElementById('badge-hello')?.classList.replace('lock', 'unlocked');
-        }
+    // --- D. バッジ解放ロジック ---
+    // stats（Javaから取得した集計データ）を元に、条件達成を判定する
+    const total = stats.total;
+    const jonghyunPercent = stats.Jonghyun;
 
-        // 2. Oddバッジ (収集率50%以上)
-        // 中級者の証。アルバムタイトルにちなんだバッジ名にする
-        if (total >= 50) {
-            document.getElementById('badge-odd')?.classList.replace('lock', 'unlocked');
-        }
+    // 1. Helloバッジ (収集率5%以上)
+    // 初心者向けの最初のステップ。要素があるか確認してから置換する
+    if (total >= 5) {
+        document.getElementById('badge-hello')?.classList.replace('lock', 'unlocked');
+    }
 
-        // 3. Jonghyun's Poetバッジ (特定のメンバーを100%で解放)
-        // コンプリートを目指すユーザーへの特別な称号
-        if (jonghyunPercent >= 100) {
-            document.getElementById('badge-jonghyun-poet')?.classList.replace('lock', 'unlocked');
-        }
+    // 2. Oddバッジ (収集率50%以上)
+    // 中級者の証。アルバムタイトルにちなんだバッジ名にする
+    if (total >= 50) {
+        document.getElementById('badge-odd')?.classList.replace('lock', 'unlocked');
+    }
 
-        // 【ゲーミフィケーション要素：バッジ機能】
-        // ユーザーの収集意欲を高めるため、Java側から返される統計値をトリガーに
-        // バッジの 'lock' クラスを 'unlocked' に置換し、CSSで「光る」演出を加えています。
-        // 今後、アルバム枚数に応じた「SHINee World」バッジなどの追加も容易な設計です。
+    // 3. Jonghyun's Poetバッジ (特定のメンバーを100%で解放)
+    // コンプリートを目指すユーザーへの特別な称号
+    if (jonghyunPercent >= 100) {
+        document.getElementById('badge-jonghyun-poet')?.classList.replace('lock', 'unlocked');
+    }
 
-    } catch (error) {
-        console.error("統計データの取得またはバッジ更新に失敗しました:", error);
+    // 【ゲーミフィケーション要素：バッジ機能】
+    // ユーザーの収集意欲を高めるため、Java側から返される統計値をトリガーに
+    // バッジの 'lock' クラスを 'unlocked' に置換し、CSSで「光る」演出を加えています。
+    // 今後、アルバム枚数に応じた「SHINee World」バッジなどの追加も容易な設計です。
+}
+
+/**
+ * サーバーからの変更通知（Server-Sent Events）を受け取り、統計とウィッシュリストを自動で更新する
+ * 別のタブやスマホで所持・欲しいものを切り替えても、ポーリングせずにこの画面へ反映される
+ */
+function subscribeMyPageEvents() {
+    // 初期表示の統計は、SSEの接続とは関係なく /api/stats から取得する
+    // （接続数の上限による503や、サーバー側で connected が送れなかった場合でも、進捗バーが空のままにならないように）
+    updateMyPageStats();
+
+    // EventSource に対応していないブラウザでは、最初の1回の取得だけで終わる
+    if (!window.EventSource) {
+        return;
     }
 
+    // 接続が切れた場合、EventSource が自動で再接続し、再び connected イベントが届く
+    const source = new EventSource('/api/events');
+
+    // 接続直後：その時点の統計で上書きする（取得から接続までの間の変更も反映される）
+    source.addEventListener('connected', (e) => {
+        applyMyPageStats(JSON.parse(e.data).stats);
+    });
+
+    // 接続エラー：HTTPエラー（503など）の場合 EventSource は再接続しないため、統計だけ取り直しておく
+    source.onerror = () => {
+        updateMyPageStats();
+    };
+
+    // 所持・欲しいものの変更：変更後の統計がイベントに含まれている
+    source.addEventListener('status', (e) => {
+        const event = JSON.parse(e.data);
+        applyMyPageStats(event.stats);
+        // 欲しいものが変わった時だけリストを取り直す
+        if (event.wishlist !== null && event.wishlist !== undefined) {
+            updateWishlistDisplay();
+        }
+    });
 }
 
 /**
@@ -160,8 +207,8 @@ async function updateWishlistDisplay() {
 document.addEventListener('DOMContentLoaded', () => {
 
     // 1. 統計データの反映を開始
-    // JavaのAPIから数字を取ってきて、円形バーや進捗バーを動かす
-    updateMyPageStats();
+    // /api/stats で円形バーや進捗バーを動かし、以後は変更通知（SSE）で届いた最新の統計を反映する
+    subscribeMyPageEvents();
 
     // 2. 欲しいものリストの表示を開始
     // ウィッシュリストに登録されたアイテムを画面に並べる
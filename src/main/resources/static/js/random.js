@@ -24,19 +24,24 @@ document.addEventListener('DOMContentLoaded', () => {
     });
 });
 
+// disc_id → 形態一覧（/api/master/tree を1回取得して保持し、アルバムを選び直してもAPIは呼ばない）
+const editionsByDisc = new Map();
+
 /**
- * アルバム一覧をAPIから取得してセレクトボックスを埋める
+ * アルバムと形態の一覧をAPIからまとめて取得し、アルバムのセレクトボックスを埋める
  */
 async function initAlbumList() {
     try {
-        // MasterDataController (Java) から全アルバム情報を取得
-        const response = await fetch('/api/master/discs');
+        // MasterDataController (Java) から全アルバムと、それぞれの形態を1回で取得
+        const response = await fetch('/api/master/tree');
         if (!response.ok) throw new Error('アルバム情報の取得に失敗');
 
         const discs = await response.json();
         const select = document.getElementById('disc-select');
 
         discs.forEach(disc => {
+            editionsByDisc.set(disc.discId, disc.editions);
+
             const option = document.createElement('option');
             option.value = disc.discId; // D001 など
             option.textContent = disc.title; // Album名
@@ -52,38 +57,31 @@ async function initAlbumList() {
 }
 
 /**
- * アルバムIDに紐づく形態（Edition）一覧を取得してセレクトボックスを埋める
+ * アルバムIDに紐づく形態（Edition）一覧で、形態のセレクトボックスを埋める
  * @param {string} discId - アルバムのID (例: D001)
  */
-async function loadEditions(discId) {
-    try {
-        // Java側の MasterDataController で作った「アルバムIDで絞り込むAPI」を叩く
-        const response = await fetch(`/api/master/editions?discId=${discId}`);
-        if (!response.ok) throw new Error('Network response was not ok');
-
-        const editions = await response.json();
-        const select = document.getElementById('edition-select');
+function loadEditions(discId) {
+    // 取得済みの一覧から選ぶだけなので、通信は発生しない
+    const editions = editionsByDisc.get(discId) || [];
+    const select = document.getElementById('edition-select');
 
-        // 初期化：前の選択肢を消して、選択可能な状態にする
-        select.innerHTML = '<option value="">形態を選択してください</option>';
-        select.disabled = false;
+    // 初期化：前の選択肢を消して、選択可能な状態にする
+    select.innerHTML = '<option value="">形態を選択してください</option>';
+    select.disabled = false;
 
-        editions.forEach(ed => {
-            const option = document.createElement('option');
-            option.value = ed.editionId; // D001-01 など
-            option.textContent = ed.displayName; // 通常盤 など
-            select.appendChild(option);
-        });
+    editions.forEach(ed => {
+        const option = document.createElement('option');
+        option.value = ed.editionId; // D001-01 など
+        option.textContent = ed.displayName; // 通常盤 など
+        select.appendChild(option);
+    });
 
-        // 【UX設計：コンテキストに応じたUI制御】
-        // アルバム未選択時に形態を選ばせない（disabled）制御を行うことで、
-        // ユーザーの誤操作を防ぎ、常に整合性のあるデータ選択を促す設計にしています。
+    // 【UX設計：コンテキストに応じたUI制御】
+    // アルバム未選択時に形態を選ばせない（disabled）制御を行うことで、
+    // ユーザーの誤操作を防ぎ、常に整合性のあるデータ選択を促す設計にしています。
 
-        // 【理想】もし形態が1つしかない場合は、自動でそれを選択状態にして
-        // ユーザーのクリック回数を減らす「オートセレクション機能」を入れたい
-    } catch (error) {
-        console.error('Fetch error (editions):', error);
-    }
+    // 【理想】もし形態が1つしかない場合は、自動でそれを選択状態にして
+    // ユーザーのクリック回数を減らす「オートセレクション機能」を入れたい
 }
 
 /**
@@ -192,21 +190,14 @@ addSlotBtn.addEventListener('click', () => {
 
 /**
  * データの保存（送信）ロジック
- * ボタン押下時にFormDataを作成し、画像を含む一括アップロードを行う
+ * ボタン押下時に各スロットの内容を集め、画像を小分けにして送る「分割アップロード」で一括登録する
  */
 saveBtn.addEventListener('click', async () => {
     console.log("保存処理を開始します"); // デバッグ用
 
-    const formData = new FormData();
-
-    // 1. アルバムと形態の選択状態を取得
-    // 要素が存在するかチェックしながら取得し、空でも送れるように三項演算子で制御
-    const discSelect = document.getElementById('disc-select');
+    // 1. 形態の選択状態を取得
     const editionSelect = document.getElementById('edition-select');
-
-    // 値が空でも送れるようにする
-    formData.append('discId', discSelect ? discSelect.value : "");
-    formData.append('editionId', editionSelect ? editionSelect.value : "");
+    const editionId = editionSelect ? editionSelect.value : "";
 
     // 2. 画面上の全スロットを取得し、件数をチェック
     const slots = document.querySelectorAll('.item-slot-card');
@@ -217,94 +208,214 @@ saveBtn.addEventListener('click', async () => {
         return;
     }
 
-    // 3. 各スロットからデータを回収してFormDataに追加
-    slots.forEach((slot) => {
-        // A. メンバー名：クラス名 '.member-select' で取得
+    // 3. 各スロットからメンバー名・アイテム名・画像を回収（画像なしのスロットは size 0 で送る）
+    const entries = Array.from(slots).map((slot) => {
         const memberSelect = slot.querySelector('.member-select');
-        const memberValue = memberSelect ? memberSelect.value : "Group";
-        formData.append("memberNames", memberValue);
-
-        // B. アイテム名：クラス名 '.item-type-input' で取得
         const typeInput = slot.querySelector('.item-type-input');
-        const typeValue = typeInput ? typeInput.value : "名称未設定";
-        formData.append("names", typeValue);
-
-        // C. 画像：クラス名 '.slot-image-input' で取得
         const imageInput = slot.querySelector('.slot-image-input');
-        if (imageInput && imageInput.files[0]) {
-            formData.append("images", imageInput.files[0]);
-        }
+        return {
+            memberName: memberSelect ? memberSelect.value : "Group",
+            itemType: typeInput ? typeInput.value : "名称未設定",
+            file: imageInput && imageInput.files[0] ? imageInput.files[0] : null
+        };
     });
 
     // 4. サーバーへ送信
+    const saveLabel = saveBtn.textContent;
     try {
         console.log("サーバーへ送信中...");
-        const response = await fetch('/api/random/upload', {
-            method: 'POST',
-            body: formData
-        });
+        const response = await uploadInChunks(editionId, entries);
 
         console.log("サーバー応答ステータス:", response.status);
 
         if (response.ok) {
-            alert("データの送信に成功したよ！");
+            // 登録はサーバーの裏で実行されるので、終わるまで進み具合を確認しながら待つ
+            const job = await waitForJob(await response.json(), (progress) => {
+                saveBtn.textContent = `保存中… ${progress}%`;
+            });
+            if (job.status !== 'SUCCEEDED') {
+                alert("保存に失敗しました（" + (job.error || job.status) + "）");
+                return;
+            }
+            // サーバーはスロットごとの成否を返すので、一部だけ失敗した場合も伝える
+            const report = job.result;
+            // 保存済みの画像と同じものは送り直さずに使い回すので、その件数も伝える
+            const reused = report.deduplicated > 0 ? `\n（${report.deduplicated}件は登録済みの画像を使ったよ）` : "";
+            if (report.failed > 0) {
+                alert(`${report.saved}件を保存しました（${report.failed}件は失敗したので、もう一度試してね）${reused}`);
+            } else {
+                alert("データの送信に成功したよ！" + reused);
+            }
             // 保存が終わった直後に、最新のリストを再読み込みして画面を書き換える
             loadCollection();
         } else {
             alert("送信に失敗しました（エラーコード: " + response.status + "）");
         }
-
-        // 【理想】現在は送信完了までユーザーが待つ必要があるが、
-        // ローディングアニメーションを表示させ、完了後にふわっとリストが更新される演出を入れたい
     } catch (error) {
         // ここでエラーが出る場合は通信環境かURLの問題
         console.error("通信エラー:", error);
         alert("通信に失敗しました。詳細はコンソールを確認してね");
+    } finally {
+        saveBtn.textContent = saveLabel;
     }
 
 
-    // 【通信設計：Multipart/FormDataによる一括アップロード】
-    // 複数の画像ファイルとメタデータ（メンバー名、アイテム名）を1つのリクエストにまとめ、
-    // Java側の List<MultipartFile> で受け取れる形式で効率的に送信しています。
+    // 【通信設計：分割アップロード】
+    // 以前は全画像を1つの multipart リクエストで送っていたため、合計10MBを超えると送れず、
+    // 途中で切れると最初からやり直しでした。今は画像を数MBずつ送り、切れてもその続きから再開します。
 });
 
 
+// 1回の PUT で送る大きさ（サーバー側の上限 maxChunkSize を超える場合はそちらに合わせる）
+const UPLOAD_CHUNK_SIZE = 2 * 1024 * 1024;
+// 1つのチャンクを送り直す回数の上限
+const UPLOAD_MAX_RETRIES = 3;
+
+/**
+ * 分割アップロード（開始 → 画像ごとにチャンクを送信 → 登録）を行い、登録（commit）のレスポンスを返す（成功時はジョブの状態）
+ */
+async function uploadInChunks(editionId, entries) {
+    const startResponse = await fetch('/api/random/uploads', {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({
+            editionId,
+            items: entries.map((entry) => ({
+                itemType: entry.itemType,
+                memberName: entry.memberName,
+                fileName: entry.file ? entry.file.name : null,
+                contentType: entry.file ? entry.file.type : null,
+                size: entry.file ? entry.file.size : 0
+            }))
+        })
+    });
+    if (!startResponse.ok) {
+        return startResponse;
+    }
+    const session = await startResponse.json();
+    const chunkSize = Math.min(UPLOAD_CHUNK_SIZE, session.maxChunkSize);
+
+    for (let i = 0; i < entries.length; i++) {
+        if (entries[i].file) {
+            await sendFile(session.sessionId, i, entries[i].file, chunkSize);
+        }
+    }
+    return fetch(`/api/random/uploads/${session.sessionId}/commit`, { method: 'POST' });
+}
+
+// ジョブの進み具合を確認する間隔（ミリ秒）
+const JOB_POLL_INTERVAL = 1000;
+
+/**
+ * 202 Accepted で受け付けられたジョブが終わるまで GET /api/jobs/{id} を確認し、終わった時点の状態を返す
+ */
+async function waitForJob(job, onProgress) {
+    while (!job.done) {
+        onProgress(job.progress);
+        await new Promise((resolve) => setTimeout(resolve, JOB_POLL_INTERVAL));
+        const response = await fetch(`/api/jobs/${job.jobId}`);
+        if (response.ok) {
+            job = await response.json();
+        }
+    }
+    return job;
+}
+
+// 1つの画像をチャンクに分けて送る。失敗したらサーバーが受け取り済みの位置を確認し、その続きから送り直す
+async function sendFile(sessionId, index, file, chunkSize) {
+    const url = `/api/random/uploads/${sessionId}/items/${index}`;
+    let offset = 0;
+    let retries = 0;
+    while (offset < file.size) {
+        try {
+            const response = await fetch(`${url}?offset=${offset}`, {
+                method: 'PUT',
+                headers: { 'Content-Type': 'application/octet-stream' },
+                body: file.slice(offset, offset + chunkSize)
+            });
+            if (!response.ok) {
+                throw new Error(`チャンクの送信に失敗しました（${response.status}）`);
+            }
+            offset = (await response.json()).received;
+            retries = 0;
+        } catch (error) {
+            if (++retries > UPLOAD_MAX_RETRIES) {
+                throw error;
+            }
+            console.warn(`スロット${index}の送信を再開します（${retries}回目）:`, error);
+            await new Promise((resolve) => setTimeout(resolve, 500 * retries));
+            try {
+                const status = await fetch(`/api/random/uploads/${sessionId}`).then((r) => r.json());
+                offset = status.items[index].received;
+            } catch (statusError) {
+                // 確認もできない場合は、同じ位置から送り直す（受け取り済みの範囲は上書きされるだけ）
+            }
+        }
+    }
+}
+
+
+// ギャラリーの絞り込み状態（メンバー・種別は複数選択可）と、次ページのカーソル
+const galleryFilter = { members: new Set(), itemTypes: new Set() };
+let galleryCursor = null;
+
+// 現在の形態・メンバー・種別の条件を、/api/random/items 用のクエリ文字列にする
+function galleryParams() {
+    const params = new URLSearchParams();
+    const editionSelect = document.getElementById('edition-select');
+    if (editionSelect && editionSelect.value) params.append('editionId', editionSelect.value);
+    galleryFilter.members.forEach(member => params.append('memberName', member));
+    galleryFilter.itemTypes.forEach(type => params.append('itemType', type));
+    return params;
+}
+
 /**
  * データの表示ロジック
- * DBから届いた本物のデータの数だけ、新しくカードを作る
+ * 条件に合うアイテムの最初のページと、絞り込みボタン用の件数を取得して描き直す
  */
 async function loadCollection() {
-    // 1. セレクトボックスの値を取得
-    const editionSelect = document.getElementById('edition-select');
-    const editionId = editionSelect ? editionSelect.value : "";
+    galleryCursor = null;
+    document.getElementById('collection-grid').innerHTML = '';
+    loadFacets();
+    await loadMoreItems();
+}
 
-    try {
-        // 2. IDが空なら /api/random/items 、あればクエリ付きのURLを生成
-        const url = editionId ? `/api/random/items?editionId=${editionId}` : `/api/random/items`;
-        const response = await fetch(url);
-        const items = await response.json();
+/**
+ * 次のページを取得して、ギャラリーの末尾に追加する（1回目は最初のページ）
+ */
+async function loadMoreItems() {
+    const params = galleryParams();
+    if (galleryCursor) {
+        params.set('afterCreatedAt', galleryCursor.createdAt);
+        params.set('afterId', galleryCursor.itemId);
+    }
 
+    try {
+        const response = await fetch(`/api/random/items?${params}`);
+        const page = await response.json();
         const container = document.getElementById('collection-grid');
-        container.innerHTML = '';
+        const moreButton = document.getElementById('load-more-btn');
 
-        // 3. データが0件の場合のメッセージ表示
-        if (items.length === 0) {
+        // データが0件の場合のメッセージ表示
+        if (!galleryCursor && page.items.length === 0) {
             container.innerHTML = `
                 <div class="empty-message" style="grid-column: 1 / -1; text-align: center; padding: 3rem; color: #666;">
                     <p>まだこのエディションのアイテムはありません。</p>
                     <p>上のフォームから登録してみてね！💎</p>
                 </div>
             `;
-            return;
         }
 
-        // 4. DBから届いた本物のデータの数だけ、新しくカードを作る
-        items.forEach(item => {
+        // DBから届いた本物のデータの数だけ、新しくカードを作る
+        // 画像は縮小版（thumbnailUrl / srcset）を優先し、無い古いデータは元画像を表示する
+        page.items.forEach(item => {
             const card = document.createElement('div');
             card.className = 'collection-item';
             card.innerHTML = `
             <div class="item-img-wrapper">
-                <img src="${item.imageUrl}" alt="${item.itemType}">
+                <img src="${item.thumbnailUrl || item.imageUrl}"
+                     ${item.imageSrcset ? `srcset="${item.imageSrcset}" sizes="100px"` : ''}
+                     loading="lazy" alt="${item.itemType}">
             </div>
             <p class="member-tag">${item.memberName}</p>
             <p class="item-name">${item.itemType}</p>
@@ -312,13 +423,55 @@ async function loadCollection() {
             container.appendChild(card);
         });
 
-
-        // 【理想】アイテムが増えた際に、メンバー別や種類別で
-        // リアルタイムに並び替え（ソート）ができるボタンを設置したい
+        // 続きがあれば「もっと見る」を出す（全件を一度に読み込まない）
+        galleryCursor = page.hasNext ? { createdAt: page.nextCreatedAt, itemId: page.nextItemId } : null;
+        if (moreButton) moreButton.hidden = !page.hasNext;
     } catch (error) {
         console.error("コレクションの取得に失敗しました:", error);
     }
 }
 
+/**
+ * メンバー別・種別ごとの件数を取得して、絞り込みボタンを描き直す
+ */
+async function loadFacets() {
+    const bar = document.getElementById('collection-facets');
+    if (!bar) return;
+
+    try {
+        const response = await fetch(`/api/random/items/facets?${galleryParams()}`);
+        const facets = await response.json();
+
+        bar.innerHTML = '';
+        renderFacetGroup(bar, facets.members, galleryFilter.members);
+        renderFacetGroup(bar, facets.itemTypes, galleryFilter.itemTypes);
+    } catch (error) {
+        console.error("件数の取得に失敗しました:", error);
+    }
+}
+
+// 選択肢ごとに「名前 (件数)」のボタンを作る。押すと選択を切り替えて一覧を読み込み直す
+function renderFacetGroup(bar, counts, selected) {
+    const group = document.createElement('div');
+    group.className = 'facet-group';
+    counts.filter(facet => facet.value).forEach(facet => {
+        const chip = document.createElement('button');
+        chip.type = 'button';
+        chip.className = 'facet-chip' + (selected.has(facet.value) ? ' active' : '');
+        chip.textContent = `${facet.value} (${facet.count})`;
+        chip.addEventListener('click', () => {
+            if (selected.has(facet.value)) {
+                selected.delete(facet.value);
+            } else {
+                selected.add(facet.value);
+            }
+            loadCollection();
+        });
+        group.appendChild(chip);
+    });
+    bar.appendChild(group);
+}
+
 // ページ読み込み時に実行
-loadCollection();
\ No newline at end of file
+loadCollection();
+document.getElementById('load-more-btn')?.addEventListener('click', loadMoreItems);
\ No newline at end of file
@@ -31,6 +31,7 @@ document.addEventListener('DOMContentLoaded', async () => {
             console.log("トラッカー表示を初期化します");
             setupEventListeners(); // 検索やフィルタのイベント登録
             updateDisplay();       // 取得データに基づいた初期描画
+            subscribeTrackerEvents(); // 他のタブ・端末での変更を受け取る
         }
 
         // マイページ（コレクションページ）の場合は、
@@ -55,8 +56,9 @@ document.addEventListener('DOMContentLoaded', async () => {
  */
 async function fetchDiscs() {
     try {
-        // コンソールに表示されているURLにリクエストを送信
-        const response = await fetch('/api/shinee/discography');
+        // 一覧表示用の軽量API（曲目・特典などの大きな項目は含まない）にリクエストを送信
+        // 詳細情報はモーダルで開かれた時に loadEditionDetail() で個別に取得する
+        const response = await fetch('/api/shinee/discography/summary');
 
         // HTTPステータスが200 OK以外（500エラーなど）の場合、Java側のエラーを検知して停止させる
         if (!response.ok) {
@@ -365,6 +367,53 @@ async function updatePurchaseStatus(editionId, isChecked) {
     }
 }
 
+/**
+ * サーバーからの変更通知（Server-Sent Events）を受け取り、トラッカー画面に反映する関数
+ * 別のタブやスマホで所持・欲しいものを切り替えた場合も、一覧全体を取り直さずに該当エディションだけ更新する
+ */
+function subscribeTrackerEvents() {
+    if (!window.EventSource) return; // 対応していないブラウザでは従来どおり（再読み込みで反映）
+
+    const source = new EventSource('/api/events');
+    let connectedOnce = false;
+
+    // 再接続した場合は、切断中の変更を取りこぼしている可能性があるため一覧を取り直す
+    source.addEventListener('connected', async () => {
+        if (connectedOnce) {
+            await fetchDiscs();
+            updateDisplay();
+        }
+        connectedOnce = true;
+    });
+
+    // 所持・欲しいものの変更：allDiscs と、開いているモーダルの該当カードだけを書き換える
+    source.addEventListener('status', (e) => {
+        const event = JSON.parse(e.data);
+        event.editionIds.forEach(editionId => {
+            const ed = allDiscs.find(d => d.editionId === editionId);
+            if (ed) {
+                if (event.purchased !== null) ed.purchased = event.purchased;
+                if (event.wishlist !== null) ed.wishlist = event.wishlist;
+            }
+
+            const box = document.querySelector(`.edition-box[data-edition-id="${editionId}"]`);
+            if (!box) return;
+            if (event.purchased !== null) {
+                box.querySelector('.purchase-checkbox').checked = event.purchased;
+            }
+            if (event.wishlist !== null) {
+                const btn = box.querySelector('.wishlist-btn');
+                btn.classList.toggle('active', event.wishlist);
+                btn.querySelector('.material-symbols-outlined').textContent =
+                    event.wishlist ? 'shopping_cart' : 'add_shopping_cart';
+            }
+        });
+
+        // 「所持済みのみ」などで絞り込んでいる場合に備えて、一覧を描き直す
+        if (event.purchased !== null) updateDisplay();
+    });
+}
+
 /**
  * 形態一覧モーダルを表示する関数
  * クリックされた作品（discId）に紐づくすべてのエディションを表示する
@@ -412,6 +461,7 @@ function showModal(discId) {
         // labelタグを使用することで、BOX全体をチェックボックスの反応範囲にする
         const label = document.createElement('label');
         label.className = 'edition-box';
+        label.dataset.editionId = id; // 変更通知（/api/events）を受け取った時に、このカードを探すための目印
 
         // innerHTMLで中身を構築：チェックボックス、エディション名、トラックリスト・詳細・ウィッシュリスト追加ボタン
         label.innerHTML = `
@@ -448,12 +498,36 @@ function showModal(discId) {
     overlay.classList.remove('hidden');
 }
 
+/**
+ * エディションの詳細情報（曲目・特典・映像内容・備考）をサーバーから取得し、データに合流させる関数
+ * 一度取得したエディションは detailLoaded フラグで再取得を防ぐ
+ * （ブラウザ側もETagでキャッシュするため、再訪問時も304で済む）
+ * @param {Object} ed - 対象のエディションデータ（allDiscs内のオブジェクト）
+ */
+async function loadEditionDetail(ed) {
+    if (ed.detailLoaded) return;
+
+    try {
+        const response = await fetch(`/api/editions/${ed.editionId}/detail`);
+        if (!response.ok) {
+            throw new Error(`サーバーエラー: ${response.status}`);
+        }
+
+        // 取得した詳細項目を元のオブジェクトに上書きして、以降は通常通り参照できるようにする
+        Object.assign(ed, await response.json());
+        ed.detailLoaded = true;
+    } catch (error) {
+        // 取得に失敗しても、手元にあるデータだけで表示を続ける
+        console.error("詳細情報の取得に失敗しました:", error);
+    }
+}
+
 /**
  * トラックリスト(🎵)や詳細情報(ⓘ)を表示・非表示する関数
  * @param {string} editionId - 対象のエディションID
  * @param {string} type - 表示タイプ ('track' または 'info')
  */
-function toggleDetail(editionId, type) {
+async function toggleDetail(editionId, type) {
     // 1. 表示エリア（さっきモーダルで作った隠し箱）を取得
     const detailArea = document.getElementById(`detail-${editionId}`);
 
@@ -472,6 +546,9 @@ function toggleDetail(editionId, type) {
         detailArea.classList.remove('hidden');
         detailArea.dataset.currentType = type; // 現在表示中のタイプを記憶
 
+        // 一覧APIには詳細項目が含まれないため、初回だけサーバーから取得する
+        await loadEditionDetail(ed);
+
         // --- A. トラックリスト表示の場合 ---
         if (type === 'track') {
             // トラックリストが空でないか確認
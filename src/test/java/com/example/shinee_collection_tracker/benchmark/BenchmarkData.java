@@ -0,0 +1,72 @@
+package com.example.shinee_collection_tracker.benchmark;
+
+import com.example.shinee_collection_tracker.model.Discography;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ベンチマーク用の、本番に近い形のディスコグラフィデータを作るクラス。
+ * 1アルバムあたり平均4形態、曲目12曲程度・特典数行といった、実データに近い文字量にしています。
+ */
+final class BenchmarkData {
+
+	static final String[] ARTISTS = { "SHINee", "Onew", "Jonghyun", "Key", "Minho", "Taemin" };
+	static final String[] COUNTRIES = { "jp", "kr" };
+	static final String[] CATEGORIES = { "Album", "Mini/Album", "Single", "Repackage/Album", "Live/DVD" };
+
+	private BenchmarkData() {
+	}
+
+	static List<Discography> discography(int editions) {
+		Random random = new Random(42);
+		List<Discography> rows = new ArrayList<>(editions);
+		int disc = 0;
+		while (rows.size() < editions) {
+			disc++;
+			String discId = String.format("D%04d", disc);
+			String artist = ARTISTS[random.nextInt(ARTISTS.length)];
+			String country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+			String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+			String releaseDate = LocalDate.of(2008, 5, 25).plusDays(random.nextInt(6000)).toString();
+			int editionCount = 1 + random.nextInt(7);
+			for (int e = 1; e <= editionCount && rows.size() < editions; e++) {
+				rows.add(Discography.builder()
+						.editionId(discId + "-" + String.format("%02d", e))
+						.discId(discId)
+						.artist(artist)
+						.title("Title " + disc)
+						.titleSub(disc % 3 == 0 ? "-" + disc + "th Mini Album-" : null)
+						.category(category)
+						.country(country)
+						.releaseDate(releaseDate)
+						.editionName("Ver." + e)
+						.displayName("Photo Book Ver." + (char) ('A' + e - 1))
+						.price(country.equals("jp") ? 3300 : 18000)
+						.currency(country.equals("jp") ? "JPY" : "KRW")
+						.remarks(e == 1 ? "ジャケット：メンバー別5種" : null)
+						.tracklist(tracklist(random))
+						.benefit("Booklet 80P,Lyrics Paper,Photo Card(全5種中1種ランダム),Post Card,Sticker")
+						.videoContent(e % 2 == 0 ? "Music Video,Making Film,Jacket Shooting Sketch" : null)
+						.isPurchased(random.nextInt(3) == 0)
+						.isWishlist(random.nextInt(10) == 0)
+						.build());
+			}
+		}
+		return rows;
+	}
+
+	private static String tracklist(Random random) {
+		StringBuilder builder = new StringBuilder();
+		int tracks = 8 + random.nextInt(8);
+		for (int t = 1; t <= tracks; t++) {
+			if (t > 1) {
+				builder.append(',');
+			}
+			builder.append("Track Title Number ").append(t).append(" (Korean Ver.)");
+		}
+		return builder.toString();
+	}
+}
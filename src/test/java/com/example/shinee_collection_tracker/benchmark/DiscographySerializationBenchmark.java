@@ -0,0 +1,66 @@
+package com.example.shinee_collection_tracker.benchmark;
+
+import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.model.DiscographySummary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/shinee/discography（全項目）と /api/shinee/discography/summary（一覧用の項目のみ）の
+ * JSON変換コストを比較するベンチマーク。
+ * 出力のバイト数は、実行前に標準出力へ1回だけ表示します。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscographySerializationBenchmark {
+
+	@Param({ "500", "5000" })
+	int editions;
+
+	private final JsonMapper mapper = JsonMapper.builder().build();
+	private List<Discography> full;
+	private List<DiscographySummary> summaries;
+
+	@Setup
+	public void setUp() {
+		full = BenchmarkData.discography(editions);
+		summaries = full.stream().map(DiscographySummary::from).toList();
+		System.out.printf("%n[payload] editions=%d full=%d bytes, summary=%d bytes%n",
+				editions, mapper.writeValueAsBytes(full).length, mapper.writeValueAsBytes(summaries).length);
+	}
+
+	@Benchmark
+	public byte[] fullEntitiesWithTextColumns() {
+		return mapper.writeValueAsBytes(full);
+	}
+
+	@Benchmark
+	public byte[] summariesWithoutTextColumns() {
+		return mapper.writeValueAsBytes(summaries);
+	}
+
+	// キャッシュから一覧を返す場合は、Summaryへの詰め替えも毎回発生するので含めて計測する
+	@Benchmark
+	public byte[] summariesMappedFromCachedEntities() {
+		return mapper.writeValueAsBytes(full.stream().map(DiscographySummary::from).toList());
+	}
+}
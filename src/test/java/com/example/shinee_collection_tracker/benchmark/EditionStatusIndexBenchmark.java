@@ -0,0 +1,124 @@
+package com.example.shinee_collection_tracker.benchmark;
+
+import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.model.EditionStatusBits;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+import com.example.shinee_collection_tracker.repository.UserEditionStatusRepository;
+import com.example.shinee_collection_tracker.service.EditionStatusIndex;
+import com.example.shinee_collection_tracker.service.StatusWriteBehindQueue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * /api/stats（購入率）などを支える EditionStatusIndex の処理コストを測るベンチマーク。
+ * * [比較する処理]
+ * 1. snapshot: ビット列の popcount で率を返す（/api/stats）
+ * 2. breakdown: アーティスト・国・カテゴリー別の詳細（/api/stats/breakdown）
+ * 3. bits: ビット列をそのまま返す（/api/editions/status/bits、layout 一致時）
+ * 4. reconcile: DBのエディション一覧から索引を作り直し、ユーザーの状態を読み直す（初回・定期照合）
+ * 5. togglePurchase: 所持フラグの切り替えを索引に反映する
+ * * DBアクセス自体は含めず（リポジトリはモック）、Java側の処理だけを計測します。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditionStatusIndexBenchmark {
+
+	@Param({ "500", "5000" })
+	int editions;
+
+	private static final String USER = "default";
+
+	private EditionStatusIndex index;
+	private String[] editionIds;
+	private String layout;
+
+	@Setup
+	public void setUp() {
+		List<Discography> catalog = BenchmarkData.discography(editions);
+		List<Map<String, Object>> groups = catalog.stream().map(EditionStatusIndexBenchmark::toGroupRow).toList();
+		List<Map<String, Object>> flagged = catalog.stream()
+				.filter(d -> d.isPurchased() || d.isWishlist())
+				.map(EditionStatusIndexBenchmark::toStatusRow)
+				.toList();
+		editionIds = catalog.stream().map(Discography::getEditionId).toArray(String[]::new);
+
+		DiscographyRepository repository = mock(DiscographyRepository.class);
+		when(repository.findEditionGroups()).thenReturn(groups);
+		UserEditionStatusRepository userStatusRepository = mock(UserEditionStatusRepository.class);
+		when(userStatusRepository.findFlaggedByUserId(USER)).thenReturn(flagged);
+		index = new EditionStatusIndex(repository, userStatusRepository,
+			new StatusWriteBehindQueue(userStatusRepository, new SimpleMeterRegistry(), false), 1000, 200);
+		layout = index.bits(USER, null).getLayoutVersion(); // 初回の読み込みを済ませておく
+	}
+
+	@Benchmark
+	public Map<String, Object> snapshot() {
+		return index.snapshot(USER);
+	}
+
+	@Benchmark
+	public Map<String, Object> breakdown() {
+		return index.breakdown(USER);
+	}
+
+	@Benchmark
+	public EditionStatusBits bits() {
+		return index.bits(USER, layout);
+	}
+
+	@Benchmark
+	public Map<String, Object> reconcile() {
+		index.scheduledReconcile();
+		return index.snapshot(USER);
+	}
+
+	@Benchmark
+	public void togglePurchase() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		index.switchPurchased(USER, editionIds[random.nextInt(editionIds.length)], random.nextBoolean());
+	}
+
+	// findEditionGroups のネイティブクエリが返す行と同じ形
+	private static Map<String, Object> toGroupRow(Discography d) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("edition_id", d.getEditionId());
+		row.put("artist", d.getArtist());
+		row.put("country", d.getCountry());
+		row.put("category", d.getCategory());
+		return row;
+	}
+
+	// findFlaggedByUserId のネイティブクエリが返す行と同じ形
+	private static Map<String, Object> toStatusRow(Discography d) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("edition_id", d.getEditionId());
+		row.put("is_purchased", d.isPurchased());
+		row.put("is_wishlist", d.isWishlist());
+		return row;
+	}
+}
@@ -0,0 +1,41 @@
+package com.example.shinee_collection_tracker.benchmark;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * RandomItemInsertBenchmark の比較用（変更前）に、RandomItem を IDENTITY 採番のまま写したEntity。
+ * ベンチマーク専用のテーブル random_items_identity に対応します。
+ */
+@Entity
+@Table(name = "random_items_identity")
+@Data
+@NoArgsConstructor
+public class IdentityRandomItem {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long itemId;
+
+	@Column(nullable = false)
+	private String editionId;
+
+	private String itemType;
+	private String memberName;
+	private String imageUrl;
+	private String thumbnailUrl;
+
+	@Column(columnDefinition = "TEXT")
+	private String imageSrcset;
+
+	@Column(updatable = false)
+	private LocalDateTime createdAt = LocalDateTime.now();
+}
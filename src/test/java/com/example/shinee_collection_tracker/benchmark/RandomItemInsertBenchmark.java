@@ -0,0 +1,153 @@
+package com.example.shinee_collection_tracker.benchmark;
+
+import com.example.shinee_collection_tracker.ShineeCollectionTrackerApplication;
+import com.example.shinee_collection_tracker.model.RandomItem;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ランダムアイテムのINSERT性能（1秒あたりの件数）を、採番方式とバッチ設定の違いで比較するベンチマーク。
+ * * [比較する設定]
+ * - identity: 変更前。IDENTITY採番・バッチなし（1件ごとにINSERTの往復が発生）
+ * - pooled-sequence: 変更後。シーケンスから50件ずつ採番し、application-prod.properties と同じバッチ設定でINSERT
+ * * DBはH2（インメモリ）ですが、SQLの往復ごとに latencyMicros の待ちを入れて、ネットワーク越しのDBを模擬します。
+ * 1回の呼び出しで、アップロード1回分を想定した100件を1トランザクションで保存します。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(RandomItemInsertBenchmark.ITEMS_PER_SAVE)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomItemInsertBenchmark {
+
+	static final int ITEMS_PER_SAVE = 100;
+
+	@Param({ "identity", "pooled-sequence" })
+	String strategy;
+
+	@Param({ "0", "1000" })
+	long latencyMicros;
+
+	private ConfigurableApplicationContext context;
+	private EntityManagerFactory entityManagerFactory;
+	private JdbcTemplate jdbc;
+
+	@Setup
+	public void setUp() {
+		List<String> args = new ArrayList<>(List.of(
+				"--spring.datasource.url=jdbc:h2:mem:insert-bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+				"--spring.datasource.username=sa",
+				"--spring.datasource.password=",
+				"--spring.datasource.driver-class-name=org.h2.Driver",
+				"--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+				"--spring.jpa.show-sql=false",
+				"--db.slow-query-threshold-ms=0"));
+		if (strategy.equals("pooled-sequence")) {
+			// application-prod.properties と同じバッチ設定
+			args.add("--spring.jpa.properties.hibernate.jdbc.batch_size=50");
+			args.add("--spring.jpa.properties.hibernate.order_inserts=true");
+		}
+
+		long latency = latencyMicros;
+		context = new SpringApplicationBuilder(ShineeCollectionTrackerApplication.class)
+				.web(WebApplicationType.NONE)
+				.initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+					@Override
+					public Object postProcessAfterInitialization(Object bean, String beanName) {
+						return bean instanceof DataSource dataSource && beanName.equals("dataSource")
+								? new RoundTripLatencyDataSource(dataSource, latency)
+								: bean;
+					}
+				}))
+				.run(args.toArray(String[]::new));
+
+		entityManagerFactory = context.getBean(EntityManagerFactory.class);
+		jdbc = new JdbcTemplate(context.getBean(DataSource.class));
+		createTables();
+	}
+
+	@TearDown(Level.Iteration)
+	public void truncate() {
+		jdbc.execute("TRUNCATE TABLE random_items");
+		jdbc.execute("TRUNCATE TABLE random_items_identity");
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public void saveUploadBatch() {
+		// RandomItemUploadService の saveAll と同じく、1トランザクションで persist を繰り返す
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			entityManager.getTransaction().begin();
+			for (int i = 0; i < ITEMS_PER_SAVE; i++) {
+				entityManager.persist(strategy.equals("identity") ? identityItem(i) : pooledItem(i));
+			}
+			entityManager.getTransaction().commit();
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	private static RandomItem pooledItem(int i) {
+		RandomItem item = new RandomItem();
+		item.setEditionId("D001-01");
+		item.setItemType("トレカ");
+		item.setMemberName("KEY");
+		item.setImageUrl("https://example.com/storage/v1/object/public/RandomItem/card" + i + ".jpg");
+		return item;
+	}
+
+	private static IdentityRandomItem identityItem(int i) {
+		IdentityRandomItem item = new IdentityRandomItem();
+		item.setEditionId("D001-01");
+		item.setItemType("トレカ");
+		item.setMemberName("KEY");
+		item.setImageUrl("https://example.com/storage/v1/object/public/RandomItem/card" + i + ".jpg");
+		return item;
+	}
+
+	private void createTables() {
+		jdbc.execute("DROP TABLE IF EXISTS random_items");
+		jdbc.execute("DROP TABLE IF EXISTS random_items_identity");
+		jdbc.execute("DROP SEQUENCE IF EXISTS random_items_item_id_seq");
+		// 本番の db/migration/V2 と同じく、シーケンスの増分を allocationSize(50) に合わせる
+		jdbc.execute("CREATE SEQUENCE random_items_item_id_seq START WITH 1 INCREMENT BY 50");
+		String columns = "edition_id VARCHAR NOT NULL, item_type VARCHAR, member_name VARCHAR, image_url VARCHAR, "
+				+ "thumbnail_url VARCHAR, image_srcset VARCHAR, created_at TIMESTAMP";
+		jdbc.execute("CREATE TABLE random_items (item_id BIGINT PRIMARY KEY, " + columns + ")");
+		jdbc.execute("CREATE TABLE random_items_identity (item_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+				+ columns + ")");
+	}
+}
@@ -0,0 +1,179 @@
+package com.example.shinee_collection_tracker.benchmark;
+
+import com.example.shinee_collection_tracker.model.RandomItem;
+import com.example.shinee_collection_tracker.model.UploadReport;
+import com.example.shinee_collection_tracker.repository.ImageObjectRepository;
+import com.example.shinee_collection_tracker.repository.RandomItemRepository;
+import com.example.shinee_collection_tracker.service.CollectionEventBroadcaster;
+import com.example.shinee_collection_tracker.service.ImageDedupIndex;
+import com.example.shinee_collection_tracker.service.ImageStorage;
+import com.example.shinee_collection_tracker.service.ImageThumbnailService;
+import com.example.shinee_collection_tracker.service.LocalImageStorage;
+import com.example.shinee_collection_tracker.service.RandomItemUploadService;
+import com.example.shinee_collection_tracker.service.dbStorageService;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import okhttp3.OkHttpClient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * POST /api/random/upload の処理（画像保存・サムネイル作成・DB保存の呼び出し）を測るベンチマーク。
+ * * [比較する保存先]
+ * - local: LocalImageStorage（一時ディレクトリへ保存）
+ * - supabase-stub: dbStorageService を、ローカルに立てたHTTPスタブ（Supabase Storage の代わり）へ向けたもの
+ * * * [画像の内容]
+ * - unique: 毎回すべて新しい画像（ハッシュが一致しないので、すべてアップロードする）
+ * - duplicate: 毎回同じ画像（2回目以降は、保存済みのURLを使い回してアップロードしない）
+ * DB保存はモック（saveAll は受け取ったリストをそのまま返す）のため、ストレージとサムネイル作成のコストが中心です。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomItemUploadBenchmark {
+
+	@Param({ "local", "supabase-stub" })
+	String backend;
+
+	@Param({ "5" })
+	int images;
+
+	@Param({ "unique", "duplicate" })
+	String content;
+
+	private Path root;
+	private HttpServer server;
+	private OkHttpClient client;
+	private RandomItemUploadService uploadService;
+	private List<String> names;
+	private List<String> memberNames;
+	private List<MultipartFile> files;
+	private byte[] jpeg;
+	private long invocation;
+
+	@Setup
+	public void setUp() throws IOException {
+		ImageStorage storage;
+		if (backend.equals("local")) {
+			root = Files.createTempDirectory("upload-bench");
+			storage = new LocalImageStorage(new SimpleMeterRegistry(), root, "/images");
+		} else {
+			server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+			server.createContext("/storage/v1/object/", exchange -> {
+				exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+				exchange.sendResponseHeaders(200, -1);
+				exchange.close();
+			});
+			server.setExecutor(Executors.newFixedThreadPool(8));
+			server.start();
+			client = new OkHttpClient();
+			storage = new dbStorageService(client, new SimpleMeterRegistry(), "http://127.0.0.1:" + server.getAddress().getPort(),
+					"bench-key", 8, 0, Duration.ofMillis(1));
+		}
+
+		RandomItemRepository repository = mock(RandomItemRepository.class);
+		when(repository.saveAll(anyList())).thenAnswer(invocation -> new ArrayList<RandomItem>(invocation.getArgument(0)));
+
+		uploadService = new RandomItemUploadService(repository, storage,
+				new ImageThumbnailService(List.of(160, 320, 640), 0.8f),
+				new ImageDedupIndex(mock(ImageObjectRepository.class), 10_000), mock(CollectionEventBroadcaster.class), 4);
+
+		jpeg = photo(1200, 1600);
+		names = Collections.nCopies(images, "トレカ");
+		memberNames = Collections.nCopies(images, "KEY");
+		files = new ArrayList<>();
+		for (int i = 0; i < images; i++) {
+			files.add(new MockMultipartFile("images", "card" + i + ".jpg", "image/jpeg", content.equals("unique") ? jpeg(i) : jpeg));
+		}
+	}
+
+	// unique の場合は、毎回ハッシュが変わるよう画像の末尾（JPEGの終端より後ろ。表示には影響しない）に番号を付ける
+	@Setup(Level.Invocation)
+	public void nextImages() {
+		if (content.equals("unique")) {
+			invocation++;
+			for (int i = 0; i < images; i++) {
+				files.set(i, new MockMultipartFile("images", "card" + i + ".jpg", "image/jpeg", jpeg(i)));
+			}
+		}
+	}
+
+	private byte[] jpeg(int slot) {
+		byte[] data = Arrays.copyOf(jpeg, jpeg.length + 12);
+		ByteBuffer.wrap(data, jpeg.length, 12).putLong(invocation).putInt(slot);
+		return data;
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		uploadService.shutdown();
+		if (server != null) {
+			server.stop(0);
+			client.connectionPool().evictAll();
+		}
+		if (root != null) {
+			FileSystemUtils.deleteRecursively(root);
+		}
+	}
+
+	@Benchmark
+	public UploadReport upload() {
+		return uploadService.upload("D001-01", names, memberNames, files);
+	}
+
+	// スマホで撮ったトレカ写真程度の大きさのJPEGを作る
+	private static byte[] photo(int width, int height) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setPaint(new GradientPaint(0, 0, Color.PINK, width, height, Color.CYAN));
+		g.fillRect(0, 0, width, height);
+		g.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpeg", out);
+		return out.toByteArray();
+	}
+}
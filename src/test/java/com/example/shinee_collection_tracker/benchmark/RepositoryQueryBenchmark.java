@@ -0,0 +1,138 @@
+package com.example.shinee_collection_tracker.benchmark;
+
+import com.example.shinee_collection_tracker.ShineeCollectionTrackerApplication;
+import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.model.DiscographySummary;
+import com.example.shinee_collection_tracker.model.EditionDetail;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DiscographyRepository の主な読み取りクエリを、実際のJPA/Hibernate経由で測るベンチマーク。
+ * * [前提]
+ * 本番の Supabase(PostgreSQL) の代わりに、PostgreSQL互換モードのH2（インメモリ）を使います。
+ * ネットワーク往復を含まないため、絶対値ではなくクエリ同士の比較（全件 vs 一覧用 vs 1ページ）に使ってください。
+ * テーブル・ビューの定義は本番に合わせて最小限の列だけを作っています。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryQueryBenchmark {
+
+	@Param({ "500", "5000" })
+	int editions;
+
+	private ConfigurableApplicationContext context;
+	private DiscographyRepository repository;
+	private String[] editionIds;
+
+	@Setup
+	public void setUp() {
+		// application.properties の接続先（Supabase）より優先させるため、起動引数として渡す
+		context = new SpringApplicationBuilder(ShineeCollectionTrackerApplication.class)
+				.web(WebApplicationType.NONE)
+				.run("--spring.datasource.url=jdbc:h2:mem:bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+						"--spring.datasource.username=sa",
+						"--spring.datasource.password=",
+						"--spring.datasource.driver-class-name=org.h2.Driver",
+						"--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+						"--spring.jpa.show-sql=false",
+						"--catalog.cache.enabled=false");
+		repository = context.getBean(DiscographyRepository.class);
+
+		List<Discography> catalog = BenchmarkData.discography(editions);
+		seed(context.getBean(JdbcTemplate.class), catalog);
+		editionIds = catalog.stream().map(Discography::getEditionId).toArray(String[]::new);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Discography> findAllCustomOrder() {
+		return repository.findAllCustomOrder();
+	}
+
+	@Benchmark
+	public List<DiscographySummary> findAllSummaries() {
+		return repository.findAllSummaries();
+	}
+
+	@Benchmark
+	public List<Discography> findFirstPage() {
+		return repository.findPageNewestFirst("default", "", "", "", "", 51);
+	}
+
+	@Benchmark
+	public Optional<EditionDetail> findDetailById() {
+		return repository.findDetailById(editionIds[ThreadLocalRandom.current().nextInt(editionIds.length)]);
+	}
+
+	private static void seed(JdbcTemplate jdbc, List<Discography> catalog) {
+		jdbc.execute("DROP VIEW IF EXISTS v_discography");
+		jdbc.execute("DROP TABLE IF EXISTS user_edition_status");
+		jdbc.execute("DROP TABLE IF EXISTS editions");
+		jdbc.execute("DROP TABLE IF EXISTS discs");
+		jdbc.execute("CREATE TABLE discs (disc_id VARCHAR PRIMARY KEY, artist VARCHAR, title VARCHAR, "
+				+ "title_sub VARCHAR, category VARCHAR, country VARCHAR, release_date DATE)");
+		jdbc.execute("CREATE TABLE editions (edition_id VARCHAR PRIMARY KEY, disc_id VARCHAR, edition_name VARCHAR, "
+				+ "display_name VARCHAR, price INTEGER, currency VARCHAR, remarks VARCHAR, tracklist VARCHAR, "
+				+ "benefit VARCHAR, video_content VARCHAR, is_purchased BOOLEAN DEFAULT FALSE, "
+				+ "is_wishlist BOOLEAN DEFAULT FALSE)");
+		jdbc.execute("CREATE VIEW v_discography AS SELECT e.edition_id, d.disc_id, d.artist, d.title, d.title_sub, "
+				+ "d.category, d.country, d.release_date, e.edition_name, e.display_name, e.price, e.currency, "
+				+ "e.remarks, e.tracklist, e.benefit, e.video_content, e.is_purchased, e.is_wishlist "
+				+ "FROM editions e JOIN discs d ON d.disc_id = e.disc_id");
+		jdbc.execute("CREATE TABLE user_edition_status (user_id VARCHAR, edition_id VARCHAR, "
+				+ "is_purchased BOOLEAN DEFAULT FALSE, is_wishlist BOOLEAN DEFAULT FALSE, "
+				+ "updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (user_id, edition_id))");
+
+		Map<String, Discography> discs = new LinkedHashMap<>();
+		catalog.forEach(d -> discs.putIfAbsent(d.getDiscId(), d));
+		jdbc.batchUpdate("INSERT INTO discs VALUES (?, ?, ?, ?, ?, ?, ?)", discs.values().stream()
+				.map(d -> new Object[] { d.getDiscId(), d.getArtist(), d.getTitle(), d.getTitleSub(), d.getCategory(),
+						d.getCountry(), Date.valueOf(LocalDate.parse(d.getReleaseDate())) })
+				.toList());
+		jdbc.batchUpdate("INSERT INTO editions VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", catalog.stream()
+				.map(d -> new Object[] { d.getEditionId(), d.getDiscId(), d.getEditionName(), d.getDisplayName(),
+						d.getPrice(), d.getCurrency(), d.getRemarks(), d.getTracklist(), d.getBenefit(),
+						d.getVideoContent(), d.isPurchased(), d.isWishlist() })
+				.toList());
+		// 一覧のフラグは既定ユーザー（'default'）の行を LEFT JOIN して取得する
+		jdbc.batchUpdate("INSERT INTO user_edition_status (user_id, edition_id, is_purchased, is_wishlist) "
+				+ "VALUES ('default', ?, ?, ?)", catalog.stream()
+				.filter(d -> d.isPurchased() || d.isWishlist())
+				.map(d -> new Object[] { d.getEditionId(), d.isPurchased(), d.isWishlist() })
+				.toList());
+	}
+}
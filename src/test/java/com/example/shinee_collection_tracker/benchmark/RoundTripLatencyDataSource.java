@@ -0,0 +1,77 @@
+package com.example.shinee_collection_tracker.benchmark;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SQLの実行・コミットのたびに、指定した時間だけ待ちを入れる DataSource。
+ * インメモリのH2を、ネットワーク越しのDB（Supabase など）に近い条件で測るために使います。
+ * （1回の往復ごとに遅延が乗るため、往復回数の違いがそのまま結果に表れます）
+ */
+class RoundTripLatencyDataSource extends DelegatingDataSource {
+
+	private static final Set<String> ROUND_TRIPS = Set.of(
+			"execute", "executeQuery", "executeUpdate", "executeLargeUpdate",
+			"executeBatch", "executeLargeBatch", "commit", "rollback");
+
+	private final long latencyNanos;
+
+	RoundTripLatencyDataSource(DataSource target, long latencyMicros) {
+		super(target);
+		this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return (Connection) withLatency(super.getConnection(), Connection.class);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return (Connection) withLatency(super.getConnection(username, password), Connection.class);
+	}
+
+	// Connection と、そこから作られた Statement の往復にあたるメソッドに待ちを入れる
+	private Object withLatency(Object target, Class<?> type) {
+		InvocationHandler handler = (proxy, method, args) -> {
+			if (ROUND_TRIPS.contains(method.getName())) {
+				pause();
+			}
+			Object result = invoke(target, method, args);
+			if (method.getReturnType() == Statement.class
+					|| method.getReturnType() == PreparedStatement.class
+					|| method.getReturnType() == CallableStatement.class) {
+				return withLatency(result, method.getReturnType());
+			}
+			return result;
+		};
+		return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, handler);
+	}
+
+	private void pause() {
+		if (latencyNanos > 0) {
+			LockSupport.parkNanos(latencyNanos);
+		}
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
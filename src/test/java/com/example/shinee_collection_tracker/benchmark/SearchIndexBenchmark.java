@@ -0,0 +1,80 @@
+package com.example.shinee_collection_tracker.benchmark;
+
+import com.example.shinee_collection_tracker.model.SearchResult;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+import com.example.shinee_collection_tracker.service.DiscographyCatalogCache;
+import com.example.shinee_collection_tracker.service.DiscographySearchIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * /api/search を支える DiscographySearchIndex の検索・作成コストを測るベンチマーク。
+ * * [比較する処理]
+ * 1. typeaheadOneChar: 1文字の入力（ほぼ全件が候補になる最も重いケース）
+ * 2. typeaheadPrefix: 入力途中のタイトル（"title 12"）
+ * 3. multiTerm: 特典の語を2つ指定（"photo card"）
+ * 4. rebuild: カタログ全件から索引を作り直す（refreshCatalog の時）
+ * * カタログはモックのリポジトリから読み込むため、DBアクセスは含みません。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchIndexBenchmark {
+
+	@Param({ "500", "5000" })
+	int editions;
+
+	private DiscographyCatalogCache catalogCache;
+	private DiscographySearchIndex index;
+
+	@Setup
+	public void setUp() {
+		DiscographyRepository repository = mock(DiscographyRepository.class);
+		when(repository.findAllCustomOrder()).thenReturn(BenchmarkData.discography(editions));
+		catalogCache = new DiscographyCatalogCache(repository, Duration.ofHours(1), 20000);
+		index = new DiscographySearchIndex(catalogCache, 50, 100);
+		index.rebuild();
+	}
+
+	@Benchmark
+	public SearchResult typeaheadOneChar() {
+		return index.search("t", 0, 20);
+	}
+
+	@Benchmark
+	public SearchResult typeaheadPrefix() {
+		return index.search("title 12", 0, 20);
+	}
+
+	@Benchmark
+	public SearchResult multiTerm() {
+		return index.search("photo card", 0, 20);
+	}
+
+	// 同じカタログからは作り直さない仕組みのため、毎回新しい索引を作って計測する
+	@Benchmark
+	public DiscographySearchIndex rebuild() {
+		DiscographySearchIndex rebuilt = new DiscographySearchIndex(catalogCache, 50, 100);
+		rebuilt.rebuild();
+		return rebuilt;
+	}
+}
@@ -0,0 +1,144 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.CatalogImportReport;
+import com.example.shinee_collection_tracker.model.ImportRowError;
+import com.example.shinee_collection_tracker.model.JobStatus;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogTransferServiceTests {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final DiscographyService discographyService = mock(DiscographyService.class);
+	private final CatalogTransferService service = newService(2);
+
+	private CatalogTransferService newService(int batchSize) {
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		JobStatus refresh = new JobStatus();
+		refresh.setJobId("refresh-1");
+		when(discographyService.refreshCatalogAsync(null)).thenReturn(refresh);
+		return new CatalogTransferService(jdbcTemplate, discographyService, transactionManager, JsonMapper.builder().build(), batchSize, 100, 500);
+	}
+
+	private static ByteArrayInputStream input(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void importsCsvInBatchesAndReportsInvalidRows() throws IOException {
+		String csv = "disc_id,title,release_date,edition_id,display_name,tracklist\r\n"
+				+ "D001,HARD,2023-06-26,D001-01,Photo Book Ver.,\"1. HARD\n2. Sweet Misery\"\r\n"
+				+ "D001,HARD,2023-06-26,D001-02,\"Digipack Ver., \"\"A\"\"\",\r\n"
+				+ "D002,Odd,2015/05/18,D002-01,通常盤,\r\n"
+				+ "D003,Atlantis\r\n"
+				+ ",Atlantis,2021-04-12,D004-01,通常盤,\r\n";
+
+		CatalogImportReport report = service.importCatalog(input(csv), "csv");
+
+		assertThat(report.getRowsRead()).isEqualTo(5);
+		assertThat(report.getUpserted()).isEqualTo(2);
+		assertThat(report.getErrors()).extracting(ImportRowError::getLine, ImportRowError::getEditionId)
+				.containsExactly(tuple(5, "D002-01"), tuple(6, null), tuple(7, "D004-01"));
+
+		// 同じアルバムの2行は discs への1回の UPSERT にまとまり、改行・「"」入りの値もそのまま渡る
+		ArgumentCaptor<List<Object[]>> discArgs = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(argThat((String sql) -> sql.startsWith("INSERT INTO discs")), discArgs.capture());
+		assertThat(discArgs.getValue()).hasSize(1);
+		ArgumentCaptor<List<Object[]>> editionArgs = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(argThat((String sql) -> sql.startsWith("INSERT INTO editions")
+				&& sql.contains("tracklist = EXCLUDED.tracklist") && !sql.contains("benefit")), editionArgs.capture());
+		assertThat(editionArgs.getValue().get(0)).contains("1. HARD\n2. Sweet Misery");
+		assertThat(editionArgs.getValue().get(1)).contains("Digipack Ver., \"A\"");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void duplicateEditionInOneBatchKeepsTheLastRow() throws IOException {
+		String jsonl = "{\"disc_id\":\"D1\",\"edition_id\":\"E1\",\"display_name\":\"old\"}\n"
+				+ "{\"disc_id\":\"D1\",\"edition_id\":\"E1\",\"display_name\":\"new\"}\n";
+		CatalogImportReport report = service.importCatalog(input(jsonl), "jsonl");
+
+		assertThat(report.getErrors()).isEmpty();
+		// 同じ edition_id は1回の UPSERT にまとまり、後の行の値が残る
+		ArgumentCaptor<List<Object[]>> editionArgs = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(argThat((String sql) -> sql.startsWith("INSERT INTO editions")), editionArgs.capture());
+		assertThat(editionArgs.getValue()).hasSize(1);
+		assertThat(editionArgs.getValue().get(0)).contains("new").doesNotContain("old");
+	}
+
+	@Test
+	void unclosedQuoteIsReportedAsARowErrorAndStillRefreshesTheCatalog() throws IOException {
+		String csv = "disc_id,edition_id,display_name\n"
+				+ "D1,E1,A\n"
+				+ "D1,E2,B\n"
+				+ "D1,E3,\"C\n"
+				+ "D1,E4,D\n";
+
+		CatalogImportReport report = service.importCatalog(input(csv), "csv");
+
+		// 先に書き込んだバッチはコミット済み。閉じられない「"」の行から後ろは読めないため、その行を失敗として返す
+		assertThat(report.getUpserted()).isEqualTo(2);
+		assertThat(report.getFailed()).isEqualTo(1);
+		assertThat(report.getErrors()).extracting(ImportRowError::getLine).containsExactly(4);
+		assertThat(report.getRefreshJobId()).isEqualTo("refresh-1");
+		verify(discographyService).refreshCatalogAsync(null);
+	}
+
+	@Test
+	void nothingWrittenMeansNoRefresh() throws IOException {
+		CatalogImportReport report = service.importCatalog(input("disc_id,edition_id\nD1,E1,extra\n"), "csv");
+
+		assertThat(report.getUpserted()).isZero();
+		assertThat(report.getRefreshJobId()).isNull();
+		verify(discographyService, never()).refreshCatalogAsync(any());
+	}
+
+	@Test
+	void retriesFailedBatchRowByRow() throws IOException {
+		when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+				.thenThrow(new DataIntegrityViolationException("batch failed"));
+		when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+			String sql = invocation.getArgument(0);
+			Object[] args = (Object[]) invocation.getRawArguments()[1];
+			if (sql.startsWith("INSERT INTO editions") && "E2".equals(args[0])) {
+				throw new DataIntegrityViolationException("value too long");
+			}
+			return 1;
+		});
+
+		String jsonl = "{\"disc_id\":\"D1\",\"edition_id\":\"E1\",\"display_name\":\"A\"}\n"
+				+ "{\"disc_id\":\"D1\",\"edition_id\":\"E2\",\"display_name\":\"B\"}\n";
+		CatalogImportReport report = service.importCatalog(input(jsonl), "jsonl");
+
+		assertThat(report.getUpserted()).isEqualTo(1);
+		assertThat(report.getErrors()).extracting(ImportRowError::getLine, ImportRowError::getMessage)
+				.containsExactly(tuple(2, "value too long"));
+		verify(jdbcTemplate, times(2)).update(argThat((String sql) -> sql.startsWith("INSERT INTO discs")), any(Object[].class));
+	}
+}
@@ -0,0 +1,173 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.ChunkedUploadRequest;
+import com.example.shinee_collection_tracker.model.ChunkedUploadStatus;
+import com.example.shinee_collection_tracker.model.UploadReport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkedUploadServiceTests {
+
+	@TempDir
+	Path spoolDir;
+
+	private final RandomItemUploadService uploadService = mock(RandomItemUploadService.class);
+
+	private ChunkedUploadService newService() throws IOException {
+		return new ChunkedUploadService(uploadService, spoolDir, DataSize.ofBytes(4), DataSize.ofKilobytes(1),
+				DataSize.ofKilobytes(10), 10, Duration.ofHours(1));
+	}
+
+	private static ChunkedUploadRequest request(long... sizes) {
+		List<ChunkedUploadRequest.Item> items = Arrays.stream(sizes)
+				.mapToObj(size -> new ChunkedUploadRequest.Item("トレカ", "KEY", "card.jpg", "image/jpeg", size))
+				.toList();
+		return new ChunkedUploadRequest("D001-01", items);
+	}
+
+	private static ByteArrayInputStream bytes(String text) {
+		return new ByteArrayInputStream(text.getBytes());
+	}
+
+	private static HttpStatus statusOf(ThrowingRunnable action) {
+		try {
+			action.run();
+		} catch (ResponseStatusException e) {
+			return HttpStatus.valueOf(e.getStatusCode().value());
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		throw new AssertionError("ResponseStatusException が投げられませんでした");
+	}
+
+	@FunctionalInterface
+	private interface ThrowingRunnable {
+		void run() throws IOException;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void resumesAfterDisconnectAndHandsSpooledFilesToUploadOnCommit() throws IOException {
+		ChunkedUploadService service = newService();
+		String id = service.start(request(10, 0)).getSessionId();
+
+		assertThat(service.write(id, 0, 0, bytes("0123")).getReceived()).isEqualTo(4);
+		// 途中で接続が切れても、書き込めた分（2バイト）は残る
+		InputStream broken = new InputStream() {
+			private int sent;
+
+			@Override
+			public int read() throws IOException {
+				if (sent == 2) {
+					throw new IOException("connection reset");
+				}
+				return "45".charAt(sent++);
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (sent == 2) {
+					throw new IOException("connection reset");
+				}
+				b[off] = (byte) "45".charAt(sent++);
+				return 1;
+			}
+		};
+		assertThatThrownBy(() -> service.write(id, 0, 4, broken)).isInstanceOf(IOException.class);
+		ChunkedUploadStatus status = service.status(id);
+		assertThat(status.getItems().get(0).getReceived()).isEqualTo(6);
+		assertThat(status.isComplete()).isFalse();
+
+		// 先を飛ばした送信・宣言より大きい送信・揃う前の登録は断る
+		assertThat(statusOf(() -> service.write(id, 0, 8, bytes("89")))).isEqualTo(HttpStatus.CONFLICT);
+		assertThat(statusOf(() -> service.write(id, 0, 5, bytes("56789")))).isEqualTo(HttpStatus.CONTENT_TOO_LARGE);
+		assertThat(statusOf(() -> service.prepareCommit(id))).isEqualTo(HttpStatus.CONFLICT);
+
+		// 受け取り済みの範囲と重なって送り直しても、同じ内容で上書きされるだけ
+		service.write(id, 0, 5, bytes("5678"));
+		service.write(id, 0, 9, bytes("9"));
+		assertThat(service.status(id).isComplete()).isTrue();
+
+		ArgumentCaptor<List<MultipartFile>> files = ArgumentCaptor.forClass(List.class);
+		when(uploadService.upload(eq("D001-01"), anyList(), anyList(), files.capture(), any())).thenAnswer(invocation -> {
+			// 登録の時点では、ディスク上のファイルから読める
+			MultipartFile file = files.getValue().get(0);
+			assertThat(file.getBytes()).isEqualTo("0123456789".getBytes());
+			assertThat(file.getOriginalFilename()).isEqualTo("card.jpg");
+			return new UploadReport(1, 0, 1, 0, List.of());
+		});
+		assertThat(service.prepareCommit(id).upload((done, total) -> {
+		}).getSaved()).isEqualTo(1);
+		verify(uploadService).upload(eq("D001-01"), eq(List.of("トレカ", "トレカ")), eq(List.of("KEY", "KEY")), anyList(), any());
+		assertThat(files.getValue().get(1)).isNull();
+
+		// 登録後はセッションも一時ファイルも残らない
+		assertThat(statusOf(() -> service.status(id))).isEqualTo(HttpStatus.NOT_FOUND);
+		try (var children = Files.list(spoolDir)) {
+			assertThat(children).isEmpty();
+		}
+	}
+
+	@Test
+	void rejectsOversizedSessionsAndDiscardsAbortedOnes() throws IOException {
+		ChunkedUploadService service = newService();
+		assertThat(statusOf(() -> service.start(request(2048)))).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(statusOf(() -> service.start(request(1024, 1024, 1024, 1024, 1024, 1024, 1024, 1024, 1024, 1024, 1))))
+				.isEqualTo(HttpStatus.BAD_REQUEST);
+
+		String id = service.start(request(3)).getSessionId();
+		assertThat(statusOf(() -> service.write(id, 0, 0, bytes("abcd")))).isEqualTo(HttpStatus.BAD_REQUEST);
+		service.write(id, 0, 0, bytes("abc"));
+		assertThat(service.getStats()).containsEntry("sessions", 1).containsEntry("spooledBytes", 3L);
+
+		service.abort(id);
+		assertThat(service.getStats()).containsEntry("sessions", 0);
+		assertThat(spoolDir.resolve(id)).doesNotExist();
+	}
+
+	@Test
+	void preparedCommitThatNeverRunsIsReleasedOrReapedOnExpiry() throws Exception {
+		ChunkedUploadService service = new ChunkedUploadService(uploadService, spoolDir, DataSize.ofBytes(4),
+				DataSize.ofKilobytes(1), DataSize.ofKilobytes(10), 10, Duration.ZERO);
+		String id = service.start(request(3)).getSessionId();
+		service.write(id, 0, 0, bytes("abc"));
+
+		// ジョブが受け付けられなかった場合は、送り直せる状態に戻る
+		service.prepareCommit(id).release();
+		service.write(id, 0, 0, bytes("abc"));
+
+		// 確認だけ済んで実行されないまま期限が過ぎたセッションも破棄される
+		ChunkedUploadService.PreparedCommit commit = service.prepareCommit(id);
+		Thread.sleep(5);
+		service.removeExpired();
+		assertThat(service.getStats()).containsEntry("sessions", 0);
+		assertThat(spoolDir.resolve(id)).doesNotExist();
+		assertThatThrownBy(() -> commit.upload((done, total) -> {
+		})).isInstanceOfSatisfying(ResponseStatusException.class,
+				e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.GONE));
+	}
+}
@@ -0,0 +1,142 @@
+package com.example.shinee_collection_tracker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CollectionEventBroadcasterTests {
+
+	private final EditionStatusIndex statusIndex = mock(EditionStatusIndex.class);
+	private final CollectionEventBroadcaster broadcaster = new CollectionEventBroadcaster(statusIndex,
+			new SimpleMeterRegistry(), Duration.ofMinutes(1), 2, 100, 2, 2, Duration.ofMillis(50));
+
+	@AfterEach
+	void tearDown() {
+		broadcaster.shutdown();
+	}
+
+	@Test
+	void computesStatsOnlyForUsersWithOpenConnections() {
+		when(statusIndex.snapshot("alice")).thenReturn(Map.of("total", 50L));
+
+		broadcaster.statusChanged("bob", List.of("E1"), true, null);
+		broadcaster.subscribe("alice");
+		broadcaster.statusChanged("alice", List.of("E1"), true, null);
+
+		// connected イベントと status イベントの2回分
+		verify(statusIndex, timeout(1000).times(2)).snapshot("alice");
+		verify(statusIndex, never()).snapshot("bob");
+	}
+
+	@Test
+	void rejectsConnectionsOverTheLimit() {
+		assertThat(broadcaster.subscribe("alice")).isPresent();
+		assertThat(broadcaster.subscribe("alice")).isPresent();
+		assertThat(broadcaster.subscribe("bob")).isEmpty();
+		assertThat(broadcaster.getStats()).containsEntry("connections", 2).containsEntry("users", 1);
+	}
+
+	@Test
+	void slowConnectionDoesNotStallOtherUsersAndIsEvicted() throws InterruptedException {
+		when(statusIndex.snapshot("alice")).thenReturn(Map.of("total", 50L));
+		when(statusIndex.snapshot("bob")).thenReturn(Map.of("total", 10L));
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch bobReceived = new CountDownLatch(2);
+
+		// 受け取りが止まっているブラウザ
+		broadcaster.subscribe("alice", new SseEmitter() {
+			@Override
+			public void send(SseEventBuilder builder) throws IOException {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+		});
+		broadcaster.subscribe("bob", new SseEmitter() {
+			@Override
+			public void send(SseEventBuilder builder) {
+				bobReceived.countDown();
+			}
+		});
+		broadcaster.statusChanged("bob", List.of("E1"), true, null);
+		assertThat(bobReceived.await(1, TimeUnit.SECONDS)).isTrue();
+
+		// 送信が止まったまま send-timeout を過ぎた接続は外され、以後のイベントは積まれない
+		Thread.sleep(100);
+		broadcaster.heartbeat();
+		broadcaster.statusChanged("alice", List.of("E1"), true, null);
+		assertThat(broadcaster.getStats()).containsEntry("evicted", 1L).containsEntry("connections", 1)
+				.containsEntry("users", 1);
+		release.countDown();
+	}
+
+	@Test
+	void slowConnectionsBeyondTheSendThreadsDoNotStarveOtherUsers() throws InterruptedException {
+		// 送信スレッド2本に対して、受け取りの止まったブラウザが3つ
+		CollectionEventBroadcaster broadcaster = new CollectionEventBroadcaster(statusIndex,
+				new SimpleMeterRegistry(), Duration.ofMinutes(1), 10, 100, 16, 2, Duration.ofMillis(50));
+		when(statusIndex.snapshot("bob")).thenReturn(Map.of("total", 10L));
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch bobReceived = new CountDownLatch(2);
+		try {
+			for (int i = 0; i < 3; i++) {
+				broadcaster.subscribe("slow" + i, new SseEmitter() {
+					@Override
+					public void send(SseEventBuilder builder) throws IOException {
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							throw new IOException(e);
+						}
+					}
+				});
+			}
+			broadcaster.subscribe("bob", new SseEmitter() {
+				@Override
+				public void send(SseEventBuilder builder) {
+					bobReceived.countDown();
+				}
+			});
+			broadcaster.statusChanged("bob", List.of("E1"), true, null);
+
+			// 2本とも止まった送信に取られ、bob には届かない
+			assertThat(bobReceived.await(100, TimeUnit.MILLISECONDS)).isFalse();
+
+			// 止まった送信のスレッドは数から外され、代わりのスレッドで bob と残りの接続へ送る
+			broadcaster.heartbeat();
+			assertThat(bobReceived.await(1, TimeUnit.SECONDS)).isTrue();
+			Thread.sleep(100);
+			broadcaster.heartbeat();
+			assertThat(broadcaster.getStats()).containsEntry("evicted", 3L).containsEntry("stalled", 3)
+					.containsEntry("connections", 1);
+
+			// 止まっていた送信が終われば、足したスレッドの分は戻る
+			release.countDown();
+			for (int i = 0; i < 50 && !Integer.valueOf(0).equals(broadcaster.getStats().get("stalled")); i++) {
+				Thread.sleep(20);
+			}
+			assertThat(broadcaster.getStats()).containsEntry("stalled", 0);
+		} finally {
+			release.countDown();
+			broadcaster.shutdown();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.CollectionHistory;
+import com.example.shinee_collection_tracker.model.Discography;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CollectionHistoryServiceTests {
+
+	private static final ZoneId ZONE = ZoneId.of("Asia/Tokyo");
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final DiscographyCatalogCache catalogCache = mock(DiscographyCatalogCache.class);
+	private final CollectionHistoryService service = newService();
+
+	private CollectionHistoryService newService() {
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		return new CollectionHistoryService(jdbcTemplate, transactionManager, catalogCache, true, ZONE, 100);
+	}
+
+	private void edition(String editionId, String artist, String country, Integer price, String currency) {
+		Discography d = Discography.builder().editionId(editionId).artist(artist).country(country)
+				.price(price).currency(currency).build();
+		when(catalogCache.findEdition(editionId)).thenReturn(Optional.of(d));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void flushAppendsEventsAndFoldsThemIntoRollupDeltas() {
+		edition("D001-01", "Key", "kr", 25000, "krw");
+		edition("D002-01", "Onew", "jp", 3300, "jpy");
+		service.recordPurchase("u1", "D001-01", true);
+		service.recordPurchase("u1", "D002-01", true);
+		service.recordWishlist("u1", "D002-01", true);
+		service.recordPurchase("u1", "D001-01", false);
+		service.recordPurchase("u1", "missing", true); // カタログに無いエディションは記録しない
+
+		// 書き込めない間は、順番を保ったまま次回に回す
+		when(jdbcTemplate.batchUpdate(contains("collection_events"), anyList()))
+				.thenThrow(new DataAccessResourceFailureException("connection refused"))
+				.thenReturn(new int[0]);
+		service.flush();
+		assertThat(service.getStats()).containsEntry("queueDepth", 4).containsEntry("failures", 1L);
+
+		service.flush();
+		ArgumentCaptor<List<Object[]>> events = ArgumentCaptor.forClass(List.class);
+		ArgumentCaptor<List<Object[]>> rollups = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate, times(2)).batchUpdate(contains("collection_events"), events.capture());
+		verify(jdbcTemplate).batchUpdate(contains("collection_rollups"), rollups.capture());
+
+		assertThat(events.getValue()).extracting(row -> row[1], row -> row[2], row -> row[3])
+				.containsExactly(tuple("D001-01", "PURCHASE", true), tuple("D002-01", "PURCHASE", true),
+						tuple("D002-01", "WISHLIST", true), tuple("D001-01", "PURCHASE", false));
+
+		// 同じ集計行への増減は足し合わせてから書く（所持にして外した D001-01 は 0 になる）
+		String month = YearMonth.now(ZONE).toString();
+		assertThat(rollups.getValue()).extracting(row -> row[1], row -> row[2], row -> row[3], row -> row[4],
+				row -> row[5], row -> row[6], row -> row[7])
+				.containsExactlyInAnyOrder(
+						tuple("total", "", month, "krw", 0L, 0L, 0L),
+						tuple("artist", "Key", month, "krw", 0L, 0L, 0L),
+						tuple("country", "kr", month, "krw", 0L, 0L, 0L),
+						tuple("total", "", month, "jpy", 1L, 1L, 3300L),
+						tuple("artist", "Onew", month, "jpy", 1L, 1L, 3300L),
+						tuple("country", "jp", month, "jpy", 1L, 1L, 3300L));
+		assertThat(service.getStats()).containsEntry("queueDepth", 0).containsEntry("written", 4L);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void unPurchaseSubtractsThePriceRecordedWhenItWasPurchased() throws SQLException {
+		// 所持にした後でカタログの価格が 25000 → 27000 に直された
+		edition("D001-01", "Key", "kr", 27000, "krw");
+		edition("D002-01", "Onew", "jp", 3300, "jpy");
+		ResultSet holding = mock(ResultSet.class);
+		when(holding.getString("edition_id")).thenReturn("D001-01");
+		when(holding.getString("artist")).thenReturn("Key");
+		when(holding.getString("country")).thenReturn("kr");
+		when(holding.getObject("price", Integer.class)).thenReturn(25000);
+		when(holding.getString("currency")).thenReturn("krw");
+		doAnswer(invocation -> {
+			((RowCallbackHandler) invocation.getArgument(1)).processRow(holding);
+			return null;
+		}).when(jdbcTemplate).query(contains("collection_holdings"), any(RowCallbackHandler.class), any(Object[].class));
+
+		service.recordPurchase("u1", "D001-01", false);
+		service.recordPurchase("u1", "D002-01", false); // 控えの無い所持（記録を始める前のもの）
+		service.flush();
+
+		ArgumentCaptor<List<Object[]>> events = ArgumentCaptor.forClass(List.class);
+		ArgumentCaptor<List<Object[]>> rollups = ArgumentCaptor.forClass(List.class);
+		ArgumentCaptor<List<Object[]>> deletes = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(contains("collection_events"), events.capture());
+		verify(jdbcTemplate).batchUpdate(contains("collection_rollups"), rollups.capture());
+		verify(jdbcTemplate).batchUpdate(contains("DELETE FROM collection_holdings"), deletes.capture());
+
+		assertThat(events.getValue()).extracting(row -> row[1], row -> row[6])
+				.containsExactly(tuple("D001-01", 25000), tuple("D002-01", null));
+		String month = YearMonth.now(ZONE).toString();
+		assertThat(rollups.getValue()).extracting(row -> row[1], row -> row[3], row -> row[5], row -> row[7])
+				.containsExactlyInAnyOrder(
+						tuple("total", month, -1L, -25000L),
+						tuple("artist", month, -1L, -25000L),
+						tuple("country", month, -1L, -25000L));
+		assertThat(deletes.getValue()).extracting(row -> row[1]).containsExactly("D001-01", "D002-01");
+		assertThat(service.getStats()).containsEntry("unmatchedRemovals", 1L);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void buildsMonthlySeriesAndPerKeyTotalsFromRollups() {
+		when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+			Object[] args = (Object[]) invocation.getRawArguments()[2];
+			if (args[1].equals("total")) {
+				return List.of(
+						new CollectionHistoryService.Rollup("", "2025-01", "jpy", 1, 0, 3300),
+						new CollectionHistoryService.Rollup("", "2025-03", "krw", 2, -1, 50000),
+						new CollectionHistoryService.Rollup("", "2025-03", "", 1, 0, 0));
+			}
+			return List.of(
+					new CollectionHistoryService.Rollup("Key", "2025-01", "jpy", 1, 0, 3300),
+					new CollectionHistoryService.Rollup("Key", "2025-03", "krw", 1, 0, 25000),
+					new CollectionHistoryService.Rollup("Onew", "2025-03", "krw", 1, 0, 25000));
+		});
+
+		// 記録の無い2月も 0 で埋め、累計には from より前の1月の分も含める
+		CollectionHistory monthly = service.history("u1", null, null, null, "2025-02", null);
+		assertThat(monthly.getBuckets()).extracting(CollectionHistory.Bucket::getKey,
+				CollectionHistory.Bucket::getPurchased, CollectionHistory.Bucket::getCumulativePurchased,
+				CollectionHistory.Bucket::getSpend, CollectionHistory.Bucket::getCumulativeSpend)
+				.containsExactly(
+						tuple("2025-02", 0L, 1L, Map.of(), Map.of("jpy", 3300L)),
+						tuple("2025-03", 3L, 4L, Map.of("krw", 50000L), Map.of("jpy", 3300L, "krw", 50000L)));
+
+		CollectionHistory byArtist = service.history("u1", "artist", null, null, null, "2025-01");
+		assertThat(byArtist.getBuckets()).extracting(CollectionHistory.Bucket::getKey,
+				CollectionHistory.Bucket::getPurchased, CollectionHistory.Bucket::getSpend)
+				.containsExactly(tuple("Key", 1L, Map.of("jpy", 3300L)));
+
+		assertThatThrownBy(() -> service.history("u1", "member", null, null, null, null))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+		assertThatThrownBy(() -> service.history("u1", "month", null, null, "2025-13", null))
+				.isInstanceOf(ResponseStatusException.class);
+	}
+}
@@ -0,0 +1,61 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DiscographyCatalogCacheTests {
+
+	private static Discography edition(String editionId, boolean purchased) {
+		return Discography.builder().editionId(editionId).discId("D001").isPurchased(purchased).build();
+	}
+
+	@Test
+	void readsThroughOnceAndCountsHits() {
+		DiscographyRepository repository = mock(DiscographyRepository.class);
+		when(repository.findAllCustomOrder()).thenReturn(List.of(edition("E1", false), edition("E2", false)));
+		DiscographyCatalogCache cache = new DiscographyCatalogCache(repository, Duration.ofMinutes(10), 100);
+
+		assertThat(cache.getCatalog()).hasSize(2);
+		assertThat(cache.getCatalog()).hasSize(2);
+		assertThat(cache.findEdition("E2")).isPresent();
+
+		verify(repository, times(1)).findAllCustomOrder();
+		assertThat(cache.getStats()).containsEntry("hits", 2L).containsEntry("misses", 1L);
+	}
+
+	@Test
+	void invalidateForcesReload() {
+		DiscographyRepository repository = mock(DiscographyRepository.class);
+		when(repository.findAllCustomOrder()).thenReturn(List.of(edition("E1", false), edition("E2", false)));
+		DiscographyCatalogCache cache = new DiscographyCatalogCache(repository, Duration.ofMinutes(10), 100);
+		cache.getCatalog();
+
+		cache.invalidate();
+		cache.getCatalog();
+
+		verify(repository, times(2)).findAllCustomOrder();
+	}
+
+	@Test
+	void doesNotRetainCatalogLargerThanLimit() {
+		DiscographyRepository repository = mock(DiscographyRepository.class);
+		when(repository.findAllCustomOrder()).thenReturn(List.of(edition("E1", false), edition("E2", false)));
+		DiscographyCatalogCache cache = new DiscographyCatalogCache(repository, Duration.ofMinutes(10), 1);
+
+		cache.getCatalog();
+		cache.getCatalog();
+
+		verify(repository, times(2)).findAllCustomOrder();
+	}
+}
@@ -0,0 +1,56 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+
+import org.junit.jupiter.api.Test;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DiscographyCatalogSnapshotTests {
+
+	private final DiscographyRepository repository = mock(DiscographyRepository.class);
+	private final DiscographyCatalogSnapshot snapshot =
+			new DiscographyCatalogSnapshot(repository, JsonMapper.builder().build(), true);
+
+	private static Discography edition(String editionId, String title, boolean purchased) {
+		return Discography.builder().editionId(editionId).discId("D001").title(title).isPurchased(purchased).build();
+	}
+
+	@Test
+	void servesPrecompressedJsonWithoutStatusFlags() throws IOException {
+		when(repository.findAllCustomOrder()).thenReturn(List.of(edition("E1", "HUNTER", true), edition("E2", "Atlantis", false)));
+
+		DiscographyCatalogSnapshot.Snapshot built = snapshot.get();
+
+		String json = new String(built.json(), StandardCharsets.UTF_8);
+		assertThat(json).contains("\"editionId\":\"E1\"", "HUNTER").doesNotContain("purchased", "wishlist");
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(built.gzip()))) {
+			assertThat(gzip.readAllBytes()).isEqualTo(built.json());
+		}
+		assertThat(built.positions()).containsEntry("E1", 0).containsEntry("E2", 1);
+	}
+
+	@Test
+	void versionChangesOnlyWhenCatalogContentChanges() {
+		when(repository.findAllCustomOrder()).thenReturn(List.of(edition("E1", "HUNTER", false)));
+		DiscographyCatalogSnapshot.Snapshot first = snapshot.rebuild();
+
+		// フラグだけの変更はスナップショットに含まれないため、同じ version のまま
+		when(repository.findAllCustomOrder()).thenReturn(List.of(edition("E1", "HUNTER", true)));
+		assertThat(snapshot.rebuild()).isSameAs(first);
+
+		when(repository.findAllCustomOrder()).thenReturn(List.of(edition("E1", "HUNTER (Repackage)", true)));
+		assertThat(snapshot.rebuild().version()).isNotEqualTo(first.version());
+	}
+}
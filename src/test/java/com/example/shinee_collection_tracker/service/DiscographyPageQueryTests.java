@@ -0,0 +1,89 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.model.DiscographyPage;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+import com.example.shinee_collection_tracker.repository.EditionRepository;
+import com.example.shinee_collection_tracker.repository.UserEditionStatusRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@TestPropertySource(properties = {
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect" })
+class DiscographyPageQueryTests {
+
+	@Autowired
+	private DiscographyRepository repository;
+
+	private DiscographyService service;
+
+	// 新しい順（発売日の新しい順 → 同じ日はエディションIDの大きい順 → 発売日なしは最後）
+	private static final List<String> NEWEST_FIRST = List.of(
+			"D004-01", "D003-02", "D003-01", "D001-02", "D001-01", "D002-01", "D006-01", "D005-02", "D005-01");
+
+	private static Discography edition(String editionId, String releaseDate) {
+		return Discography.builder().editionId(editionId).discId(editionId.substring(0, 4)).artist("SHINee")
+				.country("kr").category("Album").releaseDate(releaseDate).build();
+	}
+
+	@BeforeEach
+	void seed() {
+		// 同じ発売日の別ディスク（D003 / D004）のエディションは、ディスクではなく edition_id の順に並ぶ
+		repository.saveAll(List.of(
+				edition("D001-01", "2020-03-01"), edition("D001-02", "2020-03-01"),
+				edition("D002-01", "2019-05-20"),
+				edition("D003-01", "2023-08-28"), edition("D003-02", "2023-08-28"),
+				edition("D004-01", "2023-08-28"),
+				edition("D005-01", null), edition("D005-02", null), edition("D006-01", null)));
+		service = new DiscographyService(repository, mock(EditionRepository.class),
+				mock(UserEditionStatusRepository.class), mock(DiscographyCatalogCache.class),
+				mock(DiscographyCatalogSnapshot.class), mock(EditionStatusIndex.class),
+				mock(StatusWriteBehindQueue.class), mock(CollectionEventBroadcaster.class),
+				mock(DiscographySearchIndex.class), mock(MasterDataCache.class), mock(JobService.class),
+				mock(CollectionHistoryService.class), true);
+	}
+
+	// カーソルをたどって全ページを読み、返ってきた順に edition_id を並べる
+	private List<String> walk(String sort, int size) {
+		List<String> seen = new ArrayList<>();
+		DiscographyPage page = service.findDiscographyPage("alice", "All", "All", "All", "All", sort, null, null, size);
+		seen.addAll(page.getItems().stream().map(Discography::getEditionId).toList());
+		while (page.isHasNext()) {
+			page = service.findDiscographyPage("alice", "All", "All", "All", "All", sort,
+					page.getNextReleaseDate(), page.getNextEditionId(), size);
+			seen.addAll(page.getItems().stream().map(Discography::getEditionId).toList());
+		}
+		return seen;
+	}
+
+	@Test
+	void pagesNewestFirstAcrossTheDatedToUndatedBoundary() {
+		// 3件ずつ：2ページ目の最後（D002-01）が発売日ありの最後の行、3ページ目は発売日なしだけ
+		assertThat(walk("desc", 3)).containsExactlyElementsOf(NEWEST_FIRST);
+		// 2件ずつ：発売日ありの行（D002-01）のカーソルから発売日なしの行へ進み、発売日なしの行（D005-02）もカーソルになる
+		assertThat(walk("desc", 2)).containsExactlyElementsOf(NEWEST_FIRST);
+	}
+
+	@Test
+	void pagesOldestFirstAsTheExactReverse() {
+		List<String> oldestFirst = new ArrayList<>(NEWEST_FIRST);
+		Collections.reverse(oldestFirst);
+		// 2件ずつ：1ページ目のカーソルが発売日なしの行（D005-02）で、2ページ目が発売日ありへまたがる
+		assertThat(walk("asc", 2)).containsExactlyElementsOf(oldestFirst);
+		// 3件ずつ：1ページ目の最後（D006-01）が発売日なしの最後の行
+		assertThat(walk("asc", 3)).containsExactlyElementsOf(oldestFirst);
+	}
+}
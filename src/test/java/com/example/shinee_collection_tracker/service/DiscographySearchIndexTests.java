@@ -0,0 +1,88 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Discography;
+import com.example.shinee_collection_tracker.model.SearchHit;
+import com.example.shinee_collection_tracker.model.SearchResult;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DiscographySearchIndexTests {
+
+	private static Discography edition(String editionId, String title, String displayName, String tracklist,
+			String releaseDate) {
+		return Discography.builder().editionId(editionId).discId("D" + editionId).title(title)
+				.displayName(displayName).tracklist(tracklist).releaseDate(releaseDate).build();
+	}
+
+	private static DiscographySearchIndex index(DiscographyRepository repository) {
+		return new DiscographySearchIndex(new DiscographyCatalogCache(repository, Duration.ofMinutes(10), 100), 50, 100);
+	}
+
+	private static DiscographyRepository repository(List<Discography> catalog) {
+		DiscographyRepository repository = mock(DiscographyRepository.class);
+		when(repository.findAllCustomOrder()).thenReturn(catalog);
+		return repository;
+	}
+
+	@Test
+	void matchesJapaneseAndKoreanSubstringsWithHighlightOffsets() {
+		DiscographySearchIndex index = index(repository(List.of(
+				edition("E1", "DON'T CALL ME", "通常盤", "1. 돈 콜 미\n2. 아이스크림", "2021-02-22"),
+				edition("E2", "SUPERSTAR", "初回生産限定盤Ａ", "1. SUPERSTAR\n2. 君のせいで", "2021-06-23"))));
+
+		SearchResult korean = index.search("아이스", 0, 10);
+		assertThat(korean.getTotal()).isEqualTo(1);
+		SearchHit hit = korean.getHits().get(0);
+		assertThat(hit.getEditionId()).isEqualTo("E1");
+		int[] range = hit.getHighlights().get("tracklist").get(0);
+		assertThat("1. 돈 콜 미\n2. 아이스크림".substring(range[0], range[1])).isEqualTo("아이스");
+
+		// 1文字の入力と、全角・半角の違い
+		assertThat(index.search("限", 0, 10).getHits()).extracting(SearchHit::getEditionId).containsExactly("E2");
+		assertThat(index.search("盤a", 0, 10).getHits()).extracting(SearchHit::getEditionId).containsExactly("E2");
+		// 空白区切りの語はすべて含むものだけ
+		assertThat(index.search("superstar 君", 0, 10).getTotal()).isEqualTo(1);
+		assertThat(index.search("superstar 아이스", 0, 10).getTotal()).isZero();
+	}
+
+	@Test
+	void ranksTitleMatchesAboveTracklistAndFoldsKatakana() {
+		DiscographySearchIndex index = index(repository(List.of(
+				edition("E1", "LUCKY STAR", "通常盤", "1. LUCKY STAR\n2. ラブレター", "2014-06-25"),
+				edition("E2", "1 of 1", "通常盤", "1. 1 of 1\n2. Lucky Star", "2016-10-05"),
+				edition("E3", "LUCKY", "通常盤", "1. LUCKY", "2012-01-01"))));
+
+		assertThat(index.search("luc", 0, 10).getHits()).extracting(SearchHit::getEditionId)
+				.containsExactly("E3", "E1", "E2");
+		assertThat(index.search("lucky", 0, 2).getHits()).hasSize(2);
+		assertThat(index.search("lucky", 1, 2).getHits()).extracting(SearchHit::getEditionId).containsExactly("E2");
+		assertThat(index.search("らぶ", 0, 10).getHits()).extracting(SearchHit::getEditionId).containsExactly("E1");
+	}
+
+	@Test
+	void reusesIndexUntilCatalogIsReloaded() {
+		DiscographyRepository repository = repository(List.of(edition("E1", "HARD", "通常盤", null, "2023-06-26")));
+		DiscographyCatalogCache cache = new DiscographyCatalogCache(repository, Duration.ofMinutes(10), 100);
+		DiscographySearchIndex index = new DiscographySearchIndex(cache, 50, 100);
+
+		assertThat(index.search("hard", 0, 10).getTotal()).isEqualTo(1);
+		assertThat(index.search("ha", 0, 10).getTotal()).isEqualTo(1);
+		verify(repository, times(1)).findAllCustomOrder();
+
+		when(repository.findAllCustomOrder()).thenReturn(List.of(edition("E1", "HARD", "通常盤", null, "2023-06-26"),
+				edition("E2", "Odd", "通常盤", null, "2015-05-18")));
+		cache.invalidate();
+		index.rebuild();
+		assertThat(index.search("odd", 0, 10).getTotal()).isEqualTo(1);
+	}
+}
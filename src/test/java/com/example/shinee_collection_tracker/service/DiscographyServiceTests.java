@@ -0,0 +1,199 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Disc;
+import com.example.shinee_collection_tracker.model.Edition;
+import com.example.shinee_collection_tracker.repository.DiscRepository;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+import com.example.shinee_collection_tracker.repository.EditionRepository;
+import com.example.shinee_collection_tracker.repository.UserEditionStatusRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Sort;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DiscographyServiceTests {
+
+	private final DiscographyRepository repository = mock(DiscographyRepository.class);
+	private final DiscRepository discRepository = mock(DiscRepository.class);
+	private final EditionRepository editionRepository = mock(EditionRepository.class);
+	private final UserEditionStatusRepository userStatusRepository = mock(UserEditionStatusRepository.class);
+	private final CollectionHistoryService collectionHistory = mock(CollectionHistoryService.class);
+	private final CollectionEventBroadcaster eventBroadcaster = mock(CollectionEventBroadcaster.class);
+
+	private static Disc disc(String discId) {
+		Disc disc = new Disc();
+		disc.setDiscId(discId);
+		disc.setArtist("SHINee");
+		return disc;
+	}
+
+	private static Edition edition(String editionId, String discId) {
+		Edition edition = new Edition();
+		edition.setEditionId(editionId);
+		edition.setDiscId(discId);
+		return edition;
+	}
+
+	private static Map<String, Object> group(String editionId) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("edition_id", editionId);
+		row.put("artist", "SHINee");
+		row.put("country", "kr");
+		row.put("category", "Album");
+		return row;
+	}
+
+	private static Map<String, Object> status(String editionId, boolean purchased) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("edition_id", editionId);
+		row.put("is_purchased", purchased);
+		row.put("is_wishlist", false);
+		return row;
+	}
+
+	private DiscographyService newService(EditionStatusIndex statusIndex, StatusWriteBehindQueue queue) {
+		when(discRepository.findAll(any(Sort.class))).thenReturn(List.of(disc("D001"), disc("D002")));
+		when(editionRepository.findAll(any(Sort.class))).thenReturn(List.of(
+				edition("D001-01", "D001"), edition("D001-02", "D001"), edition("D002-01", "D002")));
+		when(repository.findEditionGroups()).thenReturn(List.of(group("D001-01"), group("D001-02"), group("D002-01")));
+		when(userStatusRepository.findFlaggedByUserId("alice")).thenReturn(List.of());
+		MasterDataCache masterData = new MasterDataCache(discRepository, editionRepository, JsonMapper.builder().build());
+		return new DiscographyService(repository, editionRepository, userStatusRepository,
+				mock(DiscographyCatalogCache.class), mock(DiscographyCatalogSnapshot.class), statusIndex, queue,
+				eventBroadcaster, mock(DiscographySearchIndex.class), masterData,
+				mock(JobService.class), collectionHistory, true);
+	}
+
+	@Test
+	void interleavedTogglesLeaveIndexQueueAndHistoryOnTheSameLastValue() throws Exception {
+		StatusWriteBehindQueue queue = new StatusWriteBehindQueue(userStatusRepository, new SimpleMeterRegistry(), true);
+		EditionStatusIndex statusIndex = spy(new EditionStatusIndex(repository, userStatusRepository, queue, 10, 200));
+		DiscographyService service = newService(statusIndex, queue);
+
+		// 1回目（所持にする）を、索引を切り替えた直後・キューに入れる前で止める
+		CountDownLatch switched = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			Object flipped = invocation.callRealMethod();
+			if ((boolean) invocation.getArgument(2)) {
+				switched.countDown();
+				release.await(5, TimeUnit.SECONDS);
+			}
+			return flipped;
+		}).when(statusIndex).switchPurchased("alice", "D001-01", true);
+
+		CompletableFuture<Void> purchase = CompletableFuture.runAsync(
+				() -> service.updatePurchaseStatus("alice", "D001-01", true));
+		assertThat(switched.await(5, TimeUnit.SECONDS)).isTrue();
+
+		// 2回目（外す）は、1回目がキューと購入履歴に反映し終わるまで待たされる
+		CompletableFuture<Void> unPurchase = CompletableFuture.runAsync(
+				() -> service.updatePurchaseStatus("alice", "D001-01", false));
+		Thread.sleep(100);
+		assertThat(unPurchase).isNotDone();
+
+		release.countDown();
+		purchase.get(5, TimeUnit.SECONDS);
+		unPurchase.get(5, TimeUnit.SECONDS);
+
+		// 索引・DB・購入履歴のいずれも、最後の値（未所持）で終わる
+		assertThat(statusIndex.view("alice").isPurchased("D001-01")).isFalse();
+		queue.flush();
+		InOrder order = inOrder(userStatusRepository, collectionHistory);
+		order.verify(collectionHistory).recordPurchase("alice", "D001-01", true);
+		order.verify(collectionHistory).recordPurchase("alice", "D001-01", false);
+		order.verify(userStatusRepository).upsertStatus("alice", List.of("D001-01"), true, false, false, false);
+		order.verifyNoMoreInteractions();
+	}
+
+	@Test
+	void bulkUpdateExpandsDiscFromMasterDataFlushesQueueFirstAndRecordsOnlyFlippedBits() {
+		StatusWriteBehindQueue queue = new StatusWriteBehindQueue(userStatusRepository, new SimpleMeterRegistry(), true);
+		EditionStatusIndex statusIndex = new EditionStatusIndex(repository, userStatusRepository, queue, 10, 200);
+		DiscographyService service = newService(statusIndex, queue);
+		// D001-02 は所持済み
+		when(userStatusRepository.findFlaggedByUserId("alice")).thenReturn(List.of(status("D001-02", true)));
+		// 後書きキューに、まだDBに書いていない切り替えが残っている
+		service.updatePurchaseStatus("alice", "D002-01", false);
+		when(userStatusRepository.upsertStatus(eq("alice"), anyList(), eq(true), eq(true), eq(false), eq(false)))
+				.thenReturn(3);
+
+		// D001 の形態（D001-01, D001-02）は、指定された D001-02 と重ねずに足す。D999-01 は存在しない
+		int updated = service.bulkUpdateStatus("alice", List.of("D002-01", "D001-02", "D999-01", "D002-01"), "D001",
+				true, null);
+
+		assertThat(updated).isEqualTo(3);
+		InOrder order = inOrder(userStatusRepository);
+		// 残っていた切り替えを先に書き込んでから、1本のUPSERTで一括更新する
+		order.verify(userStatusRepository).upsertStatus("alice", List.of("D002-01"), true, false, false, false);
+		order.verify(userStatusRepository).upsertStatus("alice", List.of("D002-01", "D001-02", "D001-01"),
+				true, true, false, false);
+		// マスタデータに無いIDだけをDBで確かめ、存在しないものは索引・履歴・イベントに渡さない
+		verify(editionRepository).findAllById(List.of("D999-01"));
+		assertThat(statusIndex.view("alice").isPurchased("D001-01")).isTrue();
+		assertThat(statusIndex.view("alice").isPurchased("D002-01")).isTrue();
+		verify(eventBroadcaster).statusChanged("alice", List.of("D002-01", "D001-02", "D001-01"), true, null);
+
+		// 実際に切り替わった分だけ履歴に記録する（所持済みだった D001-02 は記録しない）
+		verify(collectionHistory).recordPurchase("alice", "D002-01", true);
+		verify(collectionHistory).recordPurchase("alice", "D001-01", true);
+		verify(collectionHistory, never()).recordPurchase("alice", "D001-02", true);
+		verify(collectionHistory, never()).recordPurchase(eq("alice"), eq("D999-01"), anyBoolean());
+	}
+
+	@Test
+	void syncModeRecordsHistoryForAUserNotYetInTheIndex() {
+		StatusWriteBehindQueue queue = new StatusWriteBehindQueue(userStatusRepository, new SimpleMeterRegistry(), false);
+		// 上限1人の索引に bob を読み込んでおき、alice はメモリ上に居ない状態から始める
+		EditionStatusIndex statusIndex = new EditionStatusIndex(repository, userStatusRepository, queue, 1, 200);
+		DiscographyService service = newService(statusIndex, queue);
+		// DBの代わり：UPSERTした値が、その後の読み込みにそのまま見える
+		Map<String, Boolean> purchased = new HashMap<>(Map.of("D001-02", true));
+		when(userStatusRepository.upsertStatus(eq("alice"), anyList(), eq(true), anyBoolean(), eq(false), eq(false)))
+				.thenAnswer(invocation -> {
+					List<String> editionIds = invocation.getArgument(1);
+					editionIds.forEach(editionId -> purchased.put(editionId, invocation.getArgument(3)));
+					return editionIds.size();
+				});
+		when(userStatusRepository.findFlaggedByUserId("alice")).thenAnswer(invocation -> purchased.entrySet().stream()
+				.filter(Map.Entry::getValue).map(entry -> status(entry.getKey(), true)).toList());
+		when(userStatusRepository.findFlaggedByUserId("bob")).thenReturn(List.of());
+
+		service.updatePurchaseStatus("alice", "D002-01", true);
+		statusIndex.view("bob");
+		service.bulkUpdateStatus("alice", null, "D001", true, null);
+		statusIndex.view("bob");
+		service.updatePurchaseStatus("alice", "D002-01", true);
+
+		// 書き込んだ後に読み込んだ値ではなく、書き込む前の値と比べて記録する
+		verify(collectionHistory).recordPurchase("alice", "D002-01", true);
+		verify(collectionHistory).recordPurchase("alice", "D001-01", true);
+		verify(collectionHistory, never()).recordPurchase("alice", "D001-02", true);
+		verify(userStatusRepository).upsertStatus("alice", List.of("D001-01", "D001-02"), true, true, false, false);
+		assertThat(statusIndex.view("alice").isPurchased("D001-01")).isTrue();
+	}
+}
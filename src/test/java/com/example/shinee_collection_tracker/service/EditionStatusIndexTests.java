@@ -0,0 +1,221 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.EditionStatusBits;
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+import com.example.shinee_collection_tracker.repository.UserEditionStatusRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EditionStatusIndexTests {
+
+	private final DiscographyRepository repository = mock(DiscographyRepository.class);
+	private final UserEditionStatusRepository userStatusRepository = mock(UserEditionStatusRepository.class);
+	private final EditionStatusIndex index = new EditionStatusIndex(repository, userStatusRepository,
+			new StatusWriteBehindQueue(userStatusRepository, new SimpleMeterRegistry(), false), 2, 1);
+
+	private static Map<String, Object> group(String editionId, String artist, String country, String category) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("edition_id", editionId);
+		row.put("artist", artist);
+		row.put("country", country);
+		row.put("category", category);
+		return row;
+	}
+
+	private static Map<String, Object> status(String editionId, boolean purchased, boolean wishlist) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("edition_id", editionId);
+		row.put("is_purchased", purchased);
+		row.put("is_wishlist", wishlist);
+		return row;
+	}
+
+	private List<Map<String, Object>> catalog() {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		rows.add(group("E1", "SHINee", "kr", "Album"));
+		rows.add(group("E2", "SHINee", "jp", "Single"));
+		rows.add(group("E3", "Key", "kr", "Album"));
+		rows.add(group("E4", null, null, null));
+		return rows;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void countsProgressByGroupFromBits() {
+		when(repository.findEditionGroups()).thenReturn(catalog());
+		when(userStatusRepository.findFlaggedByUserId("alice"))
+				.thenReturn(List.of(status("E1", true, false), status("E2", false, true), status("E3", true, false)));
+
+		assertThat(index.snapshot("alice"))
+				.containsEntry("total", 50L)
+				.containsEntry("SHINee", 50L)
+				.containsEntry("Key", 100L)
+				.containsEntry("kr", 100L)
+				.containsEntry("jp", 0L);
+
+		index.switchPurchased("alice", "E2", true);
+		index.switchWishlist("alice", "E3", true);
+
+		Map<String, Object> breakdown = index.breakdown("alice");
+		assertThat((Map<String, Object>) breakdown.get("total"))
+				.containsEntry("owned", 3L).containsEntry("count", 4L).containsEntry("wishlist", 2L);
+		assertThat((Map<String, Object>) ((Map<String, Object>) breakdown.get("category")).get("Album"))
+				.containsEntry("owned", 2L).containsEntry("rate", 100L);
+		verify(repository, times(1)).findEditionGroups();
+		verify(userStatusRepository, times(1)).findFlaggedByUserId("alice");
+	}
+
+	@Test
+	void keepsEachUsersStateSeparate() {
+		when(repository.findEditionGroups()).thenReturn(catalog());
+		when(userStatusRepository.findFlaggedByUserId("alice")).thenReturn(List.of(status("E1", true, false)));
+		when(userStatusRepository.findFlaggedByUserId("bob")).thenReturn(List.of());
+
+		index.switchPurchased("bob", "E4", true); // 未読み込みのユーザーは、DBから読み込んでから反映される
+		index.snapshot("bob");
+		index.switchPurchased("bob", "E2", true);
+
+		assertThat(index.snapshot("alice")).containsEntry("total", 25L).containsEntry("jp", 0L);
+		assertThat(index.snapshot("bob")).containsEntry("total", 50L).containsEntry("jp", 100L);
+		assertThat(index.view("alice").isPurchased("E1")).isTrue();
+		assertThat(index.view("bob").isPurchased("E1")).isFalse();
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedUser() {
+		when(repository.findEditionGroups()).thenReturn(catalog());
+		when(userStatusRepository.findFlaggedByUserId("alice")).thenReturn(List.of());
+		when(userStatusRepository.findFlaggedByUserId("bob")).thenReturn(List.of());
+		when(userStatusRepository.findFlaggedByUserId("carol")).thenReturn(List.of());
+
+		index.snapshot("alice");
+		index.snapshot("bob");
+		index.snapshot("alice"); // alice を最近使った側にする
+		index.snapshot("carol"); // 上限2人を超えるので bob が追い出される
+		index.snapshot("alice");
+		index.snapshot("bob");
+
+		verify(userStatusRepository, times(1)).findFlaggedByUserId("alice");
+		verify(userStatusRepository, times(2)).findFlaggedByUserId("bob");
+		assertThat(index.getStats()).containsEntry("cachedUsers", 2).containsEntry("evictions", 2L);
+	}
+
+	@Test
+	void returnsRawBitsAndOmitsIdsWhenLayoutIsKnown() {
+		when(repository.findEditionGroups()).thenReturn(catalog());
+		when(userStatusRepository.findFlaggedByUserId("alice"))
+				.thenReturn(List.of(status("E1", true, false), status("E3", true, false)));
+
+		EditionStatusBits first = index.bits("alice", null);
+		assertThat(first.getEditionIds()).containsExactly("E1", "E2", "E3", "E4");
+		BitSet purchased = BitSet.valueOf(Base64.getDecoder().decode(first.getPurchased()));
+		assertThat(purchased.stream().toArray()).containsExactly(0, 2);
+
+		EditionStatusBits second = index.bits("alice", first.getLayoutVersion());
+		assertThat(second.getEditionIds()).isNull();
+		assertThat(second.getLayoutVersion()).isEqualTo(first.getLayoutVersion());
+	}
+
+	@Test
+	void rebuildsWhenAnUnknownEditionIsUpdated() {
+		List<Map<String, Object>> rows = catalog();
+		when(repository.findEditionGroups()).thenReturn(rows);
+		when(userStatusRepository.findFlaggedByUserId("alice"))
+				.thenReturn(List.of(status("E1", true, false), status("E3", true, false)));
+		index.snapshot("alice");
+
+		rows.add(group("E5", "Key", "jp", "Album"));
+		assertThat(index.switchPurchased("alice", "E5", true)).isTrue();
+		when(userStatusRepository.findFlaggedByUserId("alice")).thenReturn(
+				List.of(status("E1", true, false), status("E3", true, false), status("E5", true, false)));
+
+		assertThat(index.snapshot("alice")).containsEntry("total", 60L).containsEntry("Key", 100L);
+		verify(repository, times(2)).findEditionGroups();
+	}
+
+	@Test
+	void reconcileKeepsCachedUsersAndRemapsThemByEditionId() {
+		List<Map<String, Object>> rows = catalog();
+		when(repository.findEditionGroups()).thenReturn(rows);
+		when(userStatusRepository.findFlaggedByUserId("alice"))
+				.thenReturn(List.of(status("E2", true, false), status("E3", true, true)));
+		index.snapshot("alice");
+
+		// 一覧が変わらなければ、ユーザーの状態はそのまま使う
+		index.reconcile();
+		assertThat(index.getStats()).containsEntry("cachedUsers", 1);
+
+		// E1 が削除され、E0 が先頭に追加された（連番がずれる）
+		rows.remove(0);
+		rows.add(0, group("E0", "Key", "jp", "Album"));
+		index.reconcile();
+		EditionStatusIndex.View view = index.view("alice");
+		assertThat(view.isPurchased("E2")).isTrue();
+		assertThat(view.isPurchased("E3")).isTrue();
+		assertThat(view.isWishlist("E3")).isTrue();
+		assertThat(view.isPurchased("E0")).isFalse();
+		assertThat(index.snapshot("alice")).containsEntry("total", 50L).containsEntry("Key", 50L);
+		verify(userStatusRepository, times(1)).findFlaggedByUserId("alice");
+	}
+
+	private static Map<String, Object> status(String userId, String editionId, boolean purchased, boolean wishlist) {
+		Map<String, Object> row = status(editionId, purchased, wishlist);
+		row.put("user_id", userId);
+		return row;
+	}
+
+	@Test
+	void reconcileCorrectsCachedUsersThatDriftedFromTheDatabase() {
+		when(repository.findEditionGroups()).thenReturn(catalog());
+		when(userStatusRepository.findFlaggedByUserId("alice")).thenReturn(List.of(status("E1", true, false)));
+		when(userStatusRepository.findFlaggedByUserId("bob")).thenReturn(List.of(status("E2", true, false)));
+		assertThat(index.snapshot("alice")).containsEntry("total", 25L);
+		assertThat(index.snapshot("bob")).containsEntry("total", 25L);
+
+		// メモリ上の alice の状態とは別に、DBの E1 が未所持に、E3 が所持に書き換えられた
+		when(userStatusRepository.findFlaggedByUserIds(List.of("alice")))
+				.thenReturn(List.of(status("alice", "E3", true, true)));
+		when(userStatusRepository.findFlaggedByUserIds(List.of("bob")))
+				.thenReturn(List.of(status("bob", "E2", true, false)));
+		index.scheduledReconcile();
+
+		EditionStatusIndex.View alice = index.view("alice");
+		assertThat(alice.isPurchased("E1")).isFalse();
+		assertThat(alice.isPurchased("E3")).isTrue();
+		assertThat(alice.isWishlist("E3")).isTrue();
+		assertThat(index.snapshot("bob")).containsEntry("total", 25L).containsEntry("jp", 100L);
+		assertThat(index.getStats()).containsEntry("driftCorrections", 1L).containsEntry("cachedUsers", 2);
+		// 照合は読み直しではない（ユーザー単位の読み込みは最初の1回だけ）
+		verify(userStatusRepository, times(1)).findFlaggedByUserId("alice");
+	}
+
+	@Test
+	void switchReportsOnlyActualFlipsAndLoadsUncachedUsers() {
+		when(repository.findEditionGroups()).thenReturn(catalog());
+		when(userStatusRepository.findFlaggedByUserId("alice")).thenReturn(List.of(status("E1", true, true)));
+
+		// メモリ上に無いユーザーでも、DBから読み込んだ値と比べる
+		assertThat(index.switchPurchased("alice", "E1", true)).isFalse();
+		assertThat(index.switchPurchased("alice", "E2", true)).isTrue();
+		assertThat(index.switchPurchased("alice", "E2", true)).isFalse();
+		assertThat(index.switchWishlist("alice", "E1", false)).isTrue();
+		assertThat(index.view("alice").isPurchased("E2")).isTrue();
+		assertThat(index.view("alice").isWishlist("E1")).isFalse();
+		verify(userStatusRepository, times(1)).findFlaggedByUserId("alice");
+	}
+}
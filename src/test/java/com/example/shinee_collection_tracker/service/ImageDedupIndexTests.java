@@ -0,0 +1,105 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.ImageObject;
+import com.example.shinee_collection_tracker.repository.ImageObjectRepository;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageDedupIndexTests {
+
+	private final ImageObjectRepository repository = mock(ImageObjectRepository.class);
+	private final ImageDedupIndex index = new ImageDedupIndex(repository, 100);
+
+	private static String hash(String content) throws IOException {
+		return ImageDedupIndex.contentHash(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	void reusesStoredUrlFromMemoryAndDatabase() throws IOException {
+		when(repository.findById(anyString())).thenReturn(Optional.empty());
+		String card = hash("card-1");
+		assertThat(card).hasSize(64).isEqualTo(hash("card-1")).isNotEqualTo(hash("card-2"));
+
+		AtomicInteger uploads = new AtomicInteger();
+		ImageDedupIndex.Upload upload = () -> new StoredImage("/images/" + uploads.incrementAndGet() + ".jpg", null, null);
+
+		ImageDedupIndex.Resolved first = index.resolve(card, 10, upload);
+		ImageDedupIndex.Resolved second = index.resolve(card, 10, upload);
+		assertThat(first.deduplicated()).isFalse();
+		assertThat(second.deduplicated()).isTrue();
+		assertThat(second.image().imageUrl()).isEqualTo("/images/1.jpg");
+		verify(repository).insertIfAbsent(card, "/images/1.jpg", null, null, 10);
+
+		// メモリに無くても、DBに記録済みならアップロードしない（再起動後など）
+		String known = hash("card-2");
+		when(repository.findById(known)).thenReturn(Optional.of(
+				new ImageObject(known, "/images/old.jpg", "/images/old_w160.jpg", null, 20, null)));
+		ImageDedupIndex.Resolved fromDatabase = index.resolve(known, 20, upload);
+		assertThat(fromDatabase.deduplicated()).isTrue();
+		assertThat(fromDatabase.image().thumbnailUrl()).isEqualTo("/images/old_w160.jpg");
+		assertThat(uploads).hasValue(1);
+		assertThat(index.getStats()).containsEntry("memoryHits", 1L).containsEntry("databaseHits", 1L)
+				.containsEntry("bytesSaved", 30L);
+	}
+
+	@Test
+	void concurrentUploadsOfSameImageShareOneUploadAndRetryAfterFailure() throws Exception {
+		when(repository.findById(anyString())).thenReturn(Optional.empty());
+		String card = hash("card-1");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger uploads = new AtomicInteger();
+		ImageDedupIndex.Upload slow = () -> {
+			uploads.incrementAndGet();
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new StoredImage("/images/shared.jpg", null, null);
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<ImageDedupIndex.Resolved> first = executor.submit(() -> index.resolve(card, 10, slow));
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<ImageDedupIndex.Resolved> second = executor.submit(() -> index.resolve(card, 10, slow));
+			release.countDown();
+
+			assertThat(first.get(5, TimeUnit.SECONDS).deduplicated()).isFalse();
+			assertThat(second.get(5, TimeUnit.SECONDS).image().imageUrl()).isEqualTo("/images/shared.jpg");
+			assertThat(uploads).hasValue(1);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// アップロードに失敗した画像は記録せず、次回は改めてアップロードする
+		String broken = hash("card-2");
+		assertThatThrownBy(() -> index.resolve(broken, 10, () -> {
+			throw new IOException("storage unavailable");
+		})).isInstanceOf(IOException.class);
+		assertThat(index.resolve(broken, 10, () -> new StoredImage("/images/retry.jpg", null, null)).deduplicated())
+				.isFalse();
+		verify(repository, times(2)).findById(broken);
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.shinee_collection_tracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageThumbnailServiceTests {
+
+	private static byte[] png(BufferedImage image) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+
+	private static BufferedImage filled(int width, int height, Color color) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(color);
+		g.fillRect(0, 0, width, height);
+		g.dispose();
+		return image;
+	}
+
+	private static List<ImageThumbnailService.Thumbnail> thumbnails(ImageThumbnailService service, byte[] data)
+			throws IOException {
+		return service.createThumbnails(new ByteArrayInputStream(data));
+	}
+
+	private static BufferedImage decode(ImageThumbnailService.Thumbnail thumbnail) throws IOException {
+		return ImageIO.read(new ByteArrayInputStream(thumbnail.jpeg()));
+	}
+
+	@Test
+	void writesOnlyWidthsSmallerThanTheSourceAsJpeg() throws IOException {
+		ImageThumbnailService service = new ImageThumbnailService(List.of(640, 160, 320, 300), 0.8f);
+
+		// 300x200 の元画像：160 だけ作り、元画像と同じ 300 と、それより大きい 320 / 640 は作らない
+		List<ImageThumbnailService.Thumbnail> result = thumbnails(service, png(filled(300, 200, Color.RED)));
+
+		assertThat(result).extracting(ImageThumbnailService.Thumbnail::width).containsExactly(160);
+		byte[] jpeg = result.get(0).jpeg();
+		assertThat(Arrays.copyOf(jpeg, 3)).containsExactly(0xFF, 0xD8, 0xFF);
+		BufferedImage decoded = decode(result.get(0));
+		assertThat(decoded.getWidth()).isEqualTo(160);
+		// 縦横比を保つ（200 * 160 / 300 = 106.7 → 107）
+		assertThat(decoded.getHeight()).isEqualTo(107);
+	}
+
+	@Test
+	void returnsWidthsInAscendingOrder() throws IOException {
+		ImageThumbnailService service = new ImageThumbnailService(List.of(320, 160, 640), 0.8f);
+
+		List<ImageThumbnailService.Thumbnail> result = thumbnails(service, png(filled(1000, 500, Color.BLUE)));
+
+		assertThat(result).extracting(ImageThumbnailService.Thumbnail::width).containsExactly(160, 320, 640);
+		for (ImageThumbnailService.Thumbnail thumbnail : result) {
+			assertThat(decode(thumbnail).getWidth()).isEqualTo(thumbnail.width());
+		}
+	}
+
+	@Test
+	void decodesLargeImagesWithSubsampling() throws IOException {
+		// 5列ごとに黒、それ以外は白の縦縞。幅 1000 → 最大幅 100 の2倍（200）まで、5画素おきに間引いて読む
+		BufferedImage stripes = filled(1000, 100, Color.WHITE);
+		for (int x = 0; x < stripes.getWidth(); x += 5) {
+			for (int y = 0; y < stripes.getHeight(); y++) {
+				stripes.setRGB(x, y, Color.BLACK.getRGB());
+			}
+		}
+		ImageThumbnailService service = new ImageThumbnailService(List.of(100), 0.8f);
+
+		List<ImageThumbnailService.Thumbnail> result = thumbnails(service, png(stripes));
+
+		// 間引いて読んだ画素は黒い列だけなので、縮小画像も黒くなる（全画素を縮めれば白に近い灰色になる）
+		assertThat(result).extracting(ImageThumbnailService.Thumbnail::width).containsExactly(100);
+		Color center = new Color(decode(result.get(0)).getRGB(50, 5));
+		assertThat(center.getRed() + center.getGreen() + center.getBlue()).isLessThan(3 * 48);
+	}
+
+	@Test
+	void paintsTransparentPixelsWhite() throws IOException {
+		// 全面透明のPNG（JPEGは透過できないため、白背景に描き直す）
+		BufferedImage transparent = new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB);
+		ImageThumbnailService service = new ImageThumbnailService(List.of(100), 0.8f);
+
+		List<ImageThumbnailService.Thumbnail> result = thumbnails(service, png(transparent));
+
+		assertThat(result).hasSize(1);
+		Color center = new Color(decode(result.get(0)).getRGB(50, 50));
+		assertThat(center.getRed()).isGreaterThanOrEqualTo(250);
+		assertThat(center.getGreen()).isGreaterThanOrEqualTo(250);
+		assertThat(center.getBlue()).isGreaterThanOrEqualTo(250);
+	}
+
+	@Test
+	void returnsEmptyListForFormatsImageIoCannotRead() throws IOException {
+		ImageThumbnailService service = new ImageThumbnailService(List.of(160, 320), 0.8f);
+
+		// HEIC のファイル先頭（ftyp ボックス）だけを真似たデータ
+		byte[] heic = "\0\0\0\u0018ftypheic\0\0\0\0mif1heic".getBytes(StandardCharsets.ISO_8859_1);
+
+		assertThat(thumbnails(service, heic)).isEmpty();
+		assertThat(thumbnails(service, new byte[0])).isEmpty();
+	}
+}
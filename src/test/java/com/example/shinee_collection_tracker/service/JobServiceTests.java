@@ -0,0 +1,195 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.JobStatus;
+import com.example.shinee_collection_tracker.repository.JobRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JobServiceTests {
+
+	private final JobRepository repository = mock(JobRepository.class);
+
+	private final JobService service = new JobService(repository, JsonMapper.builder().build(), 2, 1, 10,
+			Duration.ofMillis(10), Duration.ofHours(1), Duration.ofDays(7));
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+	}
+
+	private JobStatus awaitDone(String jobId) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (System.nanoTime() < deadline) {
+			JobStatus status = service.find(jobId).orElseThrow();
+			if (status.isDone()) {
+				return status;
+			}
+			Thread.sleep(10);
+		}
+		throw new AssertionError("ジョブが終わりませんでした: " + jobId);
+	}
+
+	@Test
+	void retriesWithBackoffUntilSuccessAndReportsProgress() throws InterruptedException {
+		AtomicInteger calls = new AtomicInteger();
+		JobStatus submitted = service.submit(JobType.CATALOG_REFRESH, context -> {
+			context.progress(50, "作り直し中");
+			if (calls.incrementAndGet() < 3) {
+				throw new IllegalStateException("DBに接続できません");
+			}
+			return Map.of("version", "v1");
+		});
+		assertThat(submitted.isDone()).isFalse();
+
+		JobStatus done = awaitDone(submitted.getJobId());
+		assertThat(done.getStatus()).isEqualTo("SUCCEEDED");
+		assertThat(done.getAttempts()).isEqualTo(3);
+		assertThat(done.getProgress()).isEqualTo(100);
+		assertThat(done.getResult()).isEqualTo(Map.of("version", "v1"));
+		assertThat(service.getStats()).containsEntry("retried", 2L).containsEntry("succeeded", 1L);
+
+		// 再試行しない種類のジョブは、1回の失敗で終わる
+		JobStatus failed = awaitDone(service.submit(JobType.RANDOM_ITEM_UPLOAD, context -> {
+			throw new IllegalStateException("ストレージに接続できません");
+		}).getJobId());
+		assertThat(failed.getStatus()).isEqualTo("FAILED");
+		assertThat(failed.getAttempts()).isEqualTo(1);
+		assertThat(failed.getError()).isEqualTo("ストレージに接続できません");
+	}
+
+	@Test
+	void sameIdempotencyKeyReturnsExistingJobWithoutRunningAgain() throws InterruptedException {
+		when(repository.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger created = new AtomicInteger();
+		AtomicInteger runs = new AtomicInteger();
+
+		JobStatus first = service.submit(JobType.RANDOM_ITEM_UPLOAD, "random-upload:s1", () -> {
+			created.incrementAndGet();
+			return context -> {
+				runs.incrementAndGet();
+				release.await();
+				return "ok";
+			};
+		});
+		// 通信が切れて送り直された場合（処理を作る関数も呼ばれない）
+		JobStatus retry = service.submit(JobType.RANDOM_ITEM_UPLOAD, "random-upload:s1", () -> {
+			created.incrementAndGet();
+			return context -> "duplicate";
+		});
+		assertThat(retry.getJobId()).isEqualTo(first.getJobId());
+
+		release.countDown();
+		assertThat(awaitDone(first.getJobId()).getResult()).isEqualTo("ok");
+		assertThat(service.submit(JobType.RANDOM_ITEM_UPLOAD, "random-upload:s1", () -> context -> "again").getJobId())
+				.isEqualTo(first.getJobId());
+		assertThat(created).hasValue(1);
+		assertThat(runs).hasValue(1);
+	}
+
+	@Test
+	void concurrentSubmitWaitsForTheFirstRegistrationInsteadOfRunningTheFactory() throws Exception {
+		when(repository.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+		CountDownLatch creating = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger created = new AtomicInteger();
+
+		CompletableFuture<JobStatus> first = CompletableFuture.supplyAsync(() ->
+				service.submit(JobType.RANDOM_ITEM_UPLOAD, "random-upload:s2", () -> {
+					created.incrementAndGet();
+					creating.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+					return context -> "ok";
+				}));
+		assertThat(creating.await(5, TimeUnit.SECONDS)).isTrue();
+		// 1件目が処理を作っている間に届いた依頼は、処理を作らずに1件目の登録を待つ
+		CompletableFuture<JobStatus> second = CompletableFuture.supplyAsync(() ->
+				service.submit(JobType.RANDOM_ITEM_UPLOAD, "random-upload:s2", () -> {
+					created.incrementAndGet();
+					throw new ResponseStatusException(HttpStatus.CONFLICT, "登録処理中です");
+				}));
+		Thread.sleep(50);
+		assertThat(second).isNotDone();
+
+		release.countDown();
+		assertThat(second.get(5, TimeUnit.SECONDS).getJobId()).isEqualTo(first.get(5, TimeUnit.SECONDS).getJobId());
+		assertThat(created).hasValue(1);
+	}
+
+	@Test
+	void rejectedJobKeepsNoKeyAndReleasesWhatTheTaskHeld() throws InterruptedException {
+		when(repository.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+		JobService busy = new JobService(repository, JsonMapper.builder().build(), 1, 1, 1,
+				Duration.ofMillis(10), Duration.ofHours(1), Duration.ofDays(7));
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			// 実行中の1件と、待ち行列の1件で埋める
+			busy.submit(JobType.RANDOM_ITEM_UPLOAD, context -> {
+				release.await();
+				return "done";
+			});
+			busy.submit(JobType.RANDOM_ITEM_UPLOAD, context -> "queued");
+
+			AtomicInteger discarded = new AtomicInteger();
+			assertThatThrownBy(() -> busy.submit(JobType.RANDOM_ITEM_UPLOAD, "random-upload:s1", () -> new JobService.Task() {
+				@Override
+				public Object run(JobService.Context context) {
+					return "ok";
+				}
+
+				@Override
+				public void discard() {
+					discarded.incrementAndGet();
+				}
+			})).isInstanceOfSatisfying(ResponseStatusException.class,
+					e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+			assertThat(discarded).hasValue(1);
+			assertThat(busy.getStats()).containsEntry("rejected", 1L);
+			verify(repository).deleteById(anyString());
+
+			// 空いてから同じキーで送り直すと、断られたジョブではなく新しいジョブとして実行される
+			release.countDown();
+			JobStatus retried = null;
+			for (int i = 0; i < 100 && retried == null; i++) {
+				try {
+					retried = busy.submit(JobType.RANDOM_ITEM_UPLOAD, "random-upload:s1", () -> context -> "ok");
+				} catch (ResponseStatusException e) {
+					Thread.sleep(10);
+				}
+			}
+			assertThat(retried).isNotNull();
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (!busy.find(retried.getJobId()).orElseThrow().isDone() && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertThat(busy.find(retried.getJobId()).orElseThrow().getStatus()).isEqualTo("SUCCEEDED");
+		} finally {
+			release.countDown();
+			busy.shutdown();
+		}
+	}
+}
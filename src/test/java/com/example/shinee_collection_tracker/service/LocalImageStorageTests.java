@@ -0,0 +1,79 @@
+package com.example.shinee_collection_tracker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalImageStorageTests {
+
+	@TempDir
+	Path dir;
+
+	private Path root;
+
+	@BeforeEach
+	void createRoot() {
+		// 書き込み途中のファイルは root の隣（images.uploading）に置かれるため、root は一時フォルダの中に作る
+		root = dir.resolve("images");
+	}
+
+	@Test
+	void writesMultipartAndBytesUnderRoot() throws IOException {
+		LocalImageStorage storage = new LocalImageStorage(new SimpleMeterRegistry(), root, "/images/");
+		byte[] content = new byte[3 * 1024 * 1024];
+		content[content.length - 1] = 42;
+
+		String url = storage.uploadImage(new MockMultipartFile("images", "card.png", "image/png", content), "a.png");
+		String thumbUrl = storage.uploadBytes(new byte[] { 1, 2, 3 }, "image/jpeg", "a_w160.jpg");
+
+		assertThat(url).isEqualTo("/images/a.png");
+		assertThat(thumbUrl).isEqualTo("/images/a_w160.jpg");
+		assertThat(Files.readAllBytes(root.resolve("a.png"))).isEqualTo(content);
+		assertThat(Files.readAllBytes(root.resolve("a_w160.jpg"))).containsExactly(1, 2, 3);
+		assertThat(storage.getStats()).containsEntry("writes", 2L).containsEntry("errors", 0L);
+		try (var files = Files.list(root)) {
+			assertThat(files).allMatch(path -> !path.getFileName().toString().endsWith(".tmp"));
+		}
+		try (var files = Files.list(dir.resolve("images.uploading"))) {
+			assertThat(files).isEmpty();
+		}
+	}
+
+	@Test
+	void copiesSpooledFilesWithoutTouchingTheSourceAndKeepsPartialWritesOutOfRoot() throws IOException {
+		LocalImageStorage storage = new LocalImageStorage(new SimpleMeterRegistry(), root, "/images");
+		byte[] content = new byte[2 * 1024 * 1024 + 7];
+		content[content.length - 1] = 42;
+		Path spool = Files.write(dir.resolve("chunk.part"), content);
+
+		storage.uploadImage(new SpooledImageFile(spool, "card.png", "image/png", content.length), "b.png");
+
+		assertThat(Files.readAllBytes(root.resolve("b.png"))).isEqualTo(content);
+		// 元のファイルは、サムネイル作成で読み直せるよう残っている
+		assertThat(Files.readAllBytes(spool)).isEqualTo(content);
+		// 配信対象（root）の外に、書き込み途中用のフォルダがある
+		assertThat(dir.resolve("images.uploading")).isDirectory();
+		try (var files = Files.list(root)) {
+			assertThat(files).extracting(path -> path.getFileName().toString()).containsExactly("b.png");
+		}
+	}
+
+	@Test
+	void rejectsNamesOutsideRoot() throws IOException {
+		LocalImageStorage storage = new LocalImageStorage(new SimpleMeterRegistry(), root, "/images");
+
+		assertThatThrownBy(() -> storage.uploadBytes(new byte[] { 1 }, "image/jpeg", "../escape.jpg"))
+				.isInstanceOf(IOException.class);
+		assertThat(dir.resolve("escape.jpg")).doesNotExist();
+	}
+}
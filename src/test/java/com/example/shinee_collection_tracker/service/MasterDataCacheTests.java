@@ -0,0 +1,73 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.Disc;
+import com.example.shinee_collection_tracker.model.DiscWithEditions;
+import com.example.shinee_collection_tracker.model.Edition;
+import com.example.shinee_collection_tracker.repository.DiscRepository;
+import com.example.shinee_collection_tracker.repository.EditionRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MasterDataCacheTests {
+
+	private final DiscRepository discRepository = mock(DiscRepository.class);
+	private final EditionRepository editionRepository = mock(EditionRepository.class);
+	private final MasterDataCache masterData =
+			new MasterDataCache(discRepository, editionRepository, JsonMapper.builder().build());
+
+	private static Disc disc(String discId, String title) {
+		Disc disc = new Disc();
+		disc.setDiscId(discId);
+		disc.setArtist("SHINee");
+		disc.setTitle(title);
+		return disc;
+	}
+
+	private static Edition edition(String editionId, String discId, String displayName) {
+		Edition edition = new Edition();
+		edition.setEditionId(editionId);
+		edition.setDiscId(discId);
+		edition.setDisplayName(displayName);
+		return edition;
+	}
+
+	@Test
+	void groupsEditionsByDiscAndServesFromMemory() {
+		when(discRepository.findAll(any(Sort.class))).thenReturn(List.of(disc("D001", "HUNTER"), disc("D002", "Atlantis")));
+		when(editionRepository.findAll(any(Sort.class))).thenReturn(List.of(
+				edition("D001-01", "D001", "通常盤"), edition("D001-02", "D001", "初回盤"), edition("D002-01", "D002", "通常盤")));
+
+		MasterDataCache.Snapshot snapshot = masterData.get();
+		masterData.get();
+
+		assertThat(snapshot.editions("D001")).extracting(Edition::getEditionId).containsExactly("D001-01", "D001-02");
+		assertThat(snapshot.editions("D999")).isEmpty();
+		assertThat(snapshot.tree()).extracting(DiscWithEditions::getDiscId).containsExactly("D001", "D002");
+		assertThat(snapshot.tree().get(1).getEditions()).hasSize(1);
+		verify(discRepository, times(1)).findAll(any(Sort.class));
+	}
+
+	@Test
+	void versionChangesOnlyWhenContentChanges() {
+		when(discRepository.findAll(any(Sort.class))).thenReturn(List.of(disc("D001", "HUNTER")));
+		when(editionRepository.findAll(any(Sort.class))).thenReturn(List.of(edition("D001-01", "D001", "通常盤")));
+		MasterDataCache.Snapshot first = masterData.rebuild();
+
+		assertThat(masterData.rebuild()).isSameAs(first);
+
+		when(editionRepository.findAll(any(Sort.class))).thenReturn(List.of(edition("D001-01", "D001", "通常盤(Repackage)")));
+		assertThat(masterData.rebuild().version()).isNotEqualTo(first.version());
+	}
+}
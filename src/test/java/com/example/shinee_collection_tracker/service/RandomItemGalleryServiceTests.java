@@ -0,0 +1,91 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.FacetCount;
+import com.example.shinee_collection_tracker.model.RandomItem;
+import com.example.shinee_collection_tracker.model.RandomItemFacets;
+import com.example.shinee_collection_tracker.model.RandomItemPage;
+import com.example.shinee_collection_tracker.repository.RandomItemRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@Import(RandomItemGalleryService.class)
+@TestPropertySource(properties = {
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect" })
+class RandomItemGalleryServiceTests {
+
+	@Autowired
+	private RandomItemRepository repository;
+
+	@Autowired
+	private RandomItemGalleryService gallery;
+
+	private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+	private static RandomItem item(String editionId, String memberName, String itemType, LocalDateTime createdAt) {
+		RandomItem item = new RandomItem();
+		item.setEditionId(editionId);
+		item.setMemberName(memberName);
+		item.setItemType(itemType);
+		item.setCreatedAt(createdAt);
+		return item;
+	}
+
+	@BeforeEach
+	void seed() {
+		List<RandomItem> items = new ArrayList<>();
+		String[] members = { "ONEW", "KEY", "MINHO", "TAEMIN" };
+		for (int i = 0; i < 12; i++) {
+			// 2件ずつ同じ登録日時にして、item_id での並びもカーソルで正しく辿れるかを確かめる
+			items.add(item(i < 6 ? "E1" : "E2", members[i % members.length], i % 3 == 0 ? "ポストカード" : "トレカ",
+					BASE.plusMinutes(i / 2)));
+		}
+		repository.saveAll(items);
+	}
+
+	@Test
+	void pagesNewestFirstWithoutGapsOrDuplicates() {
+		List<Long> seen = new ArrayList<>();
+		RandomItemPage page = gallery.findPage(null, null, null, null, null, 5);
+		seen.addAll(page.getItems().stream().map(RandomItem::getItemId).toList());
+		while (page.isHasNext()) {
+			page = gallery.findPage(null, null, null, page.getNextCreatedAt(), page.getNextItemId(), 5);
+			seen.addAll(page.getItems().stream().map(RandomItem::getItemId).toList());
+		}
+
+		assertThat(seen).hasSize(12).doesNotHaveDuplicates();
+		List<RandomItem> all = repository.findAllById(seen);
+		List<LocalDateTime> order = seen.stream()
+				.map(id -> all.stream().filter(it -> it.getItemId().equals(id)).findFirst().orElseThrow().getCreatedAt())
+				.toList();
+		assertThat(order).isSortedAccordingTo((a, b) -> b.compareTo(a));
+	}
+
+	@Test
+	void filtersByMultipleValuesAndCountsFacets() {
+		RandomItemPage page = gallery.findPage(List.of("E1"), List.of("KEY", "ONEW"), List.of("all"), null, null, null);
+		assertThat(page.getItems()).extracting(RandomItem::getMemberName).containsOnly("KEY", "ONEW").hasSize(4);
+		assertThat(page.isHasNext()).isFalse();
+
+		RandomItemFacets facets = gallery.countFacets(List.of("E1"), List.of("KEY", "ONEW"), null);
+		assertThat(facets.getTotal()).isEqualTo(4);
+		// メンバー別の件数は、メンバーの条件を掛けずに数える
+		assertThat(facets.getMembers()).extracting(FacetCount::getValue)
+				.containsExactlyInAnyOrder("ONEW", "KEY", "MINHO", "TAEMIN");
+		assertThat(facets.getItemTypes()).extracting(FacetCount::getValue, FacetCount::getCount)
+				.containsExactly(tuple("トレカ", 3L), tuple("ポストカード", 1L));
+	}
+}
@@ -0,0 +1,165 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.model.RandomItem;
+import com.example.shinee_collection_tracker.model.UploadItemResult;
+import com.example.shinee_collection_tracker.model.UploadReport;
+import com.example.shinee_collection_tracker.repository.ImageObjectRepository;
+import com.example.shinee_collection_tracker.repository.RandomItemRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RandomItemUploadServiceTests {
+
+	private final RandomItemRepository randomItemRepository = mock(RandomItemRepository.class);
+	private final CollectionEventBroadcaster eventBroadcaster = mock(CollectionEventBroadcaster.class);
+	private final FakeStorage storage = new FakeStorage();
+	private final RandomItemUploadService service;
+
+	RandomItemUploadServiceTests() {
+		ImageObjectRepository imageObjects = mock(ImageObjectRepository.class);
+		when(imageObjects.findById(anyString())).thenReturn(Optional.empty());
+		service = new RandomItemUploadService(randomItemRepository, storage,
+				new ImageThumbnailService(List.of(160), 0.8f), new ImageDedupIndex(imageObjects, 100),
+				eventBroadcaster, 4);
+	}
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+	}
+
+	/**
+	 * broken.jpg だけ保存に失敗するストレージ。slow.jpg は last.jpg の保存が終わるまで待たせ、
+	 * 並列に走るアップロードの終わる順番がスロット順と逆になるようにする。
+	 */
+	private static final class FakeStorage implements ImageStorage {
+		private final CountDownLatch lastStored = new CountDownLatch(1);
+
+		@Override
+		public String uploadImage(MultipartFile file, String objectName) throws IOException {
+			switch (file.getOriginalFilename()) {
+				case "broken.jpg" -> throw new IOException("storage is down");
+				case "slow.jpg" -> {
+					try {
+						lastStored.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				case "last.jpg" -> lastStored.countDown();
+				default -> {
+				}
+			}
+			return "/images/" + file.getOriginalFilename();
+		}
+
+		@Override
+		public String uploadBytes(byte[] data, String contentType, String objectName) {
+			return "/images/" + objectName;
+		}
+
+		@Override
+		public Map<String, Object> getStats() {
+			return Map.of();
+		}
+	}
+
+	// 画像として読めない内容なので縮小版は作られず、元画像だけが保存される
+	private static MultipartFile image(String fileName) {
+		return new MockMultipartFile("images", fileName, "image/jpeg", fileName.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// スロット0: 遅い画像、1: 保存に失敗、2: 画像なし、3: すぐ終わる画像
+	private UploadReport uploadFourSlots() {
+		List<MultipartFile> images = new ArrayList<>();
+		images.add(image("slow.jpg"));
+		images.add(image("broken.jpg"));
+		images.add(new MockMultipartFile("images", new byte[0]));
+		images.add(image("last.jpg"));
+		return service.upload("D001-01", List.of("トレカ", "ポストカード", "トレカ", "ステッカー"),
+				List.of("ONEW", "KEY", "MINHO", "TAEMIN"), images);
+	}
+
+	@Test
+	void reportsSlotsInInputOrderAndSavesTheSuccessfulOnesInOneBatch() {
+		when(randomItemRepository.saveAll(anyList())).thenAnswer(invocation -> {
+			List<RandomItem> items = invocation.getArgument(0);
+			long id = 100;
+			for (RandomItem item : items) {
+				item.setItemId(id++);
+			}
+			return items;
+		});
+
+		UploadReport report = uploadFourSlots();
+
+		assertThat(report.getItems()).extracting(UploadItemResult::getIndex).containsExactly(0, 1, 2, 3);
+		assertThat(report.getItems()).extracting(UploadItemResult::getStatus)
+				.containsExactly("SAVED", "FAILED", "SKIPPED", "SAVED");
+		assertThat(report.getItems()).extracting(UploadItemResult::getItemId).containsExactly(100L, null, null, 101L);
+		assertThat(report.getItems()).extracting(UploadItemResult::getImageUrl)
+				.containsExactly("/images/slow.jpg", null, null, "/images/last.jpg");
+		assertThat(report.getItems().get(1).getFileName()).isEqualTo("broken.jpg");
+		assertThat(report.getItems().get(1).getError()).isEqualTo("storage is down");
+		assertThat(report.getSaved()).isEqualTo(2);
+		assertThat(report.getFailed()).isEqualTo(1);
+		assertThat(report.getSkipped()).isEqualTo(1);
+
+		// 成功した2件だけを、スロット順のまま1回の saveAll で保存する
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<RandomItem>> saved = ArgumentCaptor.forClass(List.class);
+		verify(randomItemRepository, times(1)).saveAll(saved.capture());
+		assertThat(saved.getValue()).extracting(RandomItem::getMemberName).containsExactly("ONEW", "TAEMIN");
+		assertThat(saved.getValue()).extracting(RandomItem::getItemType).containsExactly("トレカ", "ステッカー");
+		assertThat(saved.getValue()).allSatisfy(item -> assertThat(item.getEditionId()).isEqualTo("D001-01"));
+		verify(eventBroadcaster).randomItemsAdded("D001-01", List.of(100L, 101L));
+	}
+
+	@Test
+	void failedSaveAllMarksThePendingSlotsFailed() {
+		when(randomItemRepository.saveAll(anyList()))
+				.thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+		UploadReport report = uploadFourSlots();
+
+		assertThat(report.getItems()).extracting(UploadItemResult::getStatus)
+				.containsExactly("FAILED", "FAILED", "SKIPPED", "FAILED");
+		// 保存待ちだったスロットは、アップロード済みのURLを返さず、DB保存の失敗を理由にする
+		for (int slot : new int[] { 0, 3 }) {
+			UploadItemResult result = report.getItems().get(slot);
+			assertThat(result.getImageUrl()).isNull();
+			assertThat(result.getItemId()).isNull();
+			assertThat(result.getError()).startsWith("DB保存に失敗しました").contains("connection refused");
+		}
+		// アップロードで失敗したスロットの理由はそのまま
+		assertThat(report.getItems().get(1).getError()).isEqualTo("storage is down");
+		assertThat(report.getSaved()).isZero();
+		assertThat(report.getFailed()).isEqualTo(3);
+		assertThat(report.getSkipped()).isEqualTo(1);
+		verify(eventBroadcaster, never()).randomItemsAdded(anyString(), any());
+	}
+}
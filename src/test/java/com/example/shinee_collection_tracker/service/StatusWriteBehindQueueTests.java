@@ -0,0 +1,89 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.example.shinee_collection_tracker.repository.DiscographyRepository;
+import com.example.shinee_collection_tracker.repository.UserEditionStatusRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatusWriteBehindQueueTests {
+
+	private final DiscographyRepository repository = mock(DiscographyRepository.class);
+	private final UserEditionStatusRepository userStatusRepository = mock(UserEditionStatusRepository.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final StatusWriteBehindQueue queue = new StatusWriteBehindQueue(userStatusRepository, meterRegistry, true);
+	private final EditionStatusIndex index = new EditionStatusIndex(repository, userStatusRepository, queue, 10, 200);
+
+	private static Map<String, Object> row(String editionId, String artist) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("edition_id", editionId);
+		row.put("artist", artist);
+		row.put("country", "kr");
+		row.put("category", "Album");
+		return row;
+	}
+
+	// DiscographyService と同じ順番で、後書きキューと索引に反映する
+	private boolean toggle(String editionId, boolean isPurchased) {
+		boolean flipped = index.switchPurchased("alice", editionId, isPurchased);
+		queue.enqueuePurchase("alice", editionId, isPurchased);
+		return flipped;
+	}
+
+	@Test
+	void flushDoesNotRevertTogglesThatArriveWhileWritingAndReloadsSeeQueuedWrites() throws Exception {
+		when(repository.findEditionGroups()).thenReturn(List.of(row("E1", "Key"), row("E2", "Onew")));
+		when(userStatusRepository.findFlaggedByUserId("alice")).thenReturn(List.of());
+
+		assertThat(toggle("E1", true)).isTrue();
+
+		// 1回目の書き込み（E1=true）の最中に、もう一度切り替える
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(userStatusRepository.upsertStatus(eq("alice"), anyList(), eq(true), eq(true), anyBoolean(), anyBoolean()))
+				.thenAnswer(invocation -> {
+					writing.countDown();
+					release.await(5, TimeUnit.SECONDS);
+					return 1;
+				});
+		CompletableFuture<Void> flush = CompletableFuture.runAsync(queue::flush);
+		assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(toggle("E1", false)).isTrue();
+
+		// 書き込み中に索引がDBから読み直されても（DBにはまだ何も無い）、キューの値が重なる
+		index.reconcile();
+		assertThat(index.view("alice").isPurchased("E1")).isFalse();
+		assertThat(toggle("E2", true)).isTrue();
+
+		release.countDown();
+		flush.get(5, TimeUnit.SECONDS);
+		// 書き終わった古い値（E1=true）で索引が戻らない
+		assertThat(index.view("alice").isPurchased("E1")).isFalse();
+		assertThat(index.snapshot("alice")).containsEntry("total", 50L);
+		assertThat(toggle("E1", false)).isFalse();
+
+		queue.flush();
+		verify(userStatusRepository).upsertStatus("alice", List.of("E1"), true, false, false, false);
+		assertThat(queue.getStats()).containsEntry("queueDepth", 0);
+		// /actuator/metrics にも同じ値が出る
+		assertThat(meterRegistry.get("status.write-behind.queue.depth").gauge().value()).isZero();
+		assertThat(meterRegistry.get("status.write-behind.flush").tag("outcome", "success").timer().count()).isEqualTo(2);
+		assertThat(meterRegistry.get("status.write-behind.accepted").functionCounter().count()).isEqualTo(4);
+	}
+}
@@ -0,0 +1,140 @@
+package com.example.shinee_collection_tracker.service;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import okhttp3.OkHttpClient;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class dbStorageServiceTests {
+
+	private HttpServer server;
+	private final Deque<Integer> statuses = new ArrayDeque<>();
+	private final List<String> receivedPaths = new CopyOnWriteArrayList<>();
+	private final List<Integer> receivedSizes = new CopyOnWriteArrayList<>();
+	private final List<String> receivedUpserts = new CopyOnWriteArrayList<>();
+	private final OkHttpClient client = new OkHttpClient();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@BeforeEach
+	void startStubServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/storage/v1/object/", exchange -> {
+			receivedPaths.add(exchange.getRequestURI().getPath());
+			receivedSizes.add(exchange.getRequestBody().readAllBytes().length);
+			String upsert = exchange.getRequestHeaders().getFirst("x-upsert");
+			receivedUpserts.add(upsert == null ? "" : upsert);
+			Integer status;
+			synchronized (statuses) {
+				status = statuses.isEmpty() ? 200 : statuses.poll();
+			}
+			exchange.sendResponseHeaders(status, -1);
+			exchange.close();
+		});
+		server.start();
+	}
+
+	@AfterEach
+	void stopStubServer() {
+		server.stop(0);
+		client.connectionPool().evictAll();
+	}
+
+	private dbStorageService newService(int maxRetries) {
+		return newService(4, maxRetries, Duration.ofMillis(1));
+	}
+
+	private dbStorageService newService(int maxConcurrent, int maxRetries, Duration retryBackoff) {
+		String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+		return new dbStorageService(client, meterRegistry, baseUrl, "test-key", maxConcurrent, maxRetries, retryBackoff);
+	}
+
+	private static MockMultipartFile image() {
+		return new MockMultipartFile("images", "card.jpg", "image/jpeg", new byte[2048]);
+	}
+
+	@Test
+	void uploadsStreamedBodyAndReturnsPublicUrl() throws IOException {
+		dbStorageService service = newService(0);
+
+		String url = service.uploadImage(image());
+
+		assertThat(url).contains("/storage/v1/object/public/RandomItem/").endsWith(".jpg");
+		assertThat(receivedPaths).singleElement().asString().startsWith("/storage/v1/object/RandomItem/");
+		assertThat(receivedSizes).containsExactly(2048);
+		assertThat(service.getStats()).containsEntry("calls", 1L).containsEntry("errors", 0L);
+		assertThat(meterRegistry.get("storage.upload").tag("outcome", "success").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void retriesServerErrorsWithBackoff() throws IOException {
+		statuses.add(503);
+		statuses.add(500);
+		dbStorageService service = newService(2);
+
+		service.uploadImage(image());
+
+		assertThat(receivedPaths).hasSize(3).containsOnly(receivedPaths.get(0));
+		assertThat(receivedSizes).containsOnly(2048);
+		// 前回の送信が保存済みでも重複エラーにならないよう、再試行は上書きを許可する
+		assertThat(receivedUpserts).containsExactly("", "true", "true");
+		assertThat(service.getStats()).containsEntry("retries", 2L).containsEntry("errors", 0L);
+	}
+
+	@Test
+	void doesNotRetryClientErrors() {
+		statuses.add(400);
+		dbStorageService service = newService(2);
+
+		assertThatThrownBy(() -> service.uploadImage(image())).isInstanceOf(IOException.class);
+
+		assertThat(receivedPaths).hasSize(1);
+		assertThat(service.getStats()).containsEntry("errors", 1L).containsEntry("retries", 0L);
+	}
+
+	@Test
+	void releasesTheConcurrencySlotWhileWaitingToRetry() throws Exception {
+		statuses.add(503);
+		// 同時実行数1・再試行まで1秒
+		dbStorageService service = newService(1, 1, Duration.ofSeconds(1));
+
+		CompletableFuture<String> retrying = CompletableFuture.supplyAsync(() -> {
+			try {
+				return service.uploadImage(image());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		while (receivedPaths.isEmpty()) {
+			Thread.sleep(10);
+		}
+
+		// 1件目が再試行を待っている間に、2件目は枠を取って送り終える
+		long start = System.nanoTime();
+		service.uploadImage(image());
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(500));
+		assertThat(retrying).isNotDone();
+
+		retrying.get(5, TimeUnit.SECONDS);
+		assertThat(receivedPaths).hasSize(3);
+	}
+}